@@ -8,11 +8,12 @@ out vec2 outTexCoord;
 uniform mat4 modelViewMatrix; //model position, rotation, and scale
 uniform mat4 viewMatrix; //camera position and rotation
 uniform mat4 projectionMatrix; //projection (perspecive & FOV)
+uniform vec3 chunkOffset; //chunk position. Chunks are drawn with an identity modelViewMatrix, so only this changes between them.
 
 void main()
 {
     //gl_Position = projectionMatrix * viewMatrix * modelViewMatrix * vec4(position, 1.0);
     mat4 mvp = projectionMatrix * viewMatrix * modelViewMatrix;
-    gl_Position = mvp * vec4(position, 1.0);
+    gl_Position = mvp * vec4(position + chunkOffset, 1.0);
     outTexCoord = texCoord;
 }
\ No newline at end of file
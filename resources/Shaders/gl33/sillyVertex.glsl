@@ -8,6 +8,7 @@ out vec2 outTexCoord;
 uniform mat4 modelViewMatrix; //model position, rotation, and scale
 uniform mat4 viewMatrix; //camera position and rotation
 uniform mat4 projectionMatrix; //projection (perspecive & FOV)
+uniform vec3 chunkOffset; //chunk position. Chunks are drawn with an identity modelViewMatrix, so only this changes between them.
 
 int getRandom(int seed){
     seed ^= seed << 13;
@@ -20,12 +21,12 @@ int getRandom(float floatSeed){
 }
 void main()
 {
-    gl_Position = projectionMatrix * viewMatrix * modelViewMatrix * vec4(position, 1.0); //calculate initial gl_Position
+    gl_Position = projectionMatrix * viewMatrix * modelViewMatrix * vec4(position + chunkOffset, 1.0); //calculate initial gl_Position
     vec3 newPosition = vec3(
         position.x + getRandom(gl_Position.x)/8589934592.0,
         position.y + getRandom(gl_Position.y)/8589934592.0,
         position.z + getRandom(gl_Position.z)/8589934592.0); //randomize position based on gl_Position
-    gl_Position = projectionMatrix * viewMatrix * modelViewMatrix * vec4(newPosition, 1.0); //create new gl_Posotion based on randomized position
+    gl_Position = projectionMatrix * viewMatrix * modelViewMatrix * vec4(newPosition + chunkOffset, 1.0); //create new gl_Posotion based on randomized position
 
     outTexCoord = texCoord;
 }
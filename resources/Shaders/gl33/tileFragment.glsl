@@ -0,0 +1,16 @@
+#version 330
+
+in  vec3 outTexCoord;
+out vec4 fragColor;
+
+uniform sampler2DArray texture_sampler;
+uniform float timeSeconds; //required uniform
+
+void main()
+{
+	vec4 color = texture(texture_sampler, outTexCoord);
+	if(color.a < 0.1){
+		discard;
+	}
+	fragColor = color;
+}
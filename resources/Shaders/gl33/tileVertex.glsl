@@ -0,0 +1,19 @@
+#version 330
+
+layout (location=0) in vec3 position;
+layout (location=1) in uint tile; //u, v and the layer packed by TileArray.encode
+
+out vec3 outTexCoord;
+
+uniform mat4 modelViewMatrix; //model position, rotation, and scale
+uniform mat4 viewMatrix; //camera position and rotation
+uniform mat4 projectionMatrix; //projection (perspecive & FOV)
+uniform vec3 chunkOffset; //chunk position. Chunks are drawn with an identity modelViewMatrix, so only this changes between them.
+
+void main()
+{
+    mat4 mvp = projectionMatrix * viewMatrix * modelViewMatrix;
+    gl_Position = mvp * vec4(position + chunkOffset, 1.0);
+    //bits 0-10 are u and bits 11-21 are v, both in 1024ths. Bits 22-31 are the layer.
+    outTexCoord = vec3(float(tile & 2047u) / 1024.0, float((tile >> 11) & 2047u) / 1024.0, float(tile >> 22));
+}
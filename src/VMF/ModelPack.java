@@ -0,0 +1,225 @@
+package VMF;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A pack of models compiled by ModelPackCompiler: every model in a resources folder, with its texture already decoded, in one uncompressed file.
+ * The file is memory mapped, and each model is just a set of slices of it, so loading a model from a pack doesn't inflate or parse anything.
+ *
+ * File layout (little-endian):
+ *   header: magic "VPK0", version, number of models, 0
+ *   index: for each model:
+ *     name length, name (UTF-8, padded to 4 bytes), flags (1 = block model), blocked faces,
+ *     source file size, source file last modified time,
+ *     vertex count, index count, removable triangle count, texture width, texture height,
+ *     offsets of the vertices, texture coordinates, indices, removable triangles, and texture pixels
+ *   data: each of those, starting at a multiple of 16 bytes. Texture pixels are ARGB ints, like BufferedImage.TYPE_INT_ARGB.
+ *
+ * The name of a model is its path within the resources folder, with forward slashes, like "VMFModels/stoneBlock.vbmf0".
+ */
+public class ModelPack {
+    public static final String FILE_NAME = "models.vpack";
+    static final int MAGIC = 'V' | 'P' << 8 | 'K' << 16 | '0' << 24;
+    static final int VERSION = 1;
+    static final int FLAG_BLOCK = 1;
+    static final int ALIGNMENT = 16;
+
+    //the packs that have been opened, by resources folder. Folders without a pack map to null so they aren't checked again.
+    private static final Map<String, ModelPack> packs = new HashMap<>();
+
+    private final ByteBuffer data;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private record Entry(boolean block, byte blockedFaces, long sourceSize, long sourceModified,
+                         int vertexCount, int indexCount, int removableCount, int textureWidth, int textureHeight,
+                         long vertices, long texCoords, long indices, long removable, long texture){}
+
+    /**
+     * maps a pack file and reads its index.
+     * @throws IOException if the file can't be read, or isn't a model pack of the right version.
+     */
+    public ModelPack(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            //the mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            data = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        try {
+            ByteBuffer header = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            if(header.getInt() != MAGIC) throw new IOException(file + " is not a model pack");
+            int version = header.getInt();
+            if(version != VERSION) throw new IOException(file + " is model pack version " + version + ", but only version " + VERSION + " is supported");
+            int count = header.getInt();
+            header.getInt();
+            for(int i=0; i<count; i++){
+                byte[] name = new byte[header.getInt()];
+                header.get(name);
+                header.position((header.position() + 3) & -4);
+                int flags = header.getInt();
+                byte blockedFaces = (byte) header.getInt();
+                entries.put(new String(name, StandardCharsets.UTF_8), new Entry((flags & FLAG_BLOCK) != 0, blockedFaces,
+                        header.getLong(), header.getLong(),
+                        header.getInt(), header.getInt(), header.getInt(), header.getInt(), header.getInt(),
+                        header.getLong(), header.getLong(), header.getLong(), header.getLong(), header.getLong()));
+            }
+        } catch (RuntimeException e){
+            //a truncated or corrupted pack throws buffer exceptions while reading the index
+            throw new IOException(file + " is corrupted: " + e, e);
+        }
+    }
+
+    /**
+     * gets a model from the pack in a resources folder, if there is a pack and the model in it is up to date with its source file.
+     * Packs are only opened once, and kept open.
+     * @param resourcesPath the resources folder
+     * @param path the path of the model within the resources folder
+     * @param block true to load it as a block model, false to leave out the block-specific data like VMFLoader.loadVEMF does.
+     * @return the model, or null if it has to be loaded from its source file instead.
+     */
+    public static Model find(String resourcesPath, String path, boolean block){
+        ModelPack pack;
+        synchronized (packs){
+            if(packs.containsKey(resourcesPath)){
+                pack = packs.get(resourcesPath);
+            } else {
+                File file = new File(resourcesPath, FILE_NAME);
+                pack = null;
+                if(file.isFile()){
+                    try {
+                        pack = new ModelPack(file);
+                    } catch (IOException e) {
+                        System.err.println("Unable to use model pack, models will be loaded individually: " + e.getMessage());
+                    }
+                }
+                packs.put(resourcesPath, pack);
+            }
+        }
+        if(pack == null) return null;
+        String name = path.replace('\\', '/');
+        while(name.startsWith("/")) name = name.substring(1);
+        if(!pack.isUpToDate(name, new File(resourcesPath, path))) return null;
+        return pack.getModel(name, block);
+    }
+
+    /**
+     * forgets the packs that were opened by find, so they are opened again next time. For after a pack is recompiled.
+     */
+    public static void clearCache(){
+        synchronized (packs){
+            packs.clear();
+        }
+    }
+
+    /**
+     * @return true if the pack has the model, and its source file hasn't changed since the pack was compiled (or doesn't exist at all).
+     */
+    public boolean isUpToDate(String name, File source){
+        Entry entry = entries.get(name);
+        if(entry == null) return false;
+        if(!source.exists()) return true;
+        return source.length() == entry.sourceSize && source.lastModified() == entry.sourceModified;
+    }
+
+    public boolean contains(String name){
+        return entries.containsKey(name);
+    }
+
+    public int size(){
+        return entries.size();
+    }
+
+    /**
+     * @param block true to get the block-specific data as well
+     * @return the model with that name, or null if it isn't in the pack.
+     */
+    public Model getModel(String name, boolean block){
+        Entry entry = entries.get(name);
+        if(entry == null) return null;
+        return new Model(entry, block && entry.block);
+    }
+
+    private ByteBuffer slice(long offset, long bytes){
+        return data.slice((int)offset, (int)bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * a model in the pack. It has the same getters as VMFLoader, so it can be used in the same places.
+     * The buffers are views of the mapped file, so they don't copy anything until the data is put into arrays.
+     */
+    public class Model {
+        private final Entry entry;
+        private final boolean block;
+
+        private Model(Entry entry, boolean block){
+            this.entry = entry;
+            this.block = block;
+        }
+
+        public FloatBuffer getVertexBuffer(){
+            return slice(entry.vertices, entry.vertexCount*12L).asFloatBuffer();
+        }
+
+        public FloatBuffer getTextureCoordinateBuffer(){
+            return slice(entry.texCoords, entry.vertexCount*8L).asFloatBuffer();
+        }
+
+        public IntBuffer getIndexBuffer(){
+            return slice(entry.indices, entry.indexCount*4L).asIntBuffer();
+        }
+
+        public float[] getVertices(){
+            float[] vertices = new float[entry.vertexCount*3];
+            getVertexBuffer().get(vertices);
+            return vertices;
+        }
+
+        public float[] getTextureCoordinates(){
+            float[] texCoords = new float[entry.vertexCount*2];
+            getTextureCoordinateBuffer().get(texCoords);
+            return texCoords;
+        }
+
+        public int[] getIndices(){
+            int[] indices = new int[entry.indexCount];
+            getIndexBuffer().get(indices);
+            return indices;
+        }
+
+        /**
+         * @return the removable triangles, or null if it isn't loaded as a block model.
+         */
+        public byte[] getRemovableTriangles(){
+            if(!block) return null;
+            byte[] removable = new byte[entry.removableCount];
+            slice(entry.removable, entry.removableCount).get(removable);
+            return removable;
+        }
+
+        public byte getBlockedFaces(){
+            return block ? entry.blockedFaces : 0;
+        }
+
+        /**
+         * @return the texture. The pixels are copied straight into the image, there's no decoding.
+         */
+        public BufferedImage getImage(){
+            BufferedImage image = new BufferedImage(entry.textureWidth, entry.textureHeight, BufferedImage.TYPE_INT_ARGB);
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            slice(entry.texture, pixels.length*4L).asIntBuffer().get(pixels);
+            return image;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package VMF;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compiles every .vbmf0 and .vemf0 model in a resources folder into a ModelPack, so they can be loaded without unzipping and decoding them one by one.
+ * The renders use the pack automatically if there is one in the resources folder, and fall back to the model files for anything that changed since.
+ *
+ * args: [resources folder] [output file, default: models.vpack in the resources folder]
+ */
+public class ModelPackCompiler {
+    private record Compiled(String name, boolean block, byte blockedFaces, long sourceSize, long sourceModified,
+                            float[] vertices, float[] texCoords, int[] indices, byte[] removable, BufferedImage texture){}
+
+    public static void main(String[] args) throws IOException {
+        File resources = new File(args.length > 0 ? args[0] : "resources");
+        File output = args.length > 1 ? new File(args[1]) : new File(resources, ModelPack.FILE_NAME);
+        long start = System.nanoTime();
+        int count = compile(resources, output);
+        System.out.println("compiled " + count + " models into " + output + " (" + output.length()/1024 + "KiB) in " + (System.nanoTime() - start)/1_000_000 + "ms");
+    }
+
+    /**
+     * compiles every model in a resources folder into a pack file.
+     * @return the number of models in the pack
+     */
+    public static int compile(File resources, File output) throws IOException {
+        Path root = resources.toPath();
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(root)) {
+            sources = files.filter(p -> {
+                String name = p.getFileName().toString();
+                return Files.isRegularFile(p) && (name.endsWith(".vbmf0") || name.endsWith(".vemf0"));
+            }).sorted().toList();
+        }
+
+        List<Compiled> models = new ArrayList<>();
+        for(Path source: sources){
+            String name = root.relativize(source).toString().replace(File.separatorChar, '/');
+            File file = source.toFile();
+            boolean block = name.endsWith(".vbmf0");
+            VMFLoader loader = block ? new VMFLoader().loadVBMF(file) : new VMFLoader().loadVEMF(file);
+            BufferedImage texture = loader.getImage();
+            if(texture == null) throw new IOException(name + " has a texture that can't be decoded");
+            byte[] removable = block ? loader.getRemovableTriangles() : new byte[0];
+            float[] vertices = loader.getVertices();
+            float[] texCoords = loader.getTextureCoordinates();
+            if(vertices.length/3 != texCoords.length/2) throw new IOException(name + " has " + vertices.length/3 + " vertices but " + texCoords.length/2 + " texture coordinates");
+            models.add(new Compiled(name, block, block ? loader.getBlockedFaces() : 0, file.length(), file.lastModified(),
+                    vertices, texCoords, loader.getIndices(), removable, texture));
+        }
+
+        //the index comes first, so its size is needed to know where the data starts
+        long indexSize = 16;
+        for(Compiled model: models){
+            indexSize += 4 + ((model.name.getBytes(StandardCharsets.UTF_8).length + 3) & -4) + 4 + 4 + 8 + 8 + 5*4 + 5*8;
+        }
+
+        ByteBuffer index = ByteBuffer.allocate((int)indexSize).order(ByteOrder.LITTLE_ENDIAN);
+        index.putInt(ModelPack.MAGIC).putInt(ModelPack.VERSION).putInt(models.size()).putInt(0);
+        long offset = align(indexSize);
+        for(Compiled model: models){
+            byte[] name = model.name.getBytes(StandardCharsets.UTF_8);
+            index.putInt(name.length).put(name);
+            index.position((index.position() + 3) & -4);
+            index.putInt(model.block ? ModelPack.FLAG_BLOCK : 0).putInt(model.blockedFaces);
+            index.putLong(model.sourceSize).putLong(model.sourceModified);
+            index.putInt(model.vertices.length/3).putInt(model.indices.length).putInt(model.removable.length)
+                    .putInt(model.texture.getWidth()).putInt(model.texture.getHeight());
+            long vertices = offset;
+            long texCoords = align(vertices + model.vertices.length*4L);
+            long indices = align(texCoords + model.texCoords.length*4L);
+            long removable = align(indices + model.indices.length*4L);
+            long texture = align(removable + model.removable.length);
+            offset = align(texture + model.texture.getWidth() * (long)model.texture.getHeight() * 4);
+            index.putLong(vertices).putLong(texCoords).putLong(indices).putLong(removable).putLong(texture);
+        }
+
+        //written to a temporary file first, so a pack that's in use is never half written
+        File temp = new File(output.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp.toPath()), 1 << 16)) {
+            out.write(index.array());
+            long written = indexSize;
+            for(Compiled model: models){
+                written = pad(out, written);
+                written += write(out, model.vertices);
+                written = pad(out, written);
+                written += write(out, model.texCoords);
+                written = pad(out, written);
+                written += write(out, model.indices);
+                written = pad(out, written);
+                out.write(model.removable);
+                written += model.removable.length;
+                written = pad(out, written);
+                int width = model.texture.getWidth();
+                int height = model.texture.getHeight();
+                int[] pixels = model.texture.getRGB(0, 0, width, height, null, 0, width);
+                written += write(out, pixels);
+            }
+            pad(out, written);
+        }
+        Files.move(temp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        ModelPack.clearCache();
+        return models.size();
+    }
+
+    private static long align(long offset){
+        return (offset + ModelPack.ALIGNMENT - 1) & -ModelPack.ALIGNMENT;
+    }
+
+    private static long pad(OutputStream out, long written) throws IOException {
+        long aligned = align(written);
+        for(long i=written; i<aligned; i++) out.write(0);
+        return aligned;
+    }
+
+    private static int write(OutputStream out, float[] values) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length*4).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asFloatBuffer().put(values);
+        out.write(bytes.array());
+        return bytes.capacity();
+    }
+
+    private static int write(OutputStream out, int[] values) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length*4).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asIntBuffer().put(values);
+        out.write(bytes.array());
+        return bytes.capacity();
+    }
+}
@@ -3,57 +3,80 @@ package VMF;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 public class VMFLoader {
-    private byte[] i, t, v, tex, r;
+    private ByteBuffer i, t, v, r;
+    private byte[] tex;
     private byte b;
 
 
     public VMFLoader loadVEMF(File zipFile) throws IOException {
-        ZipFile zipIn = new ZipFile(zipFile);
-        i = zipIn.getInputStream(zipIn.getEntry("i")).readAllBytes();
-        t = zipIn.getInputStream(zipIn.getEntry("t")).readAllBytes();
-        v = zipIn.getInputStream(zipIn.getEntry("v")).readAllBytes();
-        tex = zipIn.getInputStream(zipIn.getEntry("tex")).readAllBytes();
+        try (ZipFile zipIn = new ZipFile(zipFile)) {
+            i = readBuffer(zipIn, "i");
+            t = readBuffer(zipIn, "t");
+            v = readBuffer(zipIn, "v");
+            tex = readEntry(zipIn, "tex");
+        }
         return this; //this is to make chaining methods easier.
     }
 
     public VMFLoader loadVBMF(File zipFile) throws IOException {
-        ZipFile zipIn = new ZipFile(zipFile);
-        i = zipIn.getInputStream(zipIn.getEntry("i")).readAllBytes();
-        t = zipIn.getInputStream(zipIn.getEntry("t")).readAllBytes();
-        v = zipIn.getInputStream(zipIn.getEntry("v")).readAllBytes();
-        tex = zipIn.getInputStream(zipIn.getEntry("tex")).readAllBytes();
-        r = zipIn.getInputStream(zipIn.getEntry("r")).readAllBytes();
-        b = (byte) zipIn.getInputStream(zipIn.getEntry("b")).read();
+        try (ZipFile zipIn = new ZipFile(zipFile)) {
+            i = readBuffer(zipIn, "i");
+            t = readBuffer(zipIn, "t");
+            v = readBuffer(zipIn, "v");
+            tex = readEntry(zipIn, "tex");
+            r = readBuffer(zipIn, "r");
+            byte[] blockedFaces = readEntry(zipIn, "b");
+            b = blockedFaces.length > 0 ? blockedFaces[0] : -1;
+        }
         return this; //this is to make chaining methods easier.
     }
 
+    private static byte[] readEntry(ZipFile zipIn, String name) throws IOException {
+        ZipEntry entry = zipIn.getEntry(name);
+        if(entry == null) throw new IOException(zipIn.getName() + " is missing the \"" + name + "\" entry");
+        try (InputStream in = zipIn.getInputStream(entry)) {
+            //when the size is known the bytes go straight into an array of the right size, instead of being copied between growing buffers.
+            long size = entry.getSize();
+            if(size < 0 || size > Integer.MAX_VALUE) return in.readAllBytes();
+            byte[] bytes = new byte[(int)size];
+            if(in.readNBytes(bytes, 0, bytes.length) != bytes.length) throw new EOFException(zipIn.getName() + ": \"" + name + "\" entry is shorter than it says it is");
+            return bytes;
+        }
+    }
+
+    //VMF files are little-endian, so the buffer is too.
+    private static ByteBuffer readBuffer(ZipFile zipIn, String name) throws IOException {
+        return ByteBuffer.wrap(readEntry(zipIn, name)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
     //NOTE: when you get information about mesh, it will delete the source bytes to save memory and performance.
     // Basically, once you get that information you have to reload the loader to call it again.
     public int[] getIndices(){
-        int[] indices = new int[getIntFromFourBytes(i[0], i[1], i[2], i[3])];
-        for(int j=0; j<indices.length; j++){
-            indices[j] = getIntFromFourBytes(i[j*4+4], i[j*4+5], i[j*4+6], i[j*4+7]);
-        }
+        //the first int is the number of indices, and the rest are the indices themselves. They are copied all at once instead of one by one.
+        int[] indices = new int[i.getInt(0)];
+        i.position(4);
+        i.asIntBuffer().get(indices);
         i = null;
         return indices;
     }
     public float[] getVertices(){
-        float[] vertices = new float[getIntFromFourBytes(v[0], v[1], v[2], v[3])*3];
-        for(int i=0; i<vertices.length; i++){
-            vertices[i] = getFloatFromFourBytes(v[i*4+4], v[i*4+5], v[i*4+6], v[i*4+7]);
-        }
+        float[] vertices = new float[v.getInt(0)*3];
+        v.position(4);
+        v.asFloatBuffer().get(vertices);
         v = null;
         return vertices;
     }
     public float[] getTextureCoordinates(){
-        float[] texCords = new float[getIntFromFourBytes(t[0], t[1], t[2], t[3])*2];
-        for(int i=0; i<texCords.length; i++){
-            texCords[i] = getFloatFromFourBytes(t[i*4+4], t[i*4+5], t[i*4+6], t[i*4+7]);
-        }
+        float[] texCords = new float[t.getInt(0)*2];
+        t.position(4);
+        t.asFloatBuffer().get(texCords);
         t = null;
         return texCords;
     }
@@ -67,8 +90,8 @@ public class VMFLoader {
     public byte[] getRemovableTriangles(){
         //Removable triangles are an optimization system that is used during chunk building and only applies to voxels.
         if(r != null) {
-            byte[] removableTriangles = new byte[getIntFromFourBytes(r[0], r[1], r[2], r[3])];
-            System.arraycopy(r, 4, removableTriangles, 0, removableTriangles.length);
+            byte[] removableTriangles = new byte[r.getInt(0)];
+            r.get(4, removableTriangles);
             r = null;
             return removableTriangles;
         } else {
@@ -81,13 +104,6 @@ public class VMFLoader {
     }
 
 
-    private static int getIntFromFourBytes(byte b0, byte b1, byte b2, byte b3){
-        return Byte.toUnsignedInt(b0) + (Byte.toUnsignedInt(b1) << 8) + (Byte.toUnsignedInt(b2) << 16) + (Byte.toUnsignedInt(b3) << 24);
-    }
-    private static float getFloatFromFourBytes(byte b0, byte b1, byte b2, byte b3){
-        return Float.intBitsToFloat(getIntFromFourBytes(b0, b1, b2, b3));
-    }
-
     public static void main(String[] args) throws IOException {
         VMFLoader load = new VMFLoader();
         load.loadVEMF(new File("src/test2.vemf0"));
@@ -0,0 +1,137 @@
+package VMF;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipFile;
+
+/**
+ * Times loading every model in a folder with VMFLoader, split into reading the zip and decoding the mesh.
+ * The decoding is also done the way VMFLoader used to (putting each int together from 4 bytes), to compare against,
+ * and to check that both give the same mesh.
+ * The block models are tiny, so a big generated model is added to the list to show how decoding scales.
+ *
+ * args: [folder of .vbmf0 / .vemf0 models] [iterations] [vertices in the generated model]
+ */
+public class VMFLoaderBenchmark {
+    public static void main(String[] args) throws IOException {
+        File folder = new File(args.length > 0 ? args[0] : "resources/VMFModels");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int generatedVertices = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        File[] found = folder.listFiles((dir, name) -> name.endsWith(".vbmf0") || name.endsWith(".vemf0"));
+        if(found == null){
+            System.err.println(folder + " isn't a folder");
+            return;
+        }
+        Arrays.sort(found);
+        File[] files = Arrays.copyOf(found, found.length+1);
+        files[found.length] = generateModel(generatedVertices);
+        long sink = 0;
+        //warm up everything first, so the first model isn't slower just for being first
+        for(int j=0; j<20; j++){
+            for(File file: files){
+                boolean block = file.getName().endsWith(".vbmf0");
+                sink += decode(load(file, block));
+                sink += oldDecode(readRaw(file));
+            }
+        }
+        for(File file: files){
+            boolean block = file.getName().endsWith(".vbmf0");
+            //check that the new decoding gives the same mesh as the old one
+            VMFLoader loader = load(file, block);
+            int[] indices = loader.getIndices();
+            float[] vertices = loader.getVertices();
+            float[] texCoords = loader.getTextureCoordinates();
+            byte[][] raw = readRaw(file);
+            boolean same = Arrays.equals(indices, oldIndices(raw[0])) && Arrays.equals(vertices, oldFloats(raw[1], 3)) && Arrays.equals(texCoords, oldFloats(raw[2], 2));
+
+            //fewer runs for bigger models, so the big one doesn't take forever
+            int runs = (int)Math.max(5, Math.min(iterations, 2_000_000L / (indices.length + vertices.length)));
+            long start = System.nanoTime();
+            for(int j=0; j<runs; j++){
+                sink += load(file, block).hashCode();
+            }
+            long loadTime = System.nanoTime() - start;
+            //each decode gets its own copy of the data, like it would when loading for real
+            VMFLoader[] loaders = new VMFLoader[runs];
+            byte[][][] raws = new byte[runs][][];
+            for(int j=0; j<runs; j++){
+                loaders[j] = load(file, block);
+                raws[j] = readRaw(file);
+            }
+            start = System.nanoTime();
+            for(VMFLoader l: loaders){
+                sink += decode(l);
+            }
+            long decodeTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for(byte[][] r: raws){
+                sink += oldDecode(r);
+            }
+            long oldDecodeTime = System.nanoTime() - start;
+            String name = file == files[files.length-1] ? "generated model" : file.getName();
+            System.out.println(name + ": " + indices.length + " indices, " + vertices.length/3 + " vertices, same mesh: " + same);
+            System.out.println("  reading the zip: " + loadTime/runs/1000 + "us, decoding: " + decodeTime/runs + "ns (used to be " + oldDecodeTime/runs + "ns)"
+                    + ", total: " + (loadTime + decodeTime)/runs/1000 + "us per model");
+        }
+        System.out.println("(" + sink + ")");
+    }
+
+    private static File generateModel(int vertexCount) throws IOException {
+        Random random = new Random(1);
+        float[] vertices = new float[vertexCount*3];
+        float[] texCoords = new float[vertexCount*2];
+        int[] indices = new int[vertexCount*3];
+        for(int i=0; i<vertices.length; i++) vertices[i] = random.nextFloat();
+        for(int i=0; i<texCoords.length; i++) texCoords[i] = random.nextFloat();
+        for(int i=0; i<indices.length; i++) indices[i] = random.nextInt(vertexCount);
+        File file = File.createTempFile("generated", ".vemf0");
+        file.deleteOnExit();
+        VMFSaver.saveVEMF(file.getPath(), vertices, texCoords, indices, "resources/Textures/stone.png");
+        return file;
+    }
+
+    private static VMFLoader load(File file, boolean block) throws IOException {
+        return block ? new VMFLoader().loadVBMF(file) : new VMFLoader().loadVEMF(file);
+    }
+
+    private static long decode(VMFLoader loader){
+        return loader.getIndices().length + loader.getVertices().length + loader.getTextureCoordinates().length;
+    }
+
+    private static byte[][] readRaw(File file) throws IOException {
+        try (ZipFile zipIn = new ZipFile(file)) {
+            return new byte[][]{
+                    zipIn.getInputStream(zipIn.getEntry("i")).readAllBytes(),
+                    zipIn.getInputStream(zipIn.getEntry("v")).readAllBytes(),
+                    zipIn.getInputStream(zipIn.getEntry("t")).readAllBytes()
+            };
+        }
+    }
+
+    private static long oldDecode(byte[][] raw){
+        return oldIndices(raw[0]).length + oldFloats(raw[1], 3).length + oldFloats(raw[2], 2).length;
+    }
+
+    //how VMFLoader used to decode them
+    private static int[] oldIndices(byte[] i){
+        int[] indices = new int[getIntFromFourBytes(i[0], i[1], i[2], i[3])];
+        for(int j=0; j<indices.length; j++){
+            indices[j] = getIntFromFourBytes(i[j*4+4], i[j*4+5], i[j*4+6], i[j*4+7]);
+        }
+        return indices;
+    }
+
+    private static float[] oldFloats(byte[] v, int components){
+        float[] floats = new float[getIntFromFourBytes(v[0], v[1], v[2], v[3])*components];
+        for(int i=0; i<floats.length; i++){
+            floats[i] = Float.intBitsToFloat(getIntFromFourBytes(v[i*4+4], v[i*4+5], v[i*4+6], v[i*4+7]));
+        }
+        return floats;
+    }
+
+    private static int getIntFromFourBytes(byte b0, byte b1, byte b2, byte b3){
+        return Byte.toUnsignedInt(b0) + (Byte.toUnsignedInt(b1) << 8) + (Byte.toUnsignedInt(b2) << 16) + (Byte.toUnsignedInt(b3) << 24);
+    }
+}
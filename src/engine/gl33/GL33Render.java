@@ -1,16 +1,25 @@
 package engine.gl33;
 
+import VMF.ModelPack;
 import VMF.VMFLoader;
 import engine.gl33.model.GL33Mesh;
 import engine.gl33.model.GL33Model;
 import engine.gl33.model.GL33Texture;
+import engine.gl33.model.GL33TextureArray;
 import engine.gl33.render.*;
 import engine.multiplatform.Render;
 import engine.multiplatform.RenderUtils;
+import engine.multiplatform.Util.AtlasCache;
 import engine.multiplatform.Util.AtlasGenerator;
+import engine.multiplatform.Util.ChunkLod;
+import engine.multiplatform.Util.ChunkManager;
+import engine.multiplatform.Util.ChunkMeshCache;
+import engine.multiplatform.Util.DrawList;
+import engine.multiplatform.Util.DynamicAtlas;
+import engine.multiplatform.Util.FrameSnapshot;
+import engine.multiplatform.Util.GPUResourceCache;
+import engine.multiplatform.Util.MeshPicker;
 import engine.multiplatform.Util.Utils;
-import util.other.IteratorSafeList;
-import util.other.IteratorSafeMap;
 import util.other.ReadOnlyMap;
 import util.threads.DistanceRunnable3i;
 import util.threads.PriorityThreadPoolExecutor;
@@ -20,27 +29,20 @@ import engine.multiplatform.model.CPUModel;
 import util.other.HashComparator;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 import org.joml.Vector3i;
-import org.joml.Vector4f;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.PrintStream;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL30.glBindVertexArray;
 
 public class GL33Render implements Render {
 
-    Matrix4f tempMat = new Matrix4f();
-    Vector4f tempv4f1 = new Vector4f();
-    Vector4f tempv4f2 = new Vector4f();
-    Vector4f tempv4f3 = new Vector4f();
-    Vector3f tempv3f1 = new Vector3f();
     Vector3i tempv3i0 = new Vector3i();
 
     private GL33Window window;
@@ -80,17 +82,65 @@ public class GL33Render implements Render {
     private final Vector3f cameraPosition = new Vector3f();
     private final Vector3f cameraRotation = new Vector3f();
 
-    //todo: smarter resource management that uses hashes to make sure a GPUTexture, GPUMesh, etc is only created once.
     private final Set<GL33Entity> entities = new TreeSet<>();
     private final Set<GL33Shader> shaderPrograms = new TreeSet<>(new HashComparator());
 
-    private final IteratorSafeMap<Vector3i, GPUChunk> chunks = new IteratorSafeMap<>(new HashMap<>(), true);
-    private final IteratorSafeList<GPUChunk> chunkUpdateBuffer = new IteratorSafeList<>(new LinkedList<>(), true);
-    private final IteratorSafeList<GL33Chunk> chunksToClear = new IteratorSafeList<>(new LinkedList<>(), true);
-    //private final PriorityThreadPoolExecutor<DistanceRunnable3i> chunkBuildExecutor = new PriorityThreadPoolExecutor<>(DistanceRunnable3i.inOrder, Runtime.getRuntime().availableProcessors());
-    private final ExecutorService chunkBuildExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    //the chunks, and everything done with them that isn't OpenGL specific
+    private final ChunkManager chunks = new ChunkManager(cameraPosition);
+
+    private final MeshPicker meshPicker = new MeshPicker();
+    //the snapshot being drawn by render(FrameSnapshot), null when render() is called on its own.
+    private FrameSnapshot frame;
+    //makes sure a GPUTexture, GPUMesh, etc is only created once.
+    private final GPUResourceCache resourceCache = new GPUResourceCache();
+    private final GPUResourceCache.Deleter resourceDeleter = (kind, resource) -> {
+        switch (kind) {
+            case TEXTURE -> ((GL33Texture) resource).cleanUp();
+            case MESH -> ((GL33Mesh) resource).delete();
+            case SHADER -> {
+                shaderPrograms.remove((GL33Shader) resource);
+                ((GL33Shader) resource).delete();
+            }
+        }
+    };
+    private final DrawList drawList = new DrawList();
+    private final DrawList.Executor drawExecutor = new DrawList.Executor() {
+        private final Matrix4f tempMat = new Matrix4f();
+        private GL33Shader shader;
+
+        @Override
+        public void bindShader(GPUShader shader) {
+            this.shader = (GL33Shader) shader;
+            this.shader.bind();
+        }
+
+        @Override
+        public void bindTexture(GPUTexture texture) {
+            ((GL33Texture) texture).bind();
+        }
+
+        @Override
+        public void bindMesh(GPUMesh mesh) {
+            glBindVertexArray(((GL33Mesh) mesh).vaoId);
+        }
+
+        @Override
+        public void setModelMatrix(Matrix4f matrix) {
+            shader.setModelViewMatrix(matrix);
+        }
 
-    private final VMFLoader vmfLoader = new VMFLoader();
+        @Override
+        public void setChunkOffset(float x, float y, float z) {
+            if(shader.hasChunkOffset()) shader.setChunkOffset(x, y, z);
+            //shaders without the uniform have to get the offset through the model matrix instead.
+            else if(x != 0 || y != 0 || z != 0) shader.setModelViewMatrix(tempMat.translation(x, y, z));
+        }
+
+        @Override
+        public void draw(GPUMesh mesh) {
+            glDrawElements(GL_TRIANGLES, ((GL33Mesh) mesh).vertexCount, GL_UNSIGNED_INT, 0);
+        }
+    };
 
     private PrintStream warn;
     private PrintStream debug;
@@ -124,6 +174,7 @@ public class GL33Render implements Render {
             this.debug = debug;
             this.readyToRender = true; //to avoid rendering multiple frames at the same time, which would immediately crash the game.
             this.targetFrameTime = targetFrameTime; //used to make sure certain cancellable events don't take too long.
+            chunks.setTargetFrameTime(targetFrameTime);
             updateCameraProjectionMatrix();
             updateCameraViewMatrix();
 
@@ -150,7 +201,8 @@ public class GL33Render implements Render {
 
     @Override
     public void close() {
-        chunkBuildExecutor.shutdownNow();
+        chunks.shutdown();
+        resourceCache.deleteAll(resourceDeleter);
     }
 
     @Override
@@ -230,6 +282,17 @@ public class GL33Render implements Render {
      */
     @Override
     public GPUTexture readTexture(BufferedImage image) {
+        return resourceCache.acquire(GPUResourceCache.Kind.TEXTURE, GPUResourceCache.hashImage(image), GPUResourceCache.imageBytes(image), () -> new GL33Texture(image));
+    }
+
+    /**
+     * sends a CPU-stored image into a GPU texture that is never shared, for textures that will be changed with updateTexture.
+     *
+     * @param image the image to texturize
+     * @return the texture reference. Use in methods that require a texture.
+     */
+    @Override
+    public GPUTexture readUnsharedTexture(BufferedImage image) {
         return new GL33Texture(image);
     }
 
@@ -241,12 +304,44 @@ public class GL33Render implements Render {
      */
     @Override
     public boolean deleteTexture(GPUTexture texture) {
+        //textures from readTexture might be used by something else, so they are only deleted once nothing uses them.
+        if(!resourceCache.release(texture)) {
+            GL33Texture tex = (GL33Texture) (texture);
+            tex.cleanUp();
+        }
+        return true;
+    }
 
-        GL33Texture tex = (GL33Texture)(texture);
-        tex.cleanUp();
+    /**
+     * replaces part of a texture with an image, and only uploads that part.
+     * Everything using the texture sees the change, so the texture should come from readUnsharedTexture.
+     * A texture from readTexture stops being shared after this, since it doesn't match the image it was made from anymore.
+     *
+     * @param texture the texture to change
+     * @param image the new pixels
+     * @param x the x position in the texture to put the image at
+     * @param y the y position in the texture to put the image at
+     * @return false if the image doesn't fit in the texture there
+     */
+    @Override
+    public boolean updateTexture(GPUTexture texture, BufferedImage image, int x, int y) {
+        if(!((GL33Texture) texture).update(image, x, y)) return false;
+        resourceCache.modified(texture);
         return true;
     }
 
+    /**
+     * sends images into the layers of an array texture, for blocks in tile mode (see TileArray).
+     * Unlike readTexture, array textures are never shared.
+     *
+     * @param layers the images, which all have to be the same size
+     * @return the texture reference.
+     */
+    @Override
+    public GPUTextureArray readTextureArray(List<BufferedImage> layers) {
+        return new GL33TextureArray(layers);
+    }
+
     /**
      * combines textures into an atlas and transforms the texture coordinates of the meshes to use the atlas,
      * then generates a correspinding list of CPUModels, each having a transformed mesh and texture atlas.
@@ -259,7 +354,7 @@ public class GL33Render implements Render {
      */
     @Override
     public CPUModel[] generateImageAtlas(BufferedImage[] images, CPUMesh[] meshes) {
-        return AtlasGenerator.generateCPUModels(images, meshes, err);
+        return AtlasGenerator.generateCPUModels(images, meshes, atlasCacheFile(), err, debug);
     }
 
     /**
@@ -272,7 +367,19 @@ public class GL33Render implements Render {
      */
     @Override
     public CPUModel[] generateImageAtlas(CPUModel[] models) {
-        return AtlasGenerator.generateCPUModels(models, err);
+        return AtlasGenerator.generateCPUModels(models, atlasCacheFile(), err, debug);
+    }
+
+    /**
+     * combines all the textures of the models into an atlas like generateImageAtlas, and uploads it,
+     * but keeps the atlas around so more models can be added to it later without changing the ones already in it.
+     *
+     * @param models the models to create the atlas. They won't be modified.
+     * @return the atlas, with the models that use it.
+     */
+    @Override
+    public DynamicAtlas generateDynamicAtlas(List<CPUModel> models) {
+        return DynamicAtlas.generate(this, models, atlasCacheFile(), err, debug);
     }
 
 
@@ -288,7 +395,7 @@ public class GL33Render implements Render {
      */
     @Override
     public List<CPUModel> generateImageAtlas(List<BufferedImage> images, List<CPUMesh> meshes) {
-        return AtlasGenerator.generateCPUModels(images, meshes, err);
+        return AtlasGenerator.generateCPUModels(images, meshes, atlasCacheFile(), err, debug);
     }
 
     /**
@@ -301,7 +408,12 @@ public class GL33Render implements Render {
      */
     @Override
     public List<CPUModel> generateImageAtlas(List<CPUModel> models) {
-        return AtlasGenerator.generateCPUModels(models, err);
+        return AtlasGenerator.generateCPUModels(models, atlasCacheFile(), err, debug);
+    }
+
+    //atlases are cached in the resources folder they were made from, so each mod gets its own
+    private File atlasCacheFile(){
+        return new File(resourcesPath, AtlasCache.FILE_NAME);
     }
     /**
      * loads a CPUMesh from a .VEMF0 file.
@@ -314,7 +426,11 @@ public class GL33Render implements Render {
     @Override
     public CPUMesh loadEntityMesh(String VEMFPath) {
         try {
-            return new CPUMesh(vmfLoader.loadVEMF(new File(resourcesPath + "/" + VEMFPath)));
+            //models compiled into the resources folder's model pack don't need to be unzipped and decoded
+            ModelPack.Model packed = ModelPack.find(resourcesPath, VEMFPath, false);
+            if(packed != null) return new CPUMesh(packed);
+            //a new VMFLoader each time, since models can be loaded by more than one thread at once (see StartupLoader)
+            return new CPUMesh(new VMFLoader().loadVEMF(new File(resourcesPath + "/" + VEMFPath)));
         } catch(Exception e){
             e.printStackTrace(err);
             return errorMesh;
@@ -331,7 +447,9 @@ public class GL33Render implements Render {
     @Override
     public CPUMesh loadBlockMesh(String VBMFPath) {
         try {
-            return new CPUMesh(vmfLoader.loadVBMF(new File(resourcesPath + "/" + VBMFPath)));
+            ModelPack.Model packed = ModelPack.find(resourcesPath, VBMFPath, true);
+            if(packed != null) return new CPUMesh(packed);
+            return new CPUMesh(new VMFLoader().loadVBMF(new File(resourcesPath + "/" + VBMFPath)));
         } catch(Exception e){
             e.printStackTrace(err);
             return errorMesh;
@@ -346,7 +464,7 @@ public class GL33Render implements Render {
      */
     @Override
     public GPUMesh loadGPUMesh(CPUMesh mesh) {
-        return new GL33Mesh(mesh);
+        return resourceCache.acquire(GPUResourceCache.Kind.MESH, GPUResourceCache.hashMesh(mesh), GPUResourceCache.meshBytes(mesh), () -> new GL33Mesh(mesh));
     }
 
     /**
@@ -360,7 +478,9 @@ public class GL33Render implements Render {
     @Override
     public CPUModel loadEntityModel(String VEMFPath) {
         try {
-            return new CPUModel(vmfLoader.loadVEMF(new File(resourcesPath + "/" + VEMFPath)));
+            ModelPack.Model packed = ModelPack.find(resourcesPath, VEMFPath, false);
+            if(packed != null) return new CPUModel(packed);
+            return new CPUModel(new VMFLoader().loadVEMF(new File(resourcesPath + "/" + VEMFPath)));
         } catch(Exception e){
             e.printStackTrace(err);
             return new CPUModel(errorMesh, errorImage);
@@ -377,13 +497,23 @@ public class GL33Render implements Render {
     @Override
     public CPUModel loadBlockModel(String VBMFPath) {
         try {
-            return new CPUModel(vmfLoader.loadVBMF(new File(resourcesPath + "/" + VBMFPath)));
+            ModelPack.Model packed = ModelPack.find(resourcesPath, VBMFPath, true);
+            if(packed != null) return new CPUModel(packed);
+            return new CPUModel(new VMFLoader().loadVBMF(new File(resourcesPath + "/" + VBMFPath)));
         } catch(Exception e){
             e.printStackTrace(err);
             return new CPUModel(errorMesh, errorImage);
         }
     }
 
+    /**
+     * @return true if the model is the placeholder that is loaded when a model file can't be.
+     */
+    @Override
+    public boolean isErrorModel(CPUModel model) {
+        return model.mesh == errorMesh;
+    }
+
     /**
      * sends a CPUModel to the GPU so it can be rendered.
      *
@@ -392,7 +522,7 @@ public class GL33Render implements Render {
      */
     @Override
     public GPUModel loadGPUModel(CPUModel model) {
-        return new GL33Model(model);
+        return loadGPUModel(model.texture, model.mesh);
     }
 
     /**
@@ -404,7 +534,7 @@ public class GL33Render implements Render {
      */
     @Override
     public GPUModel loadGPUModel(BufferedImage image, CPUMesh mesh) {
-        return new GL33Model(mesh, image);
+        return new GL33Model((GL33Mesh) loadGPUMesh(mesh), (GL33Texture) readTexture(image));
     }
 
     /**
@@ -428,8 +558,8 @@ public class GL33Render implements Render {
     @Override
     public void deleteGPUModel(GPUModel model) {
         GL33Model glModel = (GL33Model)model;
-        glModel.mesh.delete();
-        glModel.texture.cleanUp();
+        if(!resourceCache.release(glModel.mesh)) glModel.mesh.delete();
+        deleteTexture(glModel.texture);
     }
 
     /**
@@ -449,9 +579,18 @@ public class GL33Render implements Render {
     public GPUShader loadShaderProgram(String path, String shader) {
         try {
             String fullPath = resourcesPath + "/" + path + "gl33/" + shader;
-            GL33Shader shader1 = new GL33Shader(Utils.loadResource(fullPath + "Vertex.glsl"), Utils.loadResource(fullPath + "Fragment.glsl"));
-            shaderPrograms.add(shader1);
-            return shader1;
+            String vertexSource = Utils.loadResource(fullPath + "Vertex.glsl");
+            String fragmentSource = Utils.loadResource(fullPath + "Fragment.glsl");
+            return resourceCache.acquire(GPUResourceCache.Kind.SHADER, GPUResourceCache.hashShader(vertexSource, fragmentSource), 0, () -> {
+                try {
+                    GL33Shader shader1 = new GL33Shader(vertexSource, fragmentSource);
+                    shaderPrograms.add(shader1);
+                    return shader1;
+                } catch (Exception e) {
+                    e.printStackTrace(err);
+                    return null;
+                }
+            });
         } catch(Exception e){
             e.printStackTrace(err);
             return null;
@@ -461,8 +600,10 @@ public class GL33Render implements Render {
     @Override
     public void deleteShaderProgram(GPUShader shaderProgram) {
         GL33Shader program = (GL33Shader)(shaderProgram);
-        shaderPrograms.remove(program);
-        program.delete();
+        if(!resourceCache.release(program)) {
+            shaderPrograms.remove(program);
+            program.delete();
+        }
     }
 
     @Override
@@ -575,36 +716,8 @@ public class GL33Render implements Render {
     }
 
     @Override
-    public synchronized void spawnChunk(int size, GPUBlock[][][] blocks, int x, int y, int z, boolean buildImmediately) {
-        GL33Chunk chunk = new GL33Chunk(size, blocks, x, y, z, cameraPosition);
-        chunks.put(chunk.getPos(), chunk);
-        if(buildImmediately){
-            chunk.taskScheduled = true;
-            chunk.build(this.getChunks()); //call method to get read-only chunks
-        } else {
-            synchronized (chunkUpdateBuffer){
-                chunkUpdateBuffer.add(chunk);
-            }
-        }
-        updateAdjacentChunks(chunk.getPosition());
-
-    }
-
-    //internal GL33 method
-    public synchronized boolean deleteChunk(GL33Chunk c){
-        boolean a;
-        synchronized (chunkUpdateBuffer){
-            a = chunkUpdateBuffer.remove(c);
-        }
-        boolean b = chunks.remove(c.getPosition()) != null;
-        //boolean c0 = chunkBuildExecutor.getTasks().remove(new DistanceRunnable3i(null, c.getPosition(), null));
-        boolean c0 = false; //TODO: cancel task?
-        if(!(c.taskScheduled || c.taskRunning)) {
-            c.clearFromGPU();
-        } else {
-            chunksToClear.add(c);
-        }
-        return a || b || c0;
+    public void spawnChunk(int size, GPUBlock[][][] blocks, int x, int y, int z, boolean buildImmediately) {
+        chunks.spawnChunk(new GL33Chunk(chunks, size, blocks, x, y, z), buildImmediately);
     }
 
     /**
@@ -618,7 +731,7 @@ public class GL33Render implements Render {
     @Override
     public GPUChunk getChunk(int x, int y, int z) {
         //todo: temp var may cause threading issues, needs testing.
-        return chunks.get(tempv3i0.set(x, y, z));
+        return chunks.getChunk(tempv3i0.set(x, y, z));
     }
 
     /**
@@ -629,7 +742,7 @@ public class GL33Render implements Render {
      */
     @Override
     public GPUChunk getChunk(Vector3i pos) {
-        return chunks.get(pos);
+        return chunks.getChunk(pos);
     }
 
     @Override
@@ -639,7 +752,7 @@ public class GL33Render implements Render {
 
     @Override
     public boolean hasChunk(Vector3i chunk) {
-        return chunks.containsKey(chunk);
+        return chunks.hasChunk(chunk);
     }
 
     /**
@@ -647,33 +760,102 @@ public class GL33Render implements Render {
      */
     @Override
     public ReadOnlyMap<Vector3i, GPUChunk> getChunks() {
-        return new ReadOnlyMap<>(chunks);
+        return chunks.getChunks();
     }
 
     @Override
     public int getNumChunks() {
-        return chunks.size();
+        return chunks.getNumChunks();
     }
 
     @Override
     public int getNumChunkSlots() {
-        return chunks.size();
+        return chunks.getNumChunks();
+    }
+
+    @Override
+    public int getNumVisibleChunks() {
+        return chunks.getCuller().getVisibleChunks();
+    }
+
+    @Override
+    public int getNumCulledChunks() {
+        return chunks.getCuller().getCulledChunks();
+    }
+
+    @Override
+    public void setFrustumCulling(boolean cull) {
+        chunks.getCuller().setEnabled(cull);
+    }
+
+    @Override
+    public void setUploadBudget(double seconds, long bytes) {
+        chunks.getUploadQueue().setBudget(seconds, bytes);
+    }
+
+    @Override
+    public int getUploadQueueDepth() {
+        return chunks.getUploadQueue().getQueueDepth();
+    }
+
+    @Override
+    public long getFrameUploadBytes() {
+        return chunks.getUploadQueue().getFrameUploadBytes();
+    }
+
+    @Override
+    public int getNumDrawCalls() {
+        return drawList.getDrawCalls();
+    }
+
+    @Override
+    public int getNumStateChanges() {
+        return drawList.getStateChanges();
+    }
+
+    @Override
+    public int getNumOccludedChunks() {
+        return chunks.getOcclusionCuller().getOccludedChunks();
+    }
+
+    @Override
+    public void setOcclusionCulling(boolean cull) {
+        chunks.getOcclusionCuller().setEnabled(cull);
+    }
+
+    @Override
+    public ChunkLod getChunkLod() {
+        return chunks.getLod();
+    }
+
+    @Override
+    public ChunkMeshCache getChunkMeshCache() {
+        return chunks.getMeshCache();
+    }
+
+    @Override
+    public GPUResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    @Override
+    public double getChunkEnqueueRate() {
+        return chunks.getDirtyChunks().getEnqueueRate();
+    }
+
+    @Override
+    public double getChunkDequeueRate() {
+        return chunks.getDirtyChunks().getDequeueRate();
     }
 
     @Override
     public void rebuildChunks() {
         println("Rebuilding chunks asynchronously...");
-        //this.chunkBuildExecutor.c().clear(); //TODO: what
-        synchronized (chunkUpdateBuffer){
-            this.chunkUpdateBuffer.addAll(this.chunks.values());
-        }
+        chunks.rebuildChunks();
     }
 
     private void updateCameraViewMatrix(){
-        viewMatrix.identity().rotate(cameraRotation.x, tempv3f1.set(1, 0, 0))
-                .rotate(cameraRotation.y, tempv3f1.set(0, 1, 0))
-                .rotate(cameraRotation.z, tempv3f1.set(0, 0, 1))
-                .translate(-cameraPosition.x, -cameraPosition.y, -cameraPosition.z);
+        RenderUtils.getViewMatrix(viewMatrix, cameraPosition, cameraRotation);
     }
 
     private void updateCameraProjectionMatrix(){
@@ -725,74 +907,12 @@ public class GL33Render implements Render {
      */
     @Override
     public boolean meshOnScreen(CPUMesh mesh, Matrix4f meshTransform, Matrix4f viewMatrix, Matrix4f projectionMatrix, float x, float y) {
-        y = -y; //The screen coordinates are mirrored for some reason
-
-        tempMat.identity();
-        if(projectionMatrix != null){
-            tempMat.set(projectionMatrix);
-        }
-        if(viewMatrix != null){
-            tempMat.mul(viewMatrix);
-        }
-        if(meshTransform != null){
-            tempMat.mul(meshTransform);
-        }
-
-        int[] indices = mesh.indices;
-        float[] positions = mesh.positions;
-        // Go through each triangle
-        // translate it to 2D coordinates
-        //see if it collides with the position:
-        //  if it does, return true
-        //  if it doesn't, continue.
-        //if none of the triangles collide, return false.
-        for(int i=0; i<indices.length/3; i++){ //each triangle in the mesh
-            //get that triangle
-            int t = 3*indices[3*i];
-            tempv4f1.set(
-                    positions[t],
-                    positions[t+1],
-                    positions[t+2], 1);
-            t = 3*indices[3*i+1];
-            tempv4f2.set(
-                    positions[t],
-                    positions[t+1],
-                    positions[t+2], 1);
-            t = 3*indices[3*i+2];
-            tempv4f3.set(
-                    positions[t],
-                    positions[t+1],
-                    positions[t+2], 1);
-
-            //transform that triangle to the screen coordinates
-            tempv4f1.mulProject(tempMat);
-            tempv4f2.mulProject(tempMat); //transform the points
-            tempv4f3.mulProject(tempMat);
-            //if the triangle isn't behind the camera, and it touches the point, return true.
-            if(tempv4f1.z < 1.0f && tempv4f2.z < 1.0f && tempv4f3.z < 1.0f && isInside(tempv4f1.x, tempv4f1.y, tempv4f2.x, tempv4f2.y, tempv4f3.x, tempv4f3.y, x, y)) {
-                return true;
-            }
-        }
-        //if the point touches none of the triangles, return false.
-        return false;
+        return meshPicker.meshOnScreen(mesh, meshTransform, viewMatrix, projectionMatrix, x, y);
     }
 
-
-    //thanks to https://www.tutorialspoint.com/Check-whether-a-given-point-lies-inside-a-Triangle for the following code
-    //I adapted it to fit my code better, and to fix a bug related to float precision
-
-    private static double triangleArea(float p1x, float p1y, float p2x, float p2y, float p3x, float p3y) {
-        return Math.abs((p1x * (p2y - p3y) + p2x * (p3y - p1y) + p3x * (p1y - p2y)) / 2.0);
-    }
-
-    private static boolean isInside(float p1x, float p1y, float p2x, float p2y, float p3x, float p3y, float x, float y) {
-        double area = triangleArea (p1x, p1y, p2x, p2y, p3x, p3y) + .0000177;          ///area of triangle ABC //with a tiny bit of extra to avoid issues related to float precision errors
-        double area1 = triangleArea (x, y, p2x, p2y, p3x, p3y);         ///area of PBC
-        double area2 = triangleArea (p1x, p1y, x, y, p3x, p3y);         ///area of APC
-        double area3 = triangleArea (p1x, p1y, p2x, p2y, x, y);        ///area of ABP
-
-        return (area >= area1 + area2 + area3);        ///when three triangles are forming the whole triangle
-        //I changed it to >= because floats cannot be trusted to hold perfectly accurate data,
+    @Override
+    public int meshesOnScreen(CPUMesh mesh, Matrix4f viewProjection, float[] transforms, int count, float x, float y, int[] hits) {
+        return meshPicker.meshesOnScreen(mesh, viewProjection, transforms, count, x, y, hits);
     }
 
     @Override
@@ -863,33 +983,10 @@ public class GL33Render implements Render {
         renderFrame(startTime);
         window.update();
 
-        //update modified chunks
-        if(chunkUpdateBuffer.size() > 0) { //don't submit any new chunks if there aren't any to submit
-            synchronized (chunkUpdateBuffer) {
-                chunkUpdateBuffer.startIterating();
-                Iterator<GPUChunk> iter = chunkUpdateBuffer.iterator();
-                while (iter.hasNext()) {
-                    GL33Chunk c = (GL33Chunk) iter.next();
-                    if (!c.taskScheduled && !c.taskRunning) {
-                        c.taskScheduled = true;
-                        //copy the result from GetChunkWorldPos since it returns a temporary variable
-                        chunkBuildExecutor.submit(() -> c.build(chunks));
-                        iter.remove();
-                    }
-                }
-                chunkUpdateBuffer.stopIterating();
-            }
-        }
-
-        Iterator<GL33Chunk> iterator = chunksToClear.iterator();
-        while(iterator.hasNext()){
-            GL33Chunk c = iterator.next();
-            if(!(c.taskScheduled || c.taskRunning)){
-                c.clearFromGPU();
-                iterator.remove();
-            }
-        }
-        chunksToClear.stopIterating();
+        //build modified chunks, and clear deleted ones
+        chunks.update(startTime);
+        //resources deleted during the frame are only deleted now that the frame is done with them
+        resourceCache.processDeletions(resourceDeleter);
 
         if (window.isResized()) {
             window.setResized(false);
@@ -903,6 +1000,24 @@ public class GL33Render implements Render {
 
     }
 
+    @Override
+    public double render(FrameSnapshot frame) {
+        Vector3fc position = frame.getCameraPosition();
+        Vector3fc rotation = frame.getCameraRotation();
+        setCameraPos(position.x(), position.y(), position.z(), rotation.x(), rotation.y(), rotation.z());
+        frame.applyEntityTransforms();
+        if(frame.isCursorLocked() != cursorLocked()){
+            if(frame.isCursorLocked()) lockCursorPos();
+            else unlockCursorPos();
+        }
+        this.frame = frame;
+        try {
+            return render();
+        } finally {
+            this.frame = null;
+        }
+    }
+
     @Override
     public void print(Object p) {
         debug.print(p);
@@ -942,77 +1057,17 @@ public class GL33Render implements Render {
             shaderProgram.setViewMatrix(viewMatrix);
             shaderProgram.setTextureSampler(0);
         }
+        drawList.clear();
         for (GL33Entity entity : entities) {
-            entity.shaderProgram.bind();
-            entity.shaderProgram.setModelViewMatrix(entity.getModelViewMatrix());
-            entity.model.getGlTexture().bind();
-            glBindVertexArray(entity.model.mesh.vaoId);
-            glDrawElements(GL_TRIANGLES, entity.model.mesh.vertexCount, GL_UNSIGNED_INT, 0);
-        }
-        //render each chunk
-
-        chunks.forEach((pos, chunk) -> {
-            GL33Chunk glChunk = (GL33Chunk)chunk;
-            glChunk.sendToGPU();
-            if(glChunk.canRender){
-                for(GL33Entity entity: glChunk.chunkModel){
-                    entity.shaderProgram.bind();
-                    entity.shaderProgram.setModelViewMatrix(entity.getModelViewMatrix());
-                    entity.model.getGlTexture().bind();
-                    glBindVertexArray(entity.model.mesh.vaoId);
-                    glDrawElements(GL_TRIANGLES, entity.model.mesh.vertexCount, GL_UNSIGNED_INT, 0);
-                }
-            }
-        });
-    }
-
-    /**
-     * schedules all the chunks adjacent to the chunk at a position to be re-built.
-     * @param pos the chunk position to update the adjacent chunks.
-     */
-    public void updateAdjacentChunks(Vector3i pos){
-        GL33Chunk c;
-        Vector3i temp = new Vector3i();
-
-        synchronized (chunkUpdateBuffer) {
-            //(-1, 0, 0)
-            c = (GL33Chunk) chunks.get(temp.set(pos.x - 1, pos.y, pos.z));
-            if (c != null && !chunkUpdateBuffer.contains(c)) {
-                chunkUpdateBuffer.add(c);
-            }
-
-            //(0, -1, 0)
-            c = (GL33Chunk) chunks.get(temp.set(pos.x, pos.y - 1, pos.z));
-            if (c != null && !chunkUpdateBuffer.contains(c)) {
-                chunkUpdateBuffer.add(c);
-            }
-            //(0, 0, -1)
-            c = (GL33Chunk) chunks.get(temp.set(pos.x, pos.y, pos.z - 1));
-            if (c != null && !chunkUpdateBuffer.contains(c)) {
-                chunkUpdateBuffer.add(c);
-            }
-            //(+1, 0, 0)
-            c = (GL33Chunk) chunks.get(temp.set(pos.x + 1, pos.y, pos.z));
-            if (c != null && !chunkUpdateBuffer.contains(c)) {
-                chunkUpdateBuffer.add(c);
-            }
-            //(0, +1, 0)
-            c = (GL33Chunk) chunks.get(temp.set(pos.x, pos.y + 1, pos.z));
-            if (c != null && !chunkUpdateBuffer.contains(c)) {
-                chunkUpdateBuffer.add(c);
-            }
-            //(0, 0, +1)
-            c = (GL33Chunk) chunks.get(temp.set(pos.x, pos.y, pos.z + 1));
-            if (c != null && !chunkUpdateBuffer.contains(c)) {
-                chunkUpdateBuffer.add(c);
-            }
-        }
-    }
-
-    public void updateChunk(GL33Chunk c){
-        synchronized (chunkUpdateBuffer){
-            if(!chunkUpdateBuffer.contains(c))chunkUpdateBuffer.add(c);
+            drawList.add(entity.shaderProgram, entity.model.getGlTexture(), entity.model.mesh, entity.getModelViewMatrix());
         }
+        //render each chunk that's in view. Chunks that aren't are still sent to the GPU so they are ready once they come into view.
+        chunks.addDraws(drawList, projectionMatrix, viewMatrix, frame);
+        //every chunk shares the same shader and atlas, so sorting makes them one long run of draws with no binds in between.
+        drawList.sort();
+        drawList.execute(drawExecutor);
+        //upload newly built chunks after drawing, so the meshes being replaced aren't deleted while they're still in the draw list.
+        chunks.upload();
     }
 
 }
@@ -2,6 +2,7 @@ package engine.gl33.model;
 
 import engine.multiplatform.gpu.GPUMesh;
 import engine.multiplatform.model.CPUMesh;
+import engine.multiplatform.model.DirectMesh;
 import org.lwjgl.system.MemoryUtil;
 
 import java.nio.FloatBuffer;
@@ -39,30 +40,62 @@ public class GL33Mesh implements GPUMesh {
         this.UVVboId = sendFloats(mesh.UVCoords, 2, 1);
         this.idxVboId = sendIndices(mesh.indices);
     }
-    private int sendFloats(float[] values, int size, int attribIndex){
+    /**
+     * uploads a mesh that is already in native memory, without copying it first.
+     * The mesh isn't released, that's up to whoever owns it.
+     */
+    public GL33Mesh(DirectMesh mesh) {
+        this.vertexCount = mesh.indexCount;
+        this.vaoId = glGenVertexArrays();
+        glBindVertexArray(this.vaoId);
+
+        this.posVboId = sendFloats(mesh.positions, 3, 0);
+        this.UVVboId = mesh.isTiled() ? sendTiles(mesh.tiles, 1) : sendFloats(mesh.UVCoords, 2, 1);
+        this.idxVboId = sendIndices(mesh.indices);
+    }
+
+    //packed tile UVs are read as a uint by the tile shader, so they aren't converted to floats
+    private int sendTiles(IntBuffer buffer, int attribIndex){
         int id = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, id);
+        glBufferData(GL_ARRAY_BUFFER, buffer, GL_STATIC_DRAW);
+        glEnableVertexAttribArray(attribIndex);
+        glVertexAttribIPointer(attribIndex, 1, GL_UNSIGNED_INT, 0, 0);
+        return id;
+    }
+
+    private int sendFloats(float[] values, int size, int attribIndex){
         FloatBuffer buffer = MemoryUtil.memAllocFloat(values.length);
         buffer.put(values).flip();
+        int id = sendFloats(buffer, size, attribIndex);
+        MemoryUtil.memFree(buffer);
+        return id;
+    }
+
+    private int sendFloats(FloatBuffer buffer, int size, int attribIndex){
+        int id = glGenBuffers();
         glBindBuffer(GL_ARRAY_BUFFER, id);
         glBufferData(GL_ARRAY_BUFFER, buffer, GL_STATIC_DRAW);
         glEnableVertexAttribArray(attribIndex);
         glVertexAttribPointer(attribIndex, size, GL_FLOAT, false, 0, 0);
-
-        MemoryUtil.memFree(buffer);
         return id;
     }
 
     private int sendIndices(int[] values){
-        int id = glGenBuffers();
         IntBuffer intBuffer = MemoryUtil.memAllocInt(values.length);
         intBuffer.put(values).flip();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, id);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, intBuffer, GL_STATIC_DRAW);
-
+        int id = sendIndices(intBuffer);
         MemoryUtil.memFree(intBuffer);
         return id;
     }
 
+    private int sendIndices(IntBuffer buffer){
+        int id = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, id);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, buffer, GL_STATIC_DRAW);
+        return id;
+    }
+
     public void render() {
         // Draw the mesh
         glBindVertexArray(vaoId);
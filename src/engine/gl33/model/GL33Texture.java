@@ -13,6 +13,8 @@ import static org.lwjgl.opengl.GL30.glGenerateMipmap;
 
 public class GL33Texture implements GPUTexture {
     private final int textureID;
+    private int width;
+    private int height;
 
     public GL33Texture(String filePath, PrintStream print) throws IOException {
         this(new FileInputStream(filePath), print);
@@ -37,6 +39,19 @@ public class GL33Texture implements GPUTexture {
     public GL33Texture(BufferedImage img){
         this.textureID = loadTexture(img);
     }
+
+    /**
+     * for other kinds of texture, that upload themselves.
+     */
+    protected GL33Texture(int textureID, int width, int height){
+        this.textureID = textureID;
+        this.width = width;
+        this.height = height;
+    }
+
+    protected int getTextureID(){
+        return textureID;
+    }
     public void bind(){
         glBindTexture(GL_TEXTURE_2D, this.textureID);
     }
@@ -44,7 +59,21 @@ public class GL33Texture implements GPUTexture {
         glDeleteTextures(this.textureID);
     }
 
+    /**
+     * replaces part of the texture with an image, without uploading the rest of it again.
+     * @return false if the image doesn't fit in the texture at that position
+     */
+    public boolean update(BufferedImage img, int x, int y){
+        if(x < 0 || y < 0 || x + img.getWidth() > width || y + img.getHeight() > height) return false;
+        glBindTexture(GL_TEXTURE_2D, this.textureID);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, img.getWidth(), img.getHeight(), GL_RGBA, GL_UNSIGNED_BYTE, toRGBA(img));
+        glGenerateMipmap(GL_TEXTURE_2D); //the mipmaps have the old pixels in them
+        return true;
+    }
+
     private int loadTexture(ByteBuffer rawImgDataBuffer, int width, int height){
+        this.width = width;
+        this.height = height;
         int textureID = glGenTextures();
         glBindTexture(GL_TEXTURE_2D, textureID);
         glPixelStorei(GL_UNPACK_ALIGNMENT, 0);
@@ -70,6 +99,10 @@ public class GL33Texture implements GPUTexture {
     }
 
     private int loadTexture(BufferedImage img){
+        return loadTexture(toRGBA(img), img.getWidth(), img.getHeight());
+    }
+
+    protected static ByteBuffer toRGBA(BufferedImage img){
         ByteBuffer imgDataBuffer;
         int width = img.getWidth();
         int height = img.getHeight();
@@ -85,7 +118,7 @@ public class GL33Texture implements GPUTexture {
         }
         imgDataBuffer.flip();
 
-        return loadTexture(imgDataBuffer, width, height);
+        return imgDataBuffer;
     }
 
     /**
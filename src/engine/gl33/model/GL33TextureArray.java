@@ -0,0 +1,62 @@
+package engine.gl33.model;
+
+import engine.multiplatform.gpu.GPUTextureArray;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.glTexImage3D;
+import static org.lwjgl.opengl.GL12.glTexSubImage3D;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+import static org.lwjgl.opengl.GL30.glGenerateMipmap;
+
+/**
+ * A GL_TEXTURE_2D_ARRAY, with one layer for each image. Every layer has to be the same size.
+ */
+public class GL33TextureArray extends GL33Texture implements GPUTextureArray {
+    private final int layers;
+
+    public GL33TextureArray(List<BufferedImage> layers){
+        super(loadTextureArray(layers), layers.get(0).getWidth(), layers.get(0).getHeight());
+        this.layers = layers.size();
+    }
+
+    private static int loadTextureArray(List<BufferedImage> layers){
+        int width = layers.get(0).getWidth();
+        int height = layers.get(0).getHeight();
+        int textureID = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D_ARRAY, textureID);
+        //allocate every layer first, then fill them in one at a time
+        glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, GL_RGBA, width, height, layers.size(), 0, GL_RGBA, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        for(int i=0; i<layers.size(); i++){
+            BufferedImage layer = layers.get(i);
+            if(layer.getWidth() != width || layer.getHeight() != height) throw new IllegalArgumentException("layer " + i + " is a different size than the first layer");
+            glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, i, width, height, 1, GL_RGBA, GL_UNSIGNED_BYTE, toRGBA(layer));
+        }
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glGenerateMipmap(GL_TEXTURE_2D_ARRAY);
+        return textureID;
+    }
+
+    @Override
+    public void bind(){
+        glBindTexture(GL_TEXTURE_2D_ARRAY, getTextureID());
+    }
+
+    /**
+     * array textures can't be partly replaced (yet)
+     * @return false
+     */
+    @Override
+    public boolean update(BufferedImage img, int x, int y){
+        return false;
+    }
+
+    @Override
+    public int getLayers(){
+        return layers;
+    }
+}
@@ -17,6 +17,7 @@ public class GL33Shader implements GPUShader {
     //uniforms
     private final int viewMatrixUniform, modelViewMatrixUniform, projectionMatrixUniform, textureSamplerUniform;
     private final int timeInSecondsUniform;
+    private final int chunkOffsetUniform;
 
     public GL33Shader(String vertexShaderCode, String fragmentShaderCode) throws Exception {
 
@@ -51,6 +52,7 @@ public class GL33Shader implements GPUShader {
         this.textureSamplerUniform = getUniformLocation("texture_sampler");
         this.viewMatrixUniform = getUniformLocation("viewMatrix");
         this.timeInSecondsUniform = getUniformLocation("timeSeconds");
+        this.chunkOffsetUniform = getUniformLocation("chunkOffset");
 
     }
 
@@ -125,6 +127,17 @@ public class GL33Shader implements GPUShader {
 
     public void setGameTime(double time){setUniform1f(timeInSecondsUniform, (float)time);}
 
+    public void setChunkOffset(float x, float y, float z){
+        glUniform3f(chunkOffsetUniform, x, y, z);
+    }
+
+    /**
+     * @return true if this shader can move chunks with the chunkOffset uniform. If it can't, chunks need a full model matrix.
+     */
+    public boolean hasChunkOffset(){
+        return chunkOffsetUniform != -1;
+    }
+
 
     public void bind() {
         glUseProgram(programId);
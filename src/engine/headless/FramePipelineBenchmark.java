@@ -0,0 +1,127 @@
+package engine.headless;
+
+import engine.multiplatform.Util.ChunkCuller;
+import engine.multiplatform.Util.FramePipeline;
+import engine.multiplatform.Util.FrameSnapshot;
+import org.joml.Matrix4f;
+import org.joml.Vector3fc;
+
+/**
+ * Compares running the simulation and the render on the same thread, one after the other (the way Main used to),
+ * against running them on separate threads through a FramePipeline. It uses the headless render, so no window is opened.
+ *
+ * The "simulation" is a busy loop standing in for world updates, plus a camera that moves a bit each tick and the frustum culling for it.
+ * Each snapshot's camera is calculated from its tick number, so the render thread can check that every snapshot it gets is whole,
+ * and not half of one tick and half of another.
+ *
+ * args: [simulation milliseconds per tick] [seconds per run]
+ */
+public class FramePipelineBenchmark {
+    private static final double FRAME_TIME = 1/120.;
+
+    public static void main(String[] args) throws Exception {
+        double workMs = args.length > 0 ? Double.parseDouble(args[0]) : 6;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+        HeadlessRender render = new HeadlessRender();
+        render.init("pipeline benchmark", 800, 600, "resources", false, System.out, System.err, System.out, (float)Math.toRadians(90), FRAME_TIME);
+        //empty chunks, since only the culling and the iterating matter here
+        for(int x=-8; x<8; x++){
+            for(int y=0; y<2; y++){
+                for(int z=-8; z<8; z++){
+                    render.spawnChunk(32, null, x, y, z, false);
+                }
+            }
+        }
+        System.out.println(render.getNumChunks() + " chunks, " + workMs + "ms of simulation per tick, " + (int)(1/FRAME_TIME) + "fps target");
+
+        //one thread: simulate, then render, then wait for the next frame
+        long frames = 0;
+        long latencySum = 0;
+        long latencyMax = 0;
+        long end = System.nanoTime() + (long)(seconds * 1_000_000_000);
+        long nextFrame = System.nanoTime();
+        while(System.nanoTime() < end){
+            long start = System.nanoTime();
+            work(workMs);
+            float[] camera = camera(frames+1);
+            render.setCameraPos(camera[0], camera[1], camera[2], camera[3], camera[4], 0);
+            render.render();
+            long latency = System.nanoTime() - start;
+            latencySum += latency;
+            latencyMax = Math.max(latencyMax, latency);
+            frames++;
+            nextFrame = waitForFrame(nextFrame);
+        }
+        System.out.println("sequential: " + (int)(frames / seconds) + " frames/s, latency: " + latencySum/frames/1000 + "us average, " + latencyMax/1000 + "us max");
+
+        //two threads
+        ChunkCuller culler = new ChunkCuller();
+        Matrix4f projection = new Matrix4f(render.getCameraProjectionMatrix());
+        Matrix4f view = new Matrix4f();
+        FramePipeline pipeline = new FramePipeline(frame -> {
+            work(workMs);
+            float[] camera = camera(frame.getFrame());
+            frame.setCamera(camera[0], camera[1], camera[2], camera[3], camera[4], 0);
+            culler.update(projection, view.set(frame.getViewMatrix()));
+            render.getChunks().forEach((pos, chunk) -> {
+                if(culler.isVisible(pos, chunk.getSize())) frame.addVisibleChunk(pos);
+            });
+            frame.setText(Long.toString(frame.getFrame()));
+        }, FRAME_TIME);
+        pipeline.start();
+        frames = 0;
+        long newFrames = 0;
+        long broken = 0;
+        long lastFrame = 0;
+        latencySum = 0;
+        latencyMax = 0;
+        end = System.nanoTime() + (long)(seconds * 1_000_000_000);
+        nextFrame = System.nanoTime();
+        while(System.nanoTime() < end){
+            FrameSnapshot frame = pipeline.takeFrame();
+            if(frame == null) continue;
+            float[] camera = camera(frame.getFrame());
+            Vector3fc position = frame.getCameraPosition();
+            if(position.x() != camera[0] || position.y() != camera[1] || position.z() != camera[2]
+                    || !frame.getText().equals(Long.toString(frame.getFrame()))) broken++;
+            render.render(frame);
+            pipeline.framePresented(frame);
+            if(frame.getFrame() != lastFrame){
+                long latency = System.nanoTime() - frame.getStartTime();
+                latencySum += latency;
+                latencyMax = Math.max(latencyMax, latency);
+                newFrames++;
+                lastFrame = frame.getFrame();
+            }
+            frames++;
+            nextFrame = waitForFrame(nextFrame);
+        }
+        pipeline.stop();
+        System.out.println("pipelined: " + (int)(frames / seconds) + " frames/s, " + (int)(pipeline.getTicks() / seconds) + " ticks/s, latency: "
+                + latencySum/Math.max(newFrames, 1)/1000 + "us average, " + latencyMax/1000 + "us max");
+        System.out.println("  " + newFrames + " snapshots drawn, " + pipeline.getDropped() + " dropped, " + broken + " broken");
+        render.close();
+        if(broken != 0 || pipeline.getError() != null) System.exit(1);
+    }
+
+    //the camera for a tick, so the render thread can tell what it should be
+    private static float[] camera(long tick){
+        float angle = tick * 0.01f;
+        return new float[]{(float)Math.sin(angle) * 50, 40, (float)Math.cos(angle) * 50, 0.3f, angle, 0};
+    }
+
+    private static void work(double ms){
+        long end = System.nanoTime() + (long)(ms * 1_000_000);
+        //noinspection StatementWithEmptyBody
+        while(System.nanoTime() < end);
+    }
+
+    //waits like vsync would, and returns when the next frame should start
+    private static long waitForFrame(long frameStart) throws InterruptedException {
+        long next = frameStart + (long)(FRAME_TIME * 1_000_000_000);
+        long now = System.nanoTime();
+        if(next < now) return now;
+        Thread.sleep((next - now) / 1_000_000, (int)((next - now) % 1_000_000));
+        return next;
+    }
+}
@@ -0,0 +1,899 @@
+package engine.headless;
+
+import VMF.ModelPack;
+import VMF.VMFLoader;
+import engine.headless.model.HeadlessMesh;
+import engine.headless.model.HeadlessModel;
+import engine.headless.model.HeadlessTexture;
+import engine.headless.model.HeadlessTextureArray;
+import engine.headless.render.*;
+import engine.multiplatform.Render;
+import engine.multiplatform.RenderUtils;
+import engine.multiplatform.Util.AtlasCache;
+import engine.multiplatform.Util.AtlasGenerator;
+import engine.multiplatform.Util.ChunkLod;
+import engine.multiplatform.Util.ChunkManager;
+import engine.multiplatform.Util.ChunkMeshCache;
+import engine.multiplatform.Util.DrawList;
+import engine.multiplatform.Util.DynamicAtlas;
+import engine.multiplatform.Util.FrameSnapshot;
+import engine.multiplatform.Util.GPUResourceCache;
+import engine.multiplatform.Util.MeshPicker;
+import engine.multiplatform.Util.Utils;
+import engine.multiplatform.gpu.*;
+import engine.multiplatform.model.CPUMesh;
+import engine.multiplatform.model.CPUModel;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.joml.Vector3i;
+import util.other.HashComparator;
+import util.other.ReadOnlyMap;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * A Render that does everything a real one does on the CPU - chunk storage and building, atlases, entities, text meshes -
+ * but never touches a GPU or a window. Instead of drawing, each frame records the draw calls it would have made.
+ *
+ * This makes it possible to run the whole chunk pipeline (benchmarks, soak tests, etc.) on a machine without a GPU.
+ * There is no input: every key and mouse button is always released, and the window only closes when requestClose() is called.
+ */
+public class HeadlessRender implements Render {
+
+    /**
+     * A single draw call that the headless render would have made.
+     */
+    public static class DrawSubmission {
+        public final HeadlessShader shader;
+        public final HeadlessTexture texture;
+        public final HeadlessMesh mesh;
+        public final Matrix4f transform;
+
+        public DrawSubmission(HeadlessShader shader, HeadlessTexture texture, HeadlessMesh mesh, Matrix4f transform) {
+            this.shader = shader;
+            this.texture = texture;
+            this.mesh = mesh;
+            this.transform = transform;
+        }
+    }
+
+
+    private int width, height;
+    private boolean readyToRender;
+    private boolean shouldClose;
+    private boolean cursorLocked;
+    private float FOV;
+    private String resourcesPath;
+    private double targetFrameTime;
+
+    private final BufferedImage errorImage = new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB);
+    private final CPUMesh errorMesh = new CPUMesh(new float[]{
+            -1, -1, 0,
+            1, -1, 0,
+            -1, 1, 0,
+            1, 1, 0,
+    },
+            new float[]{
+                    0, 1,
+                    1, 1,
+                    0, 0,
+                    1, 0,
+            },
+            new int[]{
+                    0, 1, 2,
+                    1, 2, 3,
+            },
+            new byte[]{
+                    0,
+                    0,
+                    0,
+                    0,
+            },(byte)0);
+
+    private final Matrix4f projectionMatrix = new Matrix4f();
+    private final Matrix4f viewMatrix = new Matrix4f();
+
+    private final Vector3f cameraPosition = new Vector3f();
+    private final Vector3f cameraRotation = new Vector3f();
+
+    private final Set<HeadlessEntity> entities = new TreeSet<>();
+    private final Set<HeadlessShader> shaderPrograms = new TreeSet<>(new HashComparator());
+
+    //the same chunk code GL33Render runs
+    private final ChunkManager chunks = new ChunkManager(cameraPosition);
+
+    private final MeshPicker meshPicker = new MeshPicker();
+    //the snapshot being drawn by render(FrameSnapshot), null when render() is called on its own.
+    private FrameSnapshot frame;
+    private final GPUResourceCache resourceCache = new GPUResourceCache();
+    private final GPUResourceCache.Deleter resourceDeleter = (kind, resource) -> {
+        switch (kind) {
+            case TEXTURE -> ((HeadlessTexture) resource).cleanUp();
+            case MESH -> ((HeadlessMesh) resource).delete();
+            case SHADER -> {
+                shaderPrograms.remove((HeadlessShader) resource);
+                ((HeadlessShader) resource).delete();
+            }
+        }
+    };
+    private final DrawList drawList = new DrawList();
+    //records what would have been drawn, with the state the draw list left in effect.
+    private final DrawList.Executor drawExecutor = new DrawList.Executor() {
+        private HeadlessShader shader;
+        private HeadlessTexture texture;
+        private Matrix4f modelMatrix = new Matrix4f();
+        private float offsetX, offsetY, offsetZ;
+
+        @Override
+        public void bindShader(GPUShader shader) {
+            this.shader = (HeadlessShader) shader;
+        }
+
+        @Override
+        public void bindTexture(GPUTexture texture) {
+            this.texture = (HeadlessTexture) texture;
+        }
+
+        @Override
+        public void bindMesh(GPUMesh mesh) {
+            //nothing to bind
+        }
+
+        @Override
+        public void setModelMatrix(Matrix4f matrix) {
+            modelMatrix = matrix;
+            shader.setUniform("modelViewMatrix", matrix);
+        }
+
+        @Override
+        public void setChunkOffset(float x, float y, float z) {
+            offsetX = x;
+            offsetY = y;
+            offsetZ = z;
+        }
+
+        @Override
+        public void draw(GPUMesh mesh) {
+            HeadlessMesh headlessMesh = (HeadlessMesh) mesh;
+            Matrix4f transform = new Matrix4f().translation(offsetX, offsetY, offsetZ).mul(modelMatrix);
+            submissions.add(new DrawSubmission(shader, texture, headlessMesh, transform));
+            frameTriangles += headlessMesh.vertexCount / 3;
+        }
+    };
+
+    private final List<DrawSubmission> submissions = new ArrayList<>();
+    private long frames;
+    private long frameTriangles;
+
+    private PrintStream warn;
+    private PrintStream debug;
+    private PrintStream err;
+
+    @Override
+    public boolean init(String title, int width, int height, String resourcesPath, boolean VSync, PrintStream warning, PrintStream error, PrintStream debug, float fov, double targetFrameTime) {
+        try {
+            if(RenderUtils.activeRender != null){
+                throw new IllegalStateException("Cannot have more than one active Render. Close the active Render before initializing another one");
+            }
+            this.width = width > 0 ? width : 800;
+            this.height = height > 0 ? height : 600;
+            this.resourcesPath = resourcesPath;
+            this.FOV = fov;
+            this.warn = warning;
+            this.err = error;
+            this.debug = debug;
+            this.readyToRender = true;
+            this.targetFrameTime = targetFrameTime;
+            chunks.setTargetFrameTime(targetFrameTime);
+            updateCameraProjectionMatrix();
+            updateCameraViewMatrix();
+
+            //hard-coded magenta-black checkers pattern, to guarantee it will work.
+            errorImage.setRGB(0, 0, 0xff00ff);
+            errorImage.setRGB(1, 0, 0x000000);
+            errorImage.setRGB(0, 1, 0x000000);
+            errorImage.setRGB(1, 1, 0xff00ff);
+
+            this.debug.println("initialized headless Render Backend and " + Runtime.getRuntime().availableProcessors() + " chunk build worker threads");
+            RenderUtils.activeRender = this;
+            return true;
+        } catch(Exception e){
+            if(err == null) e.printStackTrace();
+            else e.printStackTrace(err);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        chunks.shutdown();
+        resourceCache.deleteAll(resourceDeleter);
+        if(RenderUtils.activeRender == this) RenderUtils.activeRender = null;
+    }
+
+    @Override
+    public void setResourcesPath(String path) {
+        this.resourcesPath = path;
+    }
+
+    @Override
+    public void setVSync(boolean sync) {
+        //there is nothing to sync to.
+    }
+
+    @Override
+    public void setWarning(PrintStream warning) {
+        this.warn = warning;
+    }
+
+    @Override
+    public void setError(PrintStream error) {
+        this.err = error;
+    }
+
+    @Override
+    public void setDebug(PrintStream debug) {
+        this.debug = debug;
+    }
+
+    @Override
+    public void setFov(float fov) {
+        this.FOV = fov;
+        updateCameraProjectionMatrix();
+    }
+
+    @Override
+    public int getWindowHeight() {
+        return height;
+    }
+
+    @Override
+    public int getWindowWidth() {
+        return width;
+    }
+
+    @Override
+    public boolean setWindowSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        updateCameraProjectionMatrix();
+        return true;
+    }
+
+    @Override
+    public BufferedImage readImage(String path) {
+        try {
+            return ImageIO.read(new File(resourcesPath + "/" + path));
+        } catch (Exception e){
+            e.printStackTrace(err);
+            return this.errorImage;
+        }
+    }
+
+    @Override
+    public GPUTexture readTexture(BufferedImage image) {
+        return resourceCache.acquire(GPUResourceCache.Kind.TEXTURE, GPUResourceCache.hashImage(image), GPUResourceCache.imageBytes(image), () -> new HeadlessTexture(image));
+    }
+
+    @Override
+    public GPUTexture readUnsharedTexture(BufferedImage image) {
+        //a copy, since updateTexture draws into the texture's image and that shouldn't change the caller's image
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = copy.createGraphics();
+        graphics.setComposite(AlphaComposite.Src);
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return new HeadlessTexture(copy);
+    }
+
+    @Override
+    public boolean deleteTexture(GPUTexture texture) {
+        if(!resourceCache.release(texture)) ((HeadlessTexture)texture).cleanUp();
+        return true;
+    }
+
+    @Override
+    public boolean updateTexture(GPUTexture texture, BufferedImage image, int x, int y) {
+        HeadlessTexture tex = (HeadlessTexture) texture;
+        if(x < 0 || y < 0 || x + image.getWidth() > tex.getWidth() || y + image.getHeight() > tex.getHeight()) return false;
+        Graphics2D graphics = tex.image.createGraphics();
+        graphics.setComposite(AlphaComposite.Src); //replace the pixels instead of blending with them
+        graphics.drawImage(image, x, y, null);
+        graphics.dispose();
+        resourceCache.modified(texture);
+        return true;
+    }
+
+    @Override
+    public GPUTextureArray readTextureArray(List<BufferedImage> layers) {
+        return new HeadlessTextureArray(layers);
+    }
+
+    @Override
+    public CPUModel[] generateImageAtlas(BufferedImage[] images, CPUMesh[] meshes) {
+        return AtlasGenerator.generateCPUModels(images, meshes, atlasCacheFile(), err, debug);
+    }
+
+    @Override
+    public List<CPUModel> generateImageAtlas(List<CPUModel> models) {
+        return AtlasGenerator.generateCPUModels(models, atlasCacheFile(), err, debug);
+    }
+
+    @Override
+    public List<CPUModel> generateImageAtlas(List<BufferedImage> images, List<CPUMesh> meshes) {
+        return AtlasGenerator.generateCPUModels(images, meshes, atlasCacheFile(), err, debug);
+    }
+
+    @Override
+    public CPUModel[] generateImageAtlas(CPUModel[] models) {
+        return AtlasGenerator.generateCPUModels(models, atlasCacheFile(), err, debug);
+    }
+
+    @Override
+    public DynamicAtlas generateDynamicAtlas(List<CPUModel> models) {
+        return DynamicAtlas.generate(this, models, atlasCacheFile(), err, debug);
+    }
+
+    private File atlasCacheFile(){
+        return new File(resourcesPath, AtlasCache.FILE_NAME);
+    }
+
+    @Override
+    public CPUMesh loadEntityMesh(String VEMFPath) {
+        try {
+            //models compiled into the resources folder's model pack don't need to be unzipped and decoded
+            ModelPack.Model packed = ModelPack.find(resourcesPath, VEMFPath, false);
+            if(packed != null) return new CPUMesh(packed);
+            //a new VMFLoader each time, since models can be loaded by more than one thread at once (see StartupLoader)
+            return new CPUMesh(new VMFLoader().loadVEMF(new File(resourcesPath + "/" + VEMFPath)));
+        } catch(Exception e){
+            e.printStackTrace(err);
+            return errorMesh;
+        }
+    }
+
+    @Override
+    public CPUMesh loadBlockMesh(String VBMFPath) {
+        try {
+            ModelPack.Model packed = ModelPack.find(resourcesPath, VBMFPath, true);
+            if(packed != null) return new CPUMesh(packed);
+            return new CPUMesh(new VMFLoader().loadVBMF(new File(resourcesPath + "/" + VBMFPath)));
+        } catch(Exception e){
+            e.printStackTrace(err);
+            return errorMesh;
+        }
+    }
+
+    @Override
+    public GPUMesh loadGPUMesh(CPUMesh mesh) {
+        return resourceCache.acquire(GPUResourceCache.Kind.MESH, GPUResourceCache.hashMesh(mesh), GPUResourceCache.meshBytes(mesh), () -> new HeadlessMesh(mesh));
+    }
+
+    @Override
+    public CPUModel loadEntityModel(String VEMFPath) {
+        try {
+            ModelPack.Model packed = ModelPack.find(resourcesPath, VEMFPath, false);
+            if(packed != null) return new CPUModel(packed);
+            return new CPUModel(new VMFLoader().loadVEMF(new File(resourcesPath + "/" + VEMFPath)));
+        } catch(Exception e){
+            e.printStackTrace(err);
+            return new CPUModel(errorMesh, errorImage);
+        }
+    }
+
+    @Override
+    public CPUModel loadBlockModel(String VBMFPath) {
+        try {
+            ModelPack.Model packed = ModelPack.find(resourcesPath, VBMFPath, true);
+            if(packed != null) return new CPUModel(packed);
+            return new CPUModel(new VMFLoader().loadVBMF(new File(resourcesPath + "/" + VBMFPath)));
+        } catch(Exception e){
+            e.printStackTrace(err);
+            return new CPUModel(errorMesh, errorImage);
+        }
+    }
+
+    @Override
+    public boolean isErrorModel(CPUModel model) {
+        return model.mesh == errorMesh;
+    }
+
+    @Override
+    public GPUModel loadGPUModel(CPUModel model) {
+        return loadGPUModel(model.texture, model.mesh);
+    }
+
+    @Override
+    public GPUModel loadGPUModel(BufferedImage image, CPUMesh mesh) {
+        return new HeadlessModel((HeadlessMesh) loadGPUMesh(mesh), (HeadlessTexture) readTexture(image));
+    }
+
+    @Override
+    public GPUModel loadGPUModel(GPUTexture texture, GPUMesh mesh) {
+        return new HeadlessModel((HeadlessMesh)mesh, (HeadlessTexture)texture);
+    }
+
+    @Override
+    public void deleteGPUModel(GPUModel model) {
+        HeadlessModel headlessModel = (HeadlessModel)model;
+        if(!resourceCache.release(headlessModel.mesh)) headlessModel.mesh.delete();
+        deleteTexture(headlessModel.texture);
+    }
+
+    /**
+     * loads the source code of a shader program, the same way GL33Render would. It is never compiled.
+     */
+    @Override
+    public GPUShader loadShaderProgram(String path, String shader) {
+        try {
+            String fullPath = resourcesPath + "/" + path + "gl33/" + shader;
+            String vertexSource = Utils.loadResource(fullPath + "Vertex.glsl");
+            String fragmentSource = Utils.loadResource(fullPath + "Fragment.glsl");
+            return resourceCache.acquire(GPUResourceCache.Kind.SHADER, GPUResourceCache.hashShader(vertexSource, fragmentSource), 0, () -> {
+                HeadlessShader shader1 = new HeadlessShader(vertexSource, fragmentSource);
+                shaderPrograms.add(shader1);
+                return shader1;
+            });
+        } catch(Exception e){
+            e.printStackTrace(err);
+            return null;
+        }
+    }
+
+    @Override
+    public void deleteShaderProgram(GPUShader shaderProgram) {
+        HeadlessShader program = (HeadlessShader)shaderProgram;
+        if(!resourceCache.release(program)) {
+            shaderPrograms.remove(program);
+            program.delete();
+        }
+    }
+
+    @Override
+    public GPUEntity createEntity(GPUModel model, GPUShader shader, float xPos, float yPos, float zPos, float xRotation, float yRotation, float zRotation, float xScale, float yScale, float zScale) {
+        HeadlessEntity entity = new HeadlessEntity((HeadlessModel)model, (HeadlessShader)shader);
+        entity.setPosition(xPos, yPos, zPos, xRotation, yRotation, zRotation, xScale, yScale, zScale);
+        entities.add(entity);
+        return entity;
+    }
+
+    @Override
+    public GPUEntity createEntity(GPUTexture texture, GPUMesh mesh, GPUShader shader, float xPos, float yPos, float zPos, float xRotation, float yRotation, float zRotation, float xScale, float yScale, float zScale) {
+        HeadlessEntity entity = new HeadlessEntity((HeadlessMesh)mesh, (HeadlessShader)shader, (HeadlessTexture)texture);
+        entity.setPosition(xPos, yPos, zPos, xRotation, yRotation, zRotation, xScale, yScale, zScale);
+        return entity;
+    }
+
+    @Override
+    public void setEntityShader(GPUEntity entity, GPUShader shader) {
+        ((HeadlessEntity)entity).setShaderProgram((HeadlessShader)shader);
+    }
+
+    @Override
+    public Matrix4f getEntityTransform(GPUEntity entity) {
+        return ((HeadlessEntity)entity).getModelViewMatrix();
+    }
+
+    @Override
+    public void deleteEntity(GPUEntity entity) {
+        entities.remove((HeadlessEntity)entity);
+    }
+
+    @Override
+    public int getNumEntities() {
+        return entities.size();
+    }
+
+    @Override
+    public int getNumEntitySlots() {
+        return entities.size();
+    }
+
+    @Override
+    public GPUTextEntity createTextEntity(GPUTexture texture, String text, boolean centerX, boolean centerY, GPUShader shader, float xPos, float yPos, float zPos, float xRotation, float yRotation, float zRotation, float xScale, float yScale, float zScale) {
+        HeadlessTextEntity ent = new HeadlessTextEntity(text, (HeadlessShader)shader, (HeadlessTexture)texture, centerX, centerY);
+        ent.setPosition(xPos, yPos, zPos, xRotation, yRotation, zRotation, xScale, yScale, zScale);
+        entities.add(ent);
+        return ent;
+    }
+
+    @Override
+    public void setTextEntityPos(GPUTextEntity entity, float xPos, float yPos, float zPos, float xRotation, float yRotation, float zRotation, float xScale, float yScale, float zScale) {
+        entity.setPosition(xPos, yPos, zPos, xRotation, yRotation, zRotation, xScale, yScale, zScale);
+    }
+
+    @Override
+    public void setTextEntityPos(GPUTextEntity entity, float xPos, float yPos, float zPos) {
+        entity.setLocation(xPos, yPos, zPos);
+    }
+
+    @Override
+    public void setTextEntityRotation(GPUTextEntity entity, float xRotation, float yRotation, float zRotation) {
+        entity.setRotation(xRotation, yRotation, zRotation);
+    }
+
+    @Override
+    public void setTextEntityScale(GPUTextEntity entity, float xScale, float yScale, float zScale) {
+        entity.setScale(xScale, yScale, zScale);
+    }
+
+    @Override
+    public void setTextEntityShader(GPUTextEntity entity, GPUShader shader) {
+        ((HeadlessTextEntity)entity).setShaderProgram((HeadlessShader)shader);
+    }
+
+    @Override
+    public void setTextEntityText(GPUTextEntity entity, String text, boolean centerX, boolean centerY) {
+        ((HeadlessTextEntity)entity).setText(text, centerX, centerY);
+    }
+
+    @Override
+    public Matrix4f getTextEntityTransform(GPUTextEntity entity) {
+        return ((HeadlessTextEntity)entity).getModelViewMatrix();
+    }
+
+    @Override
+    public void deleteTextEntity(GPUTextEntity entity) {
+        ((HeadlessTextEntity)entity).model.mesh.delete();
+        entities.remove((HeadlessEntity)entity);
+    }
+
+    @Override
+    public int getNumTextEntities() {
+        return entities.size();
+    }
+
+    @Override
+    public int getNumTextEntitySlots() {
+        return entities.size();
+    }
+
+    @Override
+    public void spawnChunk(int size, GPUBlock[][][] blocks, int x, int y, int z, boolean buildImmediately) {
+        chunks.spawnChunk(new HeadlessChunk(chunks, size, blocks, x, y, z), buildImmediately);
+    }
+
+    @Override
+    public GPUChunk getChunk(int x, int y, int z) {
+        return chunks.getChunk(new Vector3i(x, y, z));
+    }
+
+    @Override
+    public GPUChunk getChunk(Vector3i pos) {
+        return chunks.getChunk(pos);
+    }
+
+    @Override
+    public boolean hasChunk(int x, int y, int z) {
+        return hasChunk(new Vector3i(x, y, z));
+    }
+
+    @Override
+    public boolean hasChunk(Vector3i chunk) {
+        return chunks.hasChunk(chunk);
+    }
+
+    @Override
+    public ReadOnlyMap<Vector3i, GPUChunk> getChunks() {
+        return chunks.getChunks();
+    }
+
+    @Override
+    public int getNumChunks() {
+        return chunks.getNumChunks();
+    }
+
+    @Override
+    public int getNumChunkSlots() {
+        return chunks.getNumChunks();
+    }
+
+    @Override
+    public int getNumVisibleChunks() {
+        return chunks.getCuller().getVisibleChunks();
+    }
+
+    @Override
+    public int getNumCulledChunks() {
+        return chunks.getCuller().getCulledChunks();
+    }
+
+    @Override
+    public void setFrustumCulling(boolean cull) {
+        chunks.getCuller().setEnabled(cull);
+    }
+
+    @Override
+    public void setUploadBudget(double seconds, long bytes) {
+        chunks.getUploadQueue().setBudget(seconds, bytes);
+    }
+
+    @Override
+    public int getUploadQueueDepth() {
+        return chunks.getUploadQueue().getQueueDepth();
+    }
+
+    @Override
+    public long getFrameUploadBytes() {
+        return chunks.getUploadQueue().getFrameUploadBytes();
+    }
+
+    @Override
+    public int getNumDrawCalls() {
+        return drawList.getDrawCalls();
+    }
+
+    @Override
+    public int getNumStateChanges() {
+        return drawList.getStateChanges();
+    }
+
+    @Override
+    public int getNumOccludedChunks() {
+        return chunks.getOcclusionCuller().getOccludedChunks();
+    }
+
+    @Override
+    public void setOcclusionCulling(boolean cull) {
+        chunks.getOcclusionCuller().setEnabled(cull);
+    }
+
+    @Override
+    public ChunkLod getChunkLod() {
+        return chunks.getLod();
+    }
+
+    @Override
+    public ChunkMeshCache getChunkMeshCache() {
+        return chunks.getMeshCache();
+    }
+
+    @Override
+    public GPUResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    @Override
+    public double getChunkEnqueueRate() {
+        return chunks.getDirtyChunks().getEnqueueRate();
+    }
+
+    @Override
+    public double getChunkDequeueRate() {
+        return chunks.getDirtyChunks().getDequeueRate();
+    }
+
+    @Override
+    public void rebuildChunks() {
+        println("Rebuilding chunks asynchronously...");
+        chunks.rebuildChunks();
+    }
+
+    private void updateCameraViewMatrix(){
+        RenderUtils.getViewMatrix(viewMatrix, cameraPosition, cameraRotation);
+    }
+
+    private void updateCameraProjectionMatrix(){
+        projectionMatrix.setPerspective(FOV, (float) width / height, 1/256f, 1 << 20);
+    }
+
+    @Override
+    public void setCameraPos(float xPos, float yPos, float zPos, float xRotation, float yRotation, float zRotation) {
+        this.cameraPosition.set(xPos, yPos, zPos);
+        this.cameraRotation.set(xRotation, yRotation, zRotation);
+        updateCameraViewMatrix();
+    }
+
+    @Override
+    public Matrix4f getCameraViewMatrix() {
+        return viewMatrix;
+    }
+
+    @Override
+    public Matrix4f getCameraProjectionMatrix() {
+        return projectionMatrix;
+    }
+
+    @Override
+    public void lockCursorPos() {
+        cursorLocked = true;
+    }
+
+    @Override
+    public void unlockCursorPos() {
+        cursorLocked = false;
+    }
+
+    @Override
+    public boolean cursorLocked() {
+        return cursorLocked;
+    }
+
+    @Override
+    public boolean meshOnScreen(CPUMesh mesh, Matrix4f meshTransform, Matrix4f viewMatrix, Matrix4f projectionMatrix, float x, float y) {
+        return meshPicker.meshOnScreen(mesh, meshTransform, viewMatrix, projectionMatrix, x, y);
+    }
+
+    @Override
+    public int meshesOnScreen(CPUMesh mesh, Matrix4f viewProjection, float[] transforms, int count, float x, float y, int[] hits) {
+        return meshPicker.meshesOnScreen(mesh, viewProjection, transforms, count, x, y, hits);
+    }
+
+    /**
+     * There are no keys, so every key is always released.
+     * @return -1
+     */
+    @Override
+    public int getKey(int key) {
+        return -1;
+    }
+
+    /**
+     * There is no mouse, so every button is always released.
+     * @return -1
+     */
+    @Override
+    public int getMouseButton(int button) {
+        return -1;
+    }
+
+    @Override
+    public double getMouseXPos() {
+        return 0;
+    }
+
+    @Override
+    public double getMouseYPos() {
+        return 0;
+    }
+
+    @Override
+    public double getTime() {
+        return System.nanoTime() / 1_000_000_000.;
+    }
+
+    /**
+     * makes shouldClose() return true, which is the headless version of clicking the X on the window.
+     */
+    public void requestClose(){
+        shouldClose = true;
+    }
+
+    @Override
+    public boolean shouldClose() {
+        return shouldClose;
+    }
+
+    @Override
+    public boolean shouldRender() {
+        return readyToRender;
+    }
+
+    /**
+     * "renders" a frame: finished chunk builds are turned into meshes and every draw call is recorded instead of drawn.
+     * @return the time it took to render the frame in seconds.
+     */
+    @Override
+    public double render() {
+        readyToRender = false;
+        double startTime = getTime();
+        renderFrame(startTime);
+
+        //build modified chunks, and clear deleted ones
+        chunks.update(startTime);
+        resourceCache.processDeletions(resourceDeleter);
+
+        frames++;
+        double time = getTime() - startTime;
+        readyToRender = true;
+        return time;
+    }
+
+    private void renderFrame(double startTime){
+        submissions.clear();
+        frameTriangles = 0;
+        for(HeadlessShader shaderProgram: shaderPrograms) {
+            shaderProgram.setUniform("timeSeconds", (float)startTime);
+            shaderProgram.setUniform("projectionMatrix", projectionMatrix);
+            shaderProgram.setUniform("viewMatrix", viewMatrix);
+            shaderProgram.setUniform("texture_sampler", 0);
+        }
+        drawList.clear();
+        for (HeadlessEntity entity : entities) {
+            drawList.add(entity.shaderProgram, entity.model.texture, entity.model.mesh, entity.getModelViewMatrix());
+        }
+        chunks.addDraws(drawList, projectionMatrix, viewMatrix, frame);
+        drawList.sort();
+        drawList.execute(drawExecutor);
+        chunks.upload();
+    }
+
+    /**
+     * @return the draw list of the last frame, already sorted and executed.
+     */
+    public DrawList getDrawList(){
+        return drawList;
+    }
+
+    /**
+     * @return every draw call made in the last frame, in order. The list is reused, so copy it to keep it around.
+     */
+    public List<DrawSubmission> getSubmissions(){
+        return Collections.unmodifiableList(submissions);
+    }
+
+    public long getFrameTriangles(){
+        return frameTriangles;
+    }
+
+
+    public long getFrameCount(){
+        return frames;
+    }
+
+    public double getTargetFrameTime(){
+        return targetFrameTime;
+    }
+
+    /**
+     * @return true if no chunk is waiting to be built or in the middle of building.
+     */
+    public boolean chunksIdle(){
+        return chunks.isIdle();
+    }
+
+    @Override
+    public double render(FrameSnapshot frame) {
+        Vector3fc position = frame.getCameraPosition();
+        Vector3fc rotation = frame.getCameraRotation();
+        setCameraPos(position.x(), position.y(), position.z(), rotation.x(), rotation.y(), rotation.z());
+        frame.applyEntityTransforms();
+        if(frame.isCursorLocked() != cursorLocked()){
+            if(frame.isCursorLocked()) lockCursorPos();
+            else unlockCursorPos();
+        }
+        this.frame = frame;
+        try {
+            return render();
+        } finally {
+            this.frame = null;
+        }
+    }
+
+    @Override
+    public void print(Object p) {
+        debug.print(p);
+    }
+
+    @Override
+    public void println(Object p) {
+        debug.println(p);
+    }
+
+    @Override
+    public void printWarn(Object p) {
+        warn.print(p);
+    }
+
+    @Override
+    public void printWarnln(Object p) {
+        warn.println(p);
+    }
+
+    @Override
+    public void printErr(Object p) {
+        err.print(p);
+    }
+
+    @Override
+    public void printErrln(Object p) {
+        err.println(p);
+    }
+}
@@ -0,0 +1,226 @@
+package engine.headless;
+
+import VMF.VMFLoader;
+import engine.headless.model.HeadlessTexture;
+import engine.headless.model.HeadlessTextureArray;
+import engine.headless.render.HeadlessShader;
+import engine.multiplatform.Util.ChunkMesher;
+import engine.multiplatform.Util.TileArray;
+import engine.multiplatform.gpu.GPUBlock;
+import engine.multiplatform.gpu.GPUShader;
+import engine.multiplatform.gpu.GPUTexture;
+import engine.multiplatform.model.CPUMesh;
+import engine.multiplatform.model.CPUModel;
+import engine.multiplatform.model.DirectMesh;
+import org.joml.Vector3i;
+import util.other.NullChunk;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the tile texture mode (see TileArray):
+ * that UVs survive being packed into an int, including a v of exactly 1 at the bottom of a tile,
+ * that identical textures share a tile, and that a chunk meshed with packed UVs is the same as one meshed with float UVs,
+ * apart from the UVs being rounded to 1024ths.
+ *
+ * args: [path to the folder with the .vbmf block models]
+ */
+public class TileArrayVerifier {
+    //encode() rounds to the nearest 1024th, plus a bit for float error
+    private static final float MAX_UV_ERROR = 0.5f / TileArray.UV_SCALE + 1e-5f;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        String modelFolder = args.length > 0 ? args[0] : "resources/VMFModels";
+        DirectMesh.setLeakDetection(true);
+
+        checkEncoding();
+
+        List<CPUModel> models = new ArrayList<>();
+        for(String name: new String[]{"grassBlock", "stoneBlock", "pineLog", "pineLeaves"}){
+            models.add(new CPUModel(new VMFLoader().loadVBMF(new File(modelFolder + "/" + name + ".vbmf0"))));
+        }
+        //the same pixels in a different image object have to end up in the same tile
+        models.add(new CPUModel(models.get(0).mesh, copy(models.get(0).texture)));
+        //a smaller texture goes in the corner of its tile
+        BufferedImage small = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        small.setRGB(0, 0, 0xffff00ff);
+        small.setRGB(1, 1, 0xff00ff00);
+        models.add(new CPUModel(models.get(1).mesh, small));
+        TileArray tiles = TileArray.generate(models);
+        checkDedupe(models, tiles);
+
+        checkMesher(tiles);
+
+        System.out.println("live meshes: " + DirectMesh.getLiveMeshes());
+        if(DirectMesh.getLiveMeshes() != 0) failures++;
+        if(failures == 0){
+            System.out.println("everything matches");
+        } else {
+            System.out.println(failures + " checks failed");
+            System.exit(1);
+        }
+    }
+
+    private static void check(boolean ok, String message){
+        if(ok) return;
+        if(failures < 20) System.out.println("FAILED: " + message);
+        failures++;
+    }
+
+    //every 1024th of a tile, in the first, second and last tile, has to come back exactly
+    private static void checkEncoding(){
+        int checked = 0;
+        for(int tile: new int[]{0, 1, TileArray.MAX_TILES - 1}){
+            for(int k = 0; k <= TileArray.UV_SCALE; k++){
+                float u = (TileArray.UV_SCALE - k) / (float)TileArray.UV_SCALE;
+                float v = k / (float)TileArray.UV_SCALE;
+                int packed = TileArray.encode(u, v + 2*tile);
+                check(TileArray.decodeTile(packed) == tile && TileArray.decodeU(packed) == u && TileArray.decodeV(packed) == v,
+                        "(" + u + ", " + v + ") in tile " + tile + " decoded as (" + TileArray.decodeU(packed) + ", " + TileArray.decodeV(packed) + ") in tile " + TileArray.decodeTile(packed));
+                checked++;
+            }
+            //the bottom edge of a tile is still in that tile, not the top of the next one
+            int bottom = TileArray.encode(0.5f, 1 + 2*tile);
+            check(TileArray.decodeTile(bottom) == tile && TileArray.decodeV(bottom) == 1, "v = 1 in tile " + tile + " decoded as v = " + TileArray.decodeV(bottom) + " in tile " + TileArray.decodeTile(bottom));
+        }
+        //anything else rounds to the nearest 1024th
+        Random random = new Random(1);
+        for(int i = 0; i < 100_000; i++){
+            int tile = random.nextInt(TileArray.MAX_TILES);
+            float u = random.nextFloat();
+            float tileV = random.nextFloat() + 2*tile;
+            float v = tileV - 2*tile; //what's left of v once it's been rounded to fit next to the tile index
+            int packed = TileArray.encode(u, tileV);
+            check(TileArray.decodeTile(packed) == tile && Math.abs(TileArray.decodeU(packed) - u) <= MAX_UV_ERROR && Math.abs(TileArray.decodeV(packed) - v) <= MAX_UV_ERROR,
+                    "(" + u + ", " + v + ") in tile " + tile + " decoded as (" + TileArray.decodeU(packed) + ", " + TileArray.decodeV(packed) + ") in tile " + TileArray.decodeTile(packed));
+            checked++;
+        }
+        System.out.println("encoding: " + checked + " UVs checked");
+    }
+
+    private static void checkDedupe(List<CPUModel> models, TileArray tiles){
+        //which models should share a tile, found by comparing the pixels directly instead of through the hash
+        int[] expectedTile = new int[models.size()];
+        List<BufferedImage> distinct = new ArrayList<>();
+        for(int i = 0; i < models.size(); i++){
+            int found = -1;
+            for(int j = 0; j < distinct.size(); j++){
+                if(samePixels(distinct.get(j), models.get(i).texture)) found = j;
+            }
+            if(found < 0){
+                found = distinct.size();
+                distinct.add(models.get(i).texture);
+            }
+            expectedTile[i] = found;
+        }
+        check(tiles.getTiles().size() == distinct.size(), distinct.size() + " different textures made " + tiles.getTiles().size() + " tiles");
+
+        List<CPUModel> tiled = tiles.getModels();
+        for(int i = 0; i < models.size(); i++){
+            CPUMesh original = models.get(i).mesh;
+            CPUMesh mesh = tiled.get(i).mesh;
+            BufferedImage texture = models.get(i).texture;
+            float scaleU = texture.getWidth() / (float)tiles.getTileWidth();
+            float scaleV = texture.getHeight() / (float)tiles.getTileHeight();
+            for(int v = 0; v < mesh.UVCoords.length/2; v++){
+                float tileV = mesh.UVCoords[2*v+1];
+                int tile = (int)Math.floor(tileV / 2);
+                check(tile == expectedTile[i], "model " + i + " uses tile " + tile + " instead of " + expectedTile[i]);
+                //only float error here, generate() doesn't round to 1024ths
+                check(Math.abs(mesh.UVCoords[2*v] - original.UVCoords[2*v] * scaleU) <= 1e-5f && Math.abs(tileV - 2*tile - original.UVCoords[2*v+1] * scaleV) <= 1e-5f,
+                        "model " + i + " vertex " + v + " has tile UV (" + mesh.UVCoords[2*v] + ", " + tileV + ") for (" + original.UVCoords[2*v] + ", " + original.UVCoords[2*v+1] + ")");
+            }
+            //the texture is in the top left corner of its tile
+            BufferedImage tileImage = tiles.getTiles().get(expectedTile[i]);
+            check(tiled.get(i).texture == tileImage, "model " + i + " doesn't have its tile as its texture");
+            int[] expected = texture.getRGB(0, 0, texture.getWidth(), texture.getHeight(), null, 0, texture.getWidth());
+            int[] actual = tileImage.getRGB(0, 0, texture.getWidth(), texture.getHeight(), null, 0, texture.getWidth());
+            check(Arrays.equals(expected, actual), "tile " + expectedTile[i] + " doesn't have model " + i + "'s texture in it");
+        }
+        System.out.println("dedupe: " + models.size() + " models, " + tiles.getTiles().size() + " tiles");
+    }
+
+    //meshes the same random chunk with float UVs and with packed UVs
+    private static void checkMesher(TileArray tiles){
+        GPUShader shader = new HeadlessShader("", "");
+        GPUTexture floatTexture = new HeadlessTexture(tiles.getTiles().get(0));
+        GPUTexture arrayTexture = new HeadlessTextureArray(tiles.getTiles());
+        List<CPUModel> models = tiles.getModels();
+        int size = 16;
+        GPUBlock[][][] floatBlocks = new GPUBlock[size][size][size];
+        GPUBlock[][][] arrayBlocks = new GPUBlock[size][size][size];
+        Random random = new Random(2);
+        for(int x = 0; x < size; x++){
+            for(int y = 0; y < size; y++){
+                for(int z = 0; z < size; z++){
+                    if(random.nextBoolean()) continue;
+                    CPUMesh mesh = models.get(random.nextInt(models.size())).mesh;
+                    floatBlocks[x][y][z] = block(shader, floatTexture, mesh);
+                    arrayBlocks[x][y][z] = block(shader, arrayTexture, mesh);
+                }
+            }
+        }
+        NullChunk chunk = new NullChunk(new Vector3i());
+        for(int lod = 0; lod <= 1; lod++){
+            List<ChunkMesher.Section> floatSections = ChunkMesher.build(chunk, floatBlocks, size, null, lod);
+            List<ChunkMesher.Section> arraySections = ChunkMesher.build(chunk, arrayBlocks, size, null, lod);
+            check(floatSections.size() == 1 && arraySections.size() == 1, "lod " + lod + " made " + floatSections.size() + " and " + arraySections.size() + " sections instead of 1");
+            DirectMesh floatMesh = floatSections.get(0).getMesh();
+            DirectMesh arrayMesh = arraySections.get(0).getMesh();
+            check(!floatMesh.isTiled() && arrayMesh.isTiled(), "lod " + lod + " used the wrong UV format");
+            CPUMesh expected = floatMesh.toCPUMesh();
+            CPUMesh actual = arrayMesh.toCPUMesh();
+            check(Arrays.equals(expected.positions, actual.positions), "lod " + lod + " positions differ");
+            check(Arrays.equals(expected.indices, actual.indices), "lod " + lod + " indices differ");
+            check(expected.UVCoords.length == actual.UVCoords.length, "lod " + lod + " has a different number of UVs");
+            float maxError = 0;
+            for(int i = 0; i < Math.min(expected.UVCoords.length, actual.UVCoords.length); i++){
+                float error = Math.abs(expected.UVCoords[i] - actual.UVCoords[i]);
+                maxError = Math.max(maxError, error);
+                check(error <= MAX_UV_ERROR, "lod " + lod + " UV " + i + " is " + actual.UVCoords[i] + " instead of " + expected.UVCoords[i]);
+            }
+            check(floatMesh.getSizeBytes() > arrayMesh.getSizeBytes(), "lod " + lod + " packed mesh isn't smaller");
+            System.out.println("mesher lod " + lod + ": " + expected.indices.length + " indices, " + floatMesh.getSizeBytes() + " -> " + arrayMesh.getSizeBytes() + " bytes, max UV error " + maxError);
+            ChunkMesher.release(floatSections);
+            ChunkMesher.release(arraySections);
+        }
+    }
+
+    private static GPUBlock block(GPUShader shader, GPUTexture texture, CPUMesh mesh){
+        return new GPUBlock() {
+            @Override
+            public GPUShader getShader() {
+                return shader;
+            }
+
+            @Override
+            public GPUTexture getTexture() {
+                return texture;
+            }
+
+            @Override
+            public CPUMesh getMesh() {
+                return mesh;
+            }
+        };
+    }
+
+    private static BufferedImage copy(BufferedImage image){
+        //the same type, images of different types don't have to share (see GPUResourceCache.addImage)
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType() == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_ARGB : image.getType());
+        copy.setRGB(0, 0, image.getWidth(), image.getHeight(), image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()), 0, image.getWidth());
+        return copy;
+    }
+
+    private static boolean samePixels(BufferedImage a, BufferedImage b){
+        if(a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) return false;
+        return Arrays.equals(a.getRGB(0, 0, a.getWidth(), a.getHeight(), null, 0, a.getWidth()), b.getRGB(0, 0, b.getWidth(), b.getHeight(), null, 0, b.getWidth()));
+    }
+}
@@ -0,0 +1,60 @@
+package engine.headless.model;
+
+import engine.multiplatform.gpu.GPUMesh;
+import engine.multiplatform.model.CPUMesh;
+import engine.multiplatform.model.DirectMesh;
+
+/**
+ * A "GPU" mesh that just holds on to its CPUMesh.
+ */
+public class HeadlessMesh implements GPUMesh {
+    public final CPUMesh mesh;
+    public final int vertexCount;
+    private boolean deleted;
+
+    public HeadlessMesh(CPUMesh mesh){
+        this.mesh = mesh;
+        this.vertexCount = mesh.indices.length;
+    }
+
+    /**
+     * copies an off-heap mesh, the same way a real GPU keeps its own copy. The DirectMesh isn't released.
+     */
+    public HeadlessMesh(DirectMesh mesh){
+        this(mesh.toCPUMesh());
+    }
+
+    /**
+     * @return the number of bytes this mesh would take up on a GPU (positions, texture coordinates and indices)
+     */
+    public long getSizeBytes(){
+        return (mesh.positions.length + mesh.UVCoords.length + mesh.indices.length) * 4L;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public void delete() {
+        deleted = true;
+    }
+
+    public String toString(){
+        return "HeadlessMesh has " + vertexCount + " vertices";
+    }
+
+    /**
+     * tells what render backend this came from.
+     * supported render APIs:
+     * 0:unknown (for when
+     * 1:GL33
+     * 2:headless
+     *
+     * @return the render backend ID
+     */
+    @Override
+    public int getRenderType() {
+        return 2;
+    }
+}
@@ -0,0 +1,44 @@
+package engine.headless.model;
+
+import engine.multiplatform.gpu.GPUMesh;
+import engine.multiplatform.gpu.GPUModel;
+import engine.multiplatform.gpu.GPUTexture;
+import engine.multiplatform.model.CPUModel;
+
+public class HeadlessModel implements GPUModel {
+    public final HeadlessMesh mesh;
+    public final HeadlessTexture texture;
+
+    public HeadlessModel(HeadlessMesh mesh, HeadlessTexture texture){
+        this.mesh = mesh;
+        this.texture = texture;
+    }
+
+    public HeadlessModel(CPUModel model){
+        this(new HeadlessMesh(model.mesh), new HeadlessTexture(model.texture));
+    }
+
+    @Override
+    public GPUMesh getMesh() {
+        return mesh;
+    }
+
+    @Override
+    public GPUTexture getTexture() {
+        return texture;
+    }
+
+    /**
+     * tells what render backend this came from.
+     * supported render APIs:
+     * 0:unknown (for when
+     * 1:GL33
+     * 2:headless
+     *
+     * @return the render backend ID
+     */
+    @Override
+    public int getRenderType() {
+        return 2;
+    }
+}
@@ -0,0 +1,47 @@
+package engine.headless.model;
+
+import engine.multiplatform.gpu.GPUTexture;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A "GPU" texture that just holds on to its image.
+ */
+public class HeadlessTexture implements GPUTexture {
+    public final BufferedImage image;
+    private boolean deleted;
+
+    public HeadlessTexture(BufferedImage image){
+        this.image = image;
+    }
+
+    public int getWidth(){
+        return image.getWidth();
+    }
+
+    public int getHeight(){
+        return image.getHeight();
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void cleanUp(){
+        deleted = true;
+    }
+
+    /**
+     * tells what render backend this came from.
+     * supported render APIs:
+     * 0:unknown (for when
+     * 1:GL33
+     * 2:headless
+     *
+     * @return the render backend ID
+     */
+    @Override
+    public int getRenderType() {
+        return 2;
+    }
+}
@@ -0,0 +1,23 @@
+package engine.headless.model;
+
+import engine.multiplatform.gpu.GPUTextureArray;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * A "GPU" array texture that just holds on to its layers. The image is the first layer.
+ */
+public class HeadlessTextureArray extends HeadlessTexture implements GPUTextureArray {
+    public final List<BufferedImage> layers;
+
+    public HeadlessTextureArray(List<BufferedImage> layers){
+        super(layers.get(0));
+        this.layers = List.copyOf(layers);
+    }
+
+    @Override
+    public int getLayers(){
+        return layers.size();
+    }
+}
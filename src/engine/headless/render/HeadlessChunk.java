@@ -0,0 +1,79 @@
+package engine.headless.render;
+
+import engine.headless.model.HeadlessMesh;
+import engine.headless.model.HeadlessTexture;
+import engine.multiplatform.Util.AbstractChunk;
+import engine.multiplatform.Util.ChunkManager;
+import engine.multiplatform.Util.ChunkMesher;
+import engine.multiplatform.Util.DrawList;
+import engine.multiplatform.gpu.GPUBlock;
+import engine.multiplatform.model.DirectMesh;
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The headless version of GL33Chunk.
+ * Everything but uploading is the same code (AbstractChunk), the only difference is that "sending to the GPU" just keeps the meshes.
+ */
+public class HeadlessChunk extends AbstractChunk {
+    public HeadlessEntity[] chunkModel;
+
+    public HeadlessChunk(ChunkManager manager, int size, GPUBlock[][][] blocks, int xPos, int yPos, int zPos){
+        super(manager, size, blocks, xPos, yPos, zPos);
+    }
+
+    /**
+     * tells what render backend this came from.
+     * supported render APIs:
+     * 0:unknown (This should absolutely under no circumstances ever happen. Not in all time and space should this value ever be returned by this function)
+     * 1:GL33
+     * 2:headless
+     *
+     * @return the render backend ID
+     */
+    @Override
+    public int getRenderType() {
+        return 2;
+    }
+
+    @Override
+    public void addDraws(DrawList drawList){
+        for(HeadlessEntity entity: chunkModel){
+            Matrix4f transform = entity.getModelViewMatrix();
+            drawList.addOffset(entity.shaderProgram, entity.model.texture, entity.model.mesh, transform.m30(), transform.m31(), transform.m32());
+        }
+    }
+
+    @Override
+    public void clearFromGPU(){
+        if(this.chunkModel != null) {
+            for (HeadlessEntity entity : this.chunkModel) {
+                entity.model.mesh.delete();
+            }
+        }
+    }
+
+    /**
+     * the headless equivalent of uploading - copies the meshes into HeadlessMeshes and turns them into entities.
+     * @return the number of bytes that would have been uploaded to the GPU.
+     */
+    @Override
+    protected long upload(List<ChunkMesher.Section> sections){
+        long bytes = 0;
+        ArrayList<HeadlessEntity> model = new ArrayList<>();
+        for (ChunkMesher.Section section : sections) {
+            DirectMesh mesh = section.getMesh();
+            if(mesh.indexCount > 0) {
+                HeadlessMesh headlessMesh = new HeadlessMesh(mesh);
+                bytes += headlessMesh.getSizeBytes();
+                HeadlessEntity entity = new HeadlessEntity(headlessMesh, (HeadlessShader) section.shader, (HeadlessTexture) section.texture);
+                entity.setLocation(this.pos.x * this.size * 0.28867513459481288225f, this.pos.y * this.size * 0.5f, this.pos.z * this.size * 0.5f);
+                model.add(entity);
+            }
+        }
+        this.chunkModel = model.toArray(new HeadlessEntity[0]);
+        return bytes;
+    }
+}
@@ -0,0 +1,128 @@
+package engine.headless.render;
+
+import engine.headless.model.HeadlessMesh;
+import engine.headless.model.HeadlessModel;
+import engine.headless.model.HeadlessTexture;
+import engine.multiplatform.gpu.GPUEntity;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+public class HeadlessEntity implements GPUEntity, Comparable<HeadlessEntity> {
+
+    private static int ID;
+    private final int id;
+
+    private final Vector3f position;
+    private final Vector3f scale;
+    private final Vector3f rotation;
+
+    private final Matrix4f modelViewMatrix;
+
+    public HeadlessShader shaderProgram;
+    public HeadlessModel model;
+
+    public HeadlessEntity(HeadlessMesh mesh, HeadlessShader shaderProgram, HeadlessTexture texture) {
+        this(new HeadlessModel(mesh, texture), shaderProgram);
+    }
+
+    public HeadlessEntity(HeadlessModel model, HeadlessShader shaderProgram) {
+        this.id = ID++;
+        this.model = model;
+        this.shaderProgram = shaderProgram;
+        this.position = new Vector3f();
+        this.scale = new Vector3f(1, 1, 1);
+        this.rotation = new Vector3f();
+        this.modelViewMatrix = new Matrix4f();
+        updateViewMatrix();
+    }
+
+    public Matrix4f getModelViewMatrix(){
+        return modelViewMatrix;
+    }
+
+    //same transform as GL33Entity, so both backends put things in the same place.
+    private void updateViewMatrix(){
+        this.modelViewMatrix.identity().translate(this.position).
+                rotateX(-this.rotation.x).
+                rotateY(-this.rotation.y).
+                rotateZ(-this.rotation.z).
+                scale(this.scale);
+    }
+
+    public Vector3f getLocation() {
+        return this.position;
+    }
+
+    @Override
+    public void setLocation(float x, float y, float z) {
+        this.position.set(x, y, z);
+        updateViewMatrix();
+    }
+
+    @Override
+    public void setLocation(Vector3f pos){
+        setLocation(pos.x, pos.y, pos.z);
+    }
+
+    @Override
+    public void setScale(float x, float y, float z) {
+        this.scale.set(x, y, z);
+        updateViewMatrix();
+    }
+
+    @Override
+    public void setScale(Vector3f scale){
+        setScale(scale.x, scale.y, scale.z);
+    }
+
+    @Override
+    public void setRotation(float x, float y, float z) {
+        this.rotation.set(x, y, z);
+        updateViewMatrix();
+    }
+
+    @Override
+    public void setRotation(Vector3f rot){
+        setRotation(rot.x, rot.y, rot.z);
+    }
+
+    @Override
+    public void setPosition(float xLocation, float yLocation, float zLocation, float xRotation, float yRotation, float zRotation, float xScale, float yScale, float zScale){
+        this.position.set(xLocation, yLocation, zLocation);
+        this.rotation.set(xRotation, yRotation, zRotation);
+        this.scale.set(xScale, yScale, zScale);
+        updateViewMatrix();
+    }
+
+    @Override
+    public void setPosition(Vector3f locat, Vector3f rotat, Vector3f scale){
+        setPosition(locat.x, locat.y, locat.z, rotat.x, rotat.y, rotat.z, scale.x, scale.y, scale.z);
+    }
+
+    public void setShaderProgram(HeadlessShader program){
+        this.shaderProgram = program;
+    }
+
+    /**
+     * tells what render backend this came from.
+     * supported render APIs:
+     * 0:unknown (This should absolutely under no circumstances ever happen. Not in all time and space should this value ever be returned by this function)
+     * 1:GL33
+     * 2:headless
+     *
+     * @return the render backend ID
+     */
+    @Override
+    public int getRenderType() {
+        return 2;
+    }
+
+    public int hashCode(){
+        return id;
+    }
+
+    @Override
+    public int compareTo(HeadlessEntity o) {
+        return this.hashCode() - o.hashCode();
+    }
+}
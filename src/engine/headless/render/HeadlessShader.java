@@ -0,0 +1,73 @@
+package engine.headless.render;
+
+import engine.multiplatform.gpu.GPUShader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A shader that is never compiled. It keeps its source code and remembers the last value set to each uniform.
+ */
+public class HeadlessShader implements GPUShader {
+    private static int ID;
+    private final int id;
+    public final String vertexSource;
+    public final String fragmentSource;
+    private final Map<String, Object> uniforms = new HashMap<>();
+    private boolean deleted;
+
+    public HeadlessShader(String vertexSource, String fragmentSource){
+        this.id = ID++;
+        this.vertexSource = vertexSource;
+        this.fragmentSource = fragmentSource;
+    }
+
+    /**
+     * @return the last value given to a uniform, or null if it was never set.
+     */
+    public Object getUniform(String uniform){
+        return uniforms.get(uniform);
+    }
+
+    @Override
+    public void setUniform(String uniform, Object value) {
+        uniforms.put(uniform, value);
+    }
+
+    @Override
+    public void setUniform(String uniform, float value) {
+        uniforms.put(uniform, value);
+    }
+
+    @Override
+    public void setUniform(String uniform, int value) {
+        uniforms.put(uniform, value);
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public void delete() {
+        deleted = true;
+    }
+
+    public int hashCode(){
+        return id;
+    }
+
+    /**
+     * tells what render backend this came from.
+     * supported render APIs:
+     * 0:unknown (for when
+     * 1:GL33
+     * 2:headless
+     *
+     * @return the render backend ID
+     */
+    @Override
+    public int getRenderType() {
+        return 2;
+    }
+}
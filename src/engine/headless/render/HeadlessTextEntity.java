@@ -0,0 +1,42 @@
+package engine.headless.render;
+
+import engine.headless.model.HeadlessMesh;
+import engine.headless.model.HeadlessModel;
+import engine.headless.model.HeadlessTexture;
+import engine.multiplatform.Util.Utils;
+import engine.multiplatform.gpu.GPUTextEntity;
+
+public class HeadlessTextEntity extends HeadlessEntity implements GPUTextEntity {
+    private String text;
+    private boolean centerX;
+    private boolean centerY;
+
+    public HeadlessTextEntity(String text, HeadlessShader shader, HeadlessTexture tex, boolean centerX, boolean centerY) {
+        super(new HeadlessMesh(Utils.generateTextMesh(text, centerX, centerY)), shader, tex);
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.text = text;
+    }
+
+    public void setText(String text, boolean centerX, boolean centerY){
+        //the text mesh is generated even without a GPU, so text heavy code costs the same as it would with one.
+        if(!this.text.equals(text) || this.centerX != centerX || this.centerY != centerY){
+            this.text = text;
+            super.model = new HeadlessModel(new HeadlessMesh(Utils.generateTextMesh(text, centerX, centerY)), super.model.texture);
+        }
+        this.centerX = centerX;
+        this.centerY = centerY;
+    }
+
+    public String getText(){
+        return text;
+    }
+
+    public boolean isCenterX() {
+        return centerX;
+    }
+
+    public boolean isCenterY() {
+        return centerY;
+    }
+}
@@ -1,5 +1,10 @@
 package engine.multiplatform;
 
+import engine.multiplatform.Util.ChunkLod;
+import engine.multiplatform.Util.ChunkMeshCache;
+import engine.multiplatform.Util.DynamicAtlas;
+import engine.multiplatform.Util.FrameSnapshot;
+import engine.multiplatform.Util.GPUResourceCache;
 import engine.multiplatform.gpu.*;
 import engine.multiplatform.model.CPUMesh;
 import engine.multiplatform.model.CPUModel;
@@ -82,18 +87,48 @@ public interface Render {
 
     /**
      * sends a CPU-stored image into a GPU texture for rendering.
+     * If an identical image was already sent, the same texture is returned instead of making a new one.
      * @param image the image to texturize
      * @return the texture refference. Use in methods that require a texture.
      */
     GPUTexture readTexture(BufferedImage image);
 
+    /**
+     * sends a CPU-stored image into a GPU texture that is never shared, even if an identical image was sent before.
+     * Use this for textures that will be changed with updateTexture, since a texture from readTexture may already be used by something else.
+     * @param image the image to texturize
+     * @return the texture refference. Remove it with deleteTexture.
+     */
+    GPUTexture readUnsharedTexture(BufferedImage image);
+
     /**
      * removes a texture from the GPU to free GPU memory.
+     * Textures from readTexture are shared, so they are only removed once each readTexture call has been matched with a delete.
      * @param texture the reference to the texture to remove
      * @return true if the texture was successfully deleted, false if something went wrong
      */
     boolean deleteTexture(GPUTexture texture);
 
+    /**
+     * replaces part of a texture with an image, and only uploads that part.
+     * Everything using the texture sees the change, so the texture should come from readUnsharedTexture.
+     * A texture from readTexture stops being shared after this, since it doesn't match the image it was made from anymore.
+     * @param texture the texture to change
+     * @param image the new pixels
+     * @param x the x position in the texture to put the image at
+     * @param y the y position in the texture to put the image at
+     * @return false if the image doesn't fit in the texture there
+     */
+    boolean updateTexture(GPUTexture texture, BufferedImage image, int x, int y);
+
+    /**
+     * sends images into the layers of an array texture, for blocks in tile mode (see TileArray).
+     * Unlike readTexture, array textures are never shared. Remove it with deleteTexture.
+     * @param layers the images, which all have to be the same size
+     * @return the texture reference.
+     */
+    GPUTextureArray readTextureArray(List<BufferedImage> layers);
+
     /**
      * combines textures into an atlas and transforms the texture coordinates of the meshes to use the atlas,
      * then generates a corresponding list of CPUModels, each having a transformed mesh and texture atlas.
@@ -101,6 +136,7 @@ public interface Render {
      * index n of the images and index n of the meshes will end up in index n of the output list.
      *
      * This is highly advised to use on models for blocks, as chunks need an entire draw call per texture they use.
+     * The atlas is cached in the resources folder, so if the same textures are put into an atlas again it is loaded instead of generated.
      * @param images the input images
      * @param meshes the input meshes - they won't be modified, instead copies will be made and the copies modified.
      * @return the output list of models that all use the same texture.
@@ -140,6 +176,15 @@ public interface Render {
      * @return the output list of models that all use the same texture.
      */
     CPUModel[] generateImageAtlas(CPUModel[] models);
+
+    /**
+     * combines all the textures of the models into an atlas like generateImageAtlas, and uploads it,
+     * but keeps the atlas around so more models can be added to it later without changing the ones already in it.
+     * For blocks that can be registered while the game is running.
+     * @param models the models to create the atlas. They won't be modified.
+     * @return the atlas, with the models that use it.
+     */
+    DynamicAtlas generateDynamicAtlas(List<CPUModel> models);
     //meshes
     //IMPORTANT: there are no generate CPU mesh methods - that is because CPUMesh has those in constructor form.
 
@@ -162,6 +207,7 @@ public interface Render {
 
     /**
      * generates a mesh that can be used for rendering.
+     * If an identical mesh was already loaded, the same GPU mesh is returned instead of making a new one.
      *
      * @param mesh The source mesh
      * @return the reference to the GPU mesh.
@@ -188,6 +234,11 @@ public interface Render {
      */
     CPUModel loadBlockModel(String VBMFPath);
 
+    /**
+     * @return true if the model is the placeholder that loadBlockModel and loadEntityModel return when the file couldn't be loaded.
+     */
+    boolean isErrorModel(CPUModel model);
+
     /**
      * sends a CPUModel to the GPU so it can be rendered.
      * @param model the model to make renderable
@@ -214,6 +265,7 @@ public interface Render {
     /**
      * deletes a model from the GPU
      * Note that the internal texture and mesh are deleted as well, so be careful.
+     * (if they are shared with something else, they are only deleted once that is deleted too)
      * @param model the GPU model to delete
      */
     void deleteGPUModel(GPUModel model);
@@ -333,6 +385,86 @@ public interface Render {
 
     int getNumChunkSlots();
 
+    /**
+     * @return the number of chunks that were inside the view frustum last frame.
+     */
+    int getNumVisibleChunks();
+
+    /**
+     * @return the number of chunks that were skipped last frame because they were outside the view frustum.
+     */
+    int getNumCulledChunks();
+
+    /**
+     * turns frustum culling of chunks on or off. It's on by default.
+     */
+    void setFrustumCulling(boolean cull);
+
+    /**
+     * sets how much chunk mesh uploading can happen each frame. Chunks that don't fit in the budget are uploaded in later frames, closest first.
+     * By default, it's a quarter of the target frame time and 4MiB.
+     * @param seconds the maximum time spent uploading each frame
+     * @param bytes the maximum number of bytes uploaded each frame
+     */
+    void setUploadBudget(double seconds, long bytes);
+
+    /**
+     * @return the number of chunks that had finished meshes waiting to be uploaded at the end of last frame.
+     */
+    int getUploadQueueDepth();
+
+    /**
+     * @return the number of bytes of chunk meshes uploaded last frame.
+     */
+    long getFrameUploadBytes();
+
+    /**
+     * @return the number of draw calls made last frame.
+     */
+    int getNumDrawCalls();
+
+    /**
+     * @return the number of shader, texture, and mesh binds made last frame.
+     */
+    int getNumStateChanges();
+
+    /**
+     * @return the number of chunks inside the view frustum that were skipped last frame because nothing see-through connects them to the camera.
+     */
+    int getNumOccludedChunks();
+
+    /**
+     * turns occlusion culling of chunks on or off. It's on by default.
+     */
+    void setOcclusionCulling(boolean cull);
+
+    /**
+     * @return the object that decides which level of detail chunks are meshed at, which is also where the LOD stats are.
+     * LOD is off by default, turn it on with getChunkLod().setEnabled(true).
+     */
+    ChunkLod getChunkLod();
+
+    /**
+     * @return the cache that lets identical chunks share meshes instead of building them again, which is also where its stats are.
+     */
+    ChunkMeshCache getChunkMeshCache();
+
+    /**
+     * @return the cache that makes sure identical textures, meshes, and shaders are only on the GPU once.
+     * It also has the counts and sizes of everything that's currently loaded, to help find leaks.
+     */
+    GPUResourceCache getResourceCache();
+
+    /**
+     * @return how many chunks per second are being marked as needing to be rebuilt, averaged over about a second.
+     */
+    double getChunkEnqueueRate();
+
+    /**
+     * @return how many chunks per second are being sent off to be rebuilt, averaged over about a second.
+     */
+    double getChunkDequeueRate();
+
     /**
      * completely resets and rebuilds every chunk, removing any ghost blocks.
      * this *should* never have to be called, but the functionality is there in case it's needed.
@@ -368,6 +500,20 @@ public interface Render {
      */
     boolean meshOnScreen(CPUMesh mesh, Matrix4f meshTransform, Matrix4f viewMatrix, Matrix4f projectionMatrix, float x, float y);
 
+    /**
+     * Tests many transforms of the same mesh against a point on the screen at once. Much faster than calling meshOnScreen for each one.
+     *
+     * @param mesh the mesh to test
+     * @param viewProjection the projection matrix multiplied by the view matrix
+     * @param transforms the mesh transforms, 16 floats each in column-major order (the layout Matrix4f.get(float[]) uses)
+     * @param count the number of transforms
+     * @param x the x position on the screen to test collision
+     * @param y the y position on the screen to test collision
+     * @param hits gets the index of each transform that would appear on the point. Must have room for count indices.
+     * @return the number of transforms that would appear on the point.
+     */
+    int meshesOnScreen(CPUMesh mesh, Matrix4f viewProjection, float[] transforms, int count, float x, float y, int[] hits);
+
 
 
     /**
@@ -416,6 +562,13 @@ public interface Render {
      */
     double render();
 
+    /**
+     * renders a frame made by the simulation thread (see FramePipeline): the camera and entities are moved to where the snapshot has them,
+     * and only the chunks it marked as visible are drawn.
+     * @return the time it took to render the frame in seconds.
+     */
+    double render(FrameSnapshot frame);
+
 
     static Matrix4f getBlockTransform(Matrix4f dest, int cx, int cy, int cz, int bx, int by, int bz, int chunkSize){
         //pretty simple stuff... That is, compared to the other crazy things I've had to do with this project.
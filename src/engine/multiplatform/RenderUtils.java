@@ -1,7 +1,9 @@
 package engine.multiplatform;
 
 import game.world.World;
+import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 import org.joml.Vector3i;
 
 import java.text.NumberFormat;
@@ -11,10 +13,24 @@ public class RenderUtils {
 
     //if I were using C or C++ I could use stack allocated objects, but Java has no such thing so in order to save memory I gotta do this madness.
     //I'm using Java because it's a much better programming experience - soooo much easier than C or C++.
-    private static final Vector3f[] tempsf = new Vector3f[]{new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), };
-    private static final Vector3i[] tempsi = new Vector3i[]{new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), };
-    private static int tempfIndex;
-    private static int tempiIndex;
+    //each thread gets its own, since the simulation and render threads both use these at the same time.
+    private static final ThreadLocal<Temps> temps = ThreadLocal.withInitial(Temps::new);
+
+    private static class Temps {
+        private final Vector3f[] f = new Vector3f[]{new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f(), };
+        private final Vector3i[] i = new Vector3i[]{new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), new Vector3i(), };
+        private final Matrix4f mat = new Matrix4f();
+        private int fIndex;
+        private int iIndex;
+
+        private Vector3f nextf(){
+            return f[fIndex = (fIndex+1)%f.length];
+        }
+
+        private Vector3i nexti(){
+            return i[iIndex = (iIndex+1)%i.length];
+        }
+    }
 
     /**
      * converts a world position into a chunk position.
@@ -22,7 +38,7 @@ public class RenderUtils {
      * @return the chunk pos. Note: this value may change unexpectedly, it is recommended to create a new copy of it if it will be needed for something later.
      */
     public static Vector3i getChunkPos(Vector3f worldPos){
-        return tempsi[tempiIndex = (tempiIndex+1)%tempsi.length].set((int)Math.round(worldPos.x/(World.CHUNK_SIZE*0.288675134595)-0.5), (int)Math.round(worldPos.y/(World.CHUNK_SIZE*0.5)-0.5), (int)Math.round(worldPos.z/(World.CHUNK_SIZE*0.5)-0.5));
+        return temps.get().nexti().set((int)Math.round(worldPos.x/(World.CHUNK_SIZE*0.288675134595)-0.5), (int)Math.round(worldPos.y/(World.CHUNK_SIZE*0.5)-0.5), (int)Math.round(worldPos.z/(World.CHUNK_SIZE*0.5)-0.5));
     }
 
     /**
@@ -31,7 +47,7 @@ public class RenderUtils {
      * @return the world pos of the chunk. Note: this value may change unexpectedly, it is recommended to create a new copy of it if it will be needed for something later.
      */
     public static Vector3f getChunkWorldPos(Vector3i chunkPos){
-        return tempsf[tempfIndex = (tempfIndex+1)%tempsf.length].set((chunkPos.x+0.5f)*(World.CHUNK_SIZE*0.288675134595f), (chunkPos.y+0.5f)*(World.CHUNK_SIZE*0.5f), (chunkPos.z+0.5f)*(World.CHUNK_SIZE*0.5f));
+        return temps.get().nextf().set((chunkPos.x+0.5f)*(World.CHUNK_SIZE*0.288675134595f), (chunkPos.y+0.5f)*(World.CHUNK_SIZE*0.5f), (chunkPos.z+0.5f)*(World.CHUNK_SIZE*0.5f));
     }
 
     /**
@@ -39,7 +55,7 @@ public class RenderUtils {
      * @return the world pos of the chunk. Note: this value may change unexpectedly, it is recommended to create a new copy of it if it will be needed for something later.
      */
     public static Vector3f getChunkWorldPos(int x, int y, int z){
-        return tempsf[tempfIndex = (tempfIndex+1)%tempsf.length].set((x+0.5f)*(World.CHUNK_SIZE*0.288675134595f), (y+0.5f)*(World.CHUNK_SIZE*0.5f), (z+0.5f)*(World.CHUNK_SIZE*0.5f));
+        return temps.get().nextf().set((x+0.5f)*(World.CHUNK_SIZE*0.288675134595f), (y+0.5f)*(World.CHUNK_SIZE*0.5f), (z+0.5f)*(World.CHUNK_SIZE*0.5f));
     }
 
     /**
@@ -48,7 +64,7 @@ public class RenderUtils {
      * @return the block position. Note: this value may change unexpectedly, it is recommended to create a new copy of it if it will be needed for something later.
      */
     public static Vector3i getBlockPos(Vector3f worldPos){
-        return tempsi[tempiIndex = (tempiIndex+1)%tempsi.length].set((int)Math.round(worldPos.x/0.288675134595-0.5), (int)Math.round(worldPos.y/0.5-0.5), (int)Math.round(worldPos.z/0.5-0.5));
+        return temps.get().nexti().set((int)Math.round(worldPos.x/0.288675134595-0.5), (int)Math.round(worldPos.y/0.5-0.5), (int)Math.round(worldPos.z/0.5-0.5));
     }
 
     /**
@@ -57,7 +73,7 @@ public class RenderUtils {
      * @return the world position of that block. Note: this value may change unexpectedly, it is recommended to create a new copy of it if it will be needed for something later.
      */
     public static Vector3f getBlockWorldPos(Vector3i blockPos){
-        return tempsf[tempfIndex = (tempfIndex+1)%tempsf.length].set((blockPos.x+0.5f)*0.288675134595f, (blockPos.y+0.5f)*0.5f, (blockPos.z+0.5f)*0.5f);
+        return temps.get().nextf().set((blockPos.x+0.5f)*0.288675134595f, (blockPos.y+0.5f)*0.5f, (blockPos.z+0.5f)*0.5f);
     }
 
     /**
@@ -65,7 +81,34 @@ public class RenderUtils {
      * @return the world position of that block. Note: this value may change unexpectedly, it is recommended to create a new copy of it if it will be needed for something later.
      */
     public static Vector3f getBlockWorldPos(int x, int y, int z){
-        return tempsf[tempfIndex = (tempfIndex+1)%tempsf.length].set((x+0.5f)*0.288675134595f, (y+0.5f)*0.5f, (z+0.5f)*0.5f);
+        return temps.get().nextf().set((x+0.5f)*0.288675134595f, (y+0.5f)*0.5f, (z+0.5f)*0.5f);
+    }
+
+    /**
+     * gets the ray that starts at the camera and goes through a point on the screen.
+     * @param x the x position on the screen, [-1, 1]
+     * @param y the y position on the screen, [-1, 1]
+     * @param origin gets set to the camera position
+     * @param direction gets set to the normalized direction of the ray
+     */
+    public static void getScreenRay(Matrix4f projectionMatrix, Matrix4f viewMatrix, float x, float y, Vector3f origin, Vector3f direction){
+        //The far plane is so far away that un-projecting a point on it divides by 0,
+        // so the direction comes from a point on the near plane in view space, where the camera is at (0, 0, 0).
+        Matrix4f tempMat = temps.get().mat;
+        projectionMatrix.invert(tempMat).transformProject(x, y, -1, direction);
+        viewMatrix.invert(tempMat);
+        tempMat.getTranslation(origin);
+        tempMat.transformDirection(direction).normalize();
+    }
+
+    /**
+     * gets the view matrix of a camera, which moves things from world space to where they are relative to the camera.
+     * @param dest the matrix to put it in
+     * @return dest
+     */
+    public static Matrix4f getViewMatrix(Matrix4f dest, Vector3fc position, Vector3fc rotation){
+        return dest.rotationX(rotation.x()).rotateY(rotation.y()).rotateZ(rotation.z())
+                .translate(-position.x(), -position.y(), -position.z());
     }
 
     public static String betterVectorToString(Vector3f vec, int sigFigs){
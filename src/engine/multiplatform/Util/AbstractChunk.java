@@ -0,0 +1,282 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.RenderUtils;
+import engine.multiplatform.gpu.GPUBlock;
+import engine.multiplatform.gpu.GPUChunk;
+import org.joml.Vector3i;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The part of a chunk that is the same for every Render backend: its blocks, building it, its level of detail and visibility,
+ * and handing finished builds over to be uploaded.
+ * A backend only has to say how the meshes of a build get onto the GPU, how they are drawn, and how they are deleted.
+ * The chunks themselves are kept track of by a ChunkManager.
+ */
+public abstract class AbstractChunk implements GPUChunk {
+    protected final ChunkManager manager;
+    protected final Vector3i pos;
+    protected final int size;
+    private GPUBlock[][][] blocks;
+    public boolean canRender;
+
+    //the meshes of a finished build, along with what they were built at
+    private record Build(List<ChunkMesher.Section> sections, int lod, int fullIndices){}
+    //chunks can be built on the simulation thread (from setBlock) while the render thread uploads the last build,
+    // so whichever thread takes a build out with getAndSet is the only one that uploads or releases it.
+    private final AtomicReference<Build> pendingBuild = new AtomicReference<>();
+    //which faces can see each other, used for occlusion culling. Until the chunk is built, assume it can be seen through.
+    private volatile long visibility = ChunkVisibility.ALL;
+    //the level of detail the next build uses (see ChunkLod)
+    private volatile int lod;
+    private int builtLod;
+    private int indexCount;
+    private int fullIndexCount;
+    private long gpuBytes;
+
+    public volatile boolean taskScheduled;
+    //set while the chunk is waiting in the manager's DirtyChunkQueue
+    public final AtomicBoolean queued = new AtomicBoolean();
+    //set while a thread is building the chunk. Builds claim it with compareAndSet, so only one runs at a time.
+    public final AtomicBoolean taskRunning = new AtomicBoolean();
+    //set once the chunk is deleted, so anything still holding it knows not to build it again
+    private volatile boolean deleted;
+
+    protected AbstractChunk(ChunkManager manager, int size, GPUBlock[][][] blocks, int xPos, int yPos, int zPos){
+        checkSize(blocks, size);
+        this.manager = manager;
+        this.blocks = blocks;
+        this.size = size;
+        this.pos = new Vector3i(xPos, yPos, zPos);
+    }
+
+    private static void checkSize(GPUBlock[][][] blocks, int size){
+        if(blocks != null && (blocks.length != size || blocks[0].length != size || blocks[0][0].length != size)){
+            throw new IllegalStateException("a chunk's data cannot be any other size than " + size + "," +
+                    "\n but the data given has dimensions (" + blocks.length + ", " + blocks[0].length + ", " + blocks[0][0].length + ")");
+        }
+    }
+
+    /**
+     * makes the meshes of a build into the backend's own meshes. The old ones were already cleared with clearFromGPU().
+     * The sections are released after this, so the backend has to copy anything it keeps.
+     * @return the number of bytes sent to the GPU
+     */
+    protected abstract long upload(List<ChunkMesher.Section> sections);
+
+    /**
+     * adds the chunk's meshes to the frame's draw list.
+     */
+    public abstract void addDraws(DrawList drawList);
+
+    /**
+     * clears the vertex data from the GPU.
+     */
+    public abstract void clearFromGPU();
+
+    @Override
+    public Vector3i getPos() {
+        return pos;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public long getVisibility() {
+        return visibility;
+    }
+
+    @Override
+    public void setData(GPUBlock[][][] blocks, boolean buildImmediately){
+        checkSize(blocks, size);
+        this.blocks = blocks;
+        scheduleBuild(buildImmediately);
+    }
+
+    @Override
+    public void setBlock(GPUBlock block, int x, int y, int z, boolean buildImmediately){
+        if(blocks == null) blocks = new GPUBlock[size][size][size];
+        blocks[x][y][z] = block;
+        scheduleBuild(buildImmediately);
+    }
+
+    private void scheduleBuild(boolean buildImmediately){
+        //this is usually the simulation thread. If another thread is building the chunk right now, the render builds it again afterwards instead.
+        //taskScheduled is set by the manager once the build is actually submitted, setting it here would make it wait for a build that never comes
+        if((!buildImmediately || !this.tryBuild(manager.getChunks())) && !deleted) manager.updateChunk(this);
+        manager.updateAdjacentChunks(this.pos);
+    }
+
+    @Override
+    public GPUBlock getBlock(int x, int y, int z){
+        if(blocks != null)return this.blocks[x][y][z];
+        else return null;
+    }
+
+    @Override
+    public void delete(){
+        if(!manager.deleteChunk(this)){
+            RenderUtils.activeRender.printErrln("Attempted to delete nonexistent chunk");
+        }
+    }
+
+    /**
+     * @return true if the chunk was deleted. Deleted chunks are never built again.
+     */
+    public boolean isDeleted(){
+        return deleted;
+    }
+
+    //only the manager deletes chunks
+    void markDeleted(){
+        deleted = true;
+    }
+
+    /**
+     * frees the meshes from the last build if they haven't been sent to the GPU yet. Used when the chunk is deleted.
+     */
+    public void releaseSections(){
+        Build build = pendingBuild.getAndSet(null);
+        if(build != null) ChunkMesher.release(build.sections);
+    }
+
+    /**
+     * @return true if the chunk has finished building and its meshes are waiting to be sent to the GPU.
+     */
+    public boolean hasPendingUpload(){
+        Build build = pendingBuild.get();
+        return !taskRunning.get() && !taskScheduled && build != null && build.sections.size() > 0;
+    }
+
+    /**
+     * sends the meshes from the last build to the GPU, replacing the old ones.
+     * @return the number of bytes sent to the GPU
+     */
+    public long sendToGPU(){
+        if (!hasPendingUpload()) return 0;
+        Build build = pendingBuild.getAndSet(null);
+        if(build == null) return 0; //released by deleting the chunk in the meantime
+        int indices = 0;
+        for (ChunkMesher.Section section : build.sections) {
+            indices += section.getMesh().indexCount;
+        }
+        clearFromGPU();
+        long bytes = upload(build.sections);
+        this.builtLod = build.lod;
+        this.indexCount = indices;
+        this.fullIndexCount = build.fullIndices < 0 ? indices : build.fullIndices;
+        this.gpuBytes = bytes;
+        //the GPU has its own copy now
+        ChunkMesher.release(build.sections);
+        this.canRender = true;
+        return bytes;
+    }
+
+    /**
+     * the build the manager submits once it takes the chunk out of its DirtyChunkQueue.
+     * If another thread is already building the chunk, it goes back in the queue so the newest blocks still get built.
+     * @param chunks the map of chunk positions to chunk objects to get adjacent chunks from
+     */
+    public void build(Map<Vector3i, GPUChunk> chunks) {
+        boolean built = tryBuild(chunks);
+        taskScheduled = false;
+        //a deleted chunk doesn't go back in the queue, nothing would ever take it out and release it
+        if(!built && !deleted) manager.updateChunk(this);
+    }
+
+    /**
+     * builds the chunk on this thread, unless another thread is already building it.
+     * @param chunks the map of chunk positions to chunk objects to get adjacent chunks from
+     * A chunk that is deleted while it builds throws the build away.
+     * @return false if the chunk was already being built, so nothing was done.
+     */
+    public boolean tryBuild(Map<Vector3i, GPUChunk> chunks) {
+        if (!taskRunning.compareAndSet(false, true)) return false;
+        try {
+            GPUBlock[][][] blocks = this.blocks;
+            if (blocks != null) {
+                int level = lod;
+                //identical chunks share their meshes through the cache
+                ChunkMeshCache.Entry meshes = manager.getMeshCache().build(this, blocks, size, chunks, level);
+                Build old = pendingBuild.getAndSet(new Build(meshes.sections, level, meshes.fullIndices));
+                if(old != null) ChunkMesher.release(old.sections); //the last build was never uploaded
+                //if the chunk was deleted in the meantime, chunksToClear may already be done with it, so nothing else would release this build
+                if(deleted) releaseSections();
+            }
+            visibility = ChunkVisibility.compute(blocks, size);
+        } finally {
+            taskRunning.set(false);
+        }
+        return true;
+    }
+
+    /**
+     * @return the level of detail this chunk will be built at next time.
+     */
+    public int getLod() {
+        return lod;
+    }
+
+    /**
+     * changes the level of detail and schedules a rebuild, if it's different from the current one.
+     */
+    public void setLod(int lod) {
+        if(this.lod == lod) return;
+        this.lod = lod;
+        manager.updateChunk(this);
+    }
+
+    /**
+     * @return the level of detail of the meshes that are currently on the GPU.
+     */
+    public int getBuiltLod() {
+        return builtLod;
+    }
+
+    /**
+     * @return the number of indices in the meshes that are currently on the GPU.
+     */
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * @return the number of indices the meshes would have at full detail.
+     */
+    public int getFullIndexCount() {
+        return fullIndexCount;
+    }
+
+    /**
+     * @return the size of the meshes that are currently on the GPU.
+     */
+    public long getGpuBytes() {
+        return gpuBytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if(o instanceof GPUChunk c) {
+            return this.pos.equals(c.getPos());
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pos);
+    }
+
+    public String toString(){
+        return pos + " b:" + taskRunning + " s:" + taskScheduled + " r:" + canRender;
+    }
+}
@@ -0,0 +1,128 @@
+package engine.multiplatform.Util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Saves a generated atlas to a file, so the next time the same textures are put into an atlas it can be loaded instead of packed and drawn again.
+ * The file is keyed by a hash of the textures and the packing settings. If they don't match, or the file is missing or broken,
+ * the atlas is just generated again and the file replaced.
+ * There is one file per resources folder, holding the last atlas that was generated there.
+ *
+ * Only the atlas image and where each texture went in it are saved. The mesh UVs are transformed from those every time,
+ * so the meshes don't need to be part of the key. Only the parts of the atlas with textures in them (and their padding) are saved.
+ *
+ * File layout (little-endian):
+ *   magic "VAC0", version, key (2 longs), atlas width, atlas height, padding, number of textures placed,
+ *   then for each texture: index, x, y, width, height, and the pixels of that part of the atlas with the padding around it,
+ *   4 bytes each in the order of BufferedImage.TYPE_4BYTE_ABGR
+ */
+public class AtlasCache {
+    public static final String FILE_NAME = "atlas.cache";
+    private static final int MAGIC = 'V' | 'A' << 8 | 'C' << 16 | '0' << 24;
+    private static final int VERSION = 2;
+
+    /**
+     * an atlas loaded from a cache file.
+     */
+    public record Atlas(BufferedImage image, Map<Integer, Rectangle> rectangles){}
+
+    /**
+     * @return the key for an atlas of these textures.
+     */
+    public static ContentHash.Key key(BufferedImage[] textures, int padding){
+        ContentHash hash = new ContentHash().add(VERSION).add(padding).add(textures.length);
+        for(BufferedImage texture: textures){
+            GPUResourceCache.addImage(hash, texture);
+        }
+        return hash.finish();
+    }
+
+    /**
+     * loads an atlas from a cache file.
+     * @param key the key of the atlas that is needed
+     * @param print where to print why the file couldn't be used, if it's there but broken
+     * @return the atlas, or null if the file doesn't exist or has a different atlas in it.
+     */
+    public static Atlas load(File file, ContentHash.Key key, PrintStream print){
+        if(!file.isFile()) return null;
+        try {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+            if(data.getInt() != MAGIC || data.getInt() != VERSION) return null;
+            if(data.getLong() != key.hash1() || data.getLong() != key.hash2()) return null;
+            int width = data.getInt();
+            int height = data.getInt();
+            int padding = data.getInt();
+            int count = data.getInt();
+            if(width <= 0 || height <= 0 || padding < 0 || count < 0) throw new IOException("the atlas is the wrong size");
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+            byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            Map<Integer, Rectangle> rectangles = new TreeMap<>();
+            for(int i=0; i<count; i++){
+                int index = data.getInt();
+                Rectangle rect = new Rectangle(data.getInt(), data.getInt(), data.getInt(), data.getInt());
+                Rectangle cell = cell(rect, padding);
+                if(rect.width < 0 || rect.height < 0 || cell.x < 0 || cell.y < 0 || cell.x + cell.width > width || cell.y + cell.height > height){
+                    throw new IOException("texture " + index + " is outside the atlas");
+                }
+                for(int y=cell.y; y<cell.y+cell.height; y++){
+                    data.get(pixels, (y*width + cell.x)*4, cell.width*4);
+                }
+                rectangles.put(index, rect);
+            }
+            return new Atlas(image, rectangles);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e){
+            print.println("Unable to use atlas cache " + file + ", the atlas will be generated again: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * saves an atlas to a cache file, replacing whatever was there.
+     * @param image the atlas. It has to be a TYPE_4BYTE_ABGR image, which is what AtlasGenerator makes.
+     * @param rectangles where each texture is in the atlas, by its index
+     * @param padding how many pixels around each texture belong to it
+     */
+    public static void save(File file, ContentHash.Key key, BufferedImage image, Map<Integer, Rectangle> rectangles, int padding, PrintStream print){
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int width = image.getWidth();
+        long size = 40;
+        for(Rectangle rect: rectangles.values()) size += 20 + (rect.width + 2L*padding) * (rect.height + 2L*padding) * 4;
+        ByteBuffer data = ByteBuffer.allocate((int)size).order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(MAGIC).putInt(VERSION).putLong(key.hash1()).putLong(key.hash2());
+        data.putInt(width).putInt(image.getHeight()).putInt(padding).putInt(rectangles.size());
+        for(Map.Entry<Integer, Rectangle> entry: rectangles.entrySet()){
+            Rectangle rect = entry.getValue();
+            data.putInt(entry.getKey()).putInt(rect.x).putInt(rect.y).putInt(rect.width).putInt(rect.height);
+            Rectangle cell = cell(rect, padding);
+            for(int y=cell.y; y<cell.y+cell.height; y++){
+                data.put(pixels, (y*width + cell.x)*4, cell.width*4);
+            }
+        }
+        //written to a temporary file first, so a crash while saving doesn't leave half an atlas behind
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(temp.toPath(), data.array());
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e){
+            print.println("Unable to save atlas cache " + file + ": " + e);
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+        }
+    }
+
+    private static Rectangle cell(Rectangle rect, int padding){
+        return new Rectangle(rect.x - padding, rect.y - padding, rect.width + 2*padding, rect.height + 2*padding);
+    }
+}
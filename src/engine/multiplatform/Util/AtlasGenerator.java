@@ -4,12 +4,18 @@ import engine.multiplatform.model.CPUMesh;
 import engine.multiplatform.model.CPUModel;
 
 import java.awt.*;
+import java.io.File;
 import java.io.PrintStream;
 import java.util.*;
 import java.awt.image.*;
 import java.util.List;
 
 public class AtlasGenerator{
+    //how many pixels around each texture are filled with its edge pixels, so they don't blend with their neighbours when the atlas is mipmapped.
+    //GL33Texture samples with GL_NEAREST, so none are needed yet.
+    public static final int PADDING = 0;
+    //the biggest atlas that will be made. GL 3.3 only promises 1024, but the hardware it runs on (Direct3D 10 class) has to support 8192.
+    public static final int MAX_SIZE = 8192;
 
     /**
      * places the textures into an atlas,
@@ -20,22 +26,18 @@ public class AtlasGenerator{
      *
      * @param textures the textures to use.
      * @param meshes the meshes to use.
+     * @param cache the file to cache the atlas in (see AtlasCache), or null to always generate it.
+     * @param debug where to print the size of the atlas and how much of it is used.
      * @return the output array of CPUModel.
      */
-    public static CPUModel[] generateCPUModels(BufferedImage[] textures, CPUMesh[] meshes, PrintStream print){
+    public static CPUModel[] generateCPUModels(BufferedImage[] textures, CPUMesh[] meshes, File cache, PrintStream print, PrintStream debug){
         if(meshes.length != textures.length){
             throw new IllegalStateException("meshes and textures differ in length.");
         }
         for(int i=0; i< meshes.length; i++){
             meshes[i] = meshes[i].clone();
         }
-        int totalWidth = 0;
-        int totalHeight = 0;
-        for(BufferedImage tex: textures){
-            totalWidth += tex.getWidth();
-            totalHeight += tex.getHeight();
-        }
-        return Run(totalWidth*2, totalHeight*2, 0, true, textures, meshes, print);
+        return generate(textures, meshes, cache, print, debug);
     }
 
 
@@ -46,20 +48,18 @@ public class AtlasGenerator{
      * the same index of texture and mesh are linked together into a model
      *
      * @param models the list of models to be atlassed.
+     * @param cache the file to cache the atlas in (see AtlasCache), or null to always generate it.
+     * @param debug where to print the size of the atlas and how much of it is used.
      * @return the output array of CPUModel.
      */
-    public static CPUModel[] generateCPUModels(CPUModel[] models, PrintStream print){
+    public static CPUModel[] generateCPUModels(CPUModel[] models, File cache, PrintStream print, PrintStream debug){
+        BufferedImage[] textures = new BufferedImage[models.length];
+        CPUMesh[] meshes = new CPUMesh[models.length];
         for(int i=0; i< models.length; i++){
-            models[i] = models[i].clone();
-        }
-        int totalWidth = 0;
-        int totalHeight = 0;
-        for(CPUModel mod: models){
-            BufferedImage tex = mod.texture;
-            totalWidth += tex.getWidth();
-            totalHeight += tex.getHeight();
+            textures[i] = models[i].texture;
+            meshes[i] = models[i].mesh.clone();
         }
-        return Run(totalWidth*2, totalHeight*2, 0, true, models, print);
+        return generate(textures, meshes, cache, print, debug);
     }
     /**
      * places the textures into an atlas,
@@ -70,9 +70,11 @@ public class AtlasGenerator{
      *
      * @param textures the textures to use.
      * @param meshes the meshes to use.
+     * @param cache the file to cache the atlas in (see AtlasCache), or null to always generate it.
+     * @param debug where to print the size of the atlas and how much of it is used.
      * @return the output array of CPUModel.
      */
-    public static List<CPUModel> generateCPUModels(List<BufferedImage> textures, List<CPUMesh> meshes, PrintStream print){
+    public static List<CPUModel> generateCPUModels(List<BufferedImage> textures, List<CPUMesh> meshes, File cache, PrintStream print, PrintStream debug){
         if(meshes.size() != textures.size()){
             throw new IllegalStateException("meshes and textures differ in length.");
         }
@@ -80,13 +82,7 @@ public class AtlasGenerator{
         for(int i=0; i< meshes.size(); i++){
             newMeshes[i] = meshes.get(i).clone();
         }
-        int totalWidth = 0;
-        int totalHeight = 0;
-        for(BufferedImage mod: textures){
-            totalWidth += mod.getWidth();
-            totalHeight += mod.getHeight();
-        }
-        return Arrays.asList(Run(totalWidth*2, totalHeight*2, 0, true, textures.toArray(new BufferedImage[0]), newMeshes, print));
+        return Arrays.asList(generate(textures.toArray(new BufferedImage[0]), newMeshes, cache, print, debug));
     }
 
 
@@ -97,62 +93,77 @@ public class AtlasGenerator{
      * the same index of texture and mesh are linked together into a model
      *
      * @param models the list of models to be atlassed.
+     * @param cache the file to cache the atlas in (see AtlasCache), or null to always generate it.
+     * @param debug where to print the size of the atlas and how much of it is used.
      * @return the output array of CPUModel.
      */
-    public static List<CPUModel> generateCPUModels(List<CPUModel> models, PrintStream print){
-        CPUModel[] newModels = new CPUModel[models.size()];
-        for(int i=0; i< models.size(); i++){
-            newModels[i] = models.get(i).clone();
-        }
-        int totalWidth = 0;
-        int totalHeight = 0;
-        for(CPUModel mod: models){
-            BufferedImage tex = mod.texture;
-            totalWidth += tex.getWidth();
-            totalHeight += tex.getHeight();
-        }
-        return Arrays.asList(Run(totalWidth*2, totalHeight*2, 0, true, newModels, print));
-
+    public static List<CPUModel> generateCPUModels(List<CPUModel> models, File cache, PrintStream print, PrintStream debug){
+        return Arrays.asList(generateCPUModels(models.toArray(new CPUModel[0]), cache, print, debug));
     }
 
-    public static CPUModel[] Run(int width, int height, int padding, boolean ignoreErrors, BufferedImage[] images, CPUMesh[] meshes, PrintStream print)
-    {
-        Set<ImageName> imageNameSet = new TreeSet<>(new ImageNameComparator());
+    //the meshes have to be copies already, since their UVs are edited
+    private static CPUModel[] generate(BufferedImage[] textures, CPUMesh[] meshes, File cache, PrintStream print, PrintStream debug){
+        Texture atlas = generateAtlas(textures, cache, print, debug);
+        return atlas.Write(atlas.getWidth(), atlas.getHeight(), meshes);
+    }
 
-        for(int i=0; i<images.length; i++)
-        {
-            BufferedImage image = images[i];
-            imageNameSet.add(new ImageName(image, i));
+    /**
+     * places the textures into an atlas, without making any models from it.
+     * Use Texture.Write to transform the UVs of the meshes that go with the textures, and Texture.AddModel to add more later.
+     *
+     * @param cache the file to cache the atlas in (see AtlasCache), or null to always generate it.
+     * @param debug where to print the size of the atlas and how much of it is used.
+     */
+    public static Texture generateAtlas(BufferedImage[] textures, File cache, PrintStream print, PrintStream debug){
+        ContentHash.Key key = cache == null ? null : AtlasCache.key(textures, PADDING);
+        AtlasCache.Atlas cached = key == null ? null : AtlasCache.load(cache, key, print);
+        Texture atlas;
+        if(cached != null){
+            atlas = new Texture(cached.image(), cached.rectangles(), PADDING);
+        } else {
+            atlas = Texture.packPowerOfTwo(textures, PADDING, MAX_SIZE, print);
+            if(key != null) AtlasCache.save(cache, key, atlas.image, atlas.rectangleMap, PADDING, print);
         }
+        debug.printf("%s a %dx%d atlas of %d textures, %.1f%% used%n", cached != null ? "loaded" : "generated",
+                atlas.getWidth(), atlas.getHeight(), textures.length, atlas.getOccupancy() * 100);
+        return atlas;
+    }
 
+    public static CPUModel[] Run(int width, int height, int padding, boolean ignoreErrors, BufferedImage[] images, CPUMesh[] meshes, PrintStream print)
+    {
         Texture atlas = new Texture(width, height);
-
-        for(ImageName imageName : imageNameSet)
-        {
-            if(!atlas.AddImage(imageName.image, imageName.index, padding))
-            {
-                if(!ignoreErrors)
-                    throw new RuntimeException("unable to add image " + imageName.index + " to the atlas!");
-                else
-                    print.println("unable to add image " + imageName.index + " to the atlas!");
-            }
-        }
+        addImages(atlas, sort(images), padding, ignoreErrors, print);
         return atlas.Write(width, height, meshes);
     }
 
 
     public static CPUModel[] Run(int width, int height, int padding, boolean ignoreErrors, CPUModel[] models, PrintStream print)
+    {
+        BufferedImage[] images = new BufferedImage[models.length];
+        for(int i=0; i<models.length; i++)
+        {
+            images[i] = models[i].texture;
+        }
+        Texture atlas = new Texture(width, height);
+        addImages(atlas, sort(images), padding, ignoreErrors, print);
+        return atlas.Write(width, height, models);
+    }
+
+    //biggest first, since the packer does best when the small ones fill in the gaps left by the big ones
+    private static Set<ImageName> sort(BufferedImage[] images)
     {
         Set<ImageName> imageNameSet = new TreeSet<>(new ImageNameComparator());
 
-        for(int i=0; i<models.length; i++)
+        for(int i=0; i<images.length; i++)
         {
-            BufferedImage image = models[i].texture;
+            BufferedImage image = images[i];
             imageNameSet.add(new ImageName(image, i));
         }
+        return imageNameSet;
+    }
 
-        Texture atlas = new Texture(width, height);
-
+    private static void addImages(Texture atlas, Set<ImageName> imageNameSet, int padding, boolean ignoreErrors, PrintStream print)
+    {
         for(ImageName imageName : imageNameSet)
         {
             if(!atlas.AddImage(imageName.image, imageName.index, padding))
@@ -163,7 +174,6 @@ public class AtlasGenerator{
                     print.println("unable to add image " + imageName.index + " to the atlas!");
             }
         }
-        return atlas.Write(width, height, models);
     }
 
     private static class ImageName
@@ -198,104 +208,171 @@ public class AtlasGenerator{
 
     public static class Texture
     {
-        private static class Node
+        private final BufferedImage image;
+        private final Graphics2D graphics;
+        private final AtlasPacker packer;
+        private final TreeMap<Integer, Rectangle> rectangleMap;
+        private long paddedArea;
+
+        public Texture(int width, int height)
         {
-            public Rectangle rect;
-            public Node[] child;
-            public BufferedImage image;
+            this(new AtlasPacker(width, height));
+        }
 
-            public Node(int x, int y, int width, int height)
+        private Texture(AtlasPacker packer)
+        {
+            this.packer = packer;
+            image = new BufferedImage(packer.getWidth(), packer.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
+            graphics = image.createGraphics();
+            rectangleMap = new TreeMap<>();
+        }
+
+        /**
+         * an atlas that was already generated, like one loaded from an AtlasCache.
+         * @param image the atlas. It has to be a TYPE_4BYTE_ABGR image for more images to be added to it.
+         * @param padding the padding the textures were added with, so the space around them isn't given to anything else.
+         */
+        public Texture(BufferedImage image, Map<Integer, Rectangle> rectangles, int padding)
+        {
+            this.image = image;
+            graphics = image.createGraphics();
+            packer = new AtlasPacker(image.getWidth(), image.getHeight());
+            rectangleMap = new TreeMap<>(rectangles);
+            for(Rectangle rect: rectangles.values())
             {
-                rect = new Rectangle(x, y, width, height);
-                child = new Node[2];
-                child[0] = null;
-                child[1] = null;
-                image = null;
+                Rectangle cell = new Rectangle(rect.x - padding, rect.y - padding, rect.width + 2*padding, rect.height + 2*padding);
+                packer.reserve(cell);
+                paddedArea += cell.width * (long)cell.height;
             }
+        }
 
-            public boolean IsLeaf()
+        /**
+         * makes the smallest power of two atlas that all of the images fit in (see AtlasPacker.packPowerOfTwo) and adds them to it.
+         * If they don't fit even in a maxSize atlas, as many as fit are added to one, and the rest are printed out.
+         * @param padding how many pixels around each image to fill with its edge pixels.
+         */
+        public static Texture packPowerOfTwo(BufferedImage[] images, int padding, int maxSize, PrintStream print)
+        {
+            Set<ImageName> sorted = sort(images);
+            int[] widths = new int[images.length];
+            int[] heights = new int[images.length];
+            int i = 0;
+            for(ImageName imageName : sorted)
+            {
+                widths[i] = imageName.image.getWidth() + 2*padding;
+                heights[i] = imageName.image.getHeight() + 2*padding;
+                i++;
+            }
+            AtlasPacker packer = AtlasPacker.packPowerOfTwo(widths, heights, maxSize);
+            if(packer == null)
+            {
+                Texture atlas = new Texture(maxSize, maxSize);
+                addImages(atlas, sorted, padding, true, print);
+                return atlas;
+            }
+            Texture atlas = new Texture(packer);
+            i = 0;
+            for(ImageName imageName : sorted)
             {
-                return child[0] == null && child[1] == null;
+                atlas.draw(imageName.image, imageName.index, packer.getPlaced().get(i), padding);
+                i++;
             }
+            return atlas;
+        }
+
+        public boolean AddImage(BufferedImage image, int index, int padding)
+        {
+            Rectangle cell = packer.insert(image.getWidth() + 2*padding, image.getHeight() + 2*padding);
 
-            // Algorithm from http://www.blackpawn.com/texts/lightmaps/
-            public Node Insert(BufferedImage image, int padding)
+            if(cell == null)
             {
-                if(!IsLeaf())
-                {
-                    Node newNode = child[0].Insert(image, padding);
+                return false;
+            }
 
-                    if(newNode != null)
-                    {
-                        return newNode;
-                    }
+            draw(image, index, cell, padding);
+            return true;
+        }
 
-                    return child[1].Insert(image, padding);
-                }
-                else
-                {
-                    if(this.image != null)
-                    {
-                        return null; // occupied
-                    }
-
-                    if(image.getWidth() > rect.width || image.getHeight() > rect.height)
-                    {
-                        return null; // does not fit
-                    }
-
-                    if(image.getWidth() == rect.width && image.getHeight() == rect.height)
-                    {
-                        this.image = image; // perfect fit
-                        return this;
-                    }
-
-                    int dw = rect.width - image.getWidth();
-                    int dh = rect.height - image.getHeight();
-
-                    if(dw > dh)
-                    {
-                        child[0] = new Node(rect.x, rect.y, image.getWidth(), rect.height);
-                        child[1] = new Node(padding + rect.x + image.getWidth(), rect.y, rect.width - image.getWidth() - padding, rect.height);
-                    }
-                    else
-                    {
-                        child[0] = new Node(rect.x, rect.y, rect.width, image.getHeight());
-                        child[1] = new Node(rect.x, padding + rect.y + image.getHeight(), rect.width, rect.height - image.getHeight() - padding);
-                    }
-
-                    return child[0].Insert(image, padding);
-                }
+        //draws the image in the middle of its cell, and copies its edges out to the sides of the cell
+        private void draw(BufferedImage image, int index, Rectangle cell, int padding)
+        {
+            Rectangle rect = new Rectangle(cell.x + padding, cell.y + padding, image.getWidth(), image.getHeight());
+            rectangleMap.put(index, rect);
+            graphics.drawImage(image, null, rect.x, rect.y);
+            paddedArea += cell.width * (long)cell.height;
+            if(padding == 0 || rect.width == 0 || rect.height == 0) return;
+
+            WritableRaster raster = this.image.getRaster();
+            Object top = raster.getDataElements(rect.x, rect.y, rect.width, 1, null);
+            Object bottom = raster.getDataElements(rect.x, rect.y + rect.height - 1, rect.width, 1, null);
+            for(int p=1; p<=padding; p++)
+            {
+                raster.setDataElements(rect.x, rect.y - p, rect.width, 1, top);
+                raster.setDataElements(rect.x, rect.y + rect.height - 1 + p, rect.width, 1, bottom);
+            }
+            //the columns include the rows that were just filled in, so the corners get the corner pixels
+            Object left = raster.getDataElements(rect.x, cell.y, 1, cell.height, null);
+            Object right = raster.getDataElements(rect.x + rect.width - 1, cell.y, 1, cell.height, null);
+            for(int p=1; p<=padding; p++)
+            {
+                raster.setDataElements(rect.x - p, cell.y, 1, cell.height, left);
+                raster.setDataElements(rect.x + rect.width - 1 + p, cell.y, 1, cell.height, right);
             }
         }
 
-        private final BufferedImage image;
-        private final Graphics2D graphics;
-        private final Node root;
-        private final Map<Integer, Rectangle> rectangleMap;
+        /**
+         * adds another model's texture to the free space in the atlas, without moving any of the textures already in it.
+         * @param index the index to put the texture under, usually nextIndex()
+         * @return a copy of the model that uses the atlas, or null if there isn't room for its texture.
+         */
+        public CPUModel AddModel(CPUModel model, int index, int padding)
+        {
+            if(!AddImage(model.texture, index, padding))
+            {
+                return null;
+            }
+            CPUMesh mesh = model.mesh.clone();
+            transformUVs(mesh.UVCoords, rectangleMap.get(index), image.getWidth(), image.getHeight());
+            return new CPUModel(mesh, this.image);
+        }
 
-        public Texture(int width, int height)
+        /**
+         * @return the index after the highest one in the atlas.
+         */
+        public int nextIndex()
         {
-            image = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
-            graphics = image.createGraphics();
+            return rectangleMap.isEmpty() ? 0 : rectangleMap.lastKey() + 1;
+        }
 
-            root = new Node(0, 0, width, height);
-            rectangleMap = new TreeMap<>();
+        /**
+         * @return where the texture with that index is in the atlas, not including its padding.
+         */
+        public Rectangle getRectangle(int index)
+        {
+            return rectangleMap.get(index);
         }
 
-        public boolean AddImage(BufferedImage image, int index, int padding)
+        public BufferedImage getImage()
         {
-            Node node = root.Insert(image, padding);
+            return image;
+        }
 
-            if(node == null)
-            {
-                return false;
-            }
+        public int getWidth()
+        {
+            return image.getWidth();
+        }
 
-            rectangleMap.put(index, node.rect);
-            graphics.drawImage(image, null, node.rect.x, node.rect.y);
+        public int getHeight()
+        {
+            return image.getHeight();
+        }
 
-            return true;
+        /**
+         * @return how much of the atlas has textures and their padding in it, from 0 to 1.
+         */
+        public float getOccupancy()
+        {
+            return paddedArea / (float)(image.getWidth() * (long)image.getHeight());
         }
 
         public CPUModel[] Write(int width, int height, CPUMesh[] meshes)
@@ -303,16 +380,8 @@ public class AtlasGenerator{
             CPUModel[] out = new CPUModel[meshes.length];
             for(Map.Entry<Integer, Rectangle> UVMapping : rectangleMap.entrySet())
             {
-                Rectangle rect = UVMapping.getValue();
-                float rx = (float)rect.x/width;
-                float ry = (float)rect.y/height;
-                float rw = (float)rect.width/width;
-                float rh = (float)rect.height/height;
                 int keyVal = UVMapping.getKey();
-                for(int i=0; i<meshes[keyVal].UVCoords.length/2; i++){
-                    meshes[keyVal].UVCoords[2*i  ] = meshes[keyVal].UVCoords[2*i  ]*rw+rx;
-                    meshes[keyVal].UVCoords[2*i+1] = meshes[keyVal].UVCoords[2*i+1]*rh+ry;
-                }
+                transformUVs(meshes[keyVal].UVCoords, UVMapping.getValue(), width, height);
                 out[keyVal] = new CPUModel(meshes[keyVal], this.image);
             }
             return out;
@@ -322,19 +391,23 @@ public class AtlasGenerator{
             CPUModel[] out = new CPUModel[models.length];
             for(Map.Entry<Integer, Rectangle> UVMapping : rectangleMap.entrySet())
             {
-                Rectangle rect = UVMapping.getValue();
-                float rx = (float)rect.x/width;
-                float ry = (float)rect.y/height;
-                float rw = (float)rect.width/width;
-                float rh = (float)rect.height/height;
                 int keyVal = UVMapping.getKey();
-                for(int i=0; i<models[keyVal].mesh.UVCoords.length/2; i++){
-                    models[keyVal].mesh.UVCoords[2*i  ] = models[keyVal].mesh.UVCoords[2*i  ]*rw+rx;
-                    models[keyVal].mesh.UVCoords[2*i+1] = models[keyVal].mesh.UVCoords[2*i+1]*rh+ry;
-                }
+                transformUVs(models[keyVal].mesh.UVCoords, UVMapping.getValue(), width, height);
                 out[keyVal] = new CPUModel(models[keyVal].mesh, this.image);
             }
             return out;
         }
+
+        private static void transformUVs(float[] UVCoords, Rectangle rect, int width, int height)
+        {
+            float rx = (float)rect.x/width;
+            float ry = (float)rect.y/height;
+            float rw = (float)rect.width/width;
+            float rh = (float)rect.height/height;
+            for(int i=0; i<UVCoords.length/2; i++){
+                UVCoords[2*i  ] = UVCoords[2*i  ]*rw+rx;
+                UVCoords[2*i+1] = UVCoords[2*i+1]*rh+ry;
+            }
+        }
     }
 }
@@ -0,0 +1,139 @@
+package engine.multiplatform.Util;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs rectangles into an atlas using the MaxRects algorithm (best short side fit),
+ * from "A Thousand Ways to Pack the Bin" by Jukka Jylanki.
+ *
+ * It keeps a list of every free rectangle that is as big as it can be. They overlap each other,
+ * so a new rectangle can go anywhere it fits, instead of only where an earlier split left room for it like a binary tree packer.
+ * Rectangles can be inserted at any time, so an atlas can have more textures added to it later.
+ */
+public class AtlasPacker {
+    private final int width;
+    private final int height;
+    private final List<Rectangle> free = new ArrayList<>();
+    private final List<Rectangle> placed = new ArrayList<>();
+    private long usedArea;
+
+    public AtlasPacker(int width, int height){
+        this.width = width;
+        this.height = height;
+        free.add(new Rectangle(0, 0, width, height));
+    }
+
+    /**
+     * finds the smallest power of two atlas that all of the rectangles fit in, trying them in the order given.
+     * The sizes go 1x1, 2x1, 2x2, 4x2, and so on, skipping any that are too small to possibly fit, so the atlas is square or twice as wide as it is tall.
+     * @param maxSize the biggest the atlas can be on either side.
+     * @return the packer with every rectangle in it, or null if they don't fit in maxSize by maxSize.
+     */
+    public static AtlasPacker packPowerOfTwo(int[] widths, int[] heights, int maxSize){
+        long area = 0;
+        int maxWidth = 1;
+        int maxHeight = 1;
+        for(int i=0; i<widths.length; i++){
+            area += widths[i] * (long)heights[i];
+            maxWidth = Math.max(maxWidth, widths[i]);
+            maxHeight = Math.max(maxHeight, heights[i]);
+        }
+        int width = 1;
+        int height = 1;
+        while(width <= maxSize && height <= maxSize){
+            if(width >= maxWidth && height >= maxHeight && width * (long)height >= area){
+                AtlasPacker packer = new AtlasPacker(width, height);
+                boolean fits = true;
+                for(int i=0; i<widths.length && fits; i++){
+                    fits = packer.insert(widths[i], heights[i]) != null;
+                }
+                if(fits) return packer;
+            }
+            if(width > height) height *= 2;
+            else width *= 2;
+        }
+        return null;
+    }
+
+    /**
+     * places a rectangle into the free space.
+     * @return where it went, or null if there isn't room for it.
+     */
+    public Rectangle insert(int rectWidth, int rectHeight){
+        Rectangle best = null;
+        int bestShort = Integer.MAX_VALUE;
+        int bestLong = Integer.MAX_VALUE;
+        for(Rectangle space: free){
+            if(space.width < rectWidth || space.height < rectHeight) continue;
+            int leftoverX = space.width - rectWidth;
+            int leftoverY = space.height - rectHeight;
+            int shortSide = Math.min(leftoverX, leftoverY);
+            int longSide = Math.max(leftoverX, leftoverY);
+            if(shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)){
+                best = new Rectangle(space.x, space.y, rectWidth, rectHeight);
+                bestShort = shortSide;
+                bestLong = longSide;
+            }
+        }
+        if(best == null) return null;
+        place(best);
+        return best;
+    }
+
+    /**
+     * marks a rectangle as used without looking for space for it, for putting back rectangles that were packed before, like from an AtlasCache.
+     */
+    public void reserve(Rectangle used){
+        place(new Rectangle(used));
+    }
+
+    //cuts the rectangle out of every free rectangle it overlaps, then removes the free rectangles that ended up inside others
+    private void place(Rectangle used){
+        List<Rectangle> split = new ArrayList<>();
+        for(int i=free.size()-1; i>=0; i--){
+            Rectangle space = free.get(i);
+            if(!space.intersects(used)) continue;
+            free.remove(i);
+            if(used.x > space.x) split.add(new Rectangle(space.x, space.y, used.x - space.x, space.height));
+            if(used.x + used.width < space.x + space.width) split.add(new Rectangle(used.x + used.width, space.y, space.x + space.width - used.x - used.width, space.height));
+            if(used.y > space.y) split.add(new Rectangle(space.x, space.y, space.width, used.y - space.y));
+            if(used.y + used.height < space.y + space.height) split.add(new Rectangle(space.x, used.y + used.height, space.width, space.y + space.height - used.y - used.height));
+        }
+        free.addAll(split);
+        for(int i=free.size()-1; i>=0; i--){
+            Rectangle space = free.get(i);
+            for(int j=0; j<free.size(); j++){
+                if(i != j && free.get(j).contains(space)){
+                    free.remove(i);
+                    break;
+                }
+            }
+        }
+        placed.add(used);
+        usedArea += used.width * (long)used.height;
+    }
+
+    /**
+     * @return every rectangle that has been inserted, in the order they were inserted.
+     */
+    public List<Rectangle> getPlaced(){
+        return placed;
+    }
+
+    public int getWidth(){
+        return width;
+    }
+
+    public int getHeight(){
+        return height;
+    }
+
+    /**
+     * @return how much of the atlas has rectangles in it, from 0 to 1.
+     */
+    public float getOccupancy(){
+        return usedArea / (float)(width * (long)height);
+    }
+}
@@ -1,88 +1,151 @@
 package engine.multiplatform.Util;
 
 import engine.multiplatform.model.CPUMesh;
+import engine.multiplatform.model.DirectMesh;
+import org.lwjgl.system.MemoryUtil;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 
+/**
+ * Puts block meshes together into one mesh. The vertices are written straight into native memory that grows as blocks are added,
+ * and getDirectMesh() hands that memory to the mesh without copying it, so nothing about the mesh is ever on the Java heap.
+ * A builder can only make one mesh. If it's thrown away without making one, call free().
+ */
 public class CPUMeshBuilder {
-    private final List<Vertex> vertices;
-    private final List<Integer> indices;
+    private static final int INITIAL_VERTICES = 256;
 
+    private final boolean tiled;
+    private FloatBuffer positions;
+    private FloatBuffer UVCoords;
+    private IntBuffer tiles;
+    private IntBuffer indices;
+    private int vertexCount;
+    private int indexCount;
+    private int capacity;
 
     public CPUMeshBuilder(){
-        vertices = new ArrayList<>();
-        this.indices = new ArrayList<>();
+        this(false);
+    }
 
+    /**
+     * @param tiled true if the blocks' UVs are in tile space (see TileArray), to pack each vertex's UV into one int.
+     */
+    public CPUMeshBuilder(boolean tiled){
+        this.tiled = tiled;
+        this.capacity = INITIAL_VERTICES;
+        this.positions = MemoryUtil.memAllocFloat(capacity * 3);
+        if(tiled) this.tiles = MemoryUtil.memAllocInt(capacity);
+        else this.UVCoords = MemoryUtil.memAllocFloat(capacity * 2);
+        this.indices = MemoryUtil.memAllocInt(capacity);
     }
 
     public void addBlockMeshToChunk(CPUMesh mesh, int x, int y, int z, byte blockedFaces){
+        addBlockMeshToChunk(mesh, x, y, z, blockedFaces, 1);
+    }
+
+    /**
+     * adds a block that is scale times bigger than normal, for level of detail meshes.
+     * x, y, and z are positions on a lattice that is scale times bigger than the normal one,
+     * shifted so each big block sits over the normal blocks it replaces.
+     */
+    public void addBlockMeshToChunk(CPUMesh mesh, int x, int y, int z, byte blockedFaces, int scale){
+        if(positions == null) throw new IllegalStateException("Attempted to add to a CPUMeshBuilder after its mesh was made");
         if((~blockedFaces & 0b11111) == 0){
             return; //if all the faces are blocked, just skip the voxel completely.
         }
-        float mirror = ((x + z) & 1) - 0.5f; //it's upside down or not (-1 if it needs to be mirrored on the Z axis)
+        float mirror = (((x + z) & 1) - 0.5f) * scale; //it's upside down or not (-1 if it needs to be mirrored on the Z axis)
+        float size = 0.5f * scale;
+        float offsetX = (x * scale + (scale-1) * 0.5f) * 0.288675134595f;
+        float offsetY = y * size;
+        float offsetZ = z * size + (scale-1) * 0.25f;
         float[] posits = mesh.positions;
         float[] UVCoords = mesh.UVCoords;
         int[] indices = mesh.indices;
         byte[] removable = mesh.removableTriangles;
+        ensureCapacity(vertexCount + indices.length);
         //for each index in the meshes indices
         for (int i = 0; i < indices.length; i++) {
             if ((removable[i / 3] & blockedFaces) != 0) {
                 continue; // Skip this index if it should be removed
             }
             int ind = indices[i];
-            //get its vertex
-            Vertex vertex = new Vertex(
-                    posits[3 * ind] * 0.5f + x * 0.288675134595f,
-                    posits[3 * ind + 1] * 0.5f + y * 0.5f,
-                    posits[3 * ind + 2] * mirror + z * 0.5f,
-                    UVCoords[2 * ind],
-                    UVCoords[2 * ind + 1]
-            );
-            int index = vertices.indexOf(vertex);
-            if (index != -1) {
-                //if that vertex already exist, add its index
-                this.indices.add(index);
+            //every index gets its own vertex. The old version looked for an equal vertex to reuse first,
+            // but vertices were compared by identity so it never found one, it only made building slower.
+            this.positions.put(3 * vertexCount    , posits[3 * ind] * size + offsetX);
+            this.positions.put(3 * vertexCount + 1, posits[3 * ind + 1] * size + offsetY);
+            this.positions.put(3 * vertexCount + 2, posits[3 * ind + 2] * mirror + offsetZ);
+            if(tiled){
+                this.tiles.put(vertexCount, TileArray.encode(UVCoords[2 * ind], UVCoords[2 * ind + 1]));
             } else {
-                //if it doesn't exist, add it and add its index
-                this.vertices.add(vertex);
-                this.indices.add(vertices.size() - 1);
+                this.UVCoords.put(2 * vertexCount    , UVCoords[2 * ind]);
+                this.UVCoords.put(2 * vertexCount + 1, UVCoords[2 * ind + 1]);
             }
+            this.indices.put(indexCount++, vertexCount++);
         }
     }
 
+    //grows the buffers to fit a number of vertices, doubling them so adding blocks one at a time doesn't copy too often
+    private void ensureCapacity(int vertices){
+        if(vertices <= capacity) return;
+        capacity = Math.max(capacity * 2, vertices);
+        resize(capacity);
+    }
+
+    private void resize(int vertices){
+        //the allocation is never 0 bytes, since some allocators return null for that
+        int size = Math.max(vertices, 1);
+        positions = MemoryUtil.memRealloc(positions, size * 3);
+        if(tiled) tiles = MemoryUtil.memRealloc(tiles, size);
+        else UVCoords = MemoryUtil.memRealloc(UVCoords, size * 2);
+        indices = MemoryUtil.memRealloc(indices, size);
+    }
+
+    /**
+     * makes the mesh, and frees it again after copying it to the heap. Only for things that really need a CPUMesh,
+     * chunks use getDirectMesh().
+     */
     public CPUMesh getMesh(){
-        float[] positions = new float[vertices.size()*3];
-        float[] UVCoords = new float[vertices.size()*2];
-        for (int i = 0; i < vertices.size(); i++) {
-            Vertex vertex = vertices.get(i);
-            positions[3 * i    ] = vertex.x;
-            positions[3 * i + 1] = vertex.y;
-            positions[3 * i + 2] = vertex.z;
-            UVCoords [2 * i    ] = vertex.tx;
-            UVCoords [2 * i + 1] = vertex.ty;
-        }
-        int[] indices = new int[this.indices.size()];
-        List<Integer> integers = this.indices;
-        for (int i = 0; i < integers.size(); i++) {
-            indices[i] = this.indices.get(i);
+        DirectMesh mesh = getDirectMesh();
+        try {
+            return mesh.toCPUMesh();
+        } finally {
+            mesh.release();
         }
-        return new CPUMesh(positions, UVCoords, indices);
     }
 
-    private static class Vertex{
-        public Vertex(float x, float y, float z, float tx, float ty) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-            this.tx = tx;
-            this.ty = ty;
-        }
+    /**
+     * turns the native memory the blocks were written into into a mesh, without copying it.
+     * The builder can't be used after this, and the mesh has to be released once it's no longer needed.
+     */
+    public DirectMesh getDirectMesh(){
+        if(positions == null) throw new IllegalStateException("Attempted to make a mesh from a CPUMeshBuilder twice");
+        //shrinking to the exact size is done in place by most allocators, so it's cheap
+        resize(vertexCount);
+        positions.limit(vertexCount * 3);
+        if(tiled) tiles.limit(vertexCount);
+        else UVCoords.limit(vertexCount * 2);
+        indices.limit(indexCount);
+        DirectMesh mesh = new DirectMesh(positions, UVCoords, tiles, indices);
+        positions = null;
+        UVCoords = null;
+        tiles = null;
+        indices = null;
+        return mesh;
+    }
 
-        public float x;
-        public float y;
-        public float z;
-        public float tx;
-        public float ty;
+    /**
+     * frees the memory of a builder that never made a mesh. Does nothing if it did.
+     */
+    public void free(){
+        if(positions == null) return;
+        MemoryUtil.memFree(positions);
+        MemoryUtil.memFree(UVCoords);
+        MemoryUtil.memFree(tiles);
+        MemoryUtil.memFree(indices);
+        positions = null;
+        UVCoords = null;
+        tiles = null;
+        indices = null;
     }
 }
@@ -0,0 +1,111 @@
+package engine.multiplatform.Util;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+
+/**
+ * Decides which chunks are inside the camera's view frustum, so that the Render can skip drawing the ones that aren't.
+ * It doesn't touch any render API, so it works the same in every backend.
+ *
+ * Usage: call update() once at the start of each frame, then isVisible() for each chunk.
+ * The visible and culled counts are reset by update(), so after the frame they tell what happened during it.
+ */
+public class ChunkCuller {
+    //how far the boxes are grown on every side, in world units. Block meshes stick out of the chunk's box a bit:
+    // a triangle is two X spacings wide, so blocks on the low X edge reach 0.289 past it, and the mirrored triangles reach 0.25 past it on Z.
+    // Level of detail blocks (see ChunkLod) are bigger, at the lowest detail they reach 0.722 past it on X.
+    // Without the padding, a chunk whose box is just off screen could still have those edges on screen and get culled.
+    private static final float PADDING = 0.75f;
+
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private final Matrix4f tempMat = new Matrix4f();
+    private final Vector3f tempMin = new Vector3f();
+    private final Vector3f tempMax = new Vector3f();
+    private boolean enabled = true;
+    private int visibleChunks;
+    private int culledChunks;
+
+    /**
+     * sets up the frustum for a new frame and resets the counters.
+     */
+    public void update(Matrix4f projectionMatrix, Matrix4f viewMatrix){
+        frustum.set(projectionMatrix.mul(viewMatrix, tempMat), false);
+        visibleChunks = 0;
+        culledChunks = 0;
+    }
+
+    /**
+     * tests if a chunk might be visible, and counts the result.
+     * @param chunkPos the chunk position
+     * @param chunkSize the size of the chunk
+     * @return false if the chunk is definitely out of view, true otherwise.
+     */
+    public boolean isVisible(Vector3i chunkPos, int chunkSize){
+        if(!enabled || testChunk(chunkPos, chunkSize)){
+            visibleChunks++;
+            return true;
+        }
+        culledChunks++;
+        return false;
+    }
+
+    /**
+     * counts the result of a test that was already done somewhere else, like by the simulation thread for a FrameSnapshot.
+     * @return visible
+     */
+    public boolean count(boolean visible){
+        if(visible) visibleChunks++;
+        else culledChunks++;
+        return visible;
+    }
+
+    /**
+     * tests if a chunk is in the frustum without counting it.
+     */
+    public boolean testChunk(Vector3i chunkPos, int chunkSize){
+        getChunkBounds(chunkPos, chunkSize, tempMin, tempMax);
+        return frustum.testAab(tempMin, tempMax);
+    }
+
+    /**
+     * gets the world space bounding box of a chunk, including the padding for blocks sticking out of it.
+     * @param chunkPos the chunk position
+     * @param chunkSize the size of the chunk
+     * @param min gets set to the minimum corner
+     * @param max gets set to the maximum corner
+     */
+    public static void getChunkBounds(Vector3i chunkPos, int chunkSize, Vector3f min, Vector3f max){
+        //same math as RenderUtils.getChunkWorldPos, except for the corners instead of the center
+        float sizeX = chunkSize*0.288675134595f;
+        float sizeYZ = chunkSize*0.5f;
+        min.set(chunkPos.x*sizeX - PADDING, chunkPos.y*sizeYZ - PADDING, chunkPos.z*sizeYZ - PADDING);
+        max.set((chunkPos.x+1)*sizeX + PADDING, (chunkPos.y+1)*sizeYZ + PADDING, (chunkPos.z+1)*sizeYZ + PADDING);
+    }
+
+    /**
+     * when culling is disabled, every chunk is visible. Useful for checking if culling is causing problems.
+     */
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * @return the number of chunks that passed the test since the last update()
+     */
+    public int getVisibleChunks(){
+        return visibleChunks;
+    }
+
+    /**
+     * @return the number of chunks that were culled since the last update()
+     */
+    public int getCulledChunks(){
+        return culledChunks;
+    }
+}
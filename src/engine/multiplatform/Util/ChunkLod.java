@@ -0,0 +1,125 @@
+package engine.multiplatform.Util;
+
+/**
+ * Decides which level of detail each chunk is meshed at, and keeps track of how much it saves.
+ * Level 0 is full detail, level 1 merges 2x2x2 blocks into one, level 2 merges 4x4x4.
+ * Chunks further from the camera than band[i] use level i+1.
+ *
+ * To keep chunks from constantly rebuilding when the camera moves back and forth across a band,
+ * a chunk only moves to a more detailed level once it's hysteresis units closer than the band.
+ *
+ * The stats are per level, and are counted each frame by the render for every chunk that has a mesh.
+ * fullIndices is how many indices those same chunks would have at full detail, so the savings are fullIndices - indices.
+ */
+public class ChunkLod {
+    public static final int MAX_LEVEL = 2;
+
+    private volatile boolean enabled = false;
+    private volatile float[] bands = {96, 192};
+    private volatile float hysteresis = 8;
+
+    private final int[] chunks = new int[MAX_LEVEL+1];
+    private final long[] indices = new long[MAX_LEVEL+1];
+    private final long[] fullIndices = new long[MAX_LEVEL+1];
+    private final long[] bytes = new long[MAX_LEVEL+1];
+
+    /**
+     * @param current the level the chunk is currently at
+     * @param distance the distance from the camera to the center of the chunk
+     * @return the level the chunk should be at
+     */
+    public int chooseLevel(int current, float distance){
+        if(!enabled) return 0;
+        float[] bands = this.bands;
+        int level = 0;
+        int stayLevel = 0;
+        for(int i=0; i<bands.length; i++){
+            if(distance > bands[i]) level++;
+            if(distance > bands[i] - hysteresis) stayLevel++;
+        }
+        //only go back to more detail once it's comfortably inside the band
+        return Math.max(level, Math.min(current, stayLevel));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * turns LOD on or off. Chunks are moved to the new level the next time they are checked.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param bands the distances (in world units) where each level starts. bands[0] is where level 1 starts, etc.
+     * @param hysteresis how far inside a band the camera has to be before a chunk goes back to a more detailed level.
+     */
+    public void setBands(float[] bands, float hysteresis){
+        if(bands.length > MAX_LEVEL){
+            throw new IllegalArgumentException("there can only be " + MAX_LEVEL + " LOD bands, but " + bands.length + " were given");
+        }
+        this.bands = bands.clone();
+        this.hysteresis = hysteresis;
+    }
+
+    public float[] getBands() {
+        return bands.clone();
+    }
+
+    /**
+     * clears the stats, call at the start of each frame before counting chunks.
+     */
+    public void resetStats(){
+        for(int i=0; i<=MAX_LEVEL; i++){
+            chunks[i] = 0;
+            indices[i] = 0;
+            fullIndices[i] = 0;
+            bytes[i] = 0;
+        }
+    }
+
+    /**
+     * adds a chunk to the stats
+     * @param level the level it was built at
+     * @param indices the number of indices in its meshes
+     * @param fullIndices the number of indices it would have at full detail
+     * @param bytes the size of its meshes
+     */
+    public void count(int level, int indices, int fullIndices, long bytes){
+        this.chunks[level]++;
+        this.indices[level] += indices;
+        this.fullIndices[level] += fullIndices;
+        this.bytes[level] += bytes;
+    }
+
+    public int getChunks(int level) {
+        return chunks[level];
+    }
+
+    public long getIndices(int level) {
+        return indices[level];
+    }
+
+    public long getFullIndices(int level) {
+        return fullIndices[level];
+    }
+
+    public long getBytes(int level) {
+        return bytes[level];
+    }
+
+    /**
+     * @return a short summary of each level, for debug text.
+     */
+    public String getStatsString(){
+        StringBuilder b = new StringBuilder("LOD ").append(enabled ? "on" : "off");
+        for(int i=0; i<=MAX_LEVEL; i++){
+            b.append(" | ").append(i).append(": ").append(chunks[i]).append(" chunks, ")
+                    .append(indices[i]/3).append('/').append(fullIndices[i]/3).append(" tris, ")
+                    .append(bytes[i]/1024).append("KB");
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,227 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.RenderUtils;
+import engine.multiplatform.gpu.GPUChunk;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import util.other.ReadOnlyMap;
+import util.other.SnapshotMap;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps track of a Render's chunks, and does everything with them that doesn't depend on the backend:
+ * sending changed chunks off to be built, culling, level of detail, uploading finished builds, and deleting them.
+ * Every backend has one of these, so they all run the same chunk code.
+ * The backend only calls it at the right times in its frame, and makes the chunks (see AbstractChunk).
+ */
+public class ChunkManager {
+    //at most this fraction of the target frame time is spent uploading chunk meshes each frame.
+    private static final double UPLOAD_FRAME_FRACTION = 0.25;
+    private static final long DEFAULT_UPLOAD_BYTES = 4 << 20;
+
+    private final SnapshotMap<Vector3i, GPUChunk> chunks = new SnapshotMap<>();
+    private final DirtyChunkQueue<AbstractChunk> dirtyChunks = new DirtyChunkQueue<>(c -> c.queued);
+    private final List<AbstractChunk> chunksToClear = new CopyOnWriteArrayList<>();
+    private final ExecutorService buildExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    private final Vector3f cameraPosition;
+    private final ChunkCuller culler = new ChunkCuller();
+    private final OcclusionCuller occlusionCuller = new OcclusionCuller();
+    private final ChunkLod lod = new ChunkLod();
+    private final ChunkMeshCache meshCache = new ChunkMeshCache(ChunkMeshCache.DEFAULT_MAX_BYTES);
+    private final ChunkUploadQueue uploadQueue;
+
+    /**
+     * @param cameraPosition the render's camera position. It's read every frame, so it has to be the same object the render changes.
+     */
+    public ChunkManager(Vector3f cameraPosition){
+        this.cameraPosition = cameraPosition;
+        this.uploadQueue = new ChunkUploadQueue(cameraPosition, 0, DEFAULT_UPLOAD_BYTES);
+    }
+
+    /**
+     * sets how long uploading chunks can take each frame, as a fraction of the frame time.
+     */
+    public void setTargetFrameTime(double targetFrameTime){
+        uploadQueue.setBudget(targetFrameTime * UPLOAD_FRAME_FRACTION, DEFAULT_UPLOAD_BYTES);
+    }
+
+    /**
+     * stops the chunk build threads.
+     */
+    public void shutdown(){
+        buildExecutor.shutdownNow();
+    }
+
+    /**
+     * adds a new chunk, replacing the one that was at its position.
+     * @param buildImmediately true to build it on this thread, false to build it on the chunk build threads
+     */
+    public synchronized void spawnChunk(AbstractChunk chunk, boolean buildImmediately){
+        chunks.put(chunk.getPos(), chunk);
+        if(buildImmediately){
+            chunk.tryBuild(chunks);
+        } else {
+            dirtyChunks.add(chunk);
+        }
+        updateAdjacentChunks(chunk.getPos());
+    }
+
+    /**
+     * removes a chunk. Chunks are usually unloaded by the simulation thread, but their GPU objects can only be deleted on the render thread,
+     * so they are cleared at the end of the next frame.
+     * @return true if the chunk was there to be removed
+     */
+    public synchronized boolean deleteChunk(AbstractChunk c){
+        //the chunk might be out of the queue being handled right now, where remove() can't find it. The flag makes sure it isn't built anyway.
+        c.markDeleted();
+        boolean a = dirtyChunks.remove(c);
+        boolean b = chunks.remove(c.getPos()) != null;
+        chunksToClear.add(c);
+        return a || b;
+    }
+
+    public GPUChunk getChunk(Vector3i pos){
+        return chunks.get(pos);
+    }
+
+    public boolean hasChunk(Vector3i pos){
+        return chunks.containsKey(pos);
+    }
+
+    /**
+     * @return the map of chunks, which can't be changed from the outside.
+     */
+    public ReadOnlyMap<Vector3i, GPUChunk> getChunks(){
+        return new ReadOnlyMap<>(chunks);
+    }
+
+    public int getNumChunks(){
+        return chunks.size();
+    }
+
+    /**
+     * schedules a chunk to be re-built.
+     */
+    public void updateChunk(AbstractChunk c){
+        dirtyChunks.add(c);
+    }
+
+    /**
+     * schedules all the chunks adjacent to the chunk at a position to be re-built.
+     * @param pos the chunk position to update the adjacent chunks.
+     */
+    public void updateAdjacentChunks(Vector3i pos){
+        Vector3i temp = new Vector3i();
+        updateChunkIfExists(temp.set(pos.x - 1, pos.y, pos.z));
+        updateChunkIfExists(temp.set(pos.x, pos.y - 1, pos.z));
+        updateChunkIfExists(temp.set(pos.x, pos.y, pos.z - 1));
+        updateChunkIfExists(temp.set(pos.x + 1, pos.y, pos.z));
+        updateChunkIfExists(temp.set(pos.x, pos.y + 1, pos.z));
+        updateChunkIfExists(temp.set(pos.x, pos.y, pos.z + 1));
+    }
+
+    private void updateChunkIfExists(Vector3i pos){
+        AbstractChunk c = (AbstractChunk) chunks.get(pos);
+        if (c != null) dirtyChunks.add(c);
+    }
+
+    /**
+     * schedules every chunk to be re-built.
+     */
+    public void rebuildChunks(){
+        chunks.forEach((pos, chunk) -> dirtyChunks.add((AbstractChunk) chunk));
+    }
+
+    /**
+     * culls the chunks and adds the ones that are in view to the draw list. Chunks that aren't are still sent to the GPU so they are ready once they come into view.
+     * Also picks each chunk's level of detail, and queues finished builds to be uploaded by upload().
+     * @param frame the snapshot the frame is drawing, or null if there isn't one
+     */
+    public void addDraws(DrawList drawList, Matrix4f projectionMatrix, Matrix4f viewMatrix, FrameSnapshot frame){
+        culler.update(projectionMatrix, viewMatrix);
+        occlusionCuller.update(chunks, cameraPosition, culler);
+        lod.resetStats();
+        chunks.forEach((pos, chunk) -> {
+            AbstractChunk c = (AbstractChunk)chunk;
+            //switching levels rebuilds the chunk, the old meshes are drawn until the new ones are uploaded.
+            c.setLod(lod.chooseLevel(c.getLod(), RenderUtils.getChunkWorldPos(pos).distance(cameraPosition)));
+            if(c.canRender) lod.count(c.getBuiltLod(), c.getIndexCount(), c.getFullIndexCount(), c.getGpuBytes());
+            if(c.hasPendingUpload()) uploadQueue.add(c);
+            if(c.canRender && (frame != null ? culler.count(frame.isChunkVisible(pos)) : culler.isVisible(pos, c.getSize())) && occlusionCuller.isVisible(pos)){
+                c.addDraws(drawList);
+            }
+        });
+    }
+
+    /**
+     * uploads the builds queued by addDraws, closest first, as far as the budget goes.
+     * Call it after the draw list is executed, so the meshes being replaced aren't deleted while they're still in the draw list.
+     */
+    public void upload(){
+        uploadQueue.process(chunk -> ((AbstractChunk)chunk).sendToGPU());
+    }
+
+    /**
+     * sends the chunks that changed off to be built, and clears deleted chunks from the GPU. Called by the render thread once per frame.
+     * @param time the time the frame started, in seconds
+     */
+    public void update(double time){
+        dirtyChunks.drain(c -> {
+            if (c.isDeleted()) return true; //dropped, chunksToClear releases it
+            if (c.taskScheduled || c.taskRunning.get()) return false; //try again next frame
+            c.taskScheduled = true;
+            buildExecutor.submit(() -> c.build(chunks));
+            return true;
+        });
+        dirtyChunks.updateRates(time);
+
+        chunksToClear.removeIf(c -> {
+            if(c.taskScheduled || c.taskRunning.get()) return false;
+            c.clearFromGPU();
+            c.releaseSections();
+            return true;
+        });
+    }
+
+    /**
+     * @return true if no chunk is waiting to be built, in the middle of building, or waiting to be cleared.
+     */
+    public boolean isIdle(){
+        if(!dirtyChunks.isEmpty() || !chunksToClear.isEmpty()) return false;
+        for(GPUChunk chunk: chunks.values().toArray(new GPUChunk[0])){
+            AbstractChunk c = (AbstractChunk)chunk;
+            if(c.taskScheduled || c.taskRunning.get()) return false;
+        }
+        return true;
+    }
+
+    public ChunkCuller getCuller() {
+        return culler;
+    }
+
+    public OcclusionCuller getOcclusionCuller() {
+        return occlusionCuller;
+    }
+
+    public ChunkLod getLod() {
+        return lod;
+    }
+
+    public ChunkMeshCache getMeshCache() {
+        return meshCache;
+    }
+
+    public ChunkUploadQueue getUploadQueue() {
+        return uploadQueue;
+    }
+
+    public DirtyChunkQueue<AbstractChunk> getDirtyChunks() {
+        return dirtyChunks;
+    }
+}
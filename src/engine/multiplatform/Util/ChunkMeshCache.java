@@ -0,0 +1,212 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.gpu.GPUBlock;
+import engine.multiplatform.gpu.GPUChunk;
+import org.joml.Vector3i;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the meshes of recently built chunks, so identical chunks don't have to be meshed again.
+ * This happens a lot: chunks that unload and load again, and the many chunks that are completely solid or completely empty.
+ *
+ * Chunks are looked up by a hash of their contents: every block in the chunk, the blocked faces of the blocks on the edges
+ * (since those depend on the neighboring chunks), and the level of detail.
+ * The hash is 128 bits, so two different chunks getting the same hash isn't something that will ever actually happen.
+ * Chunk meshes don't depend on where the chunk is, since the chunk's position is applied when it's rendered.
+ *
+ * When the meshes take up more than the maximum number of bytes, the ones that were used least recently are removed.
+ * It's safe to use from multiple chunk build threads at once.
+ */
+public class ChunkMeshCache {
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /**
+     * the result of building a chunk.
+     */
+    public static class Entry {
+        public final List<ChunkMesher.Section> sections;
+        /**
+         * the number of indices the chunk would have at full detail, or -1 if the meshes already are full detail.
+         */
+        public final int fullIndices;
+        public final long bytes;
+
+        private Entry(List<ChunkMesher.Section> sections, int fullIndices){
+            this.sections = sections;
+            this.fullIndices = fullIndices;
+            long bytes = 0;
+            for(ChunkMesher.Section section: sections){
+                bytes += section.getMesh().getSizeBytes();
+            }
+            this.bytes = bytes;
+        }
+    }
+
+    private final LinkedHashMap<ContentHash.Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    //gives each kind of block a small number so the hash doesn't depend on identityHashCode, which isn't unique
+    private final IdentityHashMap<GPUBlock, Integer> blockIds = new IdentityHashMap<>();
+    private long maxBytes;
+    private long bytes;
+    private boolean enabled = true;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ChunkMeshCache(long maxBytes){
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * gets the meshes for a chunk from the cache, or builds them if they aren't there.
+     * The meshes that come out of this may be shared with other chunks, so they must not be modified.
+     * The caller gets its own reference to the meshes, and has to release them with ChunkMesher.release when it's done with them.
+     * The parameters are the same as ChunkMesher.build.
+     */
+    public Entry build(GPUChunk chunk, GPUBlock[][][] blocks, int size, Map<Vector3i, GPUChunk> chunks, int lod){
+        if(!isEnabled()) {
+            return buildEntry(chunk, blocks, size, chunks, lod);
+        }
+        ContentHash.Key key = hash(chunk, blocks, size, chunks, lod);
+        synchronized (this){
+            Entry entry = entries.get(key);
+            if(entry != null){
+                hits++;
+                ChunkMesher.retain(entry.sections);
+                return entry;
+            }
+            misses++;
+        }
+        //build outside the lock, so other threads can still use the cache in the meantime
+        Entry entry = buildEntry(chunk, blocks, size, chunks, lod);
+        synchronized (this){
+            if(entry.bytes <= maxBytes) {
+                //the cache keeps its own reference, the one the meshes were created with goes to the caller
+                ChunkMesher.retain(entry.sections);
+                Entry old = entries.put(key, entry);
+                if (old != null) {
+                    bytes -= old.bytes;
+                    ChunkMesher.release(old.sections);
+                }
+                bytes += entry.bytes;
+                evict();
+            }
+        }
+        return entry;
+    }
+
+    private static Entry buildEntry(GPUChunk chunk, GPUBlock[][][] blocks, int size, Map<Vector3i, GPUChunk> chunks, int lod){
+        List<ChunkMesher.Section> sections = ChunkMesher.build(chunk, blocks, size, chunks, lod);
+        //at full detail the count is the same as the mesh itself, so there's no need to count twice
+        int fullIndices = lod == 0 ? -1 : ChunkMesher.countIndices(chunk, blocks, size, chunks);
+        return new Entry(sections, fullIndices);
+    }
+
+    private ContentHash.Key hash(GPUChunk chunk, GPUBlock[][][] blocks, int size, Map<Vector3i, GPUChunk> chunks, int lod){
+        ContentHash hash = new ContentHash().add(lod).add(size);
+        //chunks are mostly long runs of the same block, so remembering the last one skips most of the id lookups
+        GPUBlock lastBlock = null;
+        long lastId = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (int z = 0; z < size; z++) {
+                    GPUBlock block = blocks[x][y][z];
+                    if(block != lastBlock){
+                        lastBlock = block;
+                        lastId = getBlockId(block);
+                    }
+                    long value = lastId;
+                    //the edges of the chunk depend on the neighbors too. At lower detail the edges are always kept, so they don't matter there.
+                    if(value != 0 && lod == 0 && (x == 0 || y == 0 || z == 0 || x == size-1 || y == size-1 || z == size-1)){
+                        value |= (long)ChunkMesher.getBlockedFaces(chunk, size, x, y, z, chunks) << 32;
+                    }
+                    hash.add(value);
+                }
+            }
+        }
+        return hash.finish();
+    }
+
+    private synchronized int getBlockId(GPUBlock block){
+        if(block == null || block.getTexture() == null || block.getShader() == null) return 0;
+        Integer id = blockIds.get(block);
+        if(id == null){
+            id = blockIds.size() + 1;
+            blockIds.put(block, id);
+        }
+        return id;
+    }
+
+    private void evict(){
+        Iterator<Entry> iterator = entries.values().iterator();
+        while(bytes > maxBytes && iterator.hasNext()){
+            Entry entry = iterator.next();
+            bytes -= entry.bytes;
+            ChunkMesher.release(entry.sections);
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * sets the maximum size of the cached meshes, removing the least recently used ones if it's over the new size.
+     */
+    public synchronized void setMaxBytes(long maxBytes){
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * turns the cache on or off. Turning it off also empties it.
+     */
+    public synchronized void setEnabled(boolean enabled){
+        this.enabled = enabled;
+        if(!enabled) clear();
+    }
+
+    public synchronized void clear(){
+        for(Entry entry: entries.values()){
+            ChunkMesher.release(entry.sections);
+        }
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getEntries() {
+        return entries.size();
+    }
+
+    /**
+     * @return a short summary of the cache, for debug text.
+     */
+    public synchronized String getStatsString(){
+        long total = hits + misses;
+        return "mesh cache: " + entries.size() + " meshes, " + bytes/1024 + "/" + maxBytes/1024 + "KB, hits: " + hits + "/" + total +
+                (total > 0 ? " (" + hits*100/total + "%)" : "") + ", evicted: " + evictions;
+    }
+}
@@ -0,0 +1,330 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.gpu.GPUBlock;
+import engine.multiplatform.gpu.GPUChunk;
+import engine.multiplatform.gpu.GPUShader;
+import engine.multiplatform.gpu.GPUTexture;
+import engine.multiplatform.gpu.GPUTextureArray;
+import engine.multiplatform.model.CPUMesh;
+import engine.multiplatform.model.DirectMesh;
+import org.joml.Vector3i;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CPU side of chunk building, shared by every Render backend.
+ * It turns a chunk's blocks into one mesh per shader/texture combination, leaving out faces that are blocked by neighbors.
+ * The backend then only has to send the meshes to wherever they need to go.
+ */
+public class ChunkMesher {
+
+    /**
+     * A mesh of all the blocks in a chunk that use the same shader and texture.
+     */
+    public static class Section {
+        public final GPUShader shader;
+        public final GPUTexture texture;
+        private CPUMeshBuilder builder;
+        private DirectMesh mesh;
+
+        public Section(GPUShader shader, GPUTexture texture){
+            this.shader = shader;
+            this.texture = texture;
+            this.builder = new CPUMeshBuilder(texture instanceof GPUTextureArray);
+        }
+
+        private void add(GPUBlock block, int x, int y, int z, byte blockedFaces, int scale){
+            builder.addBlockMeshToChunk(block.getMesh(), x, y, z, blockedFaces, scale);
+        }
+
+        /**
+         * @return the finished mesh. The first call turns the builder into a mesh, after that the same mesh is returned,
+         * so sections can be shared between chunks. build() already does this for every section it returns.
+         * The mesh is off-heap: whoever has the section has to release it (see release()).
+         */
+        public synchronized DirectMesh getMesh(){
+            if(mesh == null) {
+                mesh = builder.getDirectMesh();
+                builder = null; //the mesh has the memory now
+            }
+            return mesh;
+        }
+
+        //for when building fails before the mesh is made
+        private synchronized void free(){
+            if(builder != null) builder.free();
+            builder = null;
+        }
+    }
+
+    /**
+     * adds a reference to the meshes of every section, for when the sections get another user.
+     */
+    public static void retain(List<Section> sections){
+        for(Section section: sections){
+            section.getMesh().retain();
+        }
+    }
+
+    /**
+     * releases the meshes of every section, once they have been uploaded or aren't needed anymore.
+     */
+    public static void release(List<Section> sections){
+        for(Section section: sections){
+            section.getMesh().release();
+        }
+    }
+
+    /*
+    an overview of how chunk building works:
+    initialize a list of shaders and models
+
+    for each block:
+       get its block model
+       if we don't already have its shader:
+           add another shader and model to the list
+       create a copy of the blocks model (not the chunk model)
+       remove the removable indices based on the blocks around it
+       add that block model to the chunk model
+
+     */
+    /**
+     * builds the meshes for a chunk.
+     * @param chunk the chunk to build
+     * @param blocks the chunk's block data
+     * @param size the size of the chunk
+     * @param chunks the map of chunk positions to chunk objects to get adjacent chunks from. If null, every face at the edge of the chunk is kept.
+     * @return one section for each shader/texture pair used by the chunk's blocks, with its mesh already made. The caller has to release them.
+     */
+    public static List<Section> build(GPUChunk chunk, GPUBlock[][][] blocks, int size, Map<Vector3i, GPUChunk> chunks){
+        List<Section> sections = new ArrayList<>();
+        if(blocks == null) return sections;
+        try {
+            for (int x = 0; x < blocks.length; x++) {
+                for (int y = 0; y < blocks[x].length; y++) {
+                    for (int z = 0; z < blocks[x][y].length; z++) {
+                        GPUBlock block = blocks[x][y][z];
+                        if (!isRendered(block))
+                            continue; //skip rendering this block if it is null (void)
+                        //cloning, index removal, and vertex position modification done within the BlockMeshBuilder
+                        getSection(sections, block).add(block, x, y, z, getBlockedFaces(chunk, size, x, y, z, chunks), 1);
+                    }
+                }
+            }
+        } catch (RuntimeException e){
+            free(sections);
+            throw e;
+        }
+        return finish(sections);
+    }
+
+    /**
+     * builds level of detail meshes for a chunk: the blocks are downsampled into a grid of blocks 2^lod times bigger,
+     * and that grid is meshed instead. Faces between the chunk and its neighbors are always kept,
+     * since the neighbors might be at a different level of detail.
+     * @param lod the level of detail. 0 is the same as the normal build, 1 is 2x2x2 blocks per block, 2 is 4x4x4, etc.
+     * @return one section for each shader/texture pair used by the downsampled blocks.
+     */
+    public static List<Section> build(GPUChunk chunk, GPUBlock[][][] blocks, int size, Map<Vector3i, GPUChunk> chunks, int lod){
+        if(lod == 0) return build(chunk, blocks, size, chunks);
+        List<Section> sections = new ArrayList<>();
+        if(blocks == null) return sections;
+        int scale = 1 << lod;
+        int gridSize = size / scale;
+        GPUBlock[][][] grid = downsample(blocks, size, scale);
+        try {
+            for (int x = 0; x < gridSize; x++) {
+                for (int y = 0; y < gridSize; y++) {
+                    for (int z = 0; z < gridSize; z++) {
+                        GPUBlock block = grid[x][y][z];
+                        if (block == null) continue;
+                        getSection(sections, block).add(block, x, y, z, getBlockedFaces(grid, gridSize, x, y, z), scale);
+                    }
+                }
+            }
+        } catch (RuntimeException e){
+            free(sections);
+            throw e;
+        }
+        return finish(sections);
+    }
+
+    //turns every section into its mesh, so none of them hold on to a builder
+    private static List<Section> finish(List<Section> sections){
+        for(Section section: sections){
+            section.getMesh();
+        }
+        return sections;
+    }
+
+    private static void free(List<Section> sections){
+        for(Section section: sections){
+            section.free();
+        }
+    }
+
+    /**
+     * shrinks a chunk's blocks by a factor. Each group of scale^3 blocks becomes one block:
+     * void if less than half of the group is visible blocks, otherwise the highest visible block in the group,
+     * so the surface of the terrain (grass, etc.) is what shows up from far away.
+     */
+    public static GPUBlock[][][] downsample(GPUBlock[][][] blocks, int size, int scale){
+        int gridSize = size / scale;
+        int half = scale*scale*scale / 2;
+        GPUBlock[][][] grid = new GPUBlock[gridSize][gridSize][gridSize];
+        for (int x = 0; x < gridSize; x++) {
+            for (int y = 0; y < gridSize; y++) {
+                for (int z = 0; z < gridSize; z++) {
+                    GPUBlock top = null;
+                    int count = 0;
+                    //top to bottom, so the first visible block found is the highest
+                    for (int by = y*scale + scale-1; by >= y*scale; by--) {
+                        for (int bx = x*scale; bx < x*scale + scale; bx++) {
+                            for (int bz = z*scale; bz < z*scale + scale; bz++) {
+                                GPUBlock block = blocks[bx][by][bz];
+                                if(isRendered(block)){
+                                    if(top == null) top = block;
+                                    count++;
+                                }
+                            }
+                        }
+                    }
+                    if(count >= half) grid[x][y][z] = top;
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * counts how many indices the normal (full detail) build of a chunk would have, without building anything.
+     * Used to tell how much the level of detail meshes save.
+     */
+    public static int countIndices(GPUChunk chunk, GPUBlock[][][] blocks, int size, Map<Vector3i, GPUChunk> chunks){
+        if(blocks == null) return 0;
+        int count = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (int z = 0; z < size; z++) {
+                    GPUBlock block = blocks[x][y][z];
+                    if (!isRendered(block)) continue;
+                    byte blockedFaces = getBlockedFaces(chunk, size, x, y, z, chunks);
+                    if((~blockedFaces & 0b11111) == 0) continue;
+                    byte[] removable = block.getMesh().removableTriangles;
+                    int indices = block.getMesh().indices.length;
+                    for (int i = 0; i < indices; i++) {
+                        if ((removable[i / 3] & blockedFaces) == 0) count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean isRendered(GPUBlock block){
+        return block != null && block.getTexture() != null && block.getShader() != null;
+    }
+
+    private static Section getSection(List<Section> sections, GPUBlock block){
+        for(Section s: sections){
+            if(s.shader == block.getShader() && s.texture == block.getTexture()){
+                return s;
+            }
+        }
+        Section section = new Section(block.getShader(), block.getTexture());
+        sections.add(section);
+        return section;
+    }
+
+    //the same as the other getBlockedFaces, but for a grid of blocks with nothing around it.
+    private static byte getBlockedFaces(GPUBlock[][][] grid, int size, int x, int y, int z){
+        byte blockedFaces = 0;
+        for(int i=0; i < 5; i++){
+            int xM = i == 3 ? x-1 : i == 4 ? x+1 : x;
+            int yM = i == 0 ? y+1 : i == 1 ? y-1 : y;
+            int zM = i == 2 ? (z + x & 1) * -2 + 1 + z : z;
+            if(xM < 0 || xM >= size || yM < 0 || yM >= size || zM < 0 || zM >= size) continue;
+            GPUBlock block = grid[xM][yM][zM];
+            if(block != null && block.getMesh() != null) {
+                blockedFaces |= (block.getMesh().blockedFaces & (1 << i));
+            }
+        }
+        return blockedFaces;
+    }
+
+    //blockedFaces: [top (+y), bottom(-y), (-z / +z), -x, +x]
+    public static byte getBlockedFaces(GPUChunk chunk, int size, int x, int y, int z, Map<Vector3i, GPUChunk> chunks){
+        byte blockedFaces = 0;
+        Vector3i pos = chunk.getPos();
+
+        for(int i=0; i < 5; i++){
+
+            int xM = switch(i){
+                case 3 -> x-1;
+                case 4 -> x+1;
+                default -> x;
+            };
+
+            int yM = switch(i){
+                case 0 -> y+1;
+                case 1 -> y-1;
+                default -> y;
+            };
+
+            int zM;
+            if (i == 2) {
+                zM = (z + x & 1) * -2 + 1 + z; //I don't know how I figured this out, but I did.
+            } else {
+                zM = z;
+            }
+            GPUChunk toUse = chunk;
+
+            //[(-1, 0, 0), (0, -1, 0), (0, 0, -1), (+1, 0, 0), (0, +1, 0), (0, 0, +1)]
+            if(xM<0){ //-1, 0, 0
+                if(chunks != null)toUse = chunks.get(new Vector3i(pos.x-1, pos.y, pos.z));
+                else toUse = null;
+                xM = size-1;
+            }
+            else if(xM>size-1){//+1, 0, 0
+                if(chunks != null)toUse = chunks.get(new Vector3i(pos.x+1, pos.y, pos.z));
+                else toUse = null;
+
+                xM = 0;
+            }
+            else if(yM<0) {//0, -1, 0
+                if(chunks != null)toUse = chunks.get(new Vector3i(pos.x, pos.y-1, pos.z));
+                else toUse = null;
+                yM  = size-1;
+            }
+            else if(yM>size-1){ //0, +1, 0
+                if(chunks != null)toUse = chunks.get(new Vector3i(pos.x, pos.y+1, pos.z));
+                else toUse = null;
+                yM  = 0;
+            }
+            else if(zM<0) { //0, 0, -1
+                if(chunks != null)toUse = chunks.get(new Vector3i(pos.x, pos.y, pos.z-1));
+                else toUse = null;
+                zM = size-1;
+            }
+            else if(zM>size-1){ //0, 0, +1
+                if(chunks != null)toUse = chunks.get(new Vector3i(pos.x, pos.y, pos.z+1));
+                else toUse = null;
+                zM = 0;
+            }
+            if(toUse == null){
+                if(chunks != null)blockedFaces |= (1 << i); //if the chunk doesn't exist yet, assume it's not blocked, unless it wasn't given adjacent chunks, in which case assume it isn't blocked.
+                continue;
+            }
+            GPUBlock block = toUse.getBlock(xM, yM, zM);
+            if(block != null) {
+                CPUMesh mesh = block.getMesh();
+
+                if (mesh == null || mesh.blockedFaces == 0) continue; //skip if that mesh doesn't block faces
+                blockedFaces |= (mesh.blockedFaces & (1 << i)); //add the blocked face to the bit field.
+            }
+        }
+        return blockedFaces;
+    }
+}
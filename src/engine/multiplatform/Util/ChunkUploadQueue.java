@@ -0,0 +1,111 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.RenderUtils;
+import engine.multiplatform.gpu.GPUChunk;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Spreads chunk uploads over multiple frames.
+ * When a lot of chunks finish building at the same time, uploading all of them in one frame causes a visible hitch.
+ * Instead, each frame the chunks waiting to be uploaded are sorted by distance to the camera,
+ * and the closest ones are uploaded until the frame's time or byte budget runs out. The rest wait for the next frame.
+ *
+ * At least one chunk is uploaded every frame, so the queue always makes progress even with a tiny budget.
+ */
+public class ChunkUploadQueue {
+
+    /**
+     * uploads a chunk's finished meshes. Implemented by each render backend.
+     */
+    public interface Uploader {
+        /**
+         * @return the number of bytes that were uploaded.
+         */
+        long upload(GPUChunk chunk);
+    }
+
+    private final ArrayList<GPUChunk> pending = new ArrayList<>();
+    private final Vector3f cameraPos;
+    private final Comparator<GPUChunk> closestFirst;
+    private double timeBudget;
+    private long byteBudget;
+
+    private int queueDepth;
+    private int frameUploads;
+    private long frameUploadBytes;
+
+    /**
+     * @param cameraPos the camera position. It's kept as a reference, so it has to be the one the render actually updates.
+     * @param timeBudget the maximum time in seconds to spend uploading each frame
+     * @param byteBudget the maximum number of bytes to upload each frame
+     */
+    public ChunkUploadQueue(Vector3f cameraPos, double timeBudget, long byteBudget){
+        this.cameraPos = cameraPos;
+        this.timeBudget = timeBudget;
+        this.byteBudget = byteBudget;
+        this.closestFirst = Comparator.comparingDouble(c -> RenderUtils.getChunkWorldPos(c.getPos()).distanceSquared(this.cameraPos));
+    }
+
+    /**
+     * adds a chunk that has finished meshes waiting to be uploaded. Only call this from the render thread, between process() calls.
+     */
+    public void add(GPUChunk chunk){
+        pending.add(chunk);
+    }
+
+    /**
+     * uploads the closest chunks until the budget runs out, then forgets the rest.
+     * Chunks that didn't get uploaded still have their meshes waiting, so they should be added again next frame.
+     */
+    public void process(Uploader uploader){
+        frameUploads = 0;
+        frameUploadBytes = 0;
+        pending.sort(closestFirst);
+        final long start = System.nanoTime();
+        final long timeBudgetNanos = (long)(timeBudget * 1_000_000_000);
+        for(GPUChunk chunk: pending){
+            if(frameUploads > 0 && (frameUploadBytes >= byteBudget || System.nanoTime() - start >= timeBudgetNanos)) break;
+            frameUploadBytes += uploader.upload(chunk);
+            frameUploads++;
+        }
+        queueDepth = pending.size() - frameUploads;
+        pending.clear();
+    }
+
+    public void setBudget(double timeBudget, long byteBudget){
+        this.timeBudget = timeBudget;
+        this.byteBudget = byteBudget;
+    }
+
+    public double getTimeBudget(){
+        return timeBudget;
+    }
+
+    public long getByteBudget(){
+        return byteBudget;
+    }
+
+    /**
+     * @return the number of chunks that were left waiting after the last process()
+     */
+    public int getQueueDepth(){
+        return queueDepth;
+    }
+
+    /**
+     * @return the number of chunks uploaded by the last process()
+     */
+    public int getFrameUploads(){
+        return frameUploads;
+    }
+
+    /**
+     * @return the number of bytes uploaded by the last process()
+     */
+    public long getFrameUploadBytes(){
+        return frameUploadBytes;
+    }
+}
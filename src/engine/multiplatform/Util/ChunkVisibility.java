@@ -0,0 +1,107 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.gpu.GPUBlock;
+import engine.multiplatform.model.CPUMesh;
+
+/**
+ * Works out which faces of a chunk can see each other through the blocks inside it.
+ * The result is a 6x6 bit matrix packed into a long (bit from*6+to), and it's computed once whenever a chunk is built.
+ * OcclusionCuller then walks those graphs to skip chunks that the camera has no way of seeing, like caves deep underground.
+ *
+ * face order: [-x, +x, -y, +y, -z, +z]. The opposite of a face is always face^1.
+ */
+public class ChunkVisibility {
+    public static final int NEG_X = 0, POS_X = 1, NEG_Y = 2, POS_Y = 3, NEG_Z = 4, POS_Z = 5;
+    public static final int[] FACE_X = {-1, 1, 0, 0, 0, 0};
+    public static final int[] FACE_Y = {0, 0, -1, 1, 0, 0};
+    public static final int[] FACE_Z = {0, 0, 0, 0, -1, 1};
+
+    /**
+     * every face can see every other face. Used for empty chunks and chunks that haven't been built yet.
+     */
+    public static final long ALL = (1L << 36) - 1;
+    /**
+     * no face can see any other face, like a chunk filled with stone.
+     */
+    public static final long NONE = 0;
+
+    /**
+     * a block is only opaque if its mesh blocks all 5 of its neighbors' faces - anything else (leaves, glass, half blocks) can be seen through.
+     */
+    public static boolean isOpaque(GPUBlock block){
+        if(block == null) return false;
+        CPUMesh mesh = block.getMesh();
+        return mesh != null && (mesh.blockedFaces & 0b11111) == 0b11111;
+    }
+
+    public static boolean canSee(long visibility, int from, int to){
+        return (visibility & (1L << (from*6 + to))) != 0;
+    }
+
+    /**
+     * computes the visibility graph of a chunk by flood filling every group of connected see-through blocks
+     * and connecting every chunk face that group touches.
+     * @param blocks the block data of the chunk. null means an empty chunk.
+     * @param size the size of the chunk
+     * @return the visibility graph
+     */
+    public static long compute(GPUBlock[][][] blocks, int size){
+        if(blocks == null) return ALL;
+        final int volume = size*size*size;
+        //index = (x*size + y)*size + z
+        final boolean[] visited = new boolean[volume];
+        final int[] stack = new int[volume];
+        long visibility = NONE;
+        for(int start = 0; start < volume; start++){
+            if(visited[start]) continue;
+            int sx = start/(size*size), sy = (start/size)%size, sz = start%size;
+            if(isOpaque(blocks[sx][sy][sz])){
+                visited[start] = true;
+                continue;
+            }
+            //flood fill this group of blocks, recording which faces it touches.
+            int faces = 0;
+            int top = 0;
+            stack[top++] = start;
+            visited[start] = true;
+            while(top > 0){
+                int index = stack[--top];
+                int x = index/(size*size), y = (index/size)%size, z = index%size;
+                //the same neighbors as ChunkMesher.getBlockedFaces: x and y are straight across,
+                // but each triangle only has one neighbor on the Z axis, which depends on if it's mirrored.
+                int zn = (z + x & 1) * -2 + 1 + z;
+                if(x == 0) faces |= 1 << NEG_X; else top = push(blocks, visited, stack, top, x-1, y, z, size);
+                if(x == size-1) faces |= 1 << POS_X; else top = push(blocks, visited, stack, top, x+1, y, z, size);
+                if(y == 0) faces |= 1 << NEG_Y; else top = push(blocks, visited, stack, top, x, y-1, z, size);
+                if(y == size-1) faces |= 1 << POS_Y; else top = push(blocks, visited, stack, top, x, y+1, z, size);
+                if(zn < 0) faces |= 1 << NEG_Z;
+                else if(zn > size-1) faces |= 1 << POS_Z;
+                else top = push(blocks, visited, stack, top, x, y, zn, size);
+            }
+            visibility |= connect(faces);
+            if(visibility == ALL) return ALL; //can't get any more visible than that
+        }
+        return visibility;
+    }
+
+    private static int push(GPUBlock[][][] blocks, boolean[] visited, int[] stack, int top, int x, int y, int z, int size){
+        int index = (x*size + y)*size + z;
+        if(!visited[index]){
+            visited[index] = true;
+            if(!isOpaque(blocks[x][y][z])) stack[top++] = index;
+        }
+        return top;
+    }
+
+    //connects every face in the set to every other face in it
+    private static long connect(int faces){
+        long out = 0;
+        for(int from = 0; from < 6; from++){
+            if((faces & (1 << from)) == 0) continue;
+            for(int to = 0; to < 6; to++){
+                if((faces & (1 << to)) != 0) out |= 1L << (from*6 + to);
+            }
+        }
+        return out;
+    }
+}
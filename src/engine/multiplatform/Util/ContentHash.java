@@ -0,0 +1,56 @@
+package engine.multiplatform.Util;
+
+/**
+ * Hashes data into a 128 bit key, for caches that look things up by their contents instead of by name.
+ * With 128 bits, two different inputs getting the same key isn't something that will ever actually happen,
+ * so the caches don't have to keep a copy of the input around to compare against.
+ *
+ * Usage: new ContentHash().add(...).add(...).finish()
+ */
+public class ContentHash {
+    public record Key(long hash1, long hash2){}
+
+    private long hash1 = 0x243F6A8885A308D3L;
+    private long hash2 = 0x13198A2E03707344L;
+
+    public ContentHash add(long value){
+        hash1 = mix(hash1 ^ value);
+        hash2 = hash2 * 0x9E3779B97F4A7C15L + value + 1;
+        return this;
+    }
+
+    public ContentHash add(int[] values){
+        add(values.length);
+        for(int value: values) add(value);
+        return this;
+    }
+
+    public ContentHash add(float[] values){
+        add(values.length);
+        for(float value: values) add(Float.floatToRawIntBits(value));
+        return this;
+    }
+
+    public ContentHash add(byte[] values){
+        add(values.length);
+        for(byte value: values) add(value);
+        return this;
+    }
+
+    public ContentHash add(String value){
+        add(value.length());
+        for(int i=0; i<value.length(); i++) add(value.charAt(i));
+        return this;
+    }
+
+    public Key finish(){
+        return new Key(hash1, mix(hash2));
+    }
+
+    //the splitmix64 finalizer
+    public static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,150 @@
+package engine.multiplatform.Util;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The chunks that need to be rebuilt, waiting for the render thread to send them off to the chunk build threads.
+ *
+ * Any thread can add chunks without ever blocking: the queue itself is lock-free,
+ * and each chunk has a flag that is set while it's in the queue, so adding a chunk that's already there is an O(1) no-op
+ * instead of searching the whole queue.
+ *
+ * @param <C> the chunk type of the render backend
+ */
+public class DirtyChunkQueue<C> {
+    /**
+     * what to do with each chunk when the queue is drained.
+     */
+    public interface Handler<C> {
+        /**
+         * @return true if the chunk was handled, false if it can't be handled yet and should stay in the queue.
+         */
+        boolean handle(C chunk);
+    }
+
+    private final ConcurrentLinkedQueue<C> queue = new ConcurrentLinkedQueue<>();
+    private final Function<C, AtomicBoolean> queuedFlag;
+    private final ArrayList<C> deferred = new ArrayList<>();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private long dequeued;
+    private double lastRateTime;
+    private long lastEnqueued;
+    private long lastDequeued;
+    private double enqueueRate;
+    private double dequeueRate;
+
+    /**
+     * @param queuedFlag gets the flag a chunk uses to tell if it's in the queue. Each chunk needs its own, and nothing else should touch it.
+     */
+    public DirtyChunkQueue(Function<C, AtomicBoolean> queuedFlag){
+        this.queuedFlag = queuedFlag;
+    }
+
+    /**
+     * adds a chunk to the queue, if it isn't already in it. Safe to call from any thread.
+     * @return true if the chunk was added, false if it was already in the queue.
+     */
+    public boolean add(C chunk){
+        if(queuedFlag.apply(chunk).compareAndSet(false, true)){
+            queue.offer(chunk);
+            enqueued.incrementAndGet();
+            return true;
+        }
+        duplicates.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * removes a chunk from the queue, for when it is deleted.
+     * This one is O(n), but chunks aren't deleted nearly as often as they are updated.
+     * A chunk that is being handled by drain() right now isn't in the queue, so it can't be removed,
+     * and if the handler defers it, it goes back in. The handler has to check for deleted chunks itself.
+     * @return true if the chunk was in the queue
+     */
+    public boolean remove(C chunk){
+        if(queue.remove(chunk)){
+            queuedFlag.apply(chunk).set(false);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * takes every chunk out of the queue and gives it to the handler. Chunks the handler can't handle yet go back into the queue.
+     * Only one thread should drain the queue.
+     */
+    public void drain(Handler<C> handler){
+        C chunk;
+        while((chunk = queue.poll()) != null){
+            //clear the flag first, so a change that happens while the chunk is handled queues it again.
+            queuedFlag.apply(chunk).set(false);
+            if(handler.handle(chunk)) {
+                dequeued++;
+            } else {
+                deferred.add(chunk);
+            }
+        }
+        for(C c: deferred){
+            //not counted as enqueued again, and if it was already queued again while it was handled, it's in there already.
+            if(queuedFlag.apply(c).compareAndSet(false, true)) queue.offer(c);
+        }
+        deferred.clear();
+    }
+
+    /**
+     * @return true if there is nothing in the queue
+     */
+    public boolean isEmpty(){
+        return queue.isEmpty();
+    }
+
+    /**
+     * updates the enqueue and dequeue rates. Called by the render thread every frame, the rates are updated about once per second.
+     * @param time the current time in seconds
+     */
+    public void updateRates(double time){
+        double elapsed = time - lastRateTime;
+        if(elapsed < 1) return;
+        long enqueued = this.enqueued.get();
+        enqueueRate = (enqueued - lastEnqueued) / elapsed;
+        dequeueRate = (dequeued - lastDequeued) / elapsed;
+        lastEnqueued = enqueued;
+        lastDequeued = dequeued;
+        lastRateTime = time;
+    }
+
+    /**
+     * @return how many chunks per second were added to the queue, as of the last updateRates.
+     */
+    public double getEnqueueRate() {
+        return enqueueRate;
+    }
+
+    /**
+     * @return how many chunks per second were taken out of the queue and handled, as of the last updateRates.
+     */
+    public double getDequeueRate() {
+        return dequeueRate;
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getDequeued() {
+        return dequeued;
+    }
+
+    /**
+     * @return how many times a chunk was added while it was already in the queue.
+     */
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+}
@@ -0,0 +1,218 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.gpu.GPUMesh;
+import engine.multiplatform.gpu.GPUShader;
+import engine.multiplatform.gpu.GPUTexture;
+import org.joml.Matrix4f;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+
+/**
+ * Collects every draw of a frame, sorts them so draws that use the same shader and texture are next to each other,
+ * then replays them through an Executor without repeating any state change that is already in effect.
+ *
+ * Chunk meshes don't have a rotation or scale, so instead of a whole model matrix they only carry an offset.
+ * A shader with a "chunkOffset" uniform can draw every chunk with the same (identity) model matrix and just that offset.
+ *
+ * None of this touches a render API, so it can be filled, sorted and run without a GL context.
+ */
+public class DrawList {
+
+    /**
+     * does the actual work of a draw list. Implemented by each render backend.
+     * The DrawList only calls these when something actually changes.
+     */
+    public interface Executor {
+        void bindShader(GPUShader shader);
+        void bindTexture(GPUTexture texture);
+        void bindMesh(GPUMesh mesh);
+        void setModelMatrix(Matrix4f matrix);
+        void setChunkOffset(float x, float y, float z);
+        void draw(GPUMesh mesh);
+    }
+
+    /**
+     * a single draw. These are reused between frames, so don't keep them around.
+     */
+    public static class Draw {
+        public GPUShader shader;
+        public GPUTexture texture;
+        public GPUMesh mesh;
+        //null for chunk draws, which use the offset instead.
+        public Matrix4f matrix;
+        public float offsetX, offsetY, offsetZ;
+        //the order shaders and textures were first seen in. Draws are sorted by these, so the first things drawn stay first.
+        int shaderOrder, textureOrder;
+    }
+
+    private static final Matrix4f IDENTITY = new Matrix4f();
+    private static final Comparator<Draw> ORDER = (a, b) -> {
+        if(a.shaderOrder != b.shaderOrder) return Integer.compare(a.shaderOrder, b.shaderOrder);
+        return Integer.compare(a.textureOrder, b.textureOrder);
+    };
+
+    private Draw[] draws = new Draw[64];
+    private int size;
+    private final IdentityHashMap<GPUShader, Integer> shaderOrders = new IdentityHashMap<>();
+    private final IdentityHashMap<GPUTexture, Integer> textureOrders = new IdentityHashMap<>();
+
+    private int stateChanges;
+    private int uniformUploads;
+    private int drawCalls;
+
+    /**
+     * empties the list for a new frame.
+     */
+    public void clear(){
+        for(int i=0; i<size; i++){
+            //don't hold on to meshes that might get deleted
+            draws[i].shader = null;
+            draws[i].texture = null;
+            draws[i].mesh = null;
+            draws[i].matrix = null;
+        }
+        size = 0;
+        shaderOrders.clear();
+        textureOrders.clear();
+    }
+
+    /**
+     * adds a draw with a full model matrix, like an entity.
+     */
+    public void add(GPUShader shader, GPUTexture texture, GPUMesh mesh, Matrix4f matrix){
+        Draw draw = next(shader, texture, mesh);
+        draw.matrix = matrix;
+    }
+
+    /**
+     * adds a draw that only needs to be moved, like a chunk section.
+     */
+    public void addOffset(GPUShader shader, GPUTexture texture, GPUMesh mesh, float x, float y, float z){
+        Draw draw = next(shader, texture, mesh);
+        draw.matrix = null;
+        draw.offsetX = x;
+        draw.offsetY = y;
+        draw.offsetZ = z;
+    }
+
+    private Draw next(GPUShader shader, GPUTexture texture, GPUMesh mesh){
+        if(size == draws.length) draws = Arrays.copyOf(draws, size*2);
+        Draw draw = draws[size];
+        if(draw == null) draw = draws[size] = new Draw();
+        size++;
+        draw.shader = shader;
+        draw.texture = texture;
+        draw.mesh = mesh;
+        Integer shaderOrder = shaderOrders.get(shader);
+        if(shaderOrder == null) shaderOrders.put(shader, shaderOrder = shaderOrders.size());
+        Integer textureOrder = textureOrders.get(texture);
+        if(textureOrder == null) textureOrders.put(texture, textureOrder = textureOrders.size());
+        draw.shaderOrder = shaderOrder;
+        draw.textureOrder = textureOrder;
+        return draw;
+    }
+
+    /**
+     * groups the draws by shader, then by texture. The sort is stable, so draws within a group keep the order they were added in.
+     */
+    public void sort(){
+        Arrays.sort(draws, 0, size, ORDER);
+    }
+
+    /**
+     * runs every draw in the list, in its current order.
+     * Resets the state change, uniform upload, and draw call counters.
+     */
+    public void execute(Executor executor){
+        stateChanges = 0;
+        uniformUploads = 0;
+        drawCalls = 0;
+        GPUShader shader = null;
+        GPUTexture texture = null;
+        GPUMesh mesh = null;
+        //what the bound shader's transform uniforms are currently set to. A null matrix means we don't know.
+        Matrix4f matrix = null;
+        boolean offsetMode = false;
+        float offsetX = 0, offsetY = 0, offsetZ = 0;
+        for(int i=0; i<size; i++){
+            Draw draw = draws[i];
+            if(draw.shader != shader){
+                shader = draw.shader;
+                executor.bindShader(shader);
+                stateChanges++;
+                //uniforms belong to the shader, so whatever we knew about them is no longer true.
+                matrix = null;
+                offsetMode = false;
+            }
+            if(draw.texture != texture){
+                texture = draw.texture;
+                executor.bindTexture(texture);
+                stateChanges++;
+            }
+            if(draw.matrix != null){
+                if(offsetMode || matrix == null){
+                    executor.setChunkOffset(0, 0, 0);
+                    uniformUploads++;
+                    offsetMode = false;
+                    matrix = null;
+                }
+                if(matrix != draw.matrix){
+                    matrix = draw.matrix;
+                    executor.setModelMatrix(matrix);
+                    uniformUploads++;
+                }
+            } else {
+                if(!offsetMode){
+                    executor.setModelMatrix(IDENTITY);
+                    uniformUploads++;
+                    matrix = IDENTITY;
+                    offsetMode = true;
+                    executor.setChunkOffset(offsetX = draw.offsetX, offsetY = draw.offsetY, offsetZ = draw.offsetZ);
+                    uniformUploads++;
+                } else if(draw.offsetX != offsetX || draw.offsetY != offsetY || draw.offsetZ != offsetZ){
+                    executor.setChunkOffset(offsetX = draw.offsetX, offsetY = draw.offsetY, offsetZ = draw.offsetZ);
+                    uniformUploads++;
+                }
+            }
+            if(draw.mesh != mesh){
+                mesh = draw.mesh;
+                executor.bindMesh(mesh);
+                stateChanges++;
+            }
+            executor.draw(mesh);
+            drawCalls++;
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @return the draw at an index. Only valid until the next clear().
+     */
+    public Draw get(int index){
+        if(index >= size) throw new IndexOutOfBoundsException(index);
+        return draws[index];
+    }
+
+    /**
+     * @return the number of shader, texture, and mesh binds in the last execute().
+     */
+    public int getStateChanges(){
+        return stateChanges;
+    }
+
+    /**
+     * @return the number of uniforms set in the last execute().
+     */
+    public int getUniformUploads(){
+        return uniformUploads;
+    }
+
+    public int getDrawCalls(){
+        return drawCalls;
+    }
+}
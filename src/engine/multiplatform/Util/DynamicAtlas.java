@@ -0,0 +1,91 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.Render;
+import engine.multiplatform.gpu.GPUTexture;
+import engine.multiplatform.model.CPUMesh;
+import engine.multiplatform.model.CPUModel;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An atlas on the GPU that more textures can be added to later, like for blocks that a mod registers while the game is running.
+ * New textures go into the free space of the atlas, and only that part of the texture is uploaded again.
+ * The textures already in the atlas don't move, so the models that use them (and the chunks made from them) don't have to be remade.
+ *
+ * The atlas doesn't grow, since that would change every UV in it. Once it's full, add() returns null,
+ * and the atlas has to be generated again with all of the models.
+ */
+public class DynamicAtlas {
+    private final Render render;
+    private final AtlasGenerator.Texture atlas;
+    private final GPUTexture texture;
+    private final List<CPUModel> models;
+
+    /**
+     * uploads an atlas to the GPU.
+     * @param models the models that use the atlas, from atlas.Write
+     */
+    public DynamicAtlas(Render render, AtlasGenerator.Texture atlas, CPUModel[] models){
+        this.render = render;
+        this.atlas = atlas;
+        //not readTexture, since something else with the same pixels would get the same texture and see the blocks added to it
+        this.texture = render.readUnsharedTexture(atlas.getImage());
+        this.models = Collections.unmodifiableList(Arrays.asList(models));
+    }
+
+    /**
+     * generates an atlas of the models' textures (see AtlasGenerator.generateAtlas) and uploads it.
+     * @param models the models to put into the atlas. They won't be modified, the models in the atlas are copies.
+     * @param cache the file to cache the atlas in, or null to always generate it.
+     */
+    public static DynamicAtlas generate(Render render, List<CPUModel> models, File cache, PrintStream print, PrintStream debug){
+        BufferedImage[] textures = new BufferedImage[models.size()];
+        CPUMesh[] meshes = new CPUMesh[models.size()];
+        for(int i=0; i<models.size(); i++){
+            textures[i] = models.get(i).texture;
+            meshes[i] = models.get(i).mesh.clone();
+        }
+        AtlasGenerator.Texture atlas = AtlasGenerator.generateAtlas(textures, cache, print, debug);
+        return new DynamicAtlas(render, atlas, atlas.Write(atlas.getWidth(), atlas.getHeight(), meshes));
+    }
+
+    /**
+     * adds a model's texture to the atlas, and uploads the part of the atlas it went into.
+     * Only call this on the render thread.
+     * @return a copy of the model that uses the atlas texture, or null if the atlas is full.
+     */
+    public CPUModel add(CPUModel model){
+        int index = atlas.nextIndex();
+        CPUModel added = atlas.AddModel(model, index, AtlasGenerator.PADDING);
+        if(added == null) return null;
+        Rectangle rect = atlas.getRectangle(index);
+        int padding = AtlasGenerator.PADDING;
+        Rectangle cell = new Rectangle(rect.x - padding, rect.y - padding, rect.width + 2*padding, rect.height + 2*padding);
+        render.updateTexture(texture, atlas.getImage().getSubimage(cell.x, cell.y, cell.width, cell.height), cell.x, cell.y);
+        return added;
+    }
+
+    /**
+     * @return the models the atlas was made with, in the same order.
+     */
+    public List<CPUModel> getModels(){
+        return models;
+    }
+
+    public GPUTexture getTexture(){
+        return texture;
+    }
+
+    /**
+     * @return how much of the atlas is used, from 0 to 1.
+     */
+    public float getOccupancy(){
+        return atlas.getOccupancy();
+    }
+}
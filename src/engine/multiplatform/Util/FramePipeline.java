@@ -0,0 +1,224 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.RenderUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the simulation (world updates, input, block picking...) on its own thread, so it doesn't eat into the render thread's frame time.
+ *
+ * Each tick, the simulation fills in a FrameSnapshot, and publishes it through a TripleBuffer.
+ * The render thread takes the newest snapshot whenever it starts a frame, and draws it. Neither thread ever waits for the other:
+ * if the simulation is slower the render thread draws the same snapshot again, and if it's faster the older snapshots are dropped.
+ *
+ * The pipeline also measures the latency: the time from when the simulation starts a tick (when it reads the input)
+ * to when the render thread is done drawing the snapshot it made.
+ *
+ * Usage: start(), then on the render thread, each frame: takeFrame(), render it, framePresented(frame). stop() when done.
+ */
+public class FramePipeline {
+    /**
+     * one tick of the simulation. Called over and over on the simulation thread.
+     */
+    public interface Simulation {
+        /**
+         * @param frame the snapshot to fill in. It's reused, so anything that isn't set this tick still has what was set a few ticks ago.
+         */
+        void tick(FrameSnapshot frame) throws Exception;
+    }
+
+    private final Simulation simulation;
+    private final double targetTickTime;
+    private final TripleBuffer<FrameSnapshot> buffer = new TripleBuffer<>(FrameSnapshot::new);
+    private Thread thread;
+    private volatile boolean running;
+    private volatile Throwable error;
+    private long ticks;
+
+    //simulation thread stats
+    private final AtomicLong ticksDone = new AtomicLong();
+    private volatile double tickTime;
+    //render thread stats
+    private long lastPresented;
+    private long presented;
+    private long latencySum;
+    private int latencyCount;
+    private long latencyMax;
+    private long lastStatsTime = System.nanoTime();
+    private long lastStatsTicks;
+    private double averageLatency;
+    private double maxLatency;
+    private double tickRate;
+
+    /**
+     * @param simulation what to run every tick
+     * @param targetTickTime the minimum time between ticks in seconds, 0 to run as fast as possible.
+     */
+    public FramePipeline(Simulation simulation, double targetTickTime){
+        this.simulation = simulation;
+        this.targetTickTime = targetTickTime;
+    }
+
+    /**
+     * starts the simulation thread.
+     */
+    public void start(){
+        if(running) throw new IllegalStateException("FramePipeline was already started");
+        running = true;
+        thread = new Thread(this::run, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * stops the simulation thread and waits for it to finish its current tick.
+     */
+    public void stop(){
+        running = false;
+        if(thread == null || thread == Thread.currentThread()) return;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(){
+        long targetNanos = (long)(targetTickTime * 1_000_000_000);
+        long nextTick = System.nanoTime();
+        while(running){
+            long start = System.nanoTime();
+            FrameSnapshot frame = buffer.getBack();
+            frame.begin(++ticks, start);
+            try {
+                simulation.tick(frame);
+            } catch (Throwable e) {
+                error = e;
+                running = false;
+                if(RenderUtils.activeRender != null) RenderUtils.activeRender.printErrln("Simulation thread crashed: " + e);
+                break;
+            }
+            frame.publish();
+            buffer.publish();
+            long end = System.nanoTime();
+            tickTime = (end - start) / 1_000_000_000.;
+            ticksDone.incrementAndGet();
+            //keep to the target tick rate, but don't try to catch up if it fell behind
+            nextTick = Math.max(nextTick + targetNanos, end);
+            long sleep = nextTick - end;
+            if(sleep > 0){
+                try {
+                    Thread.sleep(sleep / 1_000_000, (int)(sleep % 1_000_000));
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * gets the newest snapshot. Only call this from the render thread.
+     * The snapshot can be used until the next call to takeFrame.
+     * @return the newest snapshot (which is the same as last time if the simulation hasn't finished a tick since), or null if there isn't one yet.
+     */
+    public FrameSnapshot takeFrame(){
+        return buffer.take();
+    }
+
+    /**
+     * tells the pipeline that a snapshot is on screen, for the latency. Only call this from the render thread.
+     * Snapshots that are drawn more than once only count the first time.
+     */
+    public void framePresented(FrameSnapshot frame){
+        long now = System.nanoTime();
+        if(frame.getFrame() != lastPresented){
+            lastPresented = frame.getFrame();
+            presented++;
+            long latency = now - frame.getStartTime();
+            latencySum += latency;
+            latencyCount++;
+            latencyMax = Math.max(latencyMax, latency);
+        }
+        //the stats are updated about once a second, same as the chunk update rates.
+        double elapsed = (now - lastStatsTime) / 1_000_000_000.;
+        if(elapsed >= 1){
+            long ticks = ticksDone.get();
+            averageLatency = latencyCount == 0 ? 0 : latencySum / (double)latencyCount / 1_000_000_000.;
+            maxLatency = latencyMax / 1_000_000_000.;
+            tickRate = (ticks - lastStatsTicks) / elapsed;
+            latencySum = 0;
+            latencyCount = 0;
+            latencyMax = 0;
+            lastStatsTicks = ticks;
+            lastStatsTime = now;
+        }
+    }
+
+    /**
+     * @return true if the simulation thread is running. It stops on its own if the simulation throws an exception.
+     */
+    public boolean isRunning(){
+        return running;
+    }
+
+    /**
+     * @return what the simulation threw, which stopped the simulation thread, or null if it hasn't thrown anything.
+     */
+    public Throwable getError(){
+        return error;
+    }
+
+    /**
+     * @return the average time from the start of a tick to its snapshot being on screen, in seconds, as of the last update (about once a second).
+     */
+    public double getAverageLatency(){
+        return averageLatency;
+    }
+
+    /**
+     * @return the longest time from the start of a tick to its snapshot being on screen, in seconds, during the last second or so.
+     */
+    public double getMaxLatency(){
+        return maxLatency;
+    }
+
+    /**
+     * @return how long the last tick took, in seconds.
+     */
+    public double getTickTime(){
+        return tickTime;
+    }
+
+    /**
+     * @return how many ticks per second the simulation is running at.
+     */
+    public double getTickRate(){
+        return tickRate;
+    }
+
+    public long getTicks(){
+        return ticksDone.get();
+    }
+
+    /**
+     * @return the number of snapshots that made it onto the screen.
+     */
+    public long getPresented(){
+        return presented;
+    }
+
+    /**
+     * @return the number of snapshots that were replaced by a newer one before the render thread got to them.
+     */
+    public int getDropped(){
+        return buffer.getDropped();
+    }
+
+    /**
+     * @return a short summary of the stats, for debug text.
+     */
+    public String getStatsString(){
+        return "simulation: " + (int)tickRate + " ticks/s, " + (int)(tickTime*1000) + "ms/tick, latency: " + (int)(averageLatency*1000)
+                + "ms (max " + (int)(maxLatency*1000) + "ms), dropped: " + buffer.getDropped();
+    }
+}
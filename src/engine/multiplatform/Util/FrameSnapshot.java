@@ -0,0 +1,160 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.RenderUtils;
+import engine.multiplatform.gpu.GPUEntity;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.joml.Vector3i;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Everything the render thread needs to draw a frame: the camera, which chunks are visible, and where the entities are.
+ * The simulation thread fills one in each tick, and once it's published through a FramePipeline it can't be changed,
+ * so the render thread can use it while the simulation thread is already working on the next one.
+ *
+ * Snapshots are reused by the FramePipeline, so don't keep one around after the render thread is done with it.
+ */
+public class FrameSnapshot {
+    private long frame;
+    private long startTime;
+    private boolean published;
+
+    private final Vector3f cameraPosition = new Vector3f();
+    private final Vector3f cameraRotation = new Vector3f();
+    private final Matrix4f viewMatrix = new Matrix4f();
+    private final Set<Vector3i> visibleChunks = new HashSet<>();
+    private final ArrayList<GPUEntity> entities = new ArrayList<>();
+    //location, rotation, and scale of each entity
+    private float[] entityTransforms = new float[9*16];
+    private boolean cursorLocked;
+    private String text = "";
+
+    //called by the FramePipeline when the simulation thread gets this snapshot to fill in.
+    void begin(long frame, long startTime){
+        this.frame = frame;
+        this.startTime = startTime;
+        this.published = false;
+        visibleChunks.clear();
+        entities.clear();
+    }
+
+    void publish(){
+        published = true;
+    }
+
+    private void checkWritable(){
+        if(published) throw new IllegalStateException("Attempted to modify a FrameSnapshot after it was published");
+    }
+
+    public void setCamera(float xPos, float yPos, float zPos, float xRotation, float yRotation, float zRotation){
+        checkWritable();
+        cameraPosition.set(xPos, yPos, zPos);
+        cameraRotation.set(xRotation, yRotation, zRotation);
+        RenderUtils.getViewMatrix(viewMatrix, cameraPosition, cameraRotation);
+    }
+
+    /**
+     * marks a chunk as visible. The render only draws the chunks that were added.
+     * @param pos the chunk position. It's kept, not copied, so it must not be changed afterwards - the chunk map keys work well.
+     */
+    public void addVisibleChunk(Vector3i pos){
+        checkWritable();
+        visibleChunks.add(pos);
+    }
+
+    /**
+     * moves an entity when the frame is rendered.
+     */
+    public void addEntity(GPUEntity entity, float xPos, float yPos, float zPos, float xRotation, float yRotation, float zRotation, float xScale, float yScale, float zScale){
+        checkWritable();
+        int i = entities.size()*9;
+        if(i + 9 > entityTransforms.length) entityTransforms = Arrays.copyOf(entityTransforms, entityTransforms.length*2);
+        entities.add(entity);
+        entityTransforms[i] = xPos;
+        entityTransforms[i+1] = yPos;
+        entityTransforms[i+2] = zPos;
+        entityTransforms[i+3] = xRotation;
+        entityTransforms[i+4] = yRotation;
+        entityTransforms[i+5] = zRotation;
+        entityTransforms[i+6] = xScale;
+        entityTransforms[i+7] = yScale;
+        entityTransforms[i+8] = zScale;
+    }
+
+    public void setCursorLocked(boolean locked){
+        checkWritable();
+        cursorLocked = locked;
+    }
+
+    /**
+     * sets text for the game to show on screen, like debug info. The Render doesn't use it.
+     */
+    public void setText(String text){
+        checkWritable();
+        this.text = text;
+    }
+
+    /**
+     * moves every entity added with addEntity to where it was in this frame. Only call this from the render thread.
+     */
+    public void applyEntityTransforms(){
+        for(int e=0; e<entities.size(); e++){
+            int i = e*9;
+            entities.get(e).setPosition(entityTransforms[i], entityTransforms[i+1], entityTransforms[i+2],
+                    entityTransforms[i+3], entityTransforms[i+4], entityTransforms[i+5],
+                    entityTransforms[i+6], entityTransforms[i+7], entityTransforms[i+8]);
+        }
+    }
+
+    /**
+     * @return the number of the tick that made this snapshot, starting at 1.
+     */
+    public long getFrame(){
+        return frame;
+    }
+
+    /**
+     * @return the System.nanoTime() when the simulation started making this snapshot.
+     */
+    public long getStartTime(){
+        return startTime;
+    }
+
+    public Vector3fc getCameraPosition(){
+        return cameraPosition;
+    }
+
+    public Vector3fc getCameraRotation(){
+        return cameraRotation;
+    }
+
+    public Matrix4fc getViewMatrix(){
+        return viewMatrix;
+    }
+
+    public boolean isChunkVisible(Vector3i pos){
+        return visibleChunks.contains(pos);
+    }
+
+    public int getNumVisibleChunks(){
+        return visibleChunks.size();
+    }
+
+    public int getNumEntities(){
+        return entities.size();
+    }
+
+    public boolean isCursorLocked(){
+        return cursorLocked;
+    }
+
+    public String getText(){
+        return text;
+    }
+}
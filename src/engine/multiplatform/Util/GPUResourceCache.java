@@ -0,0 +1,257 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.model.CPUMesh;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Makes sure each texture, mesh, and shader program only ends up on the GPU once.
+ * Resources are looked up by a hash of their contents (see ContentHash), so loading the same image twice
+ * gives back the texture that was already created instead of making a new one.
+ *
+ * Each resource counts how many times it was handed out. Deleting it through the Render only removes one reference,
+ * and the resource is actually deleted once nothing references it anymore.
+ * That deletion is deferred until processDeletions is called by the render thread at the end of a frame,
+ * since the resource might still be in that frame's draw list, and GPU resources can only be deleted on the render thread anyway.
+ * If the same contents are loaded again before that, the resource is brought back instead of being recreated.
+ *
+ * The live counts and sizes are there to spot leaks: if they keep going up while the game isn't loading anything new,
+ * something isn't deleting what it loads.
+ */
+public class GPUResourceCache {
+    public enum Kind {TEXTURE, MESH, SHADER}
+
+    /**
+     * actually deletes a resource from the GPU. Implemented by each render backend.
+     */
+    public interface Deleter {
+        void delete(Kind kind, Object resource);
+    }
+
+    private static class Resource {
+        private final Kind kind;
+        private final ContentHash.Key key;
+        private final Object resource;
+        private final long bytes;
+        private int references;
+
+        private Resource(Kind kind, ContentHash.Key key, Object resource, long bytes){
+            this.kind = kind;
+            this.key = key;
+            this.resource = resource;
+            this.bytes = bytes;
+        }
+    }
+
+    private final HashMap<ContentHash.Key, Resource> byKey = new HashMap<>();
+    private final IdentityHashMap<Object, Resource> byResource = new IdentityHashMap<>();
+    private final List<Resource> pendingDeletion = new ArrayList<>();
+    private final int[] liveResources = new int[Kind.values().length];
+    private final long[] liveBytes = new long[Kind.values().length];
+    private long hits;
+    private long misses;
+
+    /**
+     * gets the resource with the given contents, or creates it if there isn't one.
+     * Each call adds a reference, which has to be removed with release() once it's no longer used.
+     * @param kind what type of resource it is
+     * @param key the hash of the contents. The kind is added to it, so different kinds never collide.
+     * @param bytes the size of the resource on the GPU, for the stats
+     * @param create creates the resource if it's not in the cache. It's called on the thread that calls acquire.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T acquire(Kind kind, ContentHash.Key key, long bytes, Supplier<T> create){
+        key = new ContentHash.Key(key.hash1() ^ kind.ordinal(), key.hash2());
+        Resource resource = byKey.get(key);
+        if(resource != null){
+            hits++;
+            //it was about to be deleted, but now something wants it again
+            if(resource.references == 0) pendingDeletion.remove(resource);
+            resource.references++;
+            return (T) resource.resource;
+        }
+        misses++;
+        T created = create.get();
+        if(created == null) return null;
+        resource = new Resource(kind, key, created, bytes);
+        resource.references = 1;
+        byKey.put(key, resource);
+        byResource.put(created, resource);
+        liveResources[kind.ordinal()]++;
+        liveBytes[kind.ordinal()] += bytes;
+        return created;
+    }
+
+    /**
+     * removes a reference to a resource. Once there are none left, it will be deleted at the next processDeletions.
+     * @return false if the resource didn't come from this cache, in which case the caller has to delete it itself.
+     */
+    public synchronized boolean release(Object object){
+        Resource resource = byResource.get(object);
+        if(resource == null) return false;
+        if(resource.references <= 0){
+            throw new IllegalStateException("Attempted to delete a " + resource.kind + " that was already deleted");
+        }
+        resource.references--;
+        if(resource.references == 0) pendingDeletion.add(resource);
+        return true;
+    }
+
+    /**
+     * tells the cache that a resource was changed after it was created, like a texture that had part of it replaced.
+     * It doesn't match its key anymore, so it won't be handed out for its old contents again, but it's still deleted once nothing references it.
+     */
+    public synchronized void modified(Object object){
+        Resource resource = byResource.get(object);
+        if(resource != null) byKey.remove(resource.key, resource);
+    }
+
+    /**
+     * deletes the resources that nothing references anymore. Only call this on the render thread.
+     */
+    public void processDeletions(Deleter deleter){
+        List<Resource> toDelete;
+        synchronized (this){
+            if(pendingDeletion.isEmpty()) return;
+            toDelete = new ArrayList<>(pendingDeletion);
+            pendingDeletion.clear();
+            for(Resource resource: toDelete){
+                byKey.remove(resource.key, resource);
+                byResource.remove(resource.resource);
+                liveResources[resource.kind.ordinal()]--;
+                liveBytes[resource.kind.ordinal()] -= resource.bytes;
+            }
+        }
+        for(Resource resource: toDelete){
+            deleter.delete(resource.kind, resource.resource);
+        }
+    }
+
+    /**
+     * deletes everything in the cache, whether it's still referenced or not. Used when the Render closes.
+     */
+    public void deleteAll(Deleter deleter){
+        List<Resource> toDelete;
+        synchronized (this){
+            toDelete = new ArrayList<>(byResource.values());
+            byKey.clear();
+            byResource.clear();
+            pendingDeletion.clear();
+            for(Kind kind: Kind.values()){
+                liveResources[kind.ordinal()] = 0;
+                liveBytes[kind.ordinal()] = 0;
+            }
+        }
+        for(Resource resource: toDelete){
+            deleter.delete(resource.kind, resource.resource);
+        }
+    }
+
+    /**
+     * @return the key for a texture made from an image.
+     */
+    public static ContentHash.Key hashImage(BufferedImage image){
+        return addImage(new ContentHash(), image).finish();
+    }
+
+    /**
+     * adds an image's size and pixels to a hash. This is the only place images are hashed, so keys made of several images (see AtlasCache) use it too.
+     * The same pixels in images of different types can hash differently, which only means they aren't shared.
+     * @return the hash, to chain more adds onto
+     */
+    public static ContentHash addImage(ContentHash hash, BufferedImage image){
+        int w = image.getWidth();
+        int h = image.getHeight();
+        hash.add(w).add(h);
+        //getRGB converts every pixel one at a time, which takes longer than generating an atlas, so the pixel data is hashed as it is where possible.
+        //indexed images are the exception, their pixel data means nothing without the palette
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        boolean whole = image.getType() != BufferedImage.TYPE_CUSTOM && !(image.getColorModel() instanceof IndexColorModel)
+                && image.getRaster().getParent() == null && buffer.getNumBanks() == 1;
+        if(whole && buffer instanceof DataBufferByte bytes){
+            ByteBuffer data = ByteBuffer.wrap(bytes.getData());
+            hash.add(image.getType()).add(data.remaining());
+            while(data.remaining() >= 8) hash.add(data.getLong());
+            while(data.hasRemaining()) hash.add(data.get());
+        } else if(whole && buffer instanceof DataBufferInt ints){
+            hash.add(image.getType()).add(ints.getData());
+        } else {
+            hash.add(image.getRGB(0, 0, w, h, null, 0, w));
+        }
+        return hash;
+    }
+
+    public static long imageBytes(BufferedImage image){
+        return image.getWidth() * (long)image.getHeight() * 4;
+    }
+
+    /**
+     * @return the key for a GPU mesh made from a CPUMesh. Only the parts that are sent to the GPU are hashed.
+     */
+    public static ContentHash.Key hashMesh(CPUMesh mesh){
+        return new ContentHash().add(mesh.positions).add(mesh.UVCoords).add(mesh.indices).finish();
+    }
+
+    public static long meshBytes(CPUMesh mesh){
+        return (mesh.positions.length + mesh.UVCoords.length + mesh.indices.length) * 4L;
+    }
+
+    /**
+     * @return the key for a shader program made from the source code of its shaders.
+     */
+    public static ContentHash.Key hashShader(String vertexSource, String fragmentSource){
+        return new ContentHash().add(vertexSource).add(fragmentSource).finish();
+    }
+
+    /**
+     * @return the number of resources of a kind that are on the GPU, including ones waiting to be deleted.
+     */
+    public synchronized int getLiveResources(Kind kind){
+        return liveResources[kind.ordinal()];
+    }
+
+    /**
+     * @return the size of the resources of a kind that are on the GPU, including ones waiting to be deleted.
+     */
+    public synchronized long getLiveBytes(Kind kind){
+        return liveBytes[kind.ordinal()];
+    }
+
+    public synchronized int getPendingDeletions(){
+        return pendingDeletion.size();
+    }
+
+    /**
+     * @return the number of times something was loaded that was already on the GPU.
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    /**
+     * @return a short summary of the live resources, for debug text.
+     */
+    public synchronized String getStatsString(){
+        StringBuilder b = new StringBuilder("GPU resources:");
+        String[] names = {"textures", "meshes", "shaders"};
+        for(Kind kind: Kind.values()){
+            b.append(' ').append(names[kind.ordinal()]).append(": ").append(liveResources[kind.ordinal()])
+                    .append(" (").append(liveBytes[kind.ordinal()]/1024).append("KiB),");
+        }
+        return b.append(" reused: ").append(hits).append(", deleting: ").append(pendingDeletion.size()).toString();
+    }
+}
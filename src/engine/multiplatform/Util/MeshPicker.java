@@ -0,0 +1,240 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.model.CPUMesh;
+import org.joml.Matrix4d;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import org.joml.Vector4d;
+import org.joml.Vector4f;
+
+/**
+ * Tests whether a mesh would cover a point on the screen.
+ * This is pure CPU math, so every Render backend uses the same one for Render.meshOnScreen.
+ * NOT thread safe - it reuses the same temporary vectors for every call.
+ */
+public class MeshPicker {
+    //a tiny bit of slack in the edge tests so points exactly on a shared edge don't fall through the crack, like the extra area in isInside.
+    private static final float EDGE_EPSILON = 0.0000177f;
+    private final Matrix4f tempMat = new Matrix4f();
+    private final Vector4f tempv4f1 = new Vector4f();
+    private final Vector4f tempv4f2 = new Vector4f();
+    private final Vector4f tempv4f3 = new Vector4f();
+
+    //for meshesOnScreen
+    private final Matrix4d inverseViewProjection = new Matrix4d();
+    private final Vector4d rayNear = new Vector4d();
+    private final Vector4d rayFar = new Vector4d();
+    private final Vector3f rayOrigin = new Vector3f();
+    private final Vector3f rayDirection = new Vector3f();
+    private final float[] combined = new float[16];
+    private float[] screenX = new float[0];
+    private float[] screenY = new float[0];
+    private boolean[] inFront = new boolean[0];
+    //bounding sphere of the last mesh used, so it isn't recomputed for every batch of the same mesh
+    private CPUMesh sphereMesh;
+    private float sphereX, sphereY, sphereZ, sphereRadius;
+
+    /**
+     * Tells weather a mesh would appear on a part of the screen if it were to be rendered.
+     *
+     * @param mesh             the mesh to transform - will not be modified as this method creates its own copy.
+     * @param meshTransform    the transform that moves the mesh in worldspace - input null to skip this transform
+     * @param viewMatrix       the transform that moves the mesh around the camera - input null to skip this transform
+     * @param projectionMatrix the transform that deforms the mesh to the camera projection - input null to skip this transform
+     * @param x                the x position on the screen to test collision
+     * @param y                the y position on the screen to test collision
+     * @return weather the transformed mesh would appear on the x and y coordinates.
+     */
+    public boolean meshOnScreen(CPUMesh mesh, Matrix4f meshTransform, Matrix4f viewMatrix, Matrix4f projectionMatrix, float x, float y) {
+        y = -y; //The screen coordinates are mirrored for some reason
+
+        tempMat.identity();
+        if(projectionMatrix != null){
+            tempMat.set(projectionMatrix);
+        }
+        if(viewMatrix != null){
+            tempMat.mul(viewMatrix);
+        }
+        if(meshTransform != null){
+            tempMat.mul(meshTransform);
+        }
+
+        int[] indices = mesh.indices;
+        float[] positions = mesh.positions;
+        // Go through each triangle
+        // translate it to 2D coordinates
+        //see if it collides with the position:
+        //  if it does, return true
+        //  if it doesn't, continue.
+        //if none of the triangles collide, return false.
+        for(int i=0; i<indices.length/3; i++){ //each triangle in the mesh
+            //get that triangle
+            int t = 3*indices[3*i];
+            tempv4f1.set(
+                    positions[t],
+                    positions[t+1],
+                    positions[t+2], 1);
+            t = 3*indices[3*i+1];
+            tempv4f2.set(
+                    positions[t],
+                    positions[t+1],
+                    positions[t+2], 1);
+            t = 3*indices[3*i+2];
+            tempv4f3.set(
+                    positions[t],
+                    positions[t+1],
+                    positions[t+2], 1);
+
+            //transform that triangle to the screen coordinates
+            tempv4f1.mulProject(tempMat);
+            tempv4f2.mulProject(tempMat); //transform the points
+            tempv4f3.mulProject(tempMat);
+            //if the triangle isn't behind the camera, and it touches the point, return true.
+            if(tempv4f1.z < 1.0f && tempv4f2.z < 1.0f && tempv4f3.z < 1.0f && isInside(tempv4f1.x, tempv4f1.y, tempv4f2.x, tempv4f2.y, tempv4f3.x, tempv4f3.y, x, y)) {
+                return true;
+            }
+        }
+        //if the point touches none of the triangles, return false.
+        return false;
+    }
+
+
+    /**
+     * The batched version of meshOnScreen: tests many transforms of the same mesh against one point on the screen.
+     * The combined matrix is only inverted once per batch. Each transform whose bounding sphere doesn't touch the ray
+     * through the point is skipped without projecting anything, and the rest have each vertex projected only once.
+     *
+     * @param mesh           the mesh to test
+     * @param viewProjection projectionMatrix * viewMatrix
+     * @param transforms     the mesh transforms, 16 floats each in column-major order (the same layout as Matrix4f.get(float[]))
+     * @param count          the number of transforms to test
+     * @param x              the x position on the screen to test collision
+     * @param y              the y position on the screen to test collision
+     * @param hits           gets the index of every transform that covers the point, in order. Must have room for count indices.
+     * @return the number of transforms that cover the point.
+     */
+    public int meshesOnScreen(CPUMesh mesh, Matrix4fc viewProjection, float[] transforms, int count, float x, float y, int[] hits){
+        y = -y; //The screen coordinates are mirrored for some reason
+        updateBoundingSphere(mesh);
+        //the ray through the point, in world space.
+        //The far plane is so far away that projecting a point on it back into world space divides by 0,
+        // so the direction is worked out from the homogeneous points without dividing the far one by its w.
+        inverseViewProjection.set(viewProjection).invert();
+        inverseViewProjection.transform(rayNear.set(x, y, -1, 1));
+        inverseViewProjection.transform(rayFar.set(x, y, 1, 1));
+        rayOrigin.set(rayNear.x / rayNear.w, rayNear.y / rayNear.w, rayNear.z / rayNear.w);
+        rayDirection.set(rayFar.x * rayNear.w - rayNear.x * rayFar.w, rayFar.y * rayNear.w - rayNear.y * rayFar.w, rayFar.z * rayNear.w - rayNear.z * rayFar.w).normalize();
+
+        int vertices = mesh.positions.length/3;
+        if(screenX.length < vertices){
+            screenX = new float[vertices];
+            screenY = new float[vertices];
+            inFront = new boolean[vertices];
+        }
+        int numHits = 0;
+        for(int i=0; i<count; i++){
+            int o = i*16;
+            if(!sphereTouchesRay(transforms, o)) continue;
+            multiply(viewProjection, transforms, o);
+            if(coversPoint(mesh, x, y)) hits[numHits++] = i;
+        }
+        return numHits;
+    }
+
+    private void updateBoundingSphere(CPUMesh mesh){
+        if(mesh == sphereMesh) return;
+        float[] positions = mesh.positions;
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for(int i=0; i<positions.length; i+=3){
+            minX = Math.min(minX, positions[i]);
+            minY = Math.min(minY, positions[i+1]);
+            minZ = Math.min(minZ, positions[i+2]);
+            maxX = Math.max(maxX, positions[i]);
+            maxY = Math.max(maxY, positions[i+1]);
+            maxZ = Math.max(maxZ, positions[i+2]);
+        }
+        sphereX = (minX + maxX) * 0.5f;
+        sphereY = (minY + maxY) * 0.5f;
+        sphereZ = (minZ + maxZ) * 0.5f;
+        float radiusSquared = 0;
+        for(int i=0; i<positions.length; i+=3){
+            float dx = positions[i] - sphereX, dy = positions[i+1] - sphereY, dz = positions[i+2] - sphereZ;
+            radiusSquared = Math.max(radiusSquared, dx*dx + dy*dy + dz*dz);
+        }
+        sphereRadius = (float)Math.sqrt(radiusSquared);
+        sphereMesh = mesh;
+    }
+
+    //transforms the mesh's bounding sphere and checks if the ray through the point passes through it.
+    private boolean sphereTouchesRay(float[] t, int o){
+        float cx = t[o]*sphereX + t[o+4]*sphereY + t[o+8]*sphereZ + t[o+12] - rayOrigin.x;
+        float cy = t[o+1]*sphereX + t[o+5]*sphereY + t[o+9]*sphereZ + t[o+13] - rayOrigin.y;
+        float cz = t[o+2]*sphereX + t[o+6]*sphereY + t[o+10]*sphereZ + t[o+14] - rayOrigin.z;
+        //the largest scale on any axis, so the sphere is always big enough
+        float scale = Math.max(t[o]*t[o] + t[o+1]*t[o+1] + t[o+2]*t[o+2],
+                Math.max(t[o+4]*t[o+4] + t[o+5]*t[o+5] + t[o+6]*t[o+6], t[o+8]*t[o+8] + t[o+9]*t[o+9] + t[o+10]*t[o+10]));
+        //padded a little, since the ray isn't perfectly accurate.
+        float radius = sphereRadius*(float)Math.sqrt(scale)*1.01f + 0.01f;
+        float radiusSquared = radius*radius;
+        float along = cx*rayDirection.x + cy*rayDirection.y + cz*rayDirection.z;
+        //behind the camera
+        if(along < 0 && along*along > radiusSquared) return false;
+        float distanceSquared = cx*cx + cy*cy + cz*cz - along*along;
+        return distanceSquared <= radiusSquared;
+    }
+
+    //combined = viewProjection * transforms[o]
+    private void multiply(Matrix4fc a, float[] b, int o){
+        for(int col=0; col<4; col++){
+            float b0 = b[o + col*4], b1 = b[o + col*4+1], b2 = b[o + col*4+2], b3 = b[o + col*4+3];
+            combined[col*4]   = a.m00()*b0 + a.m10()*b1 + a.m20()*b2 + a.m30()*b3;
+            combined[col*4+1] = a.m01()*b0 + a.m11()*b1 + a.m21()*b2 + a.m31()*b3;
+            combined[col*4+2] = a.m02()*b0 + a.m12()*b1 + a.m22()*b2 + a.m32()*b3;
+            combined[col*4+3] = a.m03()*b0 + a.m13()*b1 + a.m23()*b2 + a.m33()*b3;
+        }
+    }
+
+    private boolean coversPoint(CPUMesh mesh, float x, float y){
+        float[] m = combined;
+        float[] positions = mesh.positions;
+        //project each vertex once, instead of once for every triangle it's in
+        for(int v=0, p=0; p<positions.length; v++, p+=3){
+            float px = positions[p], py = positions[p+1], pz = positions[p+2];
+            float w = 1 / (m[3]*px + m[7]*py + m[11]*pz + m[15]);
+            screenX[v] = (m[0]*px + m[4]*py + m[8]*pz + m[12]) * w;
+            screenY[v] = (m[1]*px + m[5]*py + m[9]*pz + m[13]) * w;
+            inFront[v] = (m[2]*px + m[6]*py + m[10]*pz + m[14]) * w < 1.0f;
+        }
+        int[] indices = mesh.indices;
+        for(int i=0; i+2<indices.length; i+=3){
+            int a = indices[i], b = indices[i+1], c = indices[i+2];
+            if(!(inFront[a] && inFront[b] && inFront[c])) continue;
+            //edge functions: the point is inside if it's on the same side of all 3 edges, whichever way the triangle winds.
+            float ax = screenX[a], ay = screenY[a], bx = screenX[b], by = screenY[b], cx = screenX[c], cy = screenY[c];
+            float e0 = (bx - ax)*(y - ay) - (by - ay)*(x - ax);
+            float e1 = (cx - bx)*(y - by) - (cy - by)*(x - bx);
+            float e2 = (ax - cx)*(y - cy) - (ay - cy)*(x - cx);
+            if((e0 >= -EDGE_EPSILON && e1 >= -EDGE_EPSILON && e2 >= -EDGE_EPSILON) || (e0 <= EDGE_EPSILON && e1 <= EDGE_EPSILON && e2 <= EDGE_EPSILON)) return true;
+        }
+        return false;
+    }
+
+    //thanks to https://www.tutorialspoint.com/Check-whether-a-given-point-lies-inside-a-Triangle for the following code
+    //I adapted it to fit my code better, and to fix a bug related to float precision
+
+    private static double triangleArea(float p1x, float p1y, float p2x, float p2y, float p3x, float p3y) {
+        return Math.abs((p1x * (p2y - p3y) + p2x * (p3y - p1y) + p3x * (p1y - p2y)) / 2.0);
+    }
+
+    private static boolean isInside(float p1x, float p1y, float p2x, float p2y, float p3x, float p3y, float x, float y) {
+        double area = triangleArea (p1x, p1y, p2x, p2y, p3x, p3y) + .0000177;          ///area of triangle ABC //with a tiny bit of extra to avoid issues related to float precision errors
+        double area1 = triangleArea (x, y, p2x, p2y, p3x, p3y);         ///area of PBC
+        double area2 = triangleArea (p1x, p1y, x, y, p3x, p3y);         ///area of APC
+        double area3 = triangleArea (p1x, p1y, p2x, p2y, x, y);        ///area of ABP
+
+        return (area >= area1 + area2 + area3);        ///when three triangles are forming the whole triangle
+        //I changed it to >= because floats cannot be trusted to hold perfectly accurate data,
+    }
+}
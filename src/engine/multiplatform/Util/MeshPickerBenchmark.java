@@ -0,0 +1,92 @@
+package engine.multiplatform.Util;
+
+import VMF.VMFLoader;
+import engine.multiplatform.Render;
+import engine.multiplatform.model.CPUMesh;
+import org.joml.Matrix4f;
+
+import java.io.File;
+
+/**
+ * Compares MeshPicker.meshOnScreen called once per block against one meshesOnScreen call for all of them,
+ * using the same box of blocks the old block picking in Main used to test every frame.
+ * It also checks that both find the same blocks.
+ *
+ * args: [path to a .vbmf block model] [iterations]
+ */
+public class MeshPickerBenchmark {
+    public static void main(String[] args) throws Exception {
+        String modelPath = args.length > 0 ? args[0] : "resources/VMFModels/stoneBlock.vbmf0";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        CPUMesh mesh = new CPUMesh(new VMFLoader().loadVBMF(new File(modelPath)));
+
+        //a camera looking slightly downwards, like a player looking at the ground in front of them.
+        Matrix4f projection = new Matrix4f().setPerspective((float)Math.toRadians(90), 800f/600f, 1/256f, 1 << 20);
+        Matrix4f view = new Matrix4f().rotate(0.4f, 1, 0, 0).translate(-3, -20, -4);
+        Matrix4f viewProjection = new Matrix4f(projection).mul(view);
+        float mouseX = 0.1f, mouseY = 0.05f;
+
+        //every block within placementDistance (5) of the player, the same box Main used to scan.
+        int xOff = (int)(5/0.288675134595-0.5);
+        int yzOff = (int)(5*2-0.5);
+        int bx = (int)(3/0.288675134595), by = 40, bz = 8;
+        int count = (2*xOff) * (2*yzOff) * (2*yzOff);
+        Matrix4f[] matrices = new Matrix4f[count];
+        float[] transforms = new float[count*16];
+        int i = 0;
+        for (int x = bx - xOff; x < bx + xOff; ++x) {
+            for (int y = by - yzOff; y < by + yzOff; ++y) {
+                for (int z = bz - yzOff; z < bz + yzOff; ++z) {
+                    matrices[i] = Render.getBlockTransform(new Matrix4f(), x, y, z, 32);
+                    matrices[i].get(transforms, i*16);
+                    i++;
+                }
+            }
+        }
+
+        MeshPicker picker = new MeshPicker();
+        int[] hits = new int[count];
+        boolean[] perCallHits = new boolean[count];
+        int perCallCount = 0;
+        for(int j=0; j<count; j++){
+            perCallHits[j] = picker.meshOnScreen(mesh, matrices[j], view, projection, mouseX, mouseY);
+            if(perCallHits[j]) perCallCount++;
+        }
+        int batchedCount = picker.meshesOnScreen(mesh, viewProjection, transforms, count, mouseX, mouseY, hits);
+        int agree = 0;
+        for(int j=0; j<batchedCount; j++){
+            if(perCallHits[hits[j]]) agree++;
+        }
+        System.out.println(count + " blocks, per call hits: " + perCallCount + ", batched hits: " + batchedCount + ", in both: " + agree);
+
+        //warm up, then time
+        long sink = 0;
+        for(int w=0; w<iterations/4+1; w++){
+            sink += perCall(picker, mesh, matrices, view, projection, mouseX, mouseY);
+            sink += picker.meshesOnScreen(mesh, viewProjection, transforms, count, mouseX, mouseY, hits);
+        }
+        long start = System.nanoTime();
+        for(int w=0; w<iterations; w++){
+            sink += perCall(picker, mesh, matrices, view, projection, mouseX, mouseY);
+        }
+        long perCallTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for(int w=0; w<iterations; w++){
+            //includes combining the matrices, since the caller would have to do that each frame too.
+            viewProjection.set(projection).mul(view);
+            sink += picker.meshesOnScreen(mesh, viewProjection, transforms, count, mouseX, mouseY, hits);
+        }
+        long batchedTime = System.nanoTime() - start;
+        System.out.println("per call: " + perCallTime/iterations/1000 + "us per pass");
+        System.out.println("batched: " + batchedTime/iterations/1000 + "us per pass (" + (perCallTime/Math.max(batchedTime, 1)) + "x faster)");
+        System.out.println("(" + sink + ")");
+    }
+
+    private static int perCall(MeshPicker picker, CPUMesh mesh, Matrix4f[] matrices, Matrix4f view, Matrix4f projection, float x, float y){
+        int hits = 0;
+        for(Matrix4f matrix: matrices){
+            if(picker.meshOnScreen(mesh, matrix, view, projection, x, y)) hits++;
+        }
+        return hits;
+    }
+}
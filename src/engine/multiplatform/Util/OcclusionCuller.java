@@ -0,0 +1,104 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.RenderUtils;
+import engine.multiplatform.gpu.GPUChunk;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static engine.multiplatform.Util.ChunkVisibility.*;
+
+/**
+ * Skips chunks that the camera can't possibly see because there is no see-through path from the camera to them.
+ *
+ * Each frame it does a breadth first search through the loaded chunks, starting at the camera's chunk.
+ * A chunk entered through one face can only be left through the faces its visibility graph (see ChunkVisibility) connects to that face,
+ * and the search never goes back in a direction opposite to one it has already gone in, since you can't see around corners.
+ * Chunks that haven't been built yet are treated as completely see-through, so nothing gets hidden by mistake.
+ */
+public class OcclusionCuller {
+    private final Set<Vector3i> reachable = new HashSet<>();
+    private final Vector3i tempPos = new Vector3i();
+    //the search queue. Every chunk is added at most once, so it never needs more room than there are chunks.
+    private GPUChunk[] queueChunks = new GPUChunk[0];
+    //for each queued chunk: bits 0-2 are the face it was entered from (6 for the camera chunk), bits 3-8 are the directions taken to get there.
+    private int[] queueStates = new int[0];
+    private boolean enabled = true;
+    private boolean active;
+    private int occludedChunks;
+
+    /**
+     * runs the search for a new frame and resets the counter.
+     * @param chunks the loaded chunks
+     * @param cameraPos the world position of the camera
+     * @param frustum if not null and enabled, the search doesn't go through chunks outside the view frustum.
+     */
+    public void update(Map<Vector3i, GPUChunk> chunks, Vector3f cameraPos, ChunkCuller frustum){
+        reachable.clear();
+        occludedChunks = 0;
+        active = false;
+        if(!enabled) return;
+        GPUChunk start = chunks.get(RenderUtils.getChunkPos(cameraPos));
+        //if the camera isn't in a loaded chunk, we have nowhere to start from so everything is visible.
+        if(start == null) return;
+        active = true;
+
+        if(queueChunks.length < chunks.size()+1){
+            queueChunks = new GPUChunk[chunks.size()*2+1];
+            queueStates = new int[queueChunks.length];
+        }
+        int head = 0, tail = 0;
+        queueChunks[tail] = start;
+        queueStates[tail++] = 6;
+        reachable.add(start.getPos());
+        while(head < tail){
+            GPUChunk chunk = queueChunks[head];
+            int state = queueStates[head];
+            queueChunks[head++] = null;
+            int entry = state & 7;
+            int directions = state >> 3;
+            long visibility = chunk.getVisibility();
+            Vector3i pos = chunk.getPos();
+            for(int face = 0; face < 6; face++){
+                //don't go back the way we came
+                if((directions & (1 << (face^1))) != 0) continue;
+                //the camera chunk can see out of every face, since the camera could be anywhere inside it
+                if(entry != 6 && !canSee(visibility, entry, face)) continue;
+                GPUChunk next = chunks.get(tempPos.set(pos.x + FACE_X[face], pos.y + FACE_Y[face], pos.z + FACE_Z[face]));
+                if(next == null || reachable.contains(next.getPos())) continue;
+                if(frustum != null && frustum.isEnabled() && !frustum.testChunk(next.getPos(), next.getSize())) continue;
+                reachable.add(next.getPos());
+                queueChunks[tail] = next;
+                queueStates[tail++] = (face^1) | ((directions | (1 << face)) << 3);
+            }
+        }
+    }
+
+    /**
+     * tests if a chunk was reached by the last search, and counts the chunks that weren't.
+     * @return false if the camera can't possibly see the chunk, true otherwise.
+     */
+    public boolean isVisible(Vector3i chunkPos){
+        if(!active || reachable.contains(chunkPos)) return true;
+        occludedChunks++;
+        return false;
+    }
+
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * @return the number of chunks that were hidden since the last update()
+     */
+    public int getOccludedChunks(){
+        return occludedChunks;
+    }
+}
@@ -0,0 +1,121 @@
+package engine.multiplatform.Util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Loads resources at startup on a pool of worker threads, and keeps track of how long each category of resource took.
+ *
+ * Reading and decoding files (models, images) can happen on any thread, so those go through load() and run in parallel.
+ * Anything that creates GPU objects has to happen on the render thread, so those go through onThisThread(),
+ * which runs them right away but still times them, so the breakdown covers all of startup.
+ *
+ * Usage: start loads, do the render thread work while they run, join() the loads, then close() and print getTimingString().
+ */
+public class StartupLoader implements AutoCloseable {
+    private static class Category {
+        private int count;
+        private long work; //time spent on the tasks, added up over every thread
+        private long first = Long.MAX_VALUE; //when the first task started
+        private long last; //when the last task finished
+    }
+
+    private final ExecutorService pool;
+    private final Map<String, Category> categories = new LinkedHashMap<>();
+    private final long start = System.nanoTime();
+
+    public StartupLoader(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public StartupLoader(int threads){
+        AtomicInteger number = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(threads, 1), r -> {
+            Thread thread = new Thread(r, "Startup loader " + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * loads something on a worker thread.
+     * @param category what kind of resource it is, for the timing breakdown
+     * @param task loads the resource. It can't touch the GPU.
+     * @return the resource, once it's loaded.
+     */
+    public <T> CompletableFuture<T> load(String category, Callable<T> task){
+        return CompletableFuture.supplyAsync(() -> time(category, task), pool);
+    }
+
+    /**
+     * runs something on the calling thread right away, and times it. Use it for anything that has to happen on the render thread.
+     */
+    public <T> T onThisThread(String category, Supplier<T> task){
+        return time(category, task::get);
+    }
+
+    /**
+     * waits for a load to finish.
+     * @throws RuntimeException whatever the load threw, if it failed.
+     */
+    public static <T> T join(CompletableFuture<T> future){
+        try {
+            return future.join();
+        } catch (CompletionException e){
+            if(e.getCause() instanceof RuntimeException r) throw r;
+            throw e;
+        }
+    }
+
+    private <T> T time(String category, Callable<T> task){
+        long taskStart = System.nanoTime();
+        try {
+            return task.call();
+        } catch (RuntimeException e){
+            throw e;
+        } catch (Exception e){
+            throw new CompletionException(e);
+        } finally {
+            long end = System.nanoTime();
+            synchronized (categories){
+                Category c = categories.computeIfAbsent(category, k -> new Category());
+                c.count++;
+                c.work += end - taskStart;
+                c.first = Math.min(c.first, taskStart);
+                c.last = Math.max(c.last, end);
+            }
+        }
+    }
+
+    /**
+     * @return how long each category took, for printing once startup is done.
+     *  "work" is the time spent on each resource added up, and "wall" is from when the first one started to when the last one finished,
+     *  so when they were loaded in parallel the wall time is less than the work.
+     */
+    public String getTimingString(){
+        StringBuilder b = new StringBuilder("startup took ").append((System.nanoTime() - start) / 1_000_000).append("ms:");
+        synchronized (categories){
+            for(Map.Entry<String, Category> entry: categories.entrySet()){
+                Category c = entry.getValue();
+                b.append("\n  ").append(entry.getKey()).append(": ").append(c.count).append(c.count == 1 ? " item, " : " items, ")
+                        .append(c.work / 1_000_000).append("ms work, ").append((c.last - c.first) / 1_000_000).append("ms wall");
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * stops the worker threads. Loads that haven't started yet are cancelled.
+     */
+    @Override
+    public void close(){
+        pool.shutdownNow();
+    }
+}
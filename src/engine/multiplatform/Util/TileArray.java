@@ -0,0 +1,142 @@
+package engine.multiplatform.Util;
+
+import engine.multiplatform.model.CPUMesh;
+import engine.multiplatform.model.CPUModel;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CPU side of the tile mode for block textures, which uses an array texture instead of an atlas.
+ * Each different block texture becomes a layer ("tile") of the array texture, and every layer is the same size.
+ *
+ * The models it makes have their UVs in tile space instead of atlas space: u is the same as in the block's own texture,
+ * and v is the block's own v plus twice its tile index. The tiles are 2 apart so a v of exactly 1 (the bottom of a tile)
+ * can't be mistaken for the top of the next one.
+ * That way the block meshes are still normal CPUMeshes, and only the chunk meshes are different:
+ * encode() packs each vertex's tile space UV into a single int, instead of the two floats an atlas UV takes.
+ *
+ * Bits 0-10 are u in 1024ths of the tile, bits 11-21 are v the same way, and bits 22-31 are the tile index.
+ * 1024ths are exact for any texture up to 1024 pixels that is a power of two in size, which block textures are.
+ * The tile shader (tileVertex.glsl) unpacks them.
+ */
+public class TileArray {
+    public static final int UV_SCALE = 1024;
+    private static final int UV_BITS = 11;
+    private static final int UV_MASK = (1 << UV_BITS) - 1;
+    //the fewest layers an array texture can have in GL 3.3. Bits 22-31 would fit 1024.
+    public static final int MAX_TILES = 256;
+
+    private final int tileWidth;
+    private final int tileHeight;
+    private final List<BufferedImage> tiles;
+    private final List<CPUModel> models;
+
+    private TileArray(int tileWidth, int tileHeight, List<BufferedImage> tiles, List<CPUModel> models){
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.tiles = Collections.unmodifiableList(tiles);
+        this.models = Collections.unmodifiableList(models);
+    }
+
+    /**
+     * gives each different texture of the models a tile, and makes copies of the models that use them.
+     * The tiles are as big as the biggest texture. Smaller textures go in the top left corner of their tile, and their UVs are scaled to match.
+     * Models with identical textures share a tile.
+     * @param models the models. They won't be modified.
+     * @throws IllegalStateException if there are more than MAX_TILES different textures.
+     */
+    public static TileArray generate(List<CPUModel> models){
+        int tileWidth = 1;
+        int tileHeight = 1;
+        for(CPUModel model: models){
+            tileWidth = Math.max(tileWidth, model.texture.getWidth());
+            tileHeight = Math.max(tileHeight, model.texture.getHeight());
+        }
+        List<BufferedImage> tiles = new ArrayList<>();
+        Map<ContentHash.Key, Integer> tileIndices = new HashMap<>();
+        List<CPUModel> tiled = new ArrayList<>();
+        for(CPUModel model: models){
+            BufferedImage texture = model.texture;
+            ContentHash.Key key = GPUResourceCache.hashImage(texture);
+            Integer tile = tileIndices.get(key);
+            if(tile == null){
+                if(tiles.size() == MAX_TILES) throw new IllegalStateException("there are more than " + MAX_TILES + " different block textures");
+                tile = tiles.size();
+                tileIndices.put(key, tile);
+                tiles.add(toTile(texture, tileWidth, tileHeight));
+            }
+            CPUMesh mesh = model.mesh.clone();
+            float scaleU = texture.getWidth() / (float)tileWidth;
+            float scaleV = texture.getHeight() / (float)tileHeight;
+            for(int i=0; i<mesh.UVCoords.length/2; i++){
+                mesh.UVCoords[2*i  ] = mesh.UVCoords[2*i  ] * scaleU;
+                mesh.UVCoords[2*i+1] = mesh.UVCoords[2*i+1] * scaleV + 2*tile;
+            }
+            tiled.add(new CPUModel(mesh, tiles.get(tile)));
+        }
+        return new TileArray(tileWidth, tileHeight, tiles, tiled);
+    }
+
+    private static BufferedImage toTile(BufferedImage texture, int tileWidth, int tileHeight){
+        BufferedImage tile = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = tile.createGraphics();
+        graphics.drawImage(texture, 0, 0, null);
+        graphics.dispose();
+        return tile;
+    }
+
+    /**
+     * packs a tile space UV into an int, for a chunk mesh vertex.
+     * @param u the u within the tile, from 0 to 1
+     * @param v the v within the tile plus twice the tile index, like the models from generate() have.
+     */
+    public static int encode(float u, float v){
+        int tile = (int)Math.floor(v / 2);
+        int packedU = Math.round(Math.min(Math.max(u, 0), 1) * UV_SCALE);
+        int packedV = Math.round(Math.min(Math.max(v - 2*tile, 0), 1) * UV_SCALE);
+        return packedU | packedV << UV_BITS | tile << (2*UV_BITS);
+    }
+
+    public static float decodeU(int packed){
+        return (packed & UV_MASK) / (float)UV_SCALE;
+    }
+
+    /**
+     * @return the v within the tile, without the tile index added to it.
+     */
+    public static float decodeV(int packed){
+        return (packed >>> UV_BITS & UV_MASK) / (float)UV_SCALE;
+    }
+
+    public static int decodeTile(int packed){
+        return packed >>> (2*UV_BITS);
+    }
+
+    /**
+     * @return the models, in the same order they were given to generate(), with their UVs in tile space.
+     */
+    public List<CPUModel> getModels(){
+        return models;
+    }
+
+    /**
+     * @return the image of each tile, for the layers of the array texture.
+     */
+    public List<BufferedImage> getTiles(){
+        return tiles;
+    }
+
+    public int getTileWidth(){
+        return tileWidth;
+    }
+
+    public int getTileHeight(){
+        return tileHeight;
+    }
+}
@@ -0,0 +1,86 @@
+package engine.multiplatform.Util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Passes objects from one producer thread to one consumer thread without either of them ever waiting on the other.
+ *
+ * There are three buffers: the back one, which only the producer touches while filling it,
+ * the front one, which only the consumer touches while using it,
+ * and the middle one, which holds the newest finished buffer the consumer hasn't taken yet.
+ * Publishing swaps the back buffer with the middle one, and taking swaps the front buffer with the middle one if it's newer.
+ * Both swaps are a single atomic operation, so the consumer always gets a whole buffer, and always the newest one.
+ *
+ * If the producer publishes twice before the consumer takes anything, the older one is overwritten (dropped) and reused.
+ * The buffers are reused, so nothing is allocated once it's running.
+ */
+public class TripleBuffer<T> {
+    //the middle buffer index is in the low bits, and NEW is set when it's newer than the front buffer.
+    private static final int NEW = 4;
+    private static final int INDEX = 3;
+
+    private final Object[] buffers = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0; //only used by the producer
+    private int front = 2; //only used by the consumer
+    private boolean hasFront; //only used by the consumer
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    /**
+     * @param create creates each of the three buffers.
+     */
+    public TripleBuffer(Supplier<T> create){
+        for(int i=0; i<buffers.length; i++){
+            buffers[i] = create.get();
+        }
+    }
+
+    /**
+     * @return the buffer the producer should fill. It stays the same until publish is called.
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack(){
+        return (T) buffers[back];
+    }
+
+    /**
+     * makes the back buffer available to the consumer, and gives the producer a new back buffer to fill.
+     * Only call this from the producer thread.
+     */
+    public void publish(){
+        int previous = middle.getAndSet(back | NEW);
+        if((previous & NEW) != 0) dropped.incrementAndGet();
+        back = previous & INDEX;
+    }
+
+    /**
+     * takes the newest published buffer, if there is one the consumer doesn't have yet.
+     * Only call this from the consumer thread. The buffer can be used until the next call to take.
+     * @return the newest buffer, which is the same as last time if nothing new was published.
+     *  null if nothing has been published yet.
+     */
+    @SuppressWarnings("unchecked")
+    public T take(){
+        if((middle.get() & NEW) != 0){
+            int previous = middle.getAndSet(front);
+            front = previous & INDEX;
+            hasFront = true;
+        }
+        return hasFront ? (T) buffers[front] : null;
+    }
+
+    /**
+     * @return true if there's a buffer that take would return that the consumer hasn't taken yet.
+     */
+    public boolean hasNew(){
+        return (middle.get() & NEW) != 0;
+    }
+
+    /**
+     * @return the number of buffers that were published and then overwritten before the consumer took them.
+     */
+    public int getDropped(){
+        return dropped.get();
+    }
+}
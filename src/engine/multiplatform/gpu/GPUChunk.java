@@ -6,6 +6,16 @@ public interface GPUChunk extends GPUObject{
 
     Vector3i getPos();
 
+    /**
+     * @return the number of blocks along each side of the chunk.
+     */
+    int getSize();
+
+    /**
+     * @return which faces of this chunk can see each other through its blocks, as of the last time it was built. See ChunkVisibility.
+     */
+    long getVisibility();
+
     /**
      * sets the block data of this chunk.
      * @param blocks a 3D array of blockModels that represent that chunk's block data.
@@ -18,6 +18,7 @@ public interface GPUObject {
      * supported render APIs:
      * 0:unknown (This should absolutely under no circumstances ever happen. Not in all time and space should this value ever be returned by this function)
      * 1:GL33
+     * 2:headless (CPU only, no GPU or window)
      *
      *
      * @return the render backend ID
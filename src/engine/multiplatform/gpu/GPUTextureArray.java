@@ -0,0 +1,9 @@
+package engine.multiplatform.gpu;
+
+/**
+ * A texture with layers, for blocks in tile mode (see TileArray).
+ * Chunks made of blocks that use one get tiled meshes, with each vertex's UV packed into an int.
+ */
+public interface GPUTextureArray extends GPUTexture{
+    int getLayers();
+}
@@ -1,5 +1,6 @@
 package engine.multiplatform.model;
 
+import VMF.ModelPack;
 import VMF.VMFLoader;
 
 import java.util.Arrays;
@@ -35,6 +36,14 @@ public class CPUMesh {
         this.removableTriangles = loader.getRemovableTriangles();
         this.blockedFaces = loader.getBlockedFaces();
     }
+
+    public CPUMesh(ModelPack.Model model){
+        this.positions = model.getVertices();
+        this.UVCoords = model.getTextureCoordinates();
+        this.indices = model.getIndices();
+        this.removableTriangles = model.getRemovableTriangles();
+        this.blockedFaces = model.getBlockedFaces();
+    }
     public CPUMesh clone() {
         try {
             super.clone();
@@ -1,5 +1,6 @@
 package engine.multiplatform.model;
 
+import VMF.ModelPack;
 import VMF.VMFLoader;
 
 import java.awt.image.BufferedImage;
@@ -20,6 +21,11 @@ public class CPUModel {
         this.texture = load.getImage();
     }
 
+    public CPUModel(ModelPack.Model model){
+        this.mesh = new CPUMesh(model);
+        this.texture = model.getImage();
+    }
+
     /**
      * NOTICE: does not clone the contained image, only the mesh is cloned.
      * This means if you edit the image of the clone, it edits the image of the original and vice-versa.
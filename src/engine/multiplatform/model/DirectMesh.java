@@ -0,0 +1,215 @@
+package engine.multiplatform.model;
+
+import engine.multiplatform.RenderUtils;
+import engine.multiplatform.Util.TileArray;
+import org.lwjgl.system.MemoryUtil;
+
+import java.lang.ref.Cleaner;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A mesh that is stored outside the Java heap, used for chunk meshes.
+ * Chunk meshes are big and short-lived: they are built, uploaded to the GPU, and thrown away.
+ * With a CPUMesh they would be built into arrays, then copied again into native memory to be uploaded.
+ * A DirectMesh is built straight into native memory and uploaded from there, so there is only ever one copy,
+ * and the garbage collector never has to deal with it.
+ *
+ * Native memory isn't freed automatically, so every DirectMesh has to be released when it's done being used.
+ * A mesh can have more than one user (the ChunkMeshCache and a chunk waiting to upload it, for example),
+ * so it counts references: it starts with one, retain() adds one, release() removes one, and the memory is freed at 0.
+ *
+ * A mesh can also be tiled, for blocks that use a TileArray instead of an atlas.
+ * Then each vertex has one int in tiles (a UV packed by TileArray.encode) instead of two floats in UVCoords, and UVCoords is null.
+ *
+ * If a mesh is garbage collected without being released, its memory is freed then instead.
+ * When leak detection is on (it's on when assertions are enabled with -ea), that is reported as an error
+ * along with where the mesh was created.
+ */
+public class DirectMesh {
+    private static final Cleaner cleaner = Cleaner.create();
+    private static volatile boolean leakDetection;
+    static {
+        //noinspection AssertWithSideEffects
+        assert leakDetection = true;
+    }
+    private static final AtomicInteger liveMeshes = new AtomicInteger();
+    private static final AtomicLong liveBytes = new AtomicLong();
+
+    public final FloatBuffer positions;
+    public final FloatBuffer UVCoords;
+    public final IntBuffer tiles;
+    public final IntBuffer indices;
+    public final int vertexCount;
+    public final int indexCount;
+
+    private final Memory memory;
+    private final Cleaner.Cleanable cleanable;
+
+    /**
+     * allocates an empty mesh with space for a number of vertices and indices.
+     * Fill the buffers with put(), then call flip() on them before using the mesh.
+     */
+    public DirectMesh(int vertexCount, int indexCount){
+        this(vertexCount, indexCount, false);
+    }
+
+    /**
+     * allocates an empty mesh with space for a number of vertices and indices.
+     * Fill the buffers with put(), then call flip() on them before using the mesh.
+     * @param tiled true to have the tiles buffer instead of UVCoords
+     */
+    public DirectMesh(int vertexCount, int indexCount, boolean tiled){
+        //the allocation is never 0 bytes, since some allocators return null for that
+        this(MemoryUtil.memAllocFloat(Math.max(vertexCount * 3, 1)).limit(vertexCount * 3),
+                tiled ? null : MemoryUtil.memAllocFloat(Math.max(vertexCount * 2, 1)).limit(vertexCount * 2),
+                tiled ? MemoryUtil.memAllocInt(Math.max(vertexCount, 1)).limit(vertexCount) : null,
+                MemoryUtil.memAllocInt(Math.max(indexCount, 1)).limit(indexCount));
+    }
+
+    /**
+     * makes a mesh out of buffers that were allocated with MemoryUtil, without copying them. The mesh owns them after this, so they're freed with it.
+     * Their limits are the size of the mesh, and they're read from index 0.
+     * @param UVCoords the texture coordinates, or null if the mesh is tiled
+     * @param tiles the packed tile UVs, or null if it isn't
+     */
+    public DirectMesh(FloatBuffer positions, FloatBuffer UVCoords, IntBuffer tiles, IntBuffer indices){
+        if((UVCoords == null) == (tiles == null)) throw new IllegalArgumentException("A DirectMesh needs either UVCoords or tiles, not both or neither");
+        this.vertexCount = positions.limit() / 3;
+        this.indexCount = indices.limit();
+        this.positions = positions.position(0);
+        this.UVCoords = UVCoords == null ? null : UVCoords.position(0);
+        this.tiles = tiles == null ? null : tiles.position(0);
+        this.indices = indices.position(0);
+        long textureCoordinates = tiles != null ? MemoryUtil.memAddress0(tiles) : MemoryUtil.memAddress0(UVCoords);
+        this.memory = new Memory(MemoryUtil.memAddress0(positions), textureCoordinates, MemoryUtil.memAddress0(indices),
+                getSizeBytes(), leakDetection ? new Throwable("DirectMesh created here") : null);
+        this.cleanable = cleaner.register(this, memory);
+        liveMeshes.incrementAndGet();
+        liveBytes.addAndGet(memory.bytes);
+    }
+
+    /**
+     * adds a reference to this mesh, which then has to be released separately.
+     * @throws IllegalStateException if the mesh was already freed
+     */
+    public void retain(){
+        int references;
+        do {
+            references = memory.references.get();
+            if(references <= 0) throw new IllegalStateException("Attempted to use a DirectMesh after it was freed");
+        } while(!memory.references.compareAndSet(references, references+1));
+    }
+
+    /**
+     * removes a reference to this mesh, freeing its memory if it was the last one.
+     * @throws IllegalStateException if the mesh was already freed
+     */
+    public void release(){
+        int references = memory.references.decrementAndGet();
+        if(references == 0){
+            memory.released = true;
+            cleanable.clean();
+        } else if(references < 0){
+            throw new IllegalStateException("DirectMesh was released more times than it was retained");
+        }
+    }
+
+    public boolean isFreed(){
+        return memory.references.get() <= 0;
+    }
+
+    public boolean isTiled(){
+        return tiles != null;
+    }
+
+    /**
+     * @return the number of bytes of mesh data (positions, texture coordinates and indices)
+     */
+    public long getSizeBytes(){
+        return (vertexCount * (isTiled() ? 4L : 5L) + indexCount) * 4L;
+    }
+
+    /**
+     * copies this mesh into a normal CPUMesh on the Java heap.
+     * The UVs of a tiled mesh are unpacked into tile space, like the block models from TileArray have.
+     */
+    public CPUMesh toCPUMesh(){
+        float[] positions = new float[vertexCount*3];
+        float[] UVCoords = new float[vertexCount*2];
+        int[] indices = new int[indexCount];
+        this.positions.get(0, positions);
+        if(isTiled()){
+            for(int i=0; i<vertexCount; i++){
+                int packed = tiles.get(i);
+                UVCoords[2*i  ] = TileArray.decodeU(packed);
+                UVCoords[2*i+1] = TileArray.decodeV(packed) + 2*TileArray.decodeTile(packed);
+            }
+        } else {
+            this.UVCoords.get(0, UVCoords);
+        }
+        this.indices.get(0, indices);
+        return new CPUMesh(positions, UVCoords, indices);
+    }
+
+    /**
+     * turns leak detection on or off. It only affects meshes created after it's changed.
+     */
+    public static void setLeakDetection(boolean enabled){
+        leakDetection = enabled;
+    }
+
+    /**
+     * @return the number of DirectMeshes that haven't been freed yet.
+     */
+    public static int getLiveMeshes(){
+        return liveMeshes.get();
+    }
+
+    /**
+     * @return the total size of the DirectMeshes that haven't been freed yet.
+     */
+    public static long getLiveBytes(){
+        return liveBytes.get();
+    }
+
+    public String toString(){
+        return "DirectMesh has " + indexCount + " indices, " + vertexCount + " vertices";
+    }
+
+    //the part of the mesh the Cleaner keeps, it can't reference the mesh itself or the mesh would never be collected.
+    private static class Memory implements Runnable {
+        private final long positions;
+        private final long textureCoordinates; //UVCoords or tiles
+        private final long indices;
+        private final long bytes;
+        private final Throwable origin;
+        private final AtomicInteger references = new AtomicInteger(1);
+        private volatile boolean released;
+
+        private Memory(long positions, long textureCoordinates, long indices, long bytes, Throwable origin){
+            this.positions = positions;
+            this.textureCoordinates = textureCoordinates;
+            this.indices = indices;
+            this.bytes = bytes;
+            this.origin = origin;
+        }
+
+        @Override
+        public void run() {
+            if(!released && origin != null){
+                String message = "DirectMesh of " + bytes + " bytes was garbage collected without being released";
+                if(RenderUtils.activeRender != null) RenderUtils.activeRender.printErrln(message);
+                else System.err.println(message);
+                origin.printStackTrace();
+            }
+            MemoryUtil.nmemFree(positions);
+            MemoryUtil.nmemFree(textureCoordinates);
+            MemoryUtil.nmemFree(indices);
+            liveMeshes.decrementAndGet();
+            liveBytes.addAndGet(-bytes);
+        }
+    }
+}
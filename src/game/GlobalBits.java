@@ -14,6 +14,7 @@ public class GlobalBits {
     //settings
     public static float renderDistance;
     public static float guiScale;
+    public static boolean tileTextures; //use an array texture for blocks instead of an atlas, see TileArray
 
     //technical bits
     public static String resourcesPath;
@@ -24,12 +25,13 @@ public class GlobalBits {
     public static Vector3i tempV3i0;
     public static GPUShader defaultShader;
     public static GPUShader guiShader;
+    public static GPUShader tileShader;
     //player bits
     public static Vector3f playerPosition;
     public static Vector3f playerRotation;
     public static Vector3i playerChunk;
     public static double sensitivity;
-    //blocks
+    //blocks. Read by the simulation thread and added to by the render thread (SimpleBlock.registerBlock), so it has to be a concurrent map
     public static Map<String, Block> blocks;
 
     public static void updateValues(){
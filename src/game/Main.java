@@ -1,21 +1,27 @@
 package game;
 
 import engine.gl33.GL33Render;
-import engine.multiplatform.Render;
 import engine.multiplatform.RenderUtils;
+import engine.multiplatform.Util.ChunkCuller;
+import engine.multiplatform.Util.FramePipeline;
+import engine.multiplatform.Util.FrameSnapshot;
+import engine.multiplatform.Util.StartupLoader;
 import engine.multiplatform.gpu.GPUTextEntity;
-import engine.multiplatform.model.CPUMesh;
+import engine.multiplatform.gpu.GPUTexture;
+import engine.multiplatform.model.DirectMesh;
 import game.misc.command.Command;
 import game.misc.command.Commands;
+import game.world.RaycastResult;
 import game.world.World;
 import game.world.block.Block;
 import game.world.block.SimpleBlock;
 import org.joml.*;
 
+import java.awt.image.BufferedImage;
 import java.lang.Math;
 import java.lang.Runtime;
 import java.text.NumberFormat;
-import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static game.GlobalBits.*;
 import static org.lwjgl.glfw.GLFW.*;
@@ -23,8 +29,22 @@ import static org.lwjgl.glfw.GLFW.*;
 public class Main {
 
     private static final Vector3f cameraInc = new Vector3f(0, 0, 0);
+    private static final Vector3f rayOrigin = new Vector3f();
+    private static final Vector3f rayDirection = new Vector3f();
+    private static final RaycastResult raycast = new RaycastResult();
 
     static double lastMouseYPos, lastMouseXPos;
+    //mouse movement the render thread saw that the simulation hasn't used yet
+    private static double mouseXMovement, mouseYMovement;
+    private static final boolean[] keysDown = new boolean[GLFW_KEY_LAST + 1];
+    private static final boolean[] mouseButtonsDown = new boolean[GLFW_MOUSE_BUTTON_LAST + 1];
+    private static final Matrix4f projectionMatrix = new Matrix4f();
+    private static final Matrix4f viewMatrix = new Matrix4f();
+    private static final ChunkCuller chunkCuller = new ChunkCuller();
+    private static final double placementDistance = 5;
+    private static boolean locked = true;
+    private static volatile double frameTime;
+    private static FramePipeline pipeline;
 
     public static World world;
     public static double targetFrameTime = 1./120.;
@@ -38,6 +58,7 @@ public class Main {
             resourcesPath = System.getProperty("user.dir") + "/resources";
             render.setResourcesPath(GlobalBits.resourcesPath);
             renderDistance = 300f;
+            tileTextures = false;
             tempV3f0 = new Vector3f();
             tempV3f1 = new Vector3f();
             tempV3i0 = new Vector3i();
@@ -45,115 +66,154 @@ public class Main {
             playerChunk = new Vector3i();
             playerRotation = new Vector3f(0, 0, 0);
             sensitivity = 1;
-            defaultShader = render.loadShaderProgram("Shaders/", "");
-            guiShader = render.loadShaderProgram("Shaders/", "gui");
-            blocks = SimpleBlock.generateBlocks(GlobalBits.resourcesPath, "BlockRegistry/voxelesque/blocks.yaml", "voxelesque");
-            assert blocks != null;
-            guiScale = 0.03f;
-            world = new World();
-            GPUTextEntity debugTextEntity = render.createTextEntity(render.readTexture(render.readImage("Textures/ASCII-Extended.png")), "", false, false, guiShader, -1f, 1f - guiScale, 0f, 0f, 0f, 0f, guiScale, guiScale, 0f);
-            double placementDistance = 5;
+            GPUTextEntity debugTextEntity;
+            //files are read and decoded on worker threads, while this thread makes the GPU objects.
+            try (StartupLoader loader = new StartupLoader()) {
+                CompletableFuture<BufferedImage> fontImage = loader.load("images", () -> render.readImage("Textures/ASCII-Extended.png"));
+                defaultShader = loader.onThisThread("shaders", () -> render.loadShaderProgram("Shaders/", ""));
+                guiShader = loader.onThisThread("shaders", () -> render.loadShaderProgram("Shaders/", "gui"));
+                if(tileTextures) tileShader = loader.onThisThread("shaders", () -> render.loadShaderProgram("Shaders/", "tile"));
+                //the font has to be done before generateBlocks changes the render's resources path
+                GPUTexture font = loader.onThisThread("textures", () -> render.readTexture(StartupLoader.join(fontImage)));
+                blocks = SimpleBlock.generateBlocks(GlobalBits.resourcesPath, "BlockRegistry/voxelesque/blocks.yaml", "voxelesque", loader);
+                assert blocks != null;
+                guiScale = 0.03f;
+                world = loader.onThisThread("world", World::new);
+                debugTextEntity = render.createTextEntity(font, "", false, false, guiShader, -1f, 1f - guiScale, 0f, 0f, 0f, 0f, guiScale, guiScale, 0f);
+                render.println(loader.getTimingString());
+            }
             render.lockCursorPos();
-            boolean locked = true;
 
             commands = new Commands();
             commands.add(Command.basicCommand("reload", world::reset));
 
+            //the world is simulated on its own thread, this one just draws whatever the simulation made last.
+            pipeline = new FramePipeline(Main::tick, targetFrameTime);
+            pipeline.start();
+            long lastFrame = 0;
             do {
-                updateValues();
-                if (render.getKey(GLFW_KEY_T) == 0) world.reset();
-                if(render.getKey(GLFW_KEY_R) == 0) render.rebuildChunks();
-                double worldTime = 0;
-                worldTime = world.updateChunks();
-
-
-                updateCameraPos();
-                double time = render.render();
-                Runtime runtime = Runtime.getRuntime();
-                Vector3i blockPos = RenderUtils.getBlockPos(playerPosition);
-
-                if (render.getKey(GLFW_KEY_C) == 0) {
-                    if (locked) {
-                        render.unlockCursorPos();
-                        locked = false;
-                    } else {
-                        render.lockCursorPos();
-                        locked = true;
-                    }
-                }
-
-
-                //"raycast" to find the blocks the player might interact with
-                //Actually uses a more advanced and flexible system, at the cost of performance and my sanity.
-                TreeMap<Float, Vector3i> collidedBlocks = new TreeMap<>(); //K=distance from player, V=block position, efficiently sorts the collisions in the right order.
-
-
-                Matrix4f temp = new Matrix4f();
-                Vector3i pos = new Vector3i();
-                CPUMesh blockMesh = blocks.get("voxelesque:stoneBlock").getMesh();
-                int xOff = (int) (placementDistance/0.288675134595-0.5);
-                int yzOff = (int) (placementDistance*2-0.5);
-                for (int x = blockPos.x - xOff; x < blockPos.x + xOff; ++x) {
-                    for (int y = blockPos.y - yzOff; y < blockPos.y + yzOff; ++y) {
-                        for (int z = blockPos.z - yzOff; z < blockPos.z + yzOff; ++z) {
-                            temp = Render.getBlockTransform(temp.identity(), x, y, z, World.CHUNK_SIZE);
-
-                            pos.set(x, y, z);
-                            if (render.meshOnScreen(
-                                    blockMesh,
-                                    temp,
-                                    render.getCameraViewMatrix(), render.getCameraProjectionMatrix(), (float) render.getMouseXPos(), (float) render.getMouseYPos()
-                            )) {
-                                collidedBlocks.put(
-                                        tempV3f0.set(x * 0.288675134595f, y * 0.5f, z * 0.5f).distance(playerPosition), new Vector3i(pos));
-                            }
-                        }
-                    }
+                FrameSnapshot frame = pipeline.takeFrame();
+                if(frame == null){
+                    //the first tick isn't done yet, but the window still needs to be updated
+                    frameTime = render.render();
+                    continue;
                 }
-                Set<Map.Entry<Float, Vector3i>> collidedBlocksSet = collidedBlocks.entrySet();
-                Vector3i replaceable = null; //first void block followed by a non-void block in the array - this is where a block would be placed
-                Vector3i breakable = null; //first non-void block in the array - this is where a block would be broken
-                Vector3i last = null;
-                for (Map.Entry<Float, Vector3i> o : collidedBlocksSet) {
-                    Vector3i val = o.getValue();
-                    Block block = world.getBlock(val);
-                    if (block != null && block.getMesh() != null) {
-                        //if the block isn't void
-                        replaceable = last;
-                        breakable = val;
-                        break;
-                    }
-                    last = val;
-
+                if(frame.getFrame() != lastFrame){
+                    render.setTextEntityText(debugTextEntity, frame.getText(), false, false);
+                    lastFrame = frame.getFrame();
                 }
-
-                if (breakable != null && render.getMouseButton(GLFW_MOUSE_BUTTON_LEFT) == 0)
-                    world.getBlock(breakable).destroy(breakable, world);
-                if (replaceable != null && render.getMouseButton(GLFW_MOUSE_BUTTON_RIGHT) == 0)
-                    blocks.get("voxelesque:stoneBlock").place(replaceable, world);
-
-
-                render.setTextEntityText(debugTextEntity,
-                        "Memory:" + (runtime.totalMemory() - runtime.freeMemory()) / 1048576 + " / " + runtime.totalMemory() / 1048576 +
-                                "\nEntities: " + render.getNumEntities() + " / " + render.getNumEntitySlots() +
-                                "\nRC: " + render.getNumChunks() +
-                                "\npos: " + RenderUtils.betterVectorToString(playerPosition, 3) + ", rot: (" + RenderUtils.FloatToStringSigFigs(playerRotation.x, 3) + ", " + RenderUtils.FloatToStringSigFigs(playerRotation.y, 3) + ")" +
-                                "\nchunkPos: " + RenderUtils.getChunkPos(playerPosition).toString(NumberFormat.getIntegerInstance()) +
-                                "\nblock: " + world.getBlock(blockPos.x, blockPos.y, blockPos.z) +
-                                "\nframe: " + (int)(time*1000) + "ms" +
-                                "\nworld: " + (int)(worldTime*1000) + "ms",
-                        false, false);
-            } while (!render.shouldClose());
+                frameTime = render.render(frame);
+                pipeline.framePresented(frame);
+                //when the cursor is locked, its position is how far it moved this frame, which the simulation might not be there to see.
+                if(render.cursorLocked()) addMouseMovement(render.getMouseXPos(), render.getMouseYPos());
+            } while (!render.shouldClose() && pipeline.isRunning());
+            pipeline.stop();
+            if(pipeline.getError() != null) throw new RuntimeException("The simulation thread crashed", pipeline.getError());
             render.close();
             world.close();
         } catch (Exception e) {
             System.err.println("encountered fatal error:");
             e.printStackTrace();
+            if(pipeline != null) pipeline.stop();
             render.close();
             world.close();
         }
     }
 
+    /**
+     * one tick of the game, which runs on the simulation thread.
+     */
+    private static void tick(FrameSnapshot frame){
+        updateValues();
+        if (keyPressed(GLFW_KEY_T)) world.reset();
+        if (keyPressed(GLFW_KEY_R)) render.rebuildChunks();
+        if (keyPressed(GLFW_KEY_L)) render.getChunkLod().setEnabled(!render.getChunkLod().isEnabled());
+        double worldTime = world.updateChunks();
+
+        if (keyPressed(GLFW_KEY_C)) locked = !locked;
+        frame.setCursorLocked(locked);
+        updateCameraPos();
+        frame.setCamera(playerPosition.x, playerPosition.y, playerPosition.z, playerRotation.x, playerRotation.y, playerRotation.z);
+        Runtime runtime = Runtime.getRuntime();
+        Vector3i blockPos = RenderUtils.getBlockPos(playerPosition);
+
+        //the projection only changes when the window is resized, so reading it from here is fine.
+        projectionMatrix.set(render.getCameraProjectionMatrix());
+        viewMatrix.set(frame.getViewMatrix());
+        //figure out which chunks are in view here, so the render thread doesn't have to
+        chunkCuller.update(projectionMatrix, viewMatrix);
+        render.getChunks().forEach((pos, chunk) -> {
+            if(chunkCuller.isVisible(pos, chunk.getSize())) frame.addVisibleChunk(pos);
+        });
+
+        //raycast from the camera through the cursor to find the blocks the player might interact with
+        //The screen coordinates are mirrored for some reason
+        //when the cursor is locked it's always in the middle of the screen.
+        float mouseX = locked ? 0 : (float) render.getMouseXPos();
+        float mouseY = locked ? 0 : (float) -render.getMouseYPos();
+        RenderUtils.getScreenRay(projectionMatrix, viewMatrix, mouseX, mouseY, rayOrigin, rayDirection);
+        Vector3i replaceable = null; //the empty block right before the hit block - this is where a block would be placed
+        Vector3i breakable = null; //the first non-void block along the ray - this is where a block would be broken
+        if (world.raycast(rayOrigin, rayDirection, (float) placementDistance, raycast)) {
+            breakable = raycast.hit;
+            if (raycast.hasPlace) replaceable = raycast.place;
+        }
+
+        boolean leftPressed = mouseButtonPressed(GLFW_MOUSE_BUTTON_LEFT);
+        boolean rightPressed = mouseButtonPressed(GLFW_MOUSE_BUTTON_RIGHT);
+        if (breakable != null && leftPressed)
+            world.getBlock(breakable).destroy(breakable, world);
+        if (replaceable != null && rightPressed)
+            blocks.get("voxelesque:stoneBlock").place(replaceable, world);
+
+        frame.setText(
+                "Memory:" + (runtime.totalMemory() - runtime.freeMemory()) / 1048576 + " / " + runtime.totalMemory() / 1048576 +
+                        "\nEntities: " + render.getNumEntities() + " / " + render.getNumEntitySlots() +
+                        "\nRC: " + render.getNumChunks() + " (visible: " + render.getNumVisibleChunks() + ", culled: " + render.getNumCulledChunks() + ", occluded: " + render.getNumOccludedChunks() + ")" +
+                        "\ndraws: " + render.getNumDrawCalls() + ", state changes: " + render.getNumStateChanges() +
+                        "\nuploads: " + render.getFrameUploadBytes() / 1024 + "KiB, queued: " + render.getUploadQueueDepth() +
+                        "\nchunk updates: " + (int)render.getChunkEnqueueRate() + "/s queued, " + (int)render.getChunkDequeueRate() + "/s built" +
+                        "\n" + render.getChunkLod().getStatsString() +
+                        "\n" + render.getChunkMeshCache().getStatsString() +
+                        "\nmesh memory: " + DirectMesh.getLiveMeshes() + " meshes, " + DirectMesh.getLiveBytes() / 1024 + "KiB off-heap" +
+                        "\n" + render.getResourceCache().getStatsString() +
+                        "\n" + pipeline.getStatsString() +
+                        "\npos: " + RenderUtils.betterVectorToString(playerPosition, 3) + ", rot: (" + RenderUtils.FloatToStringSigFigs(playerRotation.x, 3) + ", " + RenderUtils.FloatToStringSigFigs(playerRotation.y, 3) + ")" +
+                        "\nchunkPos: " + RenderUtils.getChunkPos(playerPosition).toString(NumberFormat.getIntegerInstance()) +
+                        "\nblock: " + world.getBlock(blockPos.x, blockPos.y, blockPos.z) +
+                        "\nframe: " + (int)(frameTime*1000) + "ms" +
+                        "\nworld: " + (int)(worldTime*1000) + "ms");
+    }
+
+    //the render's getKey only says if a key was pressed during the last frame, which doesn't line up with the simulation's ticks.
+    // So the simulation keeps track of which keys were down last tick instead.
+    private static boolean keyPressed(int key){
+        boolean down = render.getKey(key) >= 0;
+        boolean pressed = down && !keysDown[key];
+        keysDown[key] = down;
+        return pressed;
+    }
+
+    private static boolean mouseButtonPressed(int button){
+        boolean down = render.getMouseButton(button) >= 0;
+        boolean pressed = down && !mouseButtonsDown[button];
+        mouseButtonsDown[button] = down;
+        return pressed;
+    }
+
+    private static synchronized void addMouseMovement(double x, double y){
+        mouseXMovement += x;
+        mouseYMovement += y;
+    }
+
+    //returns the movement since the last call, as {x, y}
+    private static synchronized double[] takeMouseMovement(){
+        double[] movement = {mouseXMovement, mouseYMovement};
+        mouseXMovement = 0;
+        mouseYMovement = 0;
+        return movement;
+    }
+
     private static void updateCameraPos() {
         cameraInc.set(0, 0, 0);
         if (render.getKey(GLFW_KEY_W) >= 0) {
@@ -186,9 +246,10 @@ public class Main {
 
         // Update camera based on mouse
 
-        if(render.cursorLocked()) {
-            playerRotation.x += (render.getMouseYPos()) * sensitivity;
-            playerRotation.y += (render.getMouseXPos()) * sensitivity;
+        if(locked) {
+            double[] movement = takeMouseMovement();
+            playerRotation.x += movement[1] * sensitivity;
+            playerRotation.y += movement[0] * sensitivity;
         } else {
             if (render.getMouseButton(GLFW_MOUSE_BUTTON_RIGHT) >= 0) {
                 playerRotation.x += (render.getMouseYPos() - lastMouseYPos) * sensitivity;
@@ -198,8 +259,5 @@ public class Main {
         }
         lastMouseYPos = render.getMouseYPos();
         lastMouseXPos = render.getMouseXPos();
-
-        //send the camera position to Render
-        render.setCameraPos(playerPosition.x, playerPosition.y, playerPosition.z, playerRotation.x, playerRotation.y, playerRotation.z);
     }
 }
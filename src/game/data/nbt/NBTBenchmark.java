@@ -0,0 +1,112 @@
+package game.data.nbt;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that NBTReader reads back exactly what serialize() writes, then times how fast it does.
+ * The round trips use names and strings that aren't ASCII, and are done from a heap buffer, a direct buffer, and a mapped file.
+ * The times are for reading everything (materialize), and for finding one value at the bottom of the folders without reading the rest.
+ * Each is done with the folders nested to a few different depths. Reading everything should take about the same time per byte for all of them.
+ *
+ * args: [seconds per test]
+ */
+public class NBTBenchmark {
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 1;
+
+        //round trips
+        NBTFolder folder = build(4, 4);
+        byte[] serialized = folder.serialize();
+        check("byte[] constructor", new NBTFolder(serialized).serialize(), serialized);
+        check("heap buffer", new NBTReader(ByteBuffer.wrap(serialized)).materialize().serialize(), serialized);
+        ByteBuffer direct = ByteBuffer.allocateDirect(serialized.length).put(serialized).flip();
+        check("direct buffer", new NBTReader(direct).materialize().serialize(), serialized);
+        File file = File.createTempFile("nbt", ".bin");
+        try {
+            Files.write(file.toPath(), serialized);
+            check("mapped file", NBTReader.map(file).materialize().serialize(), serialized);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+        NBTReader reader = new NBTReader(direct);
+        String found = reader.getElement("\u00e9l\u00e9ment 3").getElement("\u00e9l\u00e9ment 0").getElement("\u540d\u524d").getString();
+        if(!found.equals("v\u00e4rde \u5024 2")) throw new AssertionError("found the wrong string: " + found);
+        System.out.println("round trips passed, " + serialized.length + " bytes");
+
+        //throughput. The trees have about the same number of elements, but some are wide and shallow and some are narrow and deep.
+        int[][] shapes = {{2, 12}, {4, 6}, {16, 3}, {1, 300}};
+        for(int[] shape: shapes){
+            byte[] data = build(shape[0], shape[1]).serialize();
+            ByteBuffer heap = ByteBuffer.wrap(data);
+            ByteBuffer off = ByteBuffer.allocateDirect(data.length).put(data).flip();
+            String description = shape[0] + " folders per folder, " + shape[1] + " deep, " + data.length/1024 + "KiB: ";
+            System.out.println(description + "byte[] " + throughput(data.length, time(seconds, () -> new NBTFolder(data)))
+                    + ", heap " + throughput(data.length, time(seconds, () -> new NBTReader(heap).materialize()))
+                    + ", direct " + throughput(data.length, time(seconds, () -> new NBTReader(off).materialize()))
+                    + ", one value " + Math.round(time(seconds, () -> deepest(new NBTReader(off)))/100)/10.0 + "us");
+        }
+    }
+
+    /**
+     * makes folders of folders, with some of each other type of element in every folder.
+     * @param width how many folders each folder has in it
+     * @param depth how many folders deep it goes
+     */
+    private static NBTFolder build(int width, int depth){
+        NBTFolder folder = new NBTFolder("dossier \u00fc " + depth);
+        List<NBTElement> elements = folder.getElements();
+        elements.add(new NBTInteger("int", depth * 31));
+        elements.add(new NBTFloat("float", depth / 3f));
+        elements.add(new NBTString("\u540d\u524d", "v\u00e4rde \u5024 " + depth));
+        elements.add(new NBTString("ascii", "the quick brown fox jumps over the lazy dog"));
+        if(depth > 1){
+            for(int i=0; i<width; i++){
+                NBTFolder child = build(width, depth-1);
+                child.setName("\u00e9l\u00e9ment " + i);
+                elements.add(child);
+            }
+        }
+        return folder;
+    }
+
+    //follows the last folder of each folder down to the bottom
+    private static Object deepest(NBTReader reader){
+        while(true){
+            List<NBTReader> elements = reader.getElements();
+            NBTReader last = elements.get(elements.size()-1);
+            if(last.getType() != NBTElement.NBT_ELEMENT_TYPE_FOLDER) return reader.getElement("int").getInt();
+            reader = last;
+        }
+    }
+
+    private static void check(String what, byte[] result, byte[] expected){
+        if(!Arrays.equals(result, expected)) throw new AssertionError(what + " round trip doesn't match serialize()");
+    }
+
+    private interface Read {
+        Object run() throws Exception;
+    }
+
+    //runs the read over and over, and gives the average nanoseconds it took
+    private static double time(double seconds, Read read) throws Exception {
+        long end = System.nanoTime() + (long)(seconds * 1_000_000_000 / 4);
+        while(System.nanoTime() < end) read.run(); //warm up
+        long runs = 0;
+        long start = System.nanoTime();
+        end = start + (long)(seconds * 1_000_000_000);
+        while(System.nanoTime() < end){
+            read.run();
+            runs++;
+        }
+        return (System.nanoTime() - start) / (double)runs;
+    }
+
+    private static String throughput(int bytes, double nanoseconds){
+        return (int)(bytes / nanoseconds * 1e9 / (1024*1024)) + "MiB/s";
+    }
+}
@@ -13,12 +13,9 @@ public class NBTFloat implements NBTElement{
         this.value = value;
     }
     public NBTFloat(byte[] serializedData) throws InstantiationException {
-        if(serializedData[4] != NBT_ELEMENT_TYPE_FLOAT)
-            throw new InstantiationException("Cannot use data for type " + serializedData[4] + " to create type " + NBT_ELEMENT_TYPE_FLOAT + ".");
-        int size = StaticUtils.getIntFromFourBytes(serializedData[3], serializedData[2], serializedData[1], serializedData[0]);
-
-        this.name = new String(serializedData, 5, size-10);
-        this.value = StaticUtils.getFloatFromFourBytes(serializedData[size-4], serializedData[size-3], serializedData[size-2], serializedData[size-1]);
+        NBTReader reader = NBTReader.read(serializedData, NBT_ELEMENT_TYPE_FLOAT);
+        this.name = reader.getName();
+        this.value = reader.getFloat();
     }
     @Override
     public byte getType() {
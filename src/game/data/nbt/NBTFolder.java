@@ -4,7 +4,6 @@ import game.misc.StaticUtils;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 public class NBTFolder implements NBTElement{
     private final ArrayList<NBTElement> elements;
@@ -16,31 +15,15 @@ public class NBTFolder implements NBTElement{
     }
 
     public NBTFolder(byte[] serializedData) throws InstantiationException {
-        if(serializedData[4] != NBT_ELEMENT_TYPE_FOLDER)
-            throw new InstantiationException("Cannot use data for type " + serializedData[4] + " to create type " + NBT_ELEMENT_TYPE_FOLDER + ".");
-        int size = StaticUtils.getIntFromFourBytes(serializedData[3], serializedData[2], serializedData[1], serializedData[0]);
-        //get the name of the folder
-        StringBuilder buffer = new StringBuilder();
-        for(int i=5; i<size && serializedData[i] != 0; i++){
-            buffer.append((char)serializedData[i]);
-        }
-        this.name = buffer.toString();
-
-        //deserialize elements
-        elements = new ArrayList<>();
-        int index = 6+name.length(); //1 byte of type, 4 bytes of size, x bytes of the name, then one more byte for the null terminator
-        while(index < size) {
-            int elementSize = StaticUtils.getIntFromFourBytes(serializedData[index+3], serializedData[index+2], serializedData[index+1], serializedData[index]);
-            int elementType = serializedData[index+4];
-            byte[] elementData = Arrays.copyOfRange(serializedData, index, index+size);
-            elements.add(switch(elementType){
-                case NBT_ELEMENT_TYPE_INT -> new NBTInteger(elementData);
-                case NBT_ELEMENT_TYPE_FLOAT -> new NBTFloat(elementData);
-                case NBT_ELEMENT_TYPE_STRING -> new NBTString(elementData);
-                case NBT_ELEMENT_TYPE_FOLDER -> new NBTFolder(elementData);
-                default -> throw new InstantiationException("found invalid NBT type " + elementType + " at index " + index);
-            });
-            index+=elementSize;
+        NBTReader reader = NBTReader.read(serializedData, NBT_ELEMENT_TYPE_FOLDER);
+        this.name = reader.getName();
+        this.elements = new ArrayList<>();
+        try {
+            for(NBTReader element: reader.getElements()){
+                elements.add(element.materialize());
+            }
+        } catch (IllegalArgumentException e){
+            throw new InstantiationException(e.getMessage());
         }
     }
 
@@ -13,12 +13,9 @@ public class NBTInteger implements NBTElement{
         this.value = value;
     }
     public NBTInteger(byte[] serializedData) throws InstantiationException {
-        if(serializedData[4] != NBT_ELEMENT_TYPE_INT)
-            throw new InstantiationException("Cannot use data for type " + serializedData[4] + " to create type " + NBT_ELEMENT_TYPE_INT + ".");
-        int size = StaticUtils.getIntFromFourBytes(serializedData[3], serializedData[2], serializedData[1], serializedData[0]);
-
-        this.name = new String(serializedData, 5, size-10);
-        this.value = StaticUtils.getIntFromFourBytes(serializedData[size-4], serializedData[size-3], serializedData[size-2], serializedData[size-1]);
+        NBTReader reader = NBTReader.read(serializedData, NBT_ELEMENT_TYPE_INT);
+        this.name = reader.getName();
+        this.value = reader.getInt();
     }
     @Override
     public byte getType(){
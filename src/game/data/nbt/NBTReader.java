@@ -0,0 +1,212 @@
+package game.data.nbt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads serialized NBT straight out of a ByteBuffer, which can be a heap, direct, or memory mapped buffer.
+ * Each NBTReader is one element of the data, and only remembers where it is in the buffer.
+ * Nothing is copied or decoded until it's asked for, so looking up one value in a big folder only reads the headers of the elements before it.
+ * Use materialize() to turn it into normal NBTElements that can be modified.
+ *
+ * The layout of an element is the one StaticUtils.getNBTSerialHeader writes:
+ * its size in bytes (big-endian, including the size itself), its type, its name in UTF-8 with a 0 after it, then the value.
+ * Int and float values are little-endian, strings are UTF-8 to the end of the element, and folders are their elements one after another.
+ *
+ * The buffer must not be changed while the reader is used. Malformed data throws an IllegalArgumentException when it's reached.
+ */
+public class NBTReader {
+    private static final int HEADER_SIZE = 5; //4 bytes of size, 1 byte of type
+
+    private final ByteBuffer buffer; //only absolute gets are used, so the position of the buffer that was given doesn't matter
+    private final int offset;
+    private final int size;
+    private final byte type;
+    private final int nameEnd; //the index of the 0 after the name
+    private String name;
+    private List<NBTReader> elements;
+
+    /**
+     * reads the element at the buffer's position. The buffer isn't copied, and its position isn't changed.
+     * @throws IllegalArgumentException if the element doesn't fit in the buffer
+     */
+    public NBTReader(ByteBuffer buffer){
+        this(buffer.duplicate().order(ByteOrder.BIG_ENDIAN), buffer.position(), buffer.limit());
+    }
+
+    private NBTReader(ByteBuffer buffer, int offset, int limit){
+        this.buffer = buffer;
+        this.offset = offset;
+        if(limit - offset < HEADER_SIZE + 1) throw new IllegalArgumentException("NBT element at " + offset + " is cut off");
+        this.size = buffer.getInt(offset);
+        this.type = buffer.get(offset + 4);
+        if(size < HEADER_SIZE + 1 || size > limit - offset) throw new IllegalArgumentException("NBT element at " + offset + " has invalid size " + size);
+        int end = offset + HEADER_SIZE;
+        while(buffer.get(end) != 0){
+            end++;
+            if(end == offset + size) throw new IllegalArgumentException("NBT element at " + offset + " has no end to its name");
+        }
+        this.nameEnd = end;
+        int valueSize = offset + size - nameEnd - 1;
+        if((type == NBTElement.NBT_ELEMENT_TYPE_INT || type == NBTElement.NBT_ELEMENT_TYPE_FLOAT) && valueSize != 4){
+            throw new IllegalArgumentException("NBT element at " + offset + " has a value of " + valueSize + " bytes instead of 4");
+        }
+    }
+
+    /**
+     * maps a file and reads the element at the start of it. The file stays mapped as long as the reader (or any element of it) is used.
+     */
+    public static NBTReader map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            //the mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new NBTReader(mapped);
+        }
+    }
+
+    /**
+     * reads a serialized element, checking that it's the type that is needed. This is what the byte[] constructors of the elements use.
+     * @throws InstantiationException if it's a different type, or the data is malformed.
+     */
+    static NBTReader read(byte[] serializedData, byte expectedType) throws InstantiationException {
+        NBTReader reader;
+        try {
+            reader = new NBTReader(ByteBuffer.wrap(serializedData));
+        } catch (IllegalArgumentException e){
+            throw new InstantiationException(e.getMessage());
+        }
+        if(reader.type != expectedType)
+            throw new InstantiationException("Cannot use data for type " + reader.type + " to create type " + expectedType + ".");
+        return reader;
+    }
+
+    public byte getType(){
+        return type;
+    }
+
+    /**
+     * @return the size of this element in bytes, the same as the length of its serialize().
+     */
+    public int getSize(){
+        return size;
+    }
+
+    public String getName(){
+        if(name == null) name = decode(offset + HEADER_SIZE, nameEnd);
+        return name;
+    }
+
+    /**
+     * @throws IllegalStateException if this isn't an int
+     */
+    public int getInt(){
+        checkType(NBTElement.NBT_ELEMENT_TYPE_INT);
+        return Integer.reverseBytes(buffer.getInt(nameEnd + 1));
+    }
+
+    /**
+     * @throws IllegalStateException if this isn't a float
+     */
+    public float getFloat(){
+        checkType(NBTElement.NBT_ELEMENT_TYPE_FLOAT);
+        return Float.intBitsToFloat(Integer.reverseBytes(buffer.getInt(nameEnd + 1)));
+    }
+
+    /**
+     * @throws IllegalStateException if this isn't a string
+     */
+    public String getString(){
+        checkType(NBTElement.NBT_ELEMENT_TYPE_STRING);
+        return decode(nameEnd + 1, offset + size);
+    }
+
+    /**
+     * @return the elements of this folder, in order. They are found the first time this is called, but not read any further.
+     * @throws IllegalStateException if this isn't a folder
+     */
+    public List<NBTReader> getElements(){
+        checkType(NBTElement.NBT_ELEMENT_TYPE_FOLDER);
+        if(elements == null){
+            List<NBTReader> found = new ArrayList<>();
+            int end = offset + size;
+            int index = nameEnd + 1;
+            while(index < end){
+                NBTReader element = new NBTReader(buffer, index, end);
+                found.add(element);
+                index += element.size;
+            }
+            elements = Collections.unmodifiableList(found);
+        }
+        return elements;
+    }
+
+    /**
+     * finds an element of this folder by its name. The names are compared as bytes, so the other elements' names aren't decoded.
+     * @return the first element with that name, or null if there isn't one.
+     * @throws IllegalStateException if this isn't a folder
+     */
+    public NBTReader getElement(String name){
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        for(NBTReader element: getElements()){
+            if(element.nameEquals(bytes)) return element;
+        }
+        return null;
+    }
+
+    private boolean nameEquals(byte[] bytes){
+        int start = offset + HEADER_SIZE;
+        if(nameEnd - start != bytes.length) return false;
+        for(int i=0; i<bytes.length; i++){
+            if(buffer.get(start + i) != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * reads this element and everything in it into normal NBTElements.
+     * @throws IllegalArgumentException if it (or something in it) has a type that doesn't exist
+     */
+    public NBTElement materialize(){
+        return switch(type){
+            case NBTElement.NBT_ELEMENT_TYPE_INT -> new NBTInteger(getName(), getInt());
+            case NBTElement.NBT_ELEMENT_TYPE_FLOAT -> new NBTFloat(getName(), getFloat());
+            case NBTElement.NBT_ELEMENT_TYPE_STRING -> new NBTString(getName(), getString());
+            case NBTElement.NBT_ELEMENT_TYPE_FOLDER -> {
+                NBTFolder folder = new NBTFolder(getName());
+                List<NBTElement> folderElements = folder.getElements();
+                for(NBTReader element: getElements()){
+                    folderElements.add(element.materialize());
+                }
+                yield folder;
+            }
+            default -> throw new IllegalArgumentException("found invalid NBT type " + type + " at index " + offset);
+        };
+    }
+
+    private void checkType(byte expected){
+        if(type != expected) throw new IllegalStateException("NBT element " + getName() + " is type " + type + ", not " + expected);
+    }
+
+    private String decode(int start, int end){
+        if(buffer.hasArray()){
+            return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+        //direct and mapped buffers have no array to decode from, so the bytes are copied out first
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public String toString(){
+        return type == NBTElement.NBT_ELEMENT_TYPE_FOLDER ? getName() + ":" + getElements() : materialize().toString();
+    }
+}
@@ -14,24 +14,9 @@ public class NBTString implements NBTElement{
         this.value = value;
     }
     public NBTString(byte[] serializedData) throws InstantiationException {
-        if(serializedData[4] != NBT_ELEMENT_TYPE_STRING)
-            throw new InstantiationException("Cannot use data for type " + serializedData[4] + " to create type " + NBT_ELEMENT_TYPE_STRING + ".");
-        int size = StaticUtils.getIntFromFourBytes(serializedData[3], serializedData[2], serializedData[1], serializedData[0]);
-
-        StringBuilder builder = new StringBuilder();
-        int valueOffset = 5;
-        for(int i=5; i<size; i++){
-            valueOffset++;
-            if(serializedData[i] == 0) break;
-            builder.append((char)serializedData[i]);
-        }
-        this.name = builder.toString();
-        builder = new StringBuilder();
-        for(int i = valueOffset; i<size; i++){
-            builder.append((char)serializedData[i]);
-        }
-        this.value = builder.toString();
-
+        NBTReader reader = NBTReader.read(serializedData, NBT_ELEMENT_TYPE_STRING);
+        this.name = reader.getName();
+        this.value = reader.getString();
     }
 
     @Override
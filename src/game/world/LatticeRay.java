@@ -0,0 +1,109 @@
+package game.world;
+
+/**
+ * Walks a ray through the block lattice one block at a time, in the order the ray passes through them.
+ *
+ * Blocks are triangular prisms: each row of blocks along the X axis alternates between triangles pointing towards -Z and +Z,
+ * and the rows are stacked on Y. So the edges between blocks aren't on 3 sets of planes like a cube grid, but 4:
+ * <ul>
+ *     <li>horizontal planes between layers (Y)</li>
+ *     <li>planes between rows of triangles (Z)</li>
+ *     <li>two sets of diagonal planes, one for each slant of the triangle sides (these change X)</li>
+ * </ul>
+ * Otherwise it's the usual grid traversal: track how far along the ray the next plane of each set is, and always cross the closest one.
+ * Nothing is allocated after construction, so one LatticeRay can be reused for every ray.
+ *
+ * The block shapes come from Render.getBlockTransform applied to the block mesh:
+ * block (x, y, z) is centered on X at x*0.2887 with a half width of 0.2887, covers Y from y*0.5 to (y+1)*0.5,
+ * and covers Z from z*0.5-0.25 to z*0.5+0.25, with its point towards -Z if x+z is even and towards +Z if it's odd.
+ */
+public class LatticeRay {
+    private static final double BLOCK_X = 0.288675134595;
+
+    //the 4 sets of planes: [Y, row (Z), diagonal A, diagonal B]
+    //each one is a linear function of the position that is an integer exactly on one of its planes.
+    private final double[] tMax = new double[4];
+    private final double[] tDelta = new double[4];
+    private final int[] step = new int[4];
+
+    public int x, y, z;
+    /**
+     * how far along the ray the current block was entered. 0 for the block the ray started in.
+     */
+    public double distance;
+
+    /**
+     * starts a new ray.
+     * @param dx, dy, dz the direction of the ray. Doesn't need to be normalized, but it can't be 0.
+     */
+    public void start(double ox, double oy, double oz, double dx, double dy, double dz){
+        double length = Math.sqrt(dx*dx + dy*dy + dz*dz);
+        dx /= length;
+        dy /= length;
+        dz /= length;
+
+        double sy = oy * 2;
+        double sw = oz * 2 + 0.5; //integers on the edges between rows
+        double u = ox / BLOCK_X; //integers on the centers of the blocks
+        locateLattice(u, sy, sw);
+
+        setup(0, sy, dy * 2);
+        setup(1, sw, dz * 2);
+        setup(2, (u - sw) * 0.5, (dx / BLOCK_X - dz * 2) * 0.5);
+        setup(3, (u + sw) * 0.5, (dx / BLOCK_X + dz * 2) * 0.5);
+        distance = 0;
+    }
+
+    private void setup(int i, double s, double ds){
+        if(ds > 0){
+            step[i] = 1;
+            tDelta[i] = 1 / ds;
+            tMax[i] = (Math.floor(s) + 1 - s) / ds;
+        } else if(ds < 0){
+            step[i] = -1;
+            tDelta[i] = -1 / ds;
+            tMax[i] = (s - Math.floor(s)) / -ds;
+        } else {
+            step[i] = 0;
+            tDelta[i] = Double.POSITIVE_INFINITY;
+            tMax[i] = Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * moves to the next block along the ray, updating x, y, z, and distance.
+     */
+    public void next(){
+        int closest = 0;
+        for(int i=1; i<4; i++){
+            if(tMax[i] < tMax[closest]) closest = i;
+        }
+        distance = tMax[closest];
+        tMax[closest] += tDelta[closest];
+        switch (closest) {
+            case 0 -> y += step[0];
+            //crossing between rows goes through the flat side of a triangle, so the block on the other side has the same X.
+            case 1 -> z += step[1];
+            default -> x += step[closest];
+        }
+    }
+
+    //finds the block that contains a point, in lattice coordinates.
+    private void locateLattice(double u, double sy, double sw){
+        y = (int)Math.floor(sy);
+        z = (int)Math.floor(sw);
+        double t = sw - z; //how far across the row the point is, 0 at the -Z edge and 1 at the +Z edge
+        int k = (int)Math.floor(u);
+        double f = u - k;
+        //the point is between the centers of blocks k and k+1. The diagonal edge between them slants one way or the other depending on which way k points.
+        if(((k + z) & 1) == 0) x = f < t ? k : k+1;
+        else x = f < 1-t ? k : k+1;
+    }
+
+    /**
+     * finds the block that contains a world position. Unlike RenderUtils.getBlockPos, this follows the actual triangle edges.
+     */
+    public void locate(double worldX, double worldY, double worldZ){
+        locateLattice(worldX / BLOCK_X, worldY * 2, worldZ * 2 + 0.5);
+    }
+}
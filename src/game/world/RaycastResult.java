@@ -0,0 +1,23 @@
+package game.world;
+
+import org.joml.Vector3i;
+
+/**
+ * The result of World.raycast. It's mutable so the same one can be reused every frame.
+ */
+public class RaycastResult {
+    /**
+     * the first solid block the ray hit.
+     */
+    public final Vector3i hit = new Vector3i();
+    /**
+     * the empty block the ray passed through right before it hit - where a block would be placed.
+     * Only valid if hasPlace is true.
+     */
+    public final Vector3i place = new Vector3i();
+    public boolean hasPlace;
+    /**
+     * how far along the ray the hit block starts.
+     */
+    public float distance;
+}
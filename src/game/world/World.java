@@ -5,21 +5,23 @@ import engine.multiplatform.RenderUtils;
 import engine.multiplatform.gpu.GPUChunk;
 import game.GlobalBits;
 import game.world.block.Block;
+import game.world.generation.*;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 import util.noise.FastNoiseLite;
+import util.noise.NoiseSettings;
 import org.joml.Vector3i;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static game.GlobalBits.*;
 
 public class World {
 
     int chunkIndex;
-    private final FastNoiseLite noise;
+    private final ChunkGenerator generator;
     private final ArrayList<GPUChunk> chunksToUnload;
     private final Set<Vector3i> scheduledChunks = Collections.synchronizedSet(new HashSet<>());
 
@@ -29,20 +31,75 @@ public class World {
     //private int batchY;
     //private int batchZ;
     //private final PriorityThreadPoolExecutor<DistanceRunnable3i> executor = new PriorityThreadPoolExecutor<>(DistanceRunnable3i.inOrder, Runtime.getRuntime().availableProcessors());
-    private final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     private CompletableFuture<Void> future;
     public static final int CHUNK_SIZE = 32; //MUST BE A POWER OF 2! If this is changed to a non-power of 2, many things would have to be reworked.
 
+    public static final int DEFAULT_SEED = 1337; //the seed FastNoiseLite uses by default
+    public static final NoiseSettings TERRAIN_NOISE = new NoiseSettings(DEFAULT_SEED, FastNoiseLite.NoiseType.Perlin, FastNoiseLite.FractalType.FBm, 0.004f, 5, 2.0f, 0.5f);
+
+    private final int seed;
+    //chunk position -> content hash, only filled while verifyGeneration is on.
+    private final Map<Vector3i, Long> chunkHashes = new ConcurrentHashMap<>();
+    private volatile boolean verifyGeneration;
+
+    //only used by raycast(), so it doesn't have to allocate anything.
+    private final LatticeRay ray = new LatticeRay();
+    private final Vector3i rayChunkPos = new Vector3i();
+
     public World() {
+        this(DEFAULT_SEED);
+    }
 
-        noise = new FastNoiseLite();
-        noise.SetNoiseType(FastNoiseLite.NoiseType.Perlin);
-        noise.SetFractalType(FastNoiseLite.FractalType.FBm);
-        noise.SetFrequency(0.004f);
-        noise.SetFractalOctaves(5);
-        noise.SetFractalLacunarity(2.0f);
-        noise.SetFractalGain(0.5f);
+    /**
+     * @param seed the world seed. The same seed always generates the same world, no matter how many threads are used.
+     */
+    public World(int seed) {
+        this.seed = seed;
         chunksToUnload = new ArrayList<>();
+        generator = createGenerator(seed, blocks, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * creates the generator for the default world generation.
+     * This doesn't need a World or a Render, so other generators can be compared against it.
+     * @param seed the world seed
+     * @param blocks the block registry to take the blocks from
+     * @param threads the number of generation threads
+     * @return a new ChunkGenerator
+     */
+    public static ChunkGenerator createGenerator(int seed, Map<String, Block> blocks, int threads){
+        return new ChunkGenerator(CHUNK_SIZE, threads,
+                new HeightmapStage(TERRAIN_NOISE.withSeed(seed)),
+                new SurfaceStage(blocks.get("voxelesque:grassBlock"), blocks.get("voxelesque:stoneBlock"), 3),
+                new PineTreeStage(blocks.get("voxelesque:pineLog"), blocks.get("voxelesque:pineLeaves"), seed, 256),
+                new FinalizeStage()
+        );
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * turns generation verification on or off.
+     * While it's on, a content hash of every generated chunk is recorded (see ChunkHash),
+     * so the output of the generator can be compared against a reference.
+     * Turning it off clears the recorded hashes.
+     */
+    public void setVerifyGeneration(boolean verify){
+        this.verifyGeneration = verify;
+        if(!verify) chunkHashes.clear();
+    }
+
+    public boolean isVerifyingGeneration(){
+        return verifyGeneration;
+    }
+
+    /**
+     * @return the content hash of every chunk generated while verification was on, by chunk position.
+     */
+    public Map<Vector3i, Long> getChunkHashes(){
+        return Collections.unmodifiableMap(chunkHashes);
     }
 
     public void reset(){
@@ -86,6 +143,42 @@ public class World {
         return render.getChunk(pos);
     }
 
+    /**
+     * finds the first solid block along a ray, by walking through the blocks the ray passes one at a time.
+     * Blocks in chunks that aren't loaded count as empty.
+     * Not thread safe - only call it from one thread.
+     * @param origin where the ray starts, in world space
+     * @param direction the direction of the ray. Doesn't need to be normalized.
+     * @param maxDistance how far to look, in world units
+     * @param result where the hit goes.
+     * @return true if a solid block was hit.
+     */
+    public boolean raycast(Vector3fc origin, Vector3fc direction, float maxDistance, RaycastResult result){
+        if(direction.lengthSquared() == 0) return false;
+        ray.start(origin.x(), origin.y(), origin.z(), direction.x(), direction.y(), direction.z());
+        result.hasPlace = false;
+        while(ray.distance <= maxDistance){
+            Block block = getLoadedBlock(ray.x, ray.y, ray.z);
+            if(block != null && block.getMesh() != null){
+                //not void
+                result.hit.set(ray.x, ray.y, ray.z);
+                result.distance = (float)ray.distance;
+                return true;
+            }
+            result.place.set(ray.x, ray.y, ray.z);
+            result.hasPlace = true;
+            ray.next();
+        }
+        return false;
+    }
+
+    //like getBlock, but without allocating a new chunk position every time.
+    private Block getLoadedBlock(int x, int y, int z){
+        GPUChunk c = render.getChunk(rayChunkPos.set((x & -CHUNK_SIZE)/CHUNK_SIZE, (y & -CHUNK_SIZE)/CHUNK_SIZE, (z & -CHUNK_SIZE)/CHUNK_SIZE));
+        if(c == null) return null;
+        return (Block)c.getBlock(x&(CHUNK_SIZE-1), y&(CHUNK_SIZE-1), z&(CHUNK_SIZE-1));
+    }
+
     public double updateChunks(){
         final Render r = RenderUtils.activeRender;
         final double startTime = r.getTime();
@@ -99,6 +192,9 @@ public class World {
         unloadChunks(chunksToUnload);
 
         chunksToUnload.clear();
+        //forget partially generated chunks that are well outside of the render distance - they aren't going to be needed any time soon.
+        final float forgetDistance = renderDistance + CHUNK_SIZE;
+        generator.forget(pos -> RenderUtils.getChunkWorldPos(pos).distanceSquared(GlobalBits.playerPosition) > forgetDistance*forgetDistance);
         //We do this asynchronously since it takes >200ms since many threads are fighting for access to scheduledChunks
         if(future != null){
             if(future.isDone()) future = null;
@@ -123,10 +219,7 @@ public class World {
                             playerChunk.add(x, y, z, chunkPos);
                             if (!render.hasChunk(chunkPos) && RenderUtils.getChunkWorldPos(chunkPos).distanceSquared(GlobalBits.playerPosition) < renderDistanceSquared && !scheduledChunks.contains(chunkPos)) {
                                 scheduledChunks.add(chunkPos);
-                                executor.submit(() -> {
-                                    loadChunk(chunkPos.x, chunkPos.y, chunkPos.z);
-                                    scheduledChunks.remove(chunkPos);
-                                });
+                                loadChunk(chunkPos.x, chunkPos.y, chunkPos.z).whenComplete((v, error) -> scheduledChunks.remove(chunkPos));
                             }
                         }
                     }
@@ -181,48 +274,30 @@ public class World {
     /**
      * loads a chunk by either loading it from the world save, or generating it if it wasn't found in the save.
      * note: uses xyz chunk coordinates
+     * @return a future that completes once the chunk has been spawned.
      */
-    public void loadChunk(int x, int y, int z){
+    public CompletableFuture<Void> loadChunk(int x, int y, int z){
         Vector3i pos = new Vector3i(x, y, z);
 
         if(render.getChunks().containsKey(pos)){
             RenderUtils.activeRender.printErrln("tried to load chunk that is already loaded! " + chunkIndex++);
-            return;
+            return CompletableFuture.completedFuture(null);
         }
         //todo: world saves
-        generateChunk(blocks, x, y, z);
-    }
-
-    private void generateChunk(Map<String, Block> blocks, int x, int y, int z){
-        final Block[][][] blocksg = new Block[CHUNK_SIZE][CHUNK_SIZE][CHUNK_SIZE];
-        final Block fillBlock = blocks.get("voxelesque:grassBlock");
-        final Block unfillBlock = Block.VOID_BLOCK;
-        final int csx = (int) (CHUNK_SIZE * x * 0.5773502692);
-        final int csy = CHUNK_SIZE * y;
-        final int csz = CHUNK_SIZE * z;
-
-        boolean empty = true;
-        for(int xp = 0; xp < CHUNK_SIZE; xp++){
-            for(int zp = 0; zp < CHUNK_SIZE; zp++){
-                double height = noise.GetNoise(csx+(xp * 0.5773502692f), csz+zp);
-                height = height*height*400;//squaring it makes it better by making lower terrain flatter, and higher terrain more varied and mountain-like
-                for(int yp = 0; yp < CHUNK_SIZE; yp++){
-                    if(csy+yp < height) {
-                        blocksg[xp][yp][zp] = fillBlock;
-                        empty = false;
-                    } else {
-                        blocksg[xp][yp][zp] = unfillBlock;
-                    }
-                }
+        return generator.generate(x, y, z).handle((chunk, error) -> {
+            if(error != null){
+                RenderUtils.activeRender.printErrln("Failed to generate chunk " + pos + ": " + error);
+            } else {
+                Block[][][] blocks = chunk.releaseBlocks();
+                if(verifyGeneration) chunkHashes.put(pos, ChunkHash.hash(blocks, CHUNK_SIZE));
+                render.spawnChunk(CHUNK_SIZE, blocks, x, y, z, false); //empty chunks release null blocks, which makes an empty chunk.
             }
-        }
-
-        if(empty) render.spawnChunk(CHUNK_SIZE, null, x, y, z, false); //if it's empty, make an empty chunk.
-        else render.spawnChunk(CHUNK_SIZE, blocksg, x, y, z, false);
+            return null;
+        });
     }
 
     public void close(){
-        executor.shutdownNow();
+        generator.close();
         //todo: save chunks when world closes.
     }
 }
@@ -4,6 +4,9 @@ import com.amihaiemil.eoyaml.Yaml;
 import com.amihaiemil.eoyaml.YamlMapping;
 import com.amihaiemil.eoyaml.YamlNode;
 import com.amihaiemil.eoyaml.YamlStream;
+import engine.multiplatform.Util.DynamicAtlas;
+import engine.multiplatform.Util.StartupLoader;
+import engine.multiplatform.Util.TileArray;
 import engine.multiplatform.gpu.GPUShader;
 import engine.multiplatform.gpu.GPUTexture;
 import engine.multiplatform.model.CPUMesh;
@@ -15,12 +18,17 @@ import org.joml.Vector3i;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SimpleBlock implements Block {
+    //the block atlas of each mod, so blocks can be added to it later by registerBlock
+    private static final Map<String, DynamicAtlas> atlases = new ConcurrentHashMap<>();
+
     private final String id;
     private final String modID;
     private final CPUMesh mesh;
@@ -76,11 +84,29 @@ public class SimpleBlock implements Block {
     }
 
     public static Map<String, Block> generateBlocks(String pathToResources, String pathToBlockRegistry, String modID) {
+        try (StartupLoader loader = new StartupLoader()) {
+            return generateBlocks(pathToResources, pathToBlockRegistry, modID, loader);
+        }
+    }
+
+    /**
+     * loads the blocks in a mod's block registry. The models are loaded in parallel on the loader's threads,
+     * and the atlas and its texture are made on this thread, which has to be the render thread.
+     * If GlobalBits.tileTextures is on, the blocks get an array texture and the tile shader instead of an atlas.
+     */
+    public static Map<String, Block> generateBlocks(String pathToResources, String pathToBlockRegistry, String modID, StartupLoader loader) {
         GlobalBits.render.setResourcesPath(pathToResources); //set render resource path the mod resource path
-        Map<String, Block> blocks = new HashMap<>();
+        //registerBlock adds to this on the render thread while the simulation thread reads it (it becomes GlobalBits.blocks)
+        Map<String, Block> blocks = new ConcurrentHashMap<>();
         try {
-            YamlStream stream = Yaml.createYamlInput(new File(pathToResources + "/" + pathToBlockRegistry)).readYamlStream();
-            List<CPUModel> blockModels = new ArrayList<>();
+            YamlStream stream = loader.onThisThread("block registry", () -> {
+                try {
+                    return Yaml.createYamlInput(new File(pathToResources + "/" + pathToBlockRegistry)).readYamlStream();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            List<CompletableFuture<CPUModel>> modelLoads = new ArrayList<>();
             ArrayList<String> blockIDs = new ArrayList<>();
 
             for (YamlNode node : stream.toList()) {
@@ -89,25 +115,81 @@ public class SimpleBlock implements Block {
                 //String name = blockMaps.string("name");
                 String modelPath = blockMaps.string("model");
 
-                blockModels.add(GlobalBits.render.loadBlockModel(modelPath));
+                modelLoads.add(loader.load("block models", () -> GlobalBits.render.loadBlockModel(modelPath)));
                 blockIDs.add(id);
             }
-            blockModels = GlobalBits.render.generateImageAtlas(blockModels);
-            GPUTexture texture = GlobalBits.render.readTexture(blockModels.get(0).texture);
-            for(int i=0; i<blockModels.size(); i++){
-                blocks.put(modID + ":" + blockIDs.get(i), new SimpleBlock(blockIDs.get(i), modID, blockModels.get(i).mesh, texture, GlobalBits.defaultShader));
+            //every model has to be loaded before the resources path is set back
+            List<CPUModel> blockModels = new ArrayList<>();
+            for(CompletableFuture<CPUModel> load: modelLoads){
+                blockModels.add(StartupLoader.join(load));
+            }
+            TileArray tiles = null;
+            if(GlobalBits.tileTextures){
+                try {
+                    tiles = loader.onThisThread("block tiles", () -> TileArray.generate(blockModels));
+                } catch (IllegalStateException e){
+                    System.err.println("unable to use tile textures for mod " + modID + ", using an atlas instead: " + e.getMessage());
+                }
+            }
+            if(tiles != null){
+                TileArray finalTiles = tiles;
+                GPUTexture texture = loader.onThisThread("textures", () -> GlobalBits.render.readTextureArray(finalTiles.getTiles()));
+                List<CPUModel> models = tiles.getModels();
+                for(int i=0; i<models.size(); i++){
+                    blocks.put(modID + ":" + blockIDs.get(i), new SimpleBlock(blockIDs.get(i), modID, models.get(i).mesh, texture, GlobalBits.tileShader));
+                }
+            } else {
+                DynamicAtlas atlas = loader.onThisThread("block atlas", () -> GlobalBits.render.generateDynamicAtlas(blockModels));
+                atlases.put(modID, atlas);
+                List<CPUModel> models = atlas.getModels();
+                for(int i=0; i<models.size(); i++){
+                    blocks.put(modID + ":" + blockIDs.get(i), new SimpleBlock(blockIDs.get(i), modID, models.get(i).mesh, atlas.getTexture(), GlobalBits.defaultShader));
+                }
+            }
+        } catch(UncheckedIOException e){
+            if(e.getCause() instanceof FileNotFoundException){
+                System.err.println("unable to find simpleBlock registry for mod " + modID);
+            } else {
+                System.err.println("unable to read simpleBlock registry for mod " + modID);
             }
-        } catch(FileNotFoundException e){
-            System.err.println("unable to find simpleBlock registry for mod " + modID);
-            return null;
-        } catch(IOException e){
-            System.err.println("unable to read simpleBlock registry for mod " + modID);
             return null;
         }
         GlobalBits.render.setResourcesPath(GlobalBits.resourcesPath); //set render resource path back to vanilla path
         return blocks;
     }
 
+    /**
+     * adds a block to a mod while the game is running, without regenerating the mod's other blocks or the chunks that use them.
+     * Its texture is added to the free space in the mod's block atlas. Only call this on the render thread.
+     * @param pathToResources the mod's resources folder
+     * @param modelPath the path of the block's model within the resources folder
+     * @return the block, which is also added to GlobalBits.blocks, or null if it couldn't be added.
+     */
+    public static Block registerBlock(String pathToResources, String modelPath, String id, String modID){
+        DynamicAtlas atlas = atlases.get(modID);
+        if(atlas == null){
+            //mods using tile textures don't have an atlas, and the array texture can't have layers added to it
+            System.err.println("unable to register block " + modID + ":" + id + ", the mod's blocks haven't been generated or use tile textures");
+            return null;
+        }
+        GlobalBits.render.setResourcesPath(pathToResources);
+        CPUModel model = GlobalBits.render.loadBlockModel(modelPath);
+        GlobalBits.render.setResourcesPath(GlobalBits.resourcesPath);
+        if(GlobalBits.render.isErrorModel(model)){
+            //the placeholder would take up atlas space and make a block nobody asked for
+            System.err.println("unable to register block " + modID + ":" + id + ", its model couldn't be loaded");
+            return null;
+        }
+        CPUModel added = atlas.add(model);
+        if(added == null){
+            System.err.println("unable to register block " + modID + ":" + id + ", the block atlas is full. The mod's blocks have to be generated again");
+            return null;
+        }
+        Block block = new SimpleBlock(id, modID, added.mesh, atlas.getTexture(), GlobalBits.defaultShader);
+        if(GlobalBits.blocks != null) GlobalBits.blocks.put(modID + ":" + id, block);
+        return block;
+    }
+
     public String toString(){
         return modID + ":" + id;
     }
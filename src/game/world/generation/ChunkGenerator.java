@@ -0,0 +1,113 @@
+package game.world.generation;
+
+import org.joml.Vector3i;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * Runs chunks through a list of GenerationStages on a work-stealing thread pool.
+ *
+ * Asking for a chunk recursively asks for whatever its stages depend on:
+ * stage n of a chunk waits for stage n-1 of itself and every neighbor within stage n's radius.
+ * Nothing ever blocks - each stage is chained onto the futures it depends on,
+ * so the pool threads are always doing actual generation work.
+ *
+ * Chunks that were only generated part of the way (because a neighbor needed them) are kept around,
+ * so when they are requested themselves the finished stages don't have to run again.
+ */
+public class ChunkGenerator {
+    private final GenerationStage[] stages;
+    private final int chunkSize;
+    private final ConcurrentHashMap<Vector3i, ProtoChunk> protoChunks = new ConcurrentHashMap<>();
+    private final ForkJoinPool pool;
+
+    public ChunkGenerator(int chunkSize, int threads, GenerationStage... stages){
+        if(stages.length == 0) throw new IllegalArgumentException("A chunk generator needs at least one stage");
+        if(stages[0].getNeighborRadius() != 0) throw new IllegalArgumentException("The first generation stage has nothing to depend on, so it can't have a neighbor radius");
+        this.stages = stages;
+        this.chunkSize = chunkSize;
+        //asyncMode makes the pool process tasks in FIFO order, which is better for tasks that are never joined.
+        this.pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    /**
+     * generates a chunk, running every stage on it.
+     * @param x the chunk X position
+     * @param y the chunk Y position
+     * @param z the chunk Z position
+     * @return a future that completes with the finished chunk.
+     */
+    public CompletableFuture<ProtoChunk> generate(int x, int y, int z){
+        Vector3i pos = new Vector3i(x, y, z);
+        ProtoChunk existing = protoChunks.get(pos);
+        //a chunk that was already generated and given away has no blocks left, so it has to be generated again from scratch.
+        if(existing != null && existing.isReleased()) protoChunks.remove(pos, existing);
+        return require(pos, stages.length-1);
+    }
+
+    private CompletableFuture<ProtoChunk> require(Vector3i pos, int stage){
+        ProtoChunk chunk = protoChunks.computeIfAbsent(pos, p -> new ProtoChunk(new Vector3i(p), chunkSize, stages.length));
+        CompletableFuture<ProtoChunk> existing = chunk.getStageFuture(stage);
+        if(existing != null) return existing;
+
+        //claim the stage before touching its dependencies, so that only one thread ever schedules it.
+        CompletableFuture<ProtoChunk> future = new CompletableFuture<>();
+        existing = chunk.claimStage(stage, future);
+        if(existing != null) return existing;
+
+        GenerationStage generationStage = stages[stage];
+        int radius = generationStage.getNeighborRadius();
+        int width = radius*2+1;
+        //in the same order as the chunks of the GenerationRegion
+        List<CompletableFuture<ProtoChunk>> dependencies = new ArrayList<>(stage == 0 ? 0 : width*width);
+        if(stage != 0) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    dependencies.add(require(new Vector3i(pos.x+dx, pos.y, pos.z+dz), stage-1));
+                }
+            }
+        }
+
+        CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0])).thenRunAsync(() -> {
+            //the dependencies are finished by now, so join() returns immediately.
+            ProtoChunk[] regionChunks = new ProtoChunk[width*width];
+            for(int i=0; i<dependencies.size(); i++) regionChunks[i] = dependencies.get(i).join();
+            if(stage == 0) regionChunks[0] = chunk;
+            generationStage.generate(chunk, new GenerationRegion(regionChunks, radius));
+            chunk.stageCompleted(stage);
+        }, pool).whenComplete((v, error) -> {
+            if(error != null) future.completeExceptionally(new IllegalStateException("Failed generation stage \"" + generationStage.getName() + "\" of chunk " + pos, error));
+            else future.complete(chunk);
+        });
+        return future;
+    }
+
+    /**
+     * forgets every partially or fully generated chunk that matches the predicate and isn't currently being worked on.
+     * Forgotten chunks will simply be generated again if they are needed.
+     * @param shouldForget tests a chunk position.
+     */
+    public void forget(Predicate<Vector3i> shouldForget){
+        protoChunks.values().removeIf(chunk -> shouldForget.test(chunk.getPos()) && chunk.isIdle());
+    }
+
+    /**
+     * @return the number of chunks currently held by the generator.
+     */
+    public int getNumProtoChunks(){
+        return protoChunks.size();
+    }
+
+    public int getNumStages(){
+        return stages.length;
+    }
+
+    public void close(){
+        pool.shutdownNow();
+    }
+}
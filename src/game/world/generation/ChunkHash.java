@@ -0,0 +1,37 @@
+package game.world.generation;
+
+import game.world.block.Block;
+
+/**
+ * Computes a content hash of a chunk's blocks, so two generators can be checked for producing the exact same world.
+ * Blocks are compared by their ID rather than by object, so the hash is the same between runs and between block registries.
+ */
+public class ChunkHash {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * @param blocks the block data of the chunk. null counts as a chunk full of void blocks, same as World does.
+     * @param size the size of the chunk
+     * @return the 64 bit hash of the chunk's contents.
+     */
+    public static long hash(Block[][][] blocks, int size){
+        long hash = FNV_OFFSET;
+        //hashing the ID string for every block would be slow, so the hash of the ID is used instead.
+        final int voidHash = Block.VOID_BLOCK.getID().hashCode();
+        for(int x = 0; x < size; x++){
+            for(int y = 0; y < size; y++){
+                for(int z = 0; z < size; z++){
+                    Block block = blocks == null ? null : blocks[x][y][z];
+                    int blockHash = block == null ? voidHash : block.getID().hashCode();
+                    //FNV-1a, one byte at a time.
+                    hash = (hash ^ (blockHash & 0xff)) * FNV_PRIME;
+                    hash = (hash ^ (blockHash >>> 8 & 0xff)) * FNV_PRIME;
+                    hash = (hash ^ (blockHash >>> 16 & 0xff)) * FNV_PRIME;
+                    hash = (hash ^ (blockHash >>> 24)) * FNV_PRIME;
+                }
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,39 @@
+package game.world.generation;
+
+import game.world.block.Block;
+
+/**
+ * The last generation stage. It cleans up after the other stages so the chunk is ready to be spawned:
+ * nulls in the block data are replaced with void blocks, and chunks that ended up with nothing in them are marked as empty
+ * so the World can spawn them without any block data.
+ */
+public class FinalizeStage implements GenerationStage {
+    @Override
+    public String getName() {
+        return "finalize";
+    }
+
+    @Override
+    public int getNeighborRadius() {
+        return 0;
+    }
+
+    @Override
+    public void generate(ProtoChunk chunk, GenerationRegion region) {
+        Block[][][] blocks = chunk.blocks;
+        if(blocks == null){
+            chunk.empty = true;
+            return;
+        }
+        boolean empty = true;
+        for(Block[][] plane: blocks){
+            for(Block[] row: plane){
+                for(int i=0; i<row.length; i++){
+                    if(row[i] == null) row[i] = Block.VOID_BLOCK;
+                    else if(row[i] != Block.VOID_BLOCK) empty = false;
+                }
+            }
+        }
+        chunk.empty = empty;
+    }
+}
@@ -0,0 +1,33 @@
+package game.world.generation;
+
+/**
+ * The read-only view of a chunk and its horizontal neighbors that a GenerationStage is given.
+ * Every chunk in the region has finished (at least) the stage before the one that is running.
+ */
+public class GenerationRegion {
+    private final ProtoChunk[] chunks;
+    private final int radius;
+    private final int width;
+
+    GenerationRegion(ProtoChunk[] chunks, int radius){
+        this.chunks = chunks;
+        this.radius = radius;
+        this.width = radius*2+1;
+    }
+
+    /**
+     * @param dx the X offset from the center chunk, in chunks
+     * @param dz the Z offset from the center chunk, in chunks
+     * @return the chunk at that offset. Do not modify it unless it is the center (0, 0).
+     */
+    public ProtoChunk get(int dx, int dz){
+        if(dx < -radius || dx > radius || dz < -radius || dz > radius){
+            throw new IndexOutOfBoundsException("(" + dx + ", " + dz + ") is outside of the generation region radius " + radius);
+        }
+        return chunks[(dx+radius)*width + dz+radius];
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,34 @@
+package game.world.generation;
+
+/**
+ * A single step of world generation, run once per chunk by the ChunkGenerator.
+ *
+ * Stages run in order - a chunk never enters a stage until it has finished every stage before it.
+ * On top of that, a stage can ask for the chunks around it to have finished the previous stage as well,
+ * which is how things that cross chunk borders (like trees) get placed correctly without locking anything.
+ *
+ * IMPORTANT: a stage may only WRITE to the chunk it is given. Neighbors are read-only,
+ * since other threads may be generating them at the same time.
+ */
+public interface GenerationStage {
+
+    /**
+     * @return the name of the stage, used in error messages.
+     */
+    String getName();
+
+    /**
+     * How many chunks in each horizontal direction (X and Z) need to have finished the previous stage
+     * before this stage can run on a chunk.
+     * 0 means the stage only looks at its own chunk, 1 means the 3x3 column of chunks around it, etc.
+     * @return the neighbor radius in chunks.
+     */
+    int getNeighborRadius();
+
+    /**
+     * runs the stage on a chunk.
+     * @param chunk the chunk to generate - this is the only chunk that may be modified.
+     * @param region the chunk and its neighbors within getNeighborRadius(), all of which have finished the previous stage.
+     */
+    void generate(ProtoChunk chunk, GenerationRegion region);
+}
@@ -0,0 +1,102 @@
+package game.world.generation;
+
+import game.world.World;
+import game.world.block.Block;
+import game.world.block.SimpleBlock;
+import org.joml.Vector3i;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Checks a generator against a reference by generating the same area with both and comparing the chunk hashes.
+ * The reference is the default world generator running on a single thread, one chunk at a time,
+ * which is the slowest but most obviously correct way of generating a world.
+ */
+public class GenerationVerifier {
+
+    /**
+     * generates every chunk in a box and hashes it.
+     * @param generator the generator to use
+     * @param min the minimum chunk position (inclusive)
+     * @param max the maximum chunk position (exclusive)
+     * @param oneAtATime if true, each chunk is finished before the next one is started. Otherwise, they are all requested at once.
+     * @return the hash of each chunk by its position
+     */
+    public static Map<Vector3i, Long> hashRegion(ChunkGenerator generator, Vector3i min, Vector3i max, boolean oneAtATime){
+        Map<Vector3i, CompletableFuture<ProtoChunk>> futures = new LinkedHashMap<>();
+        for(int x = min.x; x < max.x; x++){
+            for(int y = min.y; y < max.y; y++){
+                for(int z = min.z; z < max.z; z++){
+                    CompletableFuture<ProtoChunk> future = generator.generate(x, y, z);
+                    if(oneAtATime) future.join();
+                    futures.put(new Vector3i(x, y, z), future);
+                }
+            }
+        }
+        Map<Vector3i, Long> hashes = new HashMap<>();
+        futures.forEach((pos, future) -> hashes.put(pos, ChunkHash.hash(future.join().releaseBlocks(), World.CHUNK_SIZE)));
+        return hashes;
+    }
+
+    /**
+     * compares two sets of chunk hashes.
+     * @return the positions of every chunk that is different or missing from either set.
+     */
+    public static List<Vector3i> compare(Map<Vector3i, Long> reference, Map<Vector3i, Long> toCheck){
+        List<Vector3i> mismatches = new ArrayList<>();
+        reference.forEach((pos, hash) -> {
+            if(!hash.equals(toCheck.get(pos))) mismatches.add(pos);
+        });
+        toCheck.keySet().forEach(pos -> {
+            if(!reference.containsKey(pos)) mismatches.add(pos);
+        });
+        return mismatches;
+    }
+
+    /**
+     * Block registry stand-in for running the generator without a Render.
+     * The generator only cares about block identity, so blocks without models hash exactly like the real ones.
+     */
+    public static Map<String, Block> placeholderBlocks(String modID, String... ids){
+        Map<String, Block> blocks = new HashMap<>();
+        for(String id: ids){
+            blocks.put(modID + ":" + id, new SimpleBlock(id, modID, null, null, null));
+        }
+        return blocks;
+    }
+
+    /**
+     * usage: GenerationVerifier [seed] [radius in chunks] [threads]
+     */
+    public static void main(String[] args) {
+        int seed = args.length > 0 ? Integer.parseInt(args[0]) : World.DEFAULT_SEED;
+        int radius = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Map<String, Block> blocks = placeholderBlocks("voxelesque", "grassBlock", "stoneBlock", "pineLog", "pineLeaves");
+        Vector3i min = new Vector3i(-radius, -1, -radius);
+        Vector3i max = new Vector3i(radius, 3, radius);
+
+        ChunkGenerator reference = World.createGenerator(seed, blocks, 1);
+        long start = System.nanoTime();
+        Map<Vector3i, Long> referenceHashes = hashRegion(reference, min, max, true);
+        long referenceTime = System.nanoTime() - start;
+        reference.close();
+
+        ChunkGenerator generator = World.createGenerator(seed, blocks, threads);
+        start = System.nanoTime();
+        Map<Vector3i, Long> hashes = hashRegion(generator, min, max, false);
+        long time = System.nanoTime() - start;
+        generator.close();
+
+        List<Vector3i> mismatches = compare(referenceHashes, hashes);
+        System.out.println("seed " + seed + ", " + referenceHashes.size() + " chunks");
+        System.out.println("reference: " + referenceTime / 1_000_000 + "ms, " + threads + " threads: " + time / 1_000_000 + "ms");
+        if(mismatches.isEmpty()){
+            System.out.println("all chunks match");
+        } else {
+            System.out.println(mismatches.size() + " chunks differ: " + mismatches);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package game.world.generation;
+
+import util.noise.FastNoiseLite;
+import util.noise.NoiseSettings;
+
+/**
+ * The first generation stage: samples the terrain noise into a heightmap.
+ * It doesn't place any blocks, it only decides how tall the terrain is in each column.
+ * Every generation thread gets its own noise object, so nothing is shared between threads except the settings.
+ */
+public class HeightmapStage implements GenerationStage {
+    private final ThreadLocal<FastNoiseLite> noise;
+
+    public HeightmapStage(NoiseSettings settings){
+        this.noise = settings.createThreadLocal();
+    }
+
+    @Override
+    public String getName() {
+        return "heightmap";
+    }
+
+    @Override
+    public int getNeighborRadius() {
+        return 0;
+    }
+
+    @Override
+    public void generate(ProtoChunk chunk, GenerationRegion region) {
+        final FastNoiseLite noise = this.noise.get();
+        final int size = chunk.getSize();
+        final float[][] heightmap = new float[size][size];
+        final int csx = (int) (size * chunk.getPos().x * 0.5773502692);
+        final int csz = size * chunk.getPos().z;
+        for(int xp = 0; xp < size; xp++){
+            for(int zp = 0; zp < size; zp++){
+                double height = noise.GetNoise(csx+(xp * 0.5773502692f), csz+zp);
+                heightmap[xp][zp] = (float)(height*height*400);//squaring it makes it better by making lower terrain flatter, and higher terrain more varied and mountain-like
+            }
+        }
+        chunk.heightmap = heightmap;
+    }
+}
@@ -0,0 +1,131 @@
+package game.world.generation;
+
+import game.world.block.Block;
+
+/**
+ * Places pine trees (pineLog and pineLeaves) on top of the terrain.
+ *
+ * Trees can be wider than the distance to a chunk border, so each chunk looks at every tree
+ * that grows from its own columns AND the columns of its neighbors, and only places the parts that land inside itself.
+ * Whether a column grows a tree is decided by hashing its world position, so every chunk comes to the same conclusion
+ * about the same tree no matter which thread generates it or in what order.
+ */
+public class PineTreeStage implements GenerationStage {
+    //the world-space size of a block, which is not the same on every axis because of the triangular grid.
+    private static final float BLOCK_WIDTH_X = 0.288675134595f;
+    private static final float BLOCK_WIDTH_Z = 0.5f;
+    private static final float MAX_LEAF_RADIUS = 1.75f; //in world units, not blocks.
+
+    private final Block log;
+    private final Block leaves;
+    private final int seed;
+    private final int treeChance;
+
+    /**
+     * @param log the block for the trunk
+     * @param leaves the block for the leaves
+     * @param seed the world seed
+     * @param treeChance one in how many surface columns grows a tree
+     */
+    public PineTreeStage(Block log, Block leaves, int seed, int treeChance){
+        this.log = log;
+        this.leaves = leaves;
+        this.seed = seed;
+        this.treeChance = treeChance;
+    }
+
+    @Override
+    public String getName() {
+        return "pine trees";
+    }
+
+    @Override
+    public int getNeighborRadius() {
+        return 1;
+    }
+
+    @Override
+    public void generate(ProtoChunk chunk, GenerationRegion region) {
+        final int size = chunk.getSize();
+        final int minX = chunk.getPos().x*size, minY = chunk.getPos().y*size, minZ = chunk.getPos().z*size;
+        final int maxLeafX = (int)Math.ceil(MAX_LEAF_RADIUS/BLOCK_WIDTH_X);
+        final int maxLeafZ = (int)Math.ceil(MAX_LEAF_RADIUS/BLOCK_WIDTH_Z);
+        final int radius = region.getRadius();
+        //go through every column in the region in a fixed order, so overlapping trees always resolve the same way.
+        for(int dx = -radius; dx <= radius; dx++){
+            for(int dz = -radius; dz <= radius; dz++){
+                ProtoChunk source = region.get(dx, dz);
+                float[][] heightmap = source.heightmap;
+                int sourceX = source.getPos().x*size, sourceZ = source.getPos().z*size;
+                for(int xp = 0; xp < size; xp++){
+                    int treeX = sourceX + xp;
+                    //skip the whole column if its tree can't possibly reach this chunk.
+                    if(treeX + maxLeafX < minX || treeX - maxLeafX >= minX+size) continue;
+                    for(int zp = 0; zp < size; zp++){
+                        int treeZ = sourceZ + zp;
+                        if(treeZ + maxLeafZ < minZ || treeZ - maxLeafZ >= minZ+size) continue;
+                        int hash = hash(treeX, treeZ);
+                        if(Integer.remainderUnsigned(hash, treeChance) != 0) continue;
+                        int baseY = (int)Math.ceil(heightmap[xp][zp]);
+                        int trunkHeight = 6 + ((hash >>> 16) & 3);
+                        if(baseY + trunkHeight + 1 < minY || baseY >= minY+size) continue;
+                        placeTree(chunk, treeX, baseY, treeZ, trunkHeight);
+                    }
+                }
+            }
+        }
+    }
+
+    private void placeTree(ProtoChunk chunk, int treeX, int baseY, int treeZ, int trunkHeight){
+        //leaves first, so the trunk goes through them.
+        int leafStart = baseY + 2;
+        int top = baseY + trunkHeight;
+        for(int y = leafStart; y <= top+1; y++){
+            //a cone that gets thinner towards the top
+            float r = MAX_LEAF_RADIUS * (top + 1 - y + 1) / (top + 1 - leafStart + 1);
+            int rx = (int)Math.ceil(r/BLOCK_WIDTH_X);
+            int rz = (int)Math.ceil(r/BLOCK_WIDTH_Z);
+            for(int x = treeX-rx; x <= treeX+rx; x++){
+                for(int z = treeZ-rz; z <= treeZ+rz; z++){
+                    float wx = (x-treeX)*BLOCK_WIDTH_X;
+                    float wz = (z-treeZ)*BLOCK_WIDTH_Z;
+                    if(wx*wx + wz*wz > r*r) continue;
+                    setIfAir(chunk, x, y, z, leaves);
+                }
+            }
+        }
+        for(int y = baseY; y < top; y++){
+            Block existing = get(chunk, treeX, y, treeZ);
+            if(existing == Block.VOID_BLOCK || existing == leaves) set(chunk, treeX, y, treeZ, log);
+        }
+    }
+
+    private void setIfAir(ProtoChunk chunk, int x, int y, int z, Block block){
+        if(get(chunk, x, y, z) == Block.VOID_BLOCK) set(chunk, x, y, z, block);
+    }
+
+    //returns null for positions outside of the chunk, so those are never written to.
+    private Block get(ProtoChunk chunk, int x, int y, int z){
+        int size = chunk.getSize();
+        int lx = x - chunk.getPos().x*size, ly = y - chunk.getPos().y*size, lz = z - chunk.getPos().z*size;
+        if(lx < 0 || ly < 0 || lz < 0 || lx >= size || ly >= size || lz >= size) return null;
+        return chunk.blocks[lx][ly][lz];
+    }
+
+    private void set(ProtoChunk chunk, int x, int y, int z, Block block){
+        int size = chunk.getSize();
+        chunk.blocks[x - chunk.getPos().x*size][y - chunk.getPos().y*size][z - chunk.getPos().z*size] = block;
+        chunk.empty = false;
+    }
+
+    private int hash(int x, int z){
+        //a simple integer mix, good enough to scatter trees without any visible patterns.
+        int h = seed ^ (x * 0x27d4eb2d) ^ (z * 0x165667b1);
+        h ^= h >>> 15;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,117 @@
+package game.world.generation;
+
+import game.world.block.Block;
+import org.joml.Vector3i;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A chunk that is still being generated.
+ * It holds the intermediate data the generation stages pass between each other,
+ * and it only becomes a real chunk once the last stage is finished and the World spawns it.
+ */
+public class ProtoChunk {
+    private final Vector3i pos;
+    private final int size;
+
+    //the block data. Stays null until a stage fills it in.
+    Block[][][] blocks;
+    //the height of the terrain surface for each [x][z] column, in block coordinates.
+    // Only depends on the column, so every chunk stacked on the same X and Z has the same heightmap.
+    float[][] heightmap;
+    boolean empty;
+    private volatile boolean released;
+
+    //one future per stage - null until somebody asks for that stage.
+    private final AtomicReferenceArray<CompletableFuture<ProtoChunk>> stageFutures;
+    private volatile int completedStages;
+
+    public ProtoChunk(Vector3i pos, int size, int numStages){
+        this.pos = pos;
+        this.size = size;
+        this.empty = true;
+        this.stageFutures = new AtomicReferenceArray<>(numStages);
+    }
+
+    public Vector3i getPos() {
+        return pos;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Block[][][] getBlocks() {
+        return blocks;
+    }
+
+    public float[][] getHeightmap() {
+        return heightmap;
+    }
+
+    /**
+     * @return true if the chunk contains nothing but void blocks. Only valid once the chunk is finished.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @return how many stages have finished on this chunk.
+     */
+    public int getCompletedStages() {
+        return completedStages;
+    }
+
+    /**
+     * hands the block data over to whoever is going to spawn the chunk.
+     * Neighbors only ever read the heightmap of a finished chunk, so the blocks can safely be given away.
+     * @return the block data, or null if the chunk is empty.
+     */
+    public Block[][][] releaseBlocks(){
+        Block[][][] out = empty ? null : blocks;
+        blocks = null;
+        released = true;
+        return out;
+    }
+
+    /**
+     * @return true if the block data has been handed off with releaseBlocks()
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    void stageCompleted(int stage){
+        completedStages = stage+1;
+    }
+
+    CompletableFuture<ProtoChunk> getStageFuture(int stage){
+        return stageFutures.get(stage);
+    }
+
+    /**
+     * claims a stage for generation.
+     * @return null if the claim succeeded, otherwise the future of whoever claimed it first.
+     */
+    CompletableFuture<ProtoChunk> claimStage(int stage, CompletableFuture<ProtoChunk> future){
+        if(stageFutures.compareAndSet(stage, null, future)) return null;
+        return stageFutures.get(stage);
+    }
+
+    /**
+     * @return true if no stage of this chunk is currently waiting or running.
+     */
+    boolean isIdle(){
+        for(int i=0; i<stageFutures.length(); i++){
+            CompletableFuture<ProtoChunk> future = stageFutures.get(i);
+            if(future != null && !future.isDone()) return false;
+        }
+        return true;
+    }
+
+    public String toString(){
+        return pos + " stages:" + completedStages + "/" + stageFutures.length();
+    }
+}
@@ -0,0 +1,59 @@
+package game.world.generation;
+
+import game.world.block.Block;
+
+/**
+ * Turns the heightmap into actual blocks:
+ * everything below the surface is solid, the top few layers are the surface block and the rest is stone.
+ */
+public class SurfaceStage implements GenerationStage {
+    private final Block surfaceBlock;
+    private final Block undergroundBlock;
+    private final int surfaceDepth;
+
+    /**
+     * @param surfaceBlock the block used for the top layers of the terrain
+     * @param undergroundBlock the block used for everything below the surface layers
+     * @param surfaceDepth how many layers of surfaceBlock there are before it turns into undergroundBlock
+     */
+    public SurfaceStage(Block surfaceBlock, Block undergroundBlock, int surfaceDepth){
+        this.surfaceBlock = surfaceBlock;
+        this.undergroundBlock = undergroundBlock;
+        this.surfaceDepth = surfaceDepth;
+    }
+
+    @Override
+    public String getName() {
+        return "surface";
+    }
+
+    @Override
+    public int getNeighborRadius() {
+        return 0;
+    }
+
+    @Override
+    public void generate(ProtoChunk chunk, GenerationRegion region) {
+        final int size = chunk.getSize();
+        final Block[][][] blocks = new Block[size][size][size];
+        final float[][] heightmap = chunk.heightmap;
+        final int csy = size * chunk.getPos().y;
+        boolean empty = true;
+        for(int xp = 0; xp < size; xp++){
+            for(int zp = 0; zp < size; zp++){
+                float height = heightmap[xp][zp];
+                for(int yp = 0; yp < size; yp++){
+                    int y = csy+yp;
+                    if(y < height) {
+                        blocks[xp][yp][zp] = y < height-surfaceDepth ? undergroundBlock : surfaceBlock;
+                        empty = false;
+                    } else {
+                        blocks[xp][yp][zp] = Block.VOID_BLOCK;
+                    }
+                }
+            }
+        }
+        chunk.blocks = blocks;
+        chunk.empty = empty;
+    }
+}
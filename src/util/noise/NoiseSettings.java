@@ -0,0 +1,56 @@
+package util.noise;
+
+/**
+ * An immutable set of FastNoiseLite settings.
+ *
+ * FastNoiseLite objects are not safe to share between threads (DomainWarp and friends write to their inputs,
+ * and any setter changes the noise under the feet of every thread using it),
+ * so instead of passing one noise object around, pass the settings and let each thread create its own copy.
+ */
+public final class NoiseSettings {
+    public final int seed;
+    public final FastNoiseLite.NoiseType noiseType;
+    public final FastNoiseLite.FractalType fractalType;
+    public final float frequency;
+    public final int octaves;
+    public final float lacunarity;
+    public final float gain;
+
+    public NoiseSettings(int seed, FastNoiseLite.NoiseType noiseType, FastNoiseLite.FractalType fractalType, float frequency, int octaves, float lacunarity, float gain){
+        this.seed = seed;
+        this.noiseType = noiseType;
+        this.fractalType = fractalType;
+        this.frequency = frequency;
+        this.octaves = octaves;
+        this.lacunarity = lacunarity;
+        this.gain = gain;
+    }
+
+    /**
+     * @return a copy of these settings with a different seed.
+     */
+    public NoiseSettings withSeed(int seed){
+        return new NoiseSettings(seed, noiseType, fractalType, frequency, octaves, lacunarity, gain);
+    }
+
+    /**
+     * @return a new FastNoiseLite using these settings. It belongs to whoever called this - don't share it between threads.
+     */
+    public FastNoiseLite create(){
+        FastNoiseLite noise = new FastNoiseLite(seed);
+        noise.SetNoiseType(noiseType);
+        noise.SetFractalType(fractalType);
+        noise.SetFrequency(frequency);
+        noise.SetFractalOctaves(octaves);
+        noise.SetFractalLacunarity(lacunarity);
+        noise.SetFractalGain(gain);
+        return noise;
+    }
+
+    /**
+     * @return a ThreadLocal that gives every thread its own FastNoiseLite using these settings.
+     */
+    public ThreadLocal<FastNoiseLite> createThreadLocal(){
+        return ThreadLocal.withInitial(this::create);
+    }
+}
@@ -1,5 +1,6 @@
 package util.other;
 
+import engine.multiplatform.Util.ChunkVisibility;
 import engine.multiplatform.gpu.GPUBlock;
 import engine.multiplatform.gpu.GPUChunk;
 import org.joml.Vector3i;
@@ -18,6 +19,16 @@ public class NullChunk implements GPUChunk {
         return pos;
     }
 
+    @Override
+    public int getSize() {
+        return 0;
+    }
+
+    @Override
+    public long getVisibility() {
+        return ChunkVisibility.ALL;
+    }
+
     /**
      * sets the block data of this chunk.
      *
@@ -0,0 +1,171 @@
+package util.other;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A thread-safe map where iterating never blocks writers, and writers never block iterating.
+ *
+ * The entries are kept in a ConcurrentHashMap, so get() and put() never lock the whole map.
+ * forEach() iterates over a snapshot: a copy of the map taken the first time it's iterated after being modified.
+ * The iteration sees the map exactly as it was when the snapshot was taken, no matter what other threads do in the meantime,
+ * and since the snapshot is only rebuilt when something changed, iterating a map that didn't change costs nothing extra.
+ *
+ * keySet(), values() and entrySet() are read-only live views of the ConcurrentHashMap. They never throw a ConcurrentModificationException,
+ * but they may or may not see changes made while iterating them. Use forEach when the iteration has to be consistent.
+ *
+ * This replaces IteratorSafeMap, which made every writer sleep until the iterating thread said it was done.
+ */
+public class SnapshotMap<K, V> implements Map<K, V> {
+    private final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<>();
+    //incremented after every modification, so the snapshot knows if it's out of date.
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(0, new Object[0], new Object[0]);
+
+    private record Snapshot(long version, Object[] keys, Object[] values){}
+
+    /**
+     * iterates over a snapshot of the map. Changes made by other threads (or the action itself) during the iteration won't be seen.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Snapshot snapshot = getSnapshot();
+        Object[] keys = snapshot.keys;
+        Object[] values = snapshot.values;
+        for (int i = 0; i < keys.length; i++) {
+            action.accept((K) keys[i], (V) values[i]);
+        }
+    }
+
+    private Snapshot getSnapshot(){
+        Snapshot snapshot = this.snapshot;
+        long version = this.version.get();
+        if(snapshot.version == version) return snapshot;
+        //anything that changes while copying increments the version again, so the next call will copy again.
+        Object[] keys = new Object[map.size()];
+        Object[] values = new Object[keys.length];
+        int i = 0;
+        for(Entry<K, V> entry: map.entrySet()){
+            if(i == keys.length){
+                keys = Arrays.copyOf(keys, i*2+1);
+                values = Arrays.copyOf(values, keys.length);
+            }
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+        if(i != keys.length){
+            keys = Arrays.copyOf(keys, i);
+            values = Arrays.copyOf(values, i);
+        }
+        snapshot = new Snapshot(version, keys, values);
+        this.snapshot = snapshot;
+        return snapshot;
+    }
+
+    private <T> T modified(T result){
+        version.incrementAndGet();
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+    @Override
+    public boolean containsValue(Object value) {
+        return map.containsValue(value);
+    }
+    @Override
+    public V get(Object key) {
+        return map.get(key);
+    }
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        return map.getOrDefault(key, defaultValue);
+    }
+    @Override
+    public V put(K key, V value) {
+        return modified(map.put(key, value));
+    }
+    @Override
+    public V remove(Object key) {
+        return modified(map.remove(key));
+    }
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        map.putAll(m);
+        version.incrementAndGet();
+    }
+    @Override
+    public void clear() {
+        map.clear();
+        version.incrementAndGet();
+    }
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+    @Override
+    public Collection<V> values() {
+        return Collections.unmodifiableCollection(map.values());
+    }
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return Collections.unmodifiableSet(map.entrySet());
+    }
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        map.replaceAll(function);
+        version.incrementAndGet();
+    }
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return modified(map.putIfAbsent(key, value));
+    }
+    @Override
+    public boolean remove(Object key, Object value) {
+        return modified(map.remove(key, value));
+    }
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        return modified(map.replace(key, oldValue, newValue));
+    }
+    @Override
+    public V replace(K key, V value) {
+        return modified(map.replace(key, value));
+    }
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return modified(map.computeIfAbsent(key, mappingFunction));
+    }
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return modified(map.computeIfPresent(key, remappingFunction));
+    }
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return modified(map.compute(key, remappingFunction));
+    }
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return modified(map.merge(key, value, remappingFunction));
+    }
+}
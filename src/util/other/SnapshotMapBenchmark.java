@@ -0,0 +1,139 @@
+package util.other;
+
+import org.joml.Vector3i;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Measures how long writers get stuck while the render loop iterates the chunk map.
+ * A number of writer threads keep adding and removing chunks (like the world loading and unloading them),
+ * while another thread iterates the map over and over (like the render loop drawing every chunk).
+ *
+ * It compares SnapshotMap against how IteratorSafeMap used to do it: a synchronized map, and writers sleeping until iterating is done.
+ *
+ * args: [writer threads] [chunks in the map] [seconds per run]
+ */
+public class SnapshotMapBenchmark {
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 8192;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 3;
+        System.out.println(writers + " writers, " + size + " chunks, " + seconds + "s per run");
+        //the first run of each is a warm up
+        run("spin wait (old)", new SpinWaitMap<>(), writers, size, seconds / 3, false);
+        run("snapshot", new SnapshotMap<>(), writers, size, seconds / 3, false);
+        run("spin wait (old)", new SpinWaitMap<>(), writers, size, seconds, true);
+        run("snapshot", new SnapshotMap<>(), writers, size, seconds, true);
+    }
+
+    private static void run(String name, Map<Vector3i, Integer> map, int writers, int size, double seconds, boolean print) throws InterruptedException {
+        int side = (int)Math.ceil(Math.cbrt(size * 2));
+        for(int i=0; i<size; i++){
+            map.put(new Vector3i(i % side, (i / side) % side, i / (side*side)), i);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong writes = new AtomicLong();
+        AtomicLong maxStall = new AtomicLong();
+        AtomicLong stalls = new AtomicLong();
+
+        Thread[] threads = new Thread[writers];
+        for(int t=0; t<writers; t++){
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long max = 0;
+                long stalled = 0;
+                while(running.get()){
+                    Vector3i pos = new Vector3i(random.nextInt(side), random.nextInt(side), random.nextInt(side));
+                    long start = System.nanoTime();
+                    if(random.nextBoolean()) map.put(pos, pos.x);
+                    else map.remove(pos);
+                    long time = System.nanoTime() - start;
+                    max = Math.max(max, time);
+                    //a write taking over a millisecond was most likely waiting on the iteration (or a GC pause)
+                    if(time > 1_000_000) stalled++;
+                    count++;
+                }
+                writes.addAndGet(count);
+                stalls.addAndGet(stalled);
+                long m = max;
+                maxStall.accumulateAndGet(m, Math::max);
+            });
+        }
+
+        long[] iterations = new long[1];
+        long[] iterationTime = new long[1];
+        long[] seen = new long[1];
+        Thread render = new Thread(() -> {
+            long sum = 0;
+            while(running.get()){
+                long start = System.nanoTime();
+                long[] visible = new long[1];
+                //a bit of work per chunk, like the distance check the render does before drawing it
+                map.forEach((pos, value) -> {
+                    if(pos.lengthSquared() < side*side*2) visible[0]++;
+                });
+                iterationTime[0] += System.nanoTime() - start;
+                iterations[0]++;
+                sum += visible[0];
+            }
+            seen[0] = sum;
+        });
+
+        for(Thread thread: threads) thread.start();
+        render.start();
+        Thread.sleep((long)(seconds * 1000));
+        running.set(false);
+        for(Thread thread: threads) thread.join();
+        render.join();
+
+        if(!print) return;
+        System.out.println(name + ":");
+        System.out.println("  writes: " + (long)(writes.get() / seconds) + "/s, longest write: " + maxStall.get()/1000 + "us, writes over 1ms: " + stalls.get());
+        System.out.println("  iterations: " + (long)(iterations[0] / seconds) + "/s, average iteration: "
+                + iterationTime[0]/Math.max(iterations[0], 1)/1000 + "us (" + seen[0] + ")");
+    }
+
+    //how IteratorSafeMap handled it. The flag is volatile here, the original's wasn't, which could make a writer miss that iterating stopped.
+    private static class SpinWaitMap<K, V> extends AbstractMap<K, V> {
+        private final Map<K, V> map = Collections.synchronizedMap(new HashMap<>());
+        private volatile boolean iterating;
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return map.entrySet();
+        }
+        @Override
+        public V put(K key, V value) {
+            waitIterating();
+            return map.put(key, value);
+        }
+        @Override
+        public V remove(Object key) {
+            waitIterating();
+            return map.remove(key);
+        }
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            waitIterating();
+            iterating = true;
+            map.forEach(action);
+            iterating = false;
+        }
+        private void waitIterating(){
+            while(iterating){
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ignored) {}
+            }
+        }
+    }
+}